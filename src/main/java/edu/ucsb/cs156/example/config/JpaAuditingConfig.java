@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+
+/**
+ * The `JpaAuditingConfig` class turns on JPA auditing, so that @CreatedDate and @LastModifiedDate
+ * fields (such as those of Job) are filled in when entities are saved.
+ *
+ * <p>Spring Data's default provider supplies a LocalDateTime, which cannot be stored in a
+ * ZonedDateTime field, so the current time is supplied as a ZonedDateTime instead.
+ */
+@Configuration
+@EnableJpaAuditing(dateTimeProviderRef = "zonedDateTimeProvider")
+public class JpaAuditingConfig {
+  @Bean
+  public DateTimeProvider zonedDateTimeProvider() {
+    return () -> Optional.of(ZonedDateTime.now());
+  }
+}
@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * The `SchedulingConfig` class turns on the @Scheduled methods of the job services (JobDispatcher,
+ * JobScheduler, JobLogStore, JobPurger), unless app.jobs.scheduling.enabled is false.
+ *
+ * <p>The tests set it to false, so their contexts do not poll the jobs tables in the background.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "app.jobs.scheduling.enabled", matchIfMissing = true)
+public class SchedulingConfig {}
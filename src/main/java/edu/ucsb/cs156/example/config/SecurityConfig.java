@@ -2,19 +2,16 @@ package edu.ucsb.cs156.example.config;
 
 import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
 
-import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.UserAuthoritiesService;
+import edu.ucsb.cs156.example.services.UserCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.Set;
 import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,10 +22,7 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.authority.mapping.GrantedAuthoritiesMapper;
-import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.Http403ForbiddenEntryPoint;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
@@ -56,6 +50,8 @@ public class SecurityConfig {
 
   @Autowired UserRepository userRepository;
 
+  @Autowired UserCache userCache;
+
   /**
    * The `filterChain` method in this Java code configures various security settings for an HTTP
    * request, including authorization, exception handling, OAuth2 login, CSRF protection, and logout
@@ -95,49 +91,18 @@ public class SecurityConfig {
     return web -> web.ignoring().requestMatchers(antMatcher("/h2-console/**"));
   }
 
-  private GrantedAuthoritiesMapper userAuthoritiesMapper() {
-    return (authorities) -> {
-      Set<GrantedAuthority> mappedAuthorities = new HashSet<>();
-      log.info("********** authorities={}", authorities);
-
-      authorities.forEach(
-          authority -> {
-            log.info("********** authority={}", authority);
-            mappedAuthorities.add(authority);
-            if (authority instanceof OAuth2UserAuthority oauth2UserAuthority) {
-              Map<String, Object> userAttributes = oauth2UserAuthority.getAttributes();
-              log.info("********** userAttributes={}", userAttributes);
-
-              mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_USER"));
-
-              String email = (String) userAttributes.get("email");
-              if (getAdmin(email)) {
-                mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
-              }
-
-              if (email.endsWith("@ucsb.edu")) {
-                mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_MEMBER"));
-              }
-            }
-          });
-      log.info("********** mappedAuthorities={}", mappedAuthorities);
-      return mappedAuthorities;
-    };
-  }
-
   /**
-   * This method checks if the given email belongs to an admin user either from a predefined list or
-   * by querying the user repository.
+   * The `userAuthoritiesService` bean works out the roles of a user as they log in.
    *
-   * @param email email address of the user
-   * @return whether the user with the given email is an admin
+   * @return the service
    */
-  public boolean getAdmin(String email) {
-    if (adminEmails.contains(email)) {
-      return true;
-    }
-    Optional<User> u = userRepository.findByEmail(email);
-    return u.isPresent() && u.get().getAdmin();
+  @Bean
+  public UserAuthoritiesService userAuthoritiesService() {
+    return new UserAuthoritiesService(adminEmails, userRepository, userCache);
+  }
+
+  private GrantedAuthoritiesMapper userAuthoritiesMapper() {
+    return userAuthoritiesService()::mapAuthorities;
   }
 }
 
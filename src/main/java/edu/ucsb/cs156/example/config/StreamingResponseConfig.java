@@ -0,0 +1,55 @@
+package edu.ucsb.cs156.example.config;
+
+import java.util.List;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.AsyncHandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBodyReturnValueHandler;
+
+/**
+ * The `StreamingResponseConfig` class lets a controller method declared to return
+ * ResponseEntity&lt;?&gt; return a StreamingResponseBody, as the /all endpoints do when they stream
+ * rather than list a page.
+ *
+ * <p>Spring only streams a ResponseEntity whose declared body type is StreamingResponseBody, so
+ * responses whose body turns out to be one are handed to Spring's own handler here.
+ */
+@Configuration
+public class StreamingResponseConfig implements WebMvcConfigurer {
+  @Override
+  public void addReturnValueHandlers(List<HandlerMethodReturnValueHandler> handlers) {
+    handlers.add(new StreamingResponseEntityHandler());
+  }
+
+  static class StreamingResponseEntityHandler implements AsyncHandlerMethodReturnValueHandler {
+    private final StreamingResponseBodyReturnValueHandler streaming =
+        new StreamingResponseBodyReturnValueHandler();
+
+    @Override
+    public boolean isAsyncReturnValue(Object returnValue, MethodParameter returnType) {
+      return returnValue instanceof ResponseEntity<?> entity
+          && entity.getBody() instanceof StreamingResponseBody;
+    }
+
+    @Override
+    public boolean supportsReturnType(MethodParameter returnType) {
+      return ResponseEntity.class.isAssignableFrom(returnType.getParameterType());
+    }
+
+    @Override
+    public void handleReturnValue(
+        Object returnValue,
+        MethodParameter returnType,
+        ModelAndViewContainer mavContainer,
+        NativeWebRequest webRequest)
+        throws Exception {
+      streaming.handleReturnValue(returnValue, returnType, mavContainer, webRequest);
+    }
+  }
+}
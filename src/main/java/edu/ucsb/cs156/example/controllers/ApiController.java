@@ -1,6 +1,9 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.errors.BulkInsertException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidFieldsException;
+import edu.ucsb.cs156.example.errors.InvalidPageRequestException;
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import java.util.Map;
@@ -47,4 +50,23 @@ public abstract class ApiController {
         "type", e.getClass().getSimpleName(),
         "message", e.getMessage());
   }
+
+  /**
+   * This method handles the InvalidPageRequestException, InvalidFieldsException and
+   * BulkInsertException.
+   *
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({
+    InvalidPageRequestException.class,
+    InvalidFieldsException.class,
+    BulkInsertException.class
+  })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleInvalidPageRequestException(Throwable e) {
+    return Map.of(
+        "type", e.getClass().getSimpleName(),
+        "message", e.getMessage());
+  }
 }
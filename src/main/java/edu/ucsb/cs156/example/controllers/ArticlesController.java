@@ -4,14 +4,19 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.services.BulkInserter;
+import edu.ucsb.cs156.example.services.ColumnProjector;
+import edu.ucsb.cs156.example.services.RowStreamer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -31,29 +36,97 @@ public class ArticlesController extends ApiController {
 
   @Autowired ArticlesRepository articlesRepository;
 
+  @Autowired RowStreamer rowStreamer;
+
+  @Autowired ColumnProjector columnProjector;
+
+  @Autowired BulkInserter bulkInserter;
+
+  private static final KeysetPager<Articles> PAGER =
+      KeysetPager.of(Articles.class, "id", "title", "email", "dateAdded")
+          .selectable("title", "url", "explanation", "email", "dateAdded");
+
   /**
-   * List all Articles
+   * List articles a page at a time
    *
-   * @return an iterable of Articles
+   * @param sort column to sort by, optionally followed by ",desc"
+   * @param after cursor of the page, from the Link header of the page before it
+   * @param limit maximum number of articles to list, or null to list them all on one page
+   * @param stream whether to stream all articles rather than list a page
+   * @param fields only list these fields, if given
+   * @param email only list articles with this email, if given
+   * @return a page of Articles, with a Link header to the next page if there is one, or the stream
    */
-  @Operation(summary = "List all articles")
+  @Operation(summary = "List articles a page at a time, optionally by email")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<Articles> allArticles() {
-    Iterable<Articles> articles = articlesRepository.findAll();
-    return articles;
+  public ResponseEntity<?> allArticles(
+      @Parameter(
+              name = "sort",
+              description = "Sort by id, title, email or dateAdded, optionally followed by ,desc")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(
+              name = "after",
+              description = "List articles after this cursor (from the Link header)")
+          @RequestParam(required = false)
+          String after,
+      @Parameter(
+              name = "limit",
+              description =
+                  "Maximum number of articles to list (at most 1000); without limit or after, every"
+                      + " one is listed")
+          @RequestParam(required = false)
+          Integer limit,
+      @Parameter(
+              name = "stream",
+              description =
+                  "Stream all articles as a JSON array instead of listing a page (or accept"
+                      + " application/x-ndjson to stream NDJSON)")
+          @RequestParam(defaultValue = "false")
+          boolean stream,
+      @Parameter(
+              name = "fields",
+              description =
+                  "Only list these fields (with the id), separated by commas, e.g. title,email")
+          @RequestParam(required = false)
+          String fields,
+      @Parameter(name = "email", description = "Only list articles with this email")
+          @RequestParam(required = false)
+          String email) {
+    return PAGER.page(
+        articlesRepository,
+        rowStreamer,
+        columnProjector,
+        stream,
+        fields,
+        sort,
+        after,
+        limit,
+        KeysetPager.equal("email", email));
   }
 
   /**
    * Get a single article by id
    *
    * @param id the id of the article
+   * @param fields only get these fields, if given
    * @return a Articles
    */
   @Operation(summary = "Get a single article")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public Articles getById(@Parameter(name = "id") @RequestParam Long id) {
+  public Object getById(
+      @Parameter(name = "id") @RequestParam Long id,
+      @Parameter(
+              name = "fields",
+              description =
+                  "Only get these fields (with the id), separated by commas, e.g. title,email")
+          @RequestParam(required = false)
+          String fields) {
+    if (fields != null) {
+      return PAGER.select(columnProjector, id, fields);
+    }
     Articles article =
         articlesRepository
             .findById(id)
@@ -83,7 +156,8 @@ public class ArticlesController extends ApiController {
       @Parameter(
               name = "dateAdded",
               description =
-                  "date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS; see https://en.wikipedia.org/wiki/ISO_8601)")
+                  "date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS; see"
+                      + " https://en.wikipedia.org/wiki/ISO_8601)")
           @RequestParam("dateAdded")
           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
           LocalDateTime dateAdded)
@@ -106,6 +180,20 @@ public class ArticlesController extends ApiController {
     return savedArticle;
   }
 
+  /**
+   * Create many articles at once
+   *
+   * @param incoming the articles to create; any ids they have are ignored
+   * @return the saved articles
+   */
+  @Operation(summary = "Create many articles at once, from a JSON array")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public List<Articles> postArticles(@RequestBody List<Articles> incoming) {
+    incoming.forEach(article -> article.setId(0));
+    return bulkInserter.saveAll(articlesRepository, incoming);
+  }
+
   /**
    * Delete an Article
    *
@@ -4,14 +4,19 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.BulkInserter;
+import edu.ucsb.cs156.example.services.ColumnProjector;
+import edu.ucsb.cs156.example.services.RowStreamer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -31,17 +36,98 @@ public class HelpRequestController extends ApiController {
 
   @Autowired HelpRequestRepository helpRequestRepository;
 
+  @Autowired RowStreamer rowStreamer;
+
+  @Autowired ColumnProjector columnProjector;
+
+  @Autowired BulkInserter bulkInserter;
+
+  private static final KeysetPager<HelpRequest> PAGER =
+      KeysetPager.of(HelpRequest.class, "id", "requesterEmail", "teamId", "requestTime", "solved")
+          .selectable(
+              "requesterEmail",
+              "teamId",
+              "tableOrBreakoutRoom",
+              "requestTime",
+              "explanation",
+              "solved");
+
   /**
-   * List all help requests
+   * List help requests a page at a time
    *
-   * @return an iterable of HelpRequest
+   * @param sort column to sort by, optionally followed by ",desc"
+   * @param after cursor of the page, from the Link header of the page before it
+   * @param limit maximum number of help requests to list, or null to list them all on one page
+   * @param stream whether to stream all help requests rather than list a page
+   * @param fields only list these fields, if given
+   * @param requesterEmail only list help requests from this email, if given
+   * @param teamId only list help requests from this team, if given
+   * @param solved only list help requests that are, or are not, solved, if given
+   * @return a page of HelpRequest, with a Link header to the next page if there is one, or the
+   *     stream
    */
-  @Operation(summary = "List all help requests")
+  @Operation(
+      summary =
+          "List help requests a page at a time, optionally by requesterEmail, teamId or solved")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<HelpRequest> allHelpRequests() {
-    Iterable<HelpRequest> helpRequests = helpRequestRepository.findAll();
-    return helpRequests;
+  public ResponseEntity<?> allHelpRequests(
+      @Parameter(
+              name = "sort",
+              description =
+                  "Sort by id, requesterEmail, teamId, requestTime or solved, optionally followed"
+                      + " by ,desc")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(
+              name = "after",
+              description = "List help requests after this cursor (from the Link header)")
+          @RequestParam(required = false)
+          String after,
+      @Parameter(
+              name = "limit",
+              description =
+                  "Maximum number of help requests to list (at most 1000); without limit or after,"
+                      + " every one is listed")
+          @RequestParam(required = false)
+          Integer limit,
+      @Parameter(
+              name = "stream",
+              description =
+                  "Stream all help requests as a JSON array instead of listing a page (or accept"
+                      + " application/x-ndjson to stream NDJSON)")
+          @RequestParam(defaultValue = "false")
+          boolean stream,
+      @Parameter(
+              name = "fields",
+              description =
+                  "Only list these fields (with the id), separated by commas, e.g."
+                      + " requesterEmail,solved")
+          @RequestParam(required = false)
+          String fields,
+      @Parameter(name = "requesterEmail", description = "Only list help requests from this email")
+          @RequestParam(required = false)
+          String requesterEmail,
+      @Parameter(name = "teamId", description = "Only list help requests from this team")
+          @RequestParam(required = false)
+          String teamId,
+      @Parameter(
+              name = "solved",
+              description = "Only list help requests that are, or are not, solved")
+          @RequestParam(required = false)
+          Boolean solved) {
+    return PAGER.page(
+        helpRequestRepository,
+        rowStreamer,
+        columnProjector,
+        stream,
+        fields,
+        sort,
+        after,
+        limit,
+        KeysetPager.equal("requesterEmail", requesterEmail),
+        KeysetPager.equal("teamId", teamId),
+        KeysetPager.equal("solved", solved));
   }
 
   /*
@@ -65,7 +151,8 @@ public class HelpRequestController extends ApiController {
       @Parameter(
               name = "requestTime",
               description =
-                  "in iso format - YYYY-MM-DDTHH:MM:SS, see in https://en.wikipedia.org/wiki/ISO_8601, e.g. 2007-03-01T13:00:00")
+                  "in iso format - YYYY-MM-DDTHH:MM:SS, see in"
+                      + " https://en.wikipedia.org/wiki/ISO_8601, e.g. 2007-03-01T13:00:00")
           @RequestParam("requestTime")
           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
           LocalDateTime reqDateTime,
@@ -83,16 +170,42 @@ public class HelpRequestController extends ApiController {
     return savedHelpRequest;
   }
 
+  /**
+   * Create many help requests at once
+   *
+   * @param incoming the help requests to create; any ids they have are ignored
+   * @return the saved help requests
+   */
+  @Operation(summary = "Create many help requests at once, from a JSON array")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public List<HelpRequest> postHelpRequests(@RequestBody List<HelpRequest> incoming) {
+    incoming.forEach(helpRequest -> helpRequest.setId(0));
+    return bulkInserter.saveAll(helpRequestRepository, incoming);
+  }
+
   /**
    * Get a HelpRequest by id
    *
    * @param id the id of the HelpRequest
+   * @param fields only get these fields, if given
    * @return the HelpRequest if it is found
    */
   @Operation(summary = "Get a help request")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public HelpRequest getById(@Parameter(name = "id") @RequestParam Long id) {
+  public Object getById(
+      @Parameter(name = "id") @RequestParam Long id,
+      @Parameter(
+              name = "fields",
+              description =
+                  "Only get these fields (with the id), separated by commas, e.g."
+                      + " requesterEmail,solved")
+          @RequestParam(required = false)
+          String fields) {
+    if (fields != null) {
+      return PAGER.select(columnProjector, id, fields);
+    }
 
     return helpRequestRepository
         .findById(id)
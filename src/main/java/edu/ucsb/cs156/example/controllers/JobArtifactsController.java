@@ -0,0 +1,156 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.JobArtifact;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobArtifactStore;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * This is a REST controller for the files jobs write with JobContext.writeArtifact.
+ *
+ * <p>When the servlet container can send a file itself (Tomcat's sendfile, on a plain HTTP
+ * connector), a download, or a single range of one, is handed to it and goes from the file to the
+ * socket with FileChannel.transferTo, without being copied through the JVM. Otherwise, and for
+ * conditional and multi-range requests, the file is returned as a Resource, which Spring streams in
+ * small buffers and serves ranges of.
+ */
+@Tag(name = "Job Artifacts")
+@RequestMapping("/api/jobs/artifacts")
+@RestController
+public class JobArtifactsController extends ApiController {
+  static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+  static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired JobArtifactStore jobArtifactStore;
+
+  /**
+   * This method lists the artifacts of a job.
+   *
+   * @param jobId id of the job
+   * @return the artifacts, by name, with their size and checksum
+   */
+  @Operation(summary = "List the files a job wrote")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/{jobId}")
+  public List<JobArtifact> listJobArtifacts(
+      @Parameter(name = "jobId", description = "ID of the job") @PathVariable Long jobId) {
+    if (!jobsRepository.existsById(jobId)) {
+      throw new EntityNotFoundException(Job.class, jobId);
+    }
+    return jobArtifactStore.list(jobId);
+  }
+
+  /**
+   * This method downloads an artifact of a job, or a byte range of it.
+   *
+   * @param jobId id of the job
+   * @param name name of the artifact
+   * @param range the Range header, if any
+   * @param request the request, through which the file is handed to the container
+   * @return the artifact, with its SHA-256 as ETag
+   */
+  @Operation(summary = "Download a file a job wrote, or byte ranges of it (Range header)")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/{jobId}/{name}")
+  public ResponseEntity<Resource> getJobArtifact(
+      @Parameter(name = "jobId", description = "ID of the job") @PathVariable Long jobId,
+      @Parameter(name = "name", description = "Name of the artifact") @PathVariable String name,
+      @RequestHeader(name = HttpHeaders.RANGE, required = false) String range,
+      HttpServletRequest request) {
+    if (!jobsRepository.existsById(jobId)) {
+      throw new EntityNotFoundException(Job.class, jobId);
+    }
+    JobArtifact artifact =
+        jobArtifactStore
+            .find(jobId, name)
+            .orElseThrow(() -> new EntityNotFoundException(JobArtifact.class, jobId + "/" + name));
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(
+        MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM));
+    headers.setContentDisposition(ContentDisposition.attachment().filename(name).build());
+    headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+    if (artifact.getSha256() != null) {
+      headers.setETag("\"" + artifact.getSha256() + "\"");
+    }
+
+    boolean sendfile =
+        Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))
+            && artifact.getBytes() > 0
+            && request.getHeader(HttpHeaders.IF_NONE_MATCH) == null
+            && request.getHeader(HttpHeaders.IF_RANGE) == null;
+    if (sendfile) {
+      ResponseEntity<Resource> sent = sendfile(artifact, range, headers, request);
+      if (sent != null) {
+        return sent;
+      }
+    }
+    return ResponseEntity.ok().headers(headers).body(new FileSystemResource(artifact.getFile()));
+  }
+
+  /**
+   * Hand the whole artifact, or a single range of it, to the container to send.
+   *
+   * @return the response, with no body; or null for a multi-range request, left to Spring
+   */
+  private static ResponseEntity<Resource> sendfile(
+      JobArtifact artifact, String range, HttpHeaders headers, HttpServletRequest request) {
+    long length = artifact.getBytes();
+    long first = 0;
+    long last = length - 1;
+    HttpStatus status = HttpStatus.OK;
+    if (range != null) {
+      List<HttpRange> ranges;
+      try {
+        ranges = HttpRange.parseRanges(range);
+      } catch (IllegalArgumentException e) {
+        ranges = null;
+      }
+      if (ranges != null && ranges.size() > 1) {
+        return null;
+      }
+      if (ranges == null
+          || ranges.get(0).getRangeStart(length) >= length
+          || ranges.get(0).getRangeEnd(length) < ranges.get(0).getRangeStart(length)) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+            .build();
+      }
+      first = ranges.get(0).getRangeStart(length);
+      last = ranges.get(0).getRangeEnd(length);
+      status = HttpStatus.PARTIAL_CONTENT;
+      headers.set(HttpHeaders.CONTENT_RANGE, "bytes %d-%d/%d".formatted(first, last, length));
+    }
+    request.setAttribute(SENDFILE_FILENAME, artifact.getFile().toString());
+    request.setAttribute(SENDFILE_START, first);
+    request.setAttribute(SENDFILE_END, last + 1);
+    headers.setContentLength(last - first + 1);
+    return ResponseEntity.status(status).headers(headers).build();
+  }
+}
@@ -0,0 +1,167 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.repositories.JobSchedulesRepository;
+import edu.ucsb.cs156.example.services.jobs.JobScheduler;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+/** This is a REST controller for the schedules on which jobs are launched */
+@Tag(name = "Job Schedules")
+@RequestMapping("/api/jobs/schedules")
+@RestController
+public class JobSchedulesController extends ApiController {
+
+  @Autowired JobSchedulesRepository jobSchedulesRepository;
+
+  @Autowired JobScheduler jobScheduler;
+
+  /**
+   * This method returns a list of all job schedules.
+   *
+   * @return a list of all job schedules
+   */
+  @Operation(summary = "List all job schedules")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/all")
+  public Iterable<JobSchedule> allJobSchedules() {
+    return jobSchedulesRepository.findAll();
+  }
+
+  /**
+   * This method returns a single job schedule.
+   *
+   * @param id id of the job schedule to get
+   * @return a single job schedule
+   */
+  @Operation(summary = "Get a single job schedule")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("")
+  public JobSchedule getById(@Parameter(name = "id") @RequestParam Long id) {
+    return jobSchedulesRepository
+        .findById(id)
+        .orElseThrow(() -> new EntityNotFoundException(JobSchedule.class, id));
+  }
+
+  /**
+   * This method creates a new job schedule.
+   *
+   * @param name name of the schedule
+   * @param cron when to launch the job, as a Spring cron expression
+   * @param jobType type of the job, one listed in JobTypes
+   * @param params params of the job, as JSON
+   * @param timeoutMs how long each job may run; 0 for no limit
+   * @param enabled whether the schedule launches jobs
+   * @return the saved job schedule, with when it is next due
+   */
+  @Operation(summary = "Create a new job schedule")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/post")
+  public JobSchedule postJobSchedule(
+      @Parameter(name = "name") @RequestParam String name,
+      @Parameter(
+              name = "cron",
+              description = "second minute hour day-of-month month day-of-week, e.g. 0 0 3 * * *")
+          @RequestParam
+          String cron,
+      @Parameter(name = "jobType", description = "e.g. TestJob") @RequestParam String jobType,
+      @Parameter(name = "params", description = "Params of the job, as JSON")
+          @RequestParam(defaultValue = "{}")
+          String params,
+      @Parameter(name = "timeoutMs", description = "Stop each job if it runs longer than this")
+          @RequestParam(defaultValue = "0")
+          long timeoutMs,
+      @Parameter(name = "enabled") @RequestParam(defaultValue = "true") boolean enabled) {
+    JobSchedule schedule =
+        JobSchedule.builder()
+            .createdBy(getCurrentUser().getUser())
+            .name(name)
+            .cron(cron)
+            .jobType(jobType)
+            .params(params)
+            .timeoutMs(timeoutMs > 0 ? timeoutMs : null)
+            .enabled(enabled)
+            .build();
+    jobScheduler.prepare(schedule, ZonedDateTime.now());
+    return jobSchedulesRepository.save(schedule);
+  }
+
+  /**
+   * Update a single job schedule. When it is next due is worked out again from its cron expression.
+   *
+   * @param id id of the job schedule to update
+   * @param incoming the new job schedule contents
+   * @return the updated job schedule
+   */
+  @Operation(summary = "Update a single job schedule")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("")
+  public JobSchedule updateJobSchedule(
+      @Parameter(name = "id") @RequestParam Long id, @RequestBody JobSchedule incoming) {
+    JobSchedule schedule =
+        jobSchedulesRepository
+            .findById(id)
+            .orElseThrow(() -> new EntityNotFoundException(JobSchedule.class, id));
+
+    schedule.setName(incoming.getName());
+    schedule.setCron(incoming.getCron());
+    schedule.setJobType(incoming.getJobType());
+    schedule.setParams(incoming.getParams());
+    schedule.setTimeoutMs(incoming.getTimeoutMs());
+    schedule.setEnabled(incoming.getEnabled());
+    jobScheduler.prepare(schedule, ZonedDateTime.now());
+
+    return jobSchedulesRepository.save(schedule);
+  }
+
+  /**
+   * Delete a job schedule. Jobs it has launched are kept.
+   *
+   * @param id id of the job schedule to delete
+   * @return a message indicating that the job schedule was deleted
+   */
+  @Operation(summary = "Delete a job schedule")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("")
+  public Object deleteJobSchedule(@Parameter(name = "id") @RequestParam Long id) {
+    JobSchedule schedule =
+        jobSchedulesRepository
+            .findById(id)
+            .orElseThrow(() -> new EntityNotFoundException(JobSchedule.class, id));
+
+    jobSchedulesRepository.delete(schedule);
+    return genericMessage("JobSchedule with id %s deleted".formatted(id));
+  }
+
+  /**
+   * This method handles a schedule that cannot be run: an invalid cron expression, an unknown job
+   * type, or params that cannot be read.
+   *
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({IllegalArgumentException.class})
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleIllegalArgumentException(Throwable e) {
+    return Map.of(
+        "type", e.getClass().getSimpleName(),
+        "message", e.getMessage());
+  }
+}
@@ -0,0 +1,88 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.JobWorkflow;
+import edu.ucsb.cs156.example.models.JobWorkflowStatus;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import edu.ucsb.cs156.example.services.jobs.JobWorkflows;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * This is a REST controller for workflows: graphs of jobs, each run once the jobs it depends on
+ * have completed (see JobWorkflows). A workflow is cancelled like any other job, with POST
+ * /api/jobs/cancel.
+ */
+@Tag(name = "Job Workflows")
+@RequestMapping("/api/jobs/workflows")
+@RestController
+public class JobWorkflowsController extends ApiController {
+
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired JobService jobService;
+
+  @Autowired JobWorkflows jobWorkflows;
+
+  /**
+   * This method starts a workflow.
+   *
+   * @param workflow the workflow: its nodes, with the job each runs and the nodes it depends on
+   * @return the job of the workflow, with status "running"
+   */
+  @Operation(summary = "Start a workflow of jobs")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("")
+  public Job postJobWorkflow(@RequestBody JobWorkflow workflow) {
+    return jobService.runWorkflow(workflow);
+  }
+
+  /**
+   * This method returns a workflow and the jobs run for its nodes.
+   *
+   * @param id id of the job of the workflow
+   * @return the workflow, its definition, and its node jobs
+   */
+  @Operation(summary = "Get a workflow and the jobs run for its nodes")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("")
+  public JobWorkflowStatus getJobWorkflow(@Parameter(name = "id") @RequestParam Long id) {
+    Job workflow =
+        jobsRepository
+            .findById(id)
+            .filter(job -> JobWorkflows.TYPE.equals(job.getType()))
+            .orElseThrow(() -> new EntityNotFoundException(JobWorkflow.class, id));
+    return new JobWorkflowStatus(
+        workflow, jobWorkflows.fromParams(workflow), jobsRepository.findByParentIdOrderById(id));
+  }
+
+  /**
+   * This method handles a workflow that cannot be run: an unnamed or duplicate node, an unknown job
+   * type, params that cannot be read, an unknown dependency, or a cycle.
+   *
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({IllegalArgumentException.class})
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleIllegalArgumentException(Throwable e) {
+    return Map.of(
+        "type", e.getClass().getSimpleName(),
+        "message", e.getMessage());
+  }
+}
@@ -4,48 +4,103 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.entities.Job;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import edu.ucsb.cs156.example.errors.LogRangeNotSatisfiableException;
 import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.models.JobTypeUsage;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobArtifactStore;
+import edu.ucsb.cs156.example.services.jobs.JobExecutor;
+import edu.ucsb.cs156.example.services.jobs.JobLogLevel;
+import edu.ucsb.cs156.example.services.jobs.JobLogSlice;
+import edu.ucsb.cs156.example.services.jobs.JobMetrics;
+import edu.ucsb.cs156.example.services.jobs.JobPurger;
 import edu.ucsb.cs156.example.services.jobs.JobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Tag(name = "Jobs")
 @RequestMapping("/api/jobs")
 @RestController
 @Slf4j
 public class JobsController extends ApiController {
+  static final int MAX_PAGE_SIZE = 500;
+
   @Autowired private JobsRepository jobsRepository;
 
   @Autowired private JobService jobService;
 
+  @Autowired private JobExecutor jobExecutor;
+
+  @Autowired private JobPurger jobPurger;
+
+  @Autowired private JobMetrics jobMetrics;
+
+  @Autowired private JobArtifactStore jobArtifactStore;
+
   @Autowired ObjectMapper mapper;
 
-  @Operation(summary = "List all jobs")
+  @Operation(summary = "List jobs a page at a time, in order of id, optionally by status")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @GetMapping("/all")
-  public Iterable<Job> allJobs() {
-    Iterable<Job> jobs = jobsRepository.findAll();
-    return jobs;
+  public KeysetPage<JobSummary> allJobs(
+      @Parameter(name = "afterId", description = "List jobs after this id (nextAfterId)")
+          @RequestParam(defaultValue = "0")
+          long afterId,
+      @Parameter(name = "limit", description = "Maximum number of jobs to list (at most 500)")
+          @RequestParam(defaultValue = "50")
+          int limit,
+      @Parameter(name = "status", description = "Only list jobs with this status")
+          @RequestParam(required = false)
+          String status) {
+    int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+    // fetch one extra row to learn whether there is a next page
+    Limit fetch = Limit.of(pageSize + 1);
+    List<JobSummary> jobs =
+        status == null
+            ? jobsRepository.findSummaries(afterId, fetch)
+            : jobsRepository.findSummariesByStatus(status, afterId, fetch);
+    if (jobs.size() <= pageSize) {
+      return new KeysetPage<>(jobs, null);
+    }
+    List<JobSummary> page = jobs.subList(0, pageSize);
+    return new KeysetPage<>(page, page.get(pageSize - 1).getId());
   }
 
   @Operation(summary = "Delete all job records")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("/all")
   public Map<String, String> deleteAllJobs() {
-    jobsRepository.deleteAll();
+    jobPurger.deleteAll();
     return Map.of("message", "All jobs deleted");
   }
 
@@ -70,6 +125,7 @@ public class JobsController extends ApiController {
       return Map.of("message", String.format("Job with id %d not found", id));
     }
     jobsRepository.deleteById(id);
+    jobArtifactStore.delete(id);
     return Map.of("message", String.format("Job with id %d deleted", id));
   }
 
@@ -78,17 +134,208 @@ public class JobsController extends ApiController {
   @PostMapping("/launch/testjob")
   public Job launchTestJob(
       @Parameter(name = "fail") @RequestParam Boolean fail,
-      @Parameter(name = "sleepMs") @RequestParam Integer sleepMs) {
+      @Parameter(name = "sleepMs") @RequestParam Integer sleepMs,
+      @Parameter(name = "timeoutMs", description = "Stop the job if it runs longer than this")
+          @RequestParam(defaultValue = "0")
+          long timeoutMs,
+      @Parameter(name = "tasks", description = "Sleep in this many parallel child tasks instead")
+          @RequestParam(defaultValue = "0")
+          int tasks) {
 
-    TestJob testJob = TestJob.builder().fail(fail).sleepMs(sleepMs).build();
-    return jobService.runAsJob(testJob);
+    TestJob testJob = TestJob.builder().fail(fail).sleepMs(sleepMs).tasks(tasks).build();
+    return jobService.runAsJob(testJob, timeoutMs);
   }
 
-  @Operation(summary = "Get long job logs")
+  @Operation(summary = "Get queue wait, run time, log volume and outcome metrics per job type")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/metrics")
+  public Map<String, Object> getMetrics() {
+    return jobMetrics.snapshot();
+  }
+
+  @Operation(
+      summary =
+          "Get the total, average and largest CPU time and heap allocations of the jobs of each"
+              + " type, the most CPU-hungry type first; measured only while app.jobs.usage.enabled"
+              + " is true")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/usage")
+  public List<JobTypeUsage> getUsage() {
+    return jobsRepository.summarizeUsageByType();
+  }
+
+  @Operation(summary = "Cancel a queued or running job")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/cancel")
+  public Map<String, String> cancelJob(
+      @Parameter(name = "id", description = "ID of the job") @RequestParam Long id) {
+    if (!jobsRepository.existsById(id)) {
+      throw new EntityNotFoundException(Job.class, id);
+    }
+    if (!jobService.cancelJob(id)) {
+      return Map.of("message", String.format("Job with id %d is not queued or running", id));
+    }
+    return jobsRepository
+        .findById(id)
+        .filter(job -> job.getCancelRequestedAt() != null)
+        .filter(job -> "queued".equals(job.getStatus()) || "running".equals(job.getStatus()))
+        .map(
+            job ->
+                Map.of(
+                    "message",
+                    String.format(
+                        "Job with id %d is running on node %s, which will cancel it at its next"
+                            + " heartbeat",
+                        id, job.getLeaseOwner())))
+        .orElse(Map.of("message", String.format("Job with id %d cancelled", id)));
+  }
+
+  @Operation(
+      summary =
+          "Run a failed, cancelled, timed out or interrupted job again from its last checkpoint")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/resume")
+  public Map<String, String> resumeJob(
+      @Parameter(name = "id", description = "ID of the job") @RequestParam Long id) {
+    if (!jobsRepository.existsById(id)) {
+      throw new EntityNotFoundException(Job.class, id);
+    }
+    if (!jobService.resumeJob(id)) {
+      return Map.of("message", String.format("Job with id %d cannot be resumed", id));
+    }
+    return Map.of("message", String.format("Job with id %d resumed", id));
+  }
+
+  @Operation(summary = "Get the number of queued and running jobs")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/queue")
+  public Map<String, Integer> getQueue() {
+    return Map.of(
+        "queued", jobExecutor.getQueuedCount(),
+        "running", jobExecutor.getRunningCount(),
+        "maxQueued", jobExecutor.getMaxQueued(),
+        "maxConcurrent", jobExecutor.getMaxConcurrent());
+  }
+
+  @Operation(
+      summary =
+          "Get a job log, or part of it by line (fromLine/toLine or tail) or by byte (Range"
+              + " header), or only its lines at or above a level (level) or containing some text"
+              + " (grep)")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @GetMapping("/logs/{id}")
-  public String getJobLogs(@Parameter(name = "id", description = "Job ID") @PathVariable Long id) {
+  public ResponseEntity<Resource> getJobLogs(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      @Parameter(name = "fromLine", description = "First line to return, counting from 1")
+          @RequestParam(required = false)
+          Long fromLine,
+      @Parameter(name = "toLine", description = "Last line to return")
+          @RequestParam(required = false)
+          Long toLine,
+      @Parameter(name = "tail", description = "Return this many lines from the end of the log")
+          @RequestParam(required = false)
+          Long tail,
+      @Parameter(
+              name = "level",
+              description =
+                  "Return only the lines at or above this level (DEBUG, INFO, WARN or ERROR);"
+                      + " lines written without one count as INFO")
+          @RequestParam(required = false)
+          JobLogLevel level,
+      @Parameter(name = "grep", description = "Return only the lines containing this text")
+          @RequestParam(required = false)
+          String grep,
+      @RequestHeader(name = HttpHeaders.RANGE, required = false) String range) {
+
+    MediaType textPlain = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+    if (level != null || (grep != null && !grep.isEmpty())) {
+      // filtered over the whole log; line and byte ranges do not apply
+      InputStream records = jobService.getJobLogRecords(id, level, grep);
+      return ResponseEntity.ok().contentType(textPlain).body(new InputStreamResource(records));
+    }
+    JobLogSlice slice;
+    if (tail != null) {
+      slice = jobService.getJobLogTail(id, tail);
+    } else if (fromLine != null || toLine != null) {
+      slice = jobService.getJobLogLines(id, fromLine != null ? Math.max(1, fromLine) : 1, toLine);
+    } else {
+      HttpRange byteRange = firstByteRange(range);
+      if (byteRange == null) {
+        InputStream log = jobService.getJobLogs(id);
+        return ResponseEntity.ok().contentType(textPlain).body(new InputStreamResource(log));
+      }
+      slice = jobService.getJobLogBytes(id, byteRange);
+    }
+    if (slice.isEmpty()) {
+      return ResponseEntity.ok()
+          .contentType(textPlain)
+          .body(new InputStreamResource(slice.getContent()));
+    }
+    return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+        .header(HttpHeaders.CONTENT_RANGE, slice.getContentRange())
+        .contentType(textPlain)
+        .body(new InputStreamResource(slice.getContent()));
+  }
+
+  /**
+   * Only the first range of a Range header is served; a header that cannot be parsed is ignored, as
+   * HTTP allows, and the whole log is returned.
+   */
+  private static HttpRange firstByteRange(String header) {
+    if (header == null) {
+      return null;
+    }
+    try {
+      List<HttpRange> ranges = HttpRange.parseRanges(header);
+      return ranges.isEmpty() ? null : ranges.get(0);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  @Operation(
+      summary =
+          "Follow a job log as Server-Sent Events, starting at a byte offset (or Last-Event-ID)")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping(value = "/logs/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamJobLogs(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      @Parameter(name = "offset", description = "Number of bytes of the log already received")
+          @RequestParam(defaultValue = "0")
+          long offset,
+      @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+    return jobService.tailJobLogs(id, lastEventId != null ? lastEventId : offset);
+  }
+
+  /**
+   * This method handles the LogRangeNotSatisfiableException, telling the client how long the log
+   * is.
+   *
+   * @param e the exception
+   * @return a 416 response with the type and message of the exception
+   */
+  @ExceptionHandler({LogRangeNotSatisfiableException.class})
+  public ResponseEntity<Object> handleLogRangeNotSatisfiableException(
+      LogRangeNotSatisfiableException e) {
+    return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+        .header(HttpHeaders.CONTENT_RANGE, "%s */%d".formatted(e.getUnit(), e.getTotal()))
+        .body(
+            Map.of(
+                "type", e.getClass().getSimpleName(),
+                "message", e.getMessage()));
+  }
 
-    return jobService.getJobLogs(id);
+  /**
+   * This method handles the JobQueueFullException.
+   *
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({JobQueueFullException.class})
+  @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+  public Object handleJobQueueFullException(Throwable e) {
+    return Map.of(
+        "type", e.getClass().getSimpleName(),
+        "message", e.getMessage());
   }
 }
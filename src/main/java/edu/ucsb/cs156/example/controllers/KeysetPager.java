@@ -0,0 +1,413 @@
+package edu.ucsb.cs156.example.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidFieldsException;
+import edu.ucsb.cs156.example.errors.InvalidPageRequestException;
+import edu.ucsb.cs156.example.services.ColumnProjector;
+import edu.ucsb.cs156.example.services.RowStreamer;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * This is a helper that lists the rows of a table a page at a time, for the /all endpoints.
+ *
+ * <p>Rows are listed in order of one of a few sortable columns and then of id; nulls sort as if
+ * higher than every value. Each page after the first starts from a cursor that holds the sort
+ * column and id of the row before it, and is read with a WHERE clause on them rather than with an
+ * OFFSET, so with an index on (column, id) every page takes as long to read as the first however
+ * far in it is.
+ *
+ * <p>A page is returned as a JSON array, as the /all endpoints always have, with the URL of the
+ * next page in a Link header (rel="next"); the last page has no Link header. A request with neither
+ * limit nor after is not paged: every row is returned in one array, as the /all endpoints did
+ * before they were paged, so clients that do not follow Link headers still see every row.
+ *
+ * <p>Exports of a whole table are streamed instead, by RowStreamer: every row from the cursor on is
+ * written as it is read, as a JSON array if stream=true is passed, or as NDJSON if the request
+ * accepts application/x-ndjson. Sort, cursor and filters apply as they do to a page.
+ *
+ * <p>A request may ask for only some fields (fields=title,email), from those the pager allows to be
+ * selected. Only those columns are then read, with ColumnProjector, and each row is returned as an
+ * object with just those fields, along with the id and the column sorted by.
+ *
+ * @param <T> type of the entities listed
+ */
+public final class KeysetPager<T> {
+  public static final int MAX_LIMIT = 1000;
+
+  private static final ObjectMapper cursors = new ObjectMapper();
+
+  private final Class<T> entityType;
+
+  private final String idColumn;
+
+  // the columns that can be sorted by, id first, and the type of each
+  private final Map<String, Class<?>> columns = new LinkedHashMap<>();
+
+  // the columns that can be selected with fields=, in the order they are returned
+  private final List<String> selectable;
+
+  private KeysetPager(
+      Class<T> entityType, String idColumn, List<String> selectable, List<String> sortable) {
+    this.entityType = entityType;
+    this.idColumn = idColumn;
+    columns.put(idColumn, typeOf(entityType, idColumn));
+    for (String column : sortable) {
+      columns.put(column, typeOf(entityType, column));
+    }
+    for (String column : selectable) {
+      if (ReflectionUtils.findField(entityType, column) == null) {
+        throw new IllegalArgumentException(
+            "%s has no attribute %s".formatted(entityType.getSimpleName(), column));
+      }
+    }
+    this.selectable = selectable;
+  }
+
+  /**
+   * @param entityType type of the entities listed
+   * @param idColumn the attribute that is the id of the entity
+   * @param sortable the other attributes that can be sorted by; each needs an index on it and the
+   *     id
+   * @return a pager for the entities
+   * @param <T> type of the entities listed
+   */
+  public static <T> KeysetPager<T> of(Class<T> entityType, String idColumn, String... sortable) {
+    return new KeysetPager<>(entityType, idColumn, List.of(), List.of(sortable));
+  }
+
+  /**
+   * @param fields the attributes that can be selected with fields=, in the order they are returned
+   * @return a pager like this one that also lets those attributes be selected
+   */
+  public KeysetPager<T> selectable(String... fields) {
+    List<String> sortable = List.copyOf(columns.keySet()).subList(1, columns.size());
+    return new KeysetPager<>(entityType, idColumn, List.of(fields), sortable);
+  }
+
+  private static Class<?> typeOf(Class<?> entityType, String column) {
+    var field = ReflectionUtils.findField(entityType, column);
+    if (field == null) {
+      throw new IllegalArgumentException(
+          "%s has no attribute %s".formatted(entityType.getSimpleName(), column));
+    }
+    parse(field.getType(), null);
+    return field.getType();
+  }
+
+  /**
+   * A filter to pass to page.
+   *
+   * @param column attribute to filter on
+   * @param value value the attribute must have, or null to list every row
+   * @return the filter, or null if there is none
+   * @param <T> type of the entities listed
+   */
+  public static <T> Specification<T> equal(String column, Object value) {
+    return value == null ? null : new Equal<>(column, value);
+  }
+
+  /** A filter on the value of one column, which RowStreamer can also apply in SQL. */
+  private record Equal<T>(String column, Object value) implements Specification<T> {
+    @Override
+    public Predicate toPredicate(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+      return cb.equal(root.get(column), value);
+    }
+  }
+
+  /**
+   * List a page of rows, or stream them all.
+   *
+   * @param repository the repository of the entities
+   * @param rowStreamer the streamer to stream the rows with
+   * @param columnProjector the projector to read only some columns with
+   * @param stream whether to stream every row rather than list a page; rows are also streamed if
+   *     the request accepts application/x-ndjson
+   * @param fields the fields to list, separated by commas, or null to list every field
+   * @param sort the column to sort by, optionally followed by ",asc" or ",desc"
+   * @param after the cursor of the page, from the Link header of the page before it, or null for
+   *     the first page
+   * @param limit the largest number of rows to list, at most MAX_LIMIT, or null to list every row
+   *     when there is no cursor and MAX_LIMIT rows when there is; ignored when streaming
+   * @param filters filters each row listed must pass; null filters are ignored
+   * @return the page, with a Link header to the next page if there is one, or the stream
+   * @throws InvalidPageRequestException if the column cannot be sorted by, or the cursor was not
+   *     handed out for this sort
+   * @throws InvalidFieldsException if a field cannot be selected, or fields are asked for in a
+   *     stream
+   */
+  @SafeVarargs
+  public final ResponseEntity<?> page(
+      JpaSpecificationExecutor<T> repository,
+      RowStreamer rowStreamer,
+      ColumnProjector columnProjector,
+      boolean stream,
+      String fields,
+      String sort,
+      String after,
+      Integer limit,
+      Specification<T>... filters) {
+    String[] parts = sort.split(",", 2);
+    String column = parts[0].trim();
+    if (!columns.containsKey(column)) {
+      throw new InvalidPageRequestException(
+          "Cannot sort by %s; sort by one of %s"
+              .formatted(column, String.join(", ", columns.keySet())));
+    }
+    Direction direction =
+        parts.length == 1
+            ? Direction.ASC
+            : Direction.fromOptionalString(parts[1].trim())
+                .orElseThrow(
+                    () ->
+                        new InvalidPageRequestException(
+                            "Cannot sort in order %s; use asc or desc".formatted(parts[1])));
+    String order = column + "," + direction.name().toLowerCase();
+
+    Specification<T> where = Specification.allOf(filters);
+    if (after != null) {
+      where = where.and(after(column, direction, decode(after, order, column)));
+    }
+    // nulls sort high in Postgres, and in H2 with DEFAULT_NULL_ORDERING=HIGH
+    Sort by =
+        column.equals(idColumn)
+            ? Sort.by(direction, idColumn)
+            : Sort.by(direction, column, idColumn);
+
+    boolean ndjson = acceptsNdjson();
+    if ((stream || ndjson) && fields != null) {
+      throw new InvalidFieldsException("Cannot select fields of a stream; list pages instead");
+    }
+    if (stream || ndjson) {
+      return rowStreamer.stream(
+          entityType, where, after == null ? equalTo(filters) : null, by, ndjson);
+    }
+
+    if (limit == null && after == null) {
+      if (fields == null) {
+        return ResponseEntity.ok(repository.findBy(where, q -> q.sortBy(by).all()));
+      }
+      return ResponseEntity.ok(
+          columnProjector.list(
+              entityType, columnsFor(fields, column), where, by, Integer.MAX_VALUE));
+    }
+    int pageSize = limit == null ? MAX_LIMIT : Math.clamp(limit, 1, MAX_LIMIT);
+    // fetch one extra row to learn whether there is a next page
+    List<?> rows;
+    if (fields == null) {
+      rows = repository.findBy(where, q -> q.sortBy(by).limit(pageSize + 1).all());
+    } else {
+      rows = columnProjector.list(entityType, columnsFor(fields, column), where, by, pageSize + 1);
+    }
+    if (rows.size() <= pageSize) {
+      return ResponseEntity.ok(rows);
+    }
+    List<?> page = rows.subList(0, pageSize);
+    Object last = page.get(pageSize - 1);
+    Object value;
+    Object id;
+    if (last instanceof Map<?, ?> row) {
+      value = row.get(column);
+      id = row.get(idColumn);
+    } else {
+      var accessor = PropertyAccessorFactory.forDirectFieldAccess(last);
+      value = accessor.getPropertyValue(column);
+      id = accessor.getPropertyValue(idColumn);
+    }
+    String next =
+        ServletUriComponentsBuilder.fromCurrentRequest()
+            .replaceQueryParam("after", encode(order, value, id))
+            .build()
+            .toUriString();
+    return ResponseEntity.ok()
+        .header(HttpHeaders.LINK, "<%s>; rel=\"next\"".formatted(next))
+        .body(page);
+  }
+
+  /**
+   * Read only some fields of one row.
+   *
+   * @param columnProjector the projector to read the fields with
+   * @param id the id of the row
+   * @param fields the fields to read, separated by commas
+   * @return the id and the fields of the row
+   * @throws EntityNotFoundException if there is no row with the id
+   * @throws InvalidFieldsException if a field cannot be selected
+   */
+  public Map<String, Object> select(ColumnProjector columnProjector, Object id, String fields) {
+    List<Map<String, Object>> rows =
+        columnProjector.list(
+            entityType, columnsFor(fields, idColumn), equal(idColumn, id), Sort.unsorted(), 1);
+    if (rows.isEmpty()) {
+      throw new EntityNotFoundException(entityType, id);
+    }
+    return rows.get(0);
+  }
+
+  /**
+   * The columns to read for fields: the id, the fields in the order they are returned, and then the
+   * column sorted by.
+   */
+  private List<String> columnsFor(String fields, String column) {
+    Set<String> asked = new HashSet<>();
+    for (String field : fields.split(",")) {
+      String name = field.trim();
+      if (!selectable.contains(name) && !name.equals(idColumn)) {
+        throw new InvalidFieldsException(
+            selectable.isEmpty()
+                ? "Cannot select fields of %s".formatted(entityType.getSimpleName())
+                : "Cannot select field %s; select from %s"
+                    .formatted(name, String.join(", ", selectable)));
+      }
+      asked.add(name);
+    }
+    List<String> select = new ArrayList<>();
+    select.add(idColumn);
+    for (String field : selectable) {
+      if (asked.contains(field) && !field.equals(idColumn)) {
+        select.add(field);
+      }
+    }
+    if (!select.contains(column)) {
+      select.add(column);
+    }
+    return select;
+  }
+
+  /** The value each filter holds its column to, or null if a filter is not an Equal. */
+  @SafeVarargs
+  private static <T> Map<String, Object> equalTo(Specification<T>... filters) {
+    Map<String, Object> equalTo = new LinkedHashMap<>();
+    for (Specification<T> filter : filters) {
+      if (filter instanceof Equal<T> equal) {
+        equalTo.put(equal.column(), equal.value());
+      } else if (filter != null) {
+        return null;
+      }
+    }
+    return equalTo;
+  }
+
+  private static boolean acceptsNdjson() {
+    String accept =
+        ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes())
+            .getRequest()
+            .getHeader(HttpHeaders.ACCEPT);
+    try {
+      return accept != null
+          && MediaType.parseMediaTypes(accept).stream()
+              .anyMatch(m -> m.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON));
+    } catch (InvalidMediaTypeException e) {
+      return false;
+    }
+  }
+
+  /**
+   * The rows after a cursor. Nulls sort high, after the values in ascending order and before them
+   * in descending order, which is how a Postgres index on the column holds them.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private Specification<T> after(String column, Direction direction, Object[] cursor) {
+    Comparable value = (Comparable) cursor[0];
+    Comparable id = (Comparable) cursor[1];
+    boolean asc = direction == Direction.ASC;
+    return (root, query, cb) -> {
+      Expression<Comparable> c = root.get(column);
+      Predicate afterId = beyond(cb, root.get(idColumn), id, asc);
+      if (column.equals(idColumn)) {
+        return afterId;
+      }
+      if (value == null) {
+        Predicate sameNull = cb.and(cb.isNull(c), afterId);
+        return asc ? sameNull : cb.or(sameNull, cb.isNotNull(c));
+      }
+      Predicate later = cb.or(beyond(cb, c, value, asc), cb.and(cb.equal(c, value), afterId));
+      return asc ? cb.or(later, cb.isNull(c)) : later;
+    };
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Predicate beyond(
+      CriteriaBuilder cb, Expression<Comparable> column, Comparable value, boolean asc) {
+    return asc ? cb.greaterThan(column, value) : cb.lessThan(column, value);
+  }
+
+  private static String encode(String order, Object value, Object id) {
+    String[] cursor = {
+      order, Objects.toString(id), value == null ? null : value.toString(),
+    };
+    try {
+      return Base64.getUrlEncoder()
+          .withoutPadding()
+          .encodeToString(cursors.writeValueAsBytes(cursor));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Read the sort value and id of a cursor, after checking it belongs to the sort asked for. */
+  private Object[] decode(String after, String order, String column) {
+    try {
+      String[] cursor = cursors.readValue(Base64.getUrlDecoder().decode(after), String[].class);
+      if (cursor.length != 3 || !order.equals(cursor[0]) || cursor[1] == null) {
+        throw new InvalidPageRequestException(
+            "Cursor %s is not for sort %s".formatted(after, order));
+      }
+      return new Object[] {
+        parse(columns.get(column), cursor[2]), parse(columns.get(idColumn), cursor[1])
+      };
+    } catch (IllegalArgumentException | IOException | DateTimeException e) {
+      throw new InvalidPageRequestException("Cursor %s cannot be read".formatted(after));
+    }
+  }
+
+  private static Object parse(Class<?> type, String value) {
+    Function<String, Object> parser;
+    if (type == String.class) {
+      parser = s -> s;
+    } else if (type == long.class || type == Long.class) {
+      parser = Long::valueOf;
+    } else if (type == int.class || type == Integer.class) {
+      parser = Integer::valueOf;
+    } else if (type == boolean.class || type == Boolean.class) {
+      parser = Boolean::valueOf;
+    } else if (type == double.class || type == Double.class) {
+      parser = Double::valueOf;
+    } else if (type == LocalDateTime.class) {
+      parser = LocalDateTime::parse;
+    } else {
+      throw new IllegalArgumentException("Cannot page by an attribute of type " + type.getName());
+    }
+    return value == null ? null : parser.apply(value);
+  }
+}
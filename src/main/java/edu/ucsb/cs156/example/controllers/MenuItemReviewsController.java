@@ -4,14 +4,19 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.BulkInserter;
+import edu.ucsb.cs156.example.services.ColumnProjector;
+import edu.ucsb.cs156.example.services.RowStreamer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -31,17 +36,89 @@ public class MenuItemReviewsController extends ApiController {
 
   @Autowired MenuItemReviewRepository menuItemReviewRepository;
 
+  @Autowired RowStreamer rowStreamer;
+
+  @Autowired ColumnProjector columnProjector;
+
+  @Autowired BulkInserter bulkInserter;
+
+  private static final KeysetPager<MenuItemReview> PAGER =
+      KeysetPager.of(MenuItemReview.class, "id", "itemId", "reviewerEmail", "stars", "dateReviewed")
+          .selectable("itemId", "reviewerEmail", "stars", "dateReviewed", "comments");
+
   /**
-   * List all menu item reviews
+   * List menu item reviews a page at a time
    *
-   * @return an iterable of MenuItemReview
+   * @param sort column to sort by, optionally followed by ",desc"
+   * @param after cursor of the page, from the Link header of the page before it
+   * @param limit maximum number of menu item reviews to list, or null to list them all on one page
+   * @param stream whether to stream all menu item reviews rather than list a page
+   * @param fields only list these fields, if given
+   * @param itemId only list reviews of this menu item, if given
+   * @param reviewerEmail only list reviews by this email, if given
+   * @param stars only list reviews with this many stars, if given
+   * @return a page of MenuItemReview, with a Link header to the next page if there is one, or the
+   *     stream
    */
-  @Operation(summary = "List all menu item reviews")
+  @Operation(
+      summary =
+          "List menu item reviews a page at a time, optionally by itemId, reviewerEmail or stars")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<MenuItemReview> allMenuItemReviews() {
-    Iterable<MenuItemReview> reviews = menuItemReviewRepository.findAll();
-    return reviews;
+  public ResponseEntity<?> allMenuItemReviews(
+      @Parameter(
+              name = "sort",
+              description =
+                  "Sort by id, itemId, reviewerEmail, stars or dateReviewed, optionally followed by"
+                      + " ,desc")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(
+              name = "after",
+              description = "List menu item reviews after this cursor (from the Link header)")
+          @RequestParam(required = false)
+          String after,
+      @Parameter(
+              name = "limit",
+              description =
+                  "Maximum number of menu item reviews to list (at most 1000); without limit or"
+                      + " after, every one is listed")
+          @RequestParam(required = false)
+          Integer limit,
+      @Parameter(
+              name = "stream",
+              description =
+                  "Stream all menu item reviews as a JSON array instead of listing a page (or"
+                      + " accept application/x-ndjson to stream NDJSON)")
+          @RequestParam(defaultValue = "false")
+          boolean stream,
+      @Parameter(
+              name = "fields",
+              description =
+                  "Only list these fields (with the id), separated by commas, e.g. itemId,stars")
+          @RequestParam(required = false)
+          String fields,
+      @Parameter(name = "itemId", description = "Only list reviews of this menu item")
+          @RequestParam(required = false)
+          Integer itemId,
+      @Parameter(name = "reviewerEmail", description = "Only list reviews by this email")
+          @RequestParam(required = false)
+          String reviewerEmail,
+      @Parameter(name = "stars", description = "Only list reviews with this many stars")
+          @RequestParam(required = false)
+          Integer stars) {
+    return PAGER.page(
+        menuItemReviewRepository,
+        rowStreamer,
+        columnProjector,
+        stream,
+        fields,
+        sort,
+        after,
+        limit,
+        KeysetPager.equal("itemId", itemId),
+        KeysetPager.equal("reviewerEmail", reviewerEmail),
+        KeysetPager.equal("stars", stars));
   }
 
   /**
@@ -65,7 +142,8 @@ public class MenuItemReviewsController extends ApiController {
       @Parameter(
               name = "dateReviewed",
               description =
-                  "date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS; see https://en.wikipedia.org/wiki/ISO_8601)")
+                  "date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS; see"
+                      + " https://en.wikipedia.org/wiki/ISO_8601)")
           @RequestParam("dateReviewed")
           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
           LocalDateTime dateReviewed)
@@ -88,16 +166,41 @@ public class MenuItemReviewsController extends ApiController {
     return savedMenuItemReview;
   }
 
+  /**
+   * Create many menu item reviews at once
+   *
+   * @param incoming the menu item reviews to create; any ids they have are ignored
+   * @return the saved menu item reviews
+   */
+  @Operation(summary = "Create many menu item reviews at once, from a JSON array")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public List<MenuItemReview> postMenuItemReviews(@RequestBody List<MenuItemReview> incoming) {
+    incoming.forEach(menuItemReview -> menuItemReview.setId(0));
+    return bulkInserter.saveAll(menuItemReviewRepository, incoming);
+  }
+
   /**
    * Get a single review by id
    *
    * @param id the id of the review
+   * @param fields only get these fields, if given
    * @return a MenuItemReview
    */
   @Operation(summary = "Get a single review")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public MenuItemReview getById(@Parameter(name = "id") @RequestParam Long id) {
+  public Object getById(
+      @Parameter(name = "id") @RequestParam Long id,
+      @Parameter(
+              name = "fields",
+              description =
+                  "Only get these fields (with the id), separated by commas, e.g. itemId,stars")
+          @RequestParam(required = false)
+          String fields) {
+    if (fields != null) {
+      return PAGER.select(columnProjector, id, fields);
+    }
     MenuItemReview menuItemReview =
         menuItemReviewRepository
             .findById(id)
@@ -6,14 +6,19 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.services.BulkInserter;
+import edu.ucsb.cs156.example.services.ColumnProjector;
+import edu.ucsb.cs156.example.services.RowStreamer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -33,18 +38,105 @@ public class RecommendationRequestsController extends ApiController {
 
   @Autowired RecommendationRequestRepository recommendationRequestRepository;
 
+  @Autowired RowStreamer rowStreamer;
+
+  @Autowired ColumnProjector columnProjector;
+
+  @Autowired BulkInserter bulkInserter;
+
+  private static final KeysetPager<RecommendationRequest> PAGER =
+      KeysetPager.of(
+              RecommendationRequest.class,
+              "id",
+              "requesterEmail",
+              "professorEmail",
+              "dateRequested",
+              "dateNeeded",
+              "done")
+          .selectable(
+              "requesterEmail",
+              "professorEmail",
+              "explanation",
+              "dateRequested",
+              "dateNeeded",
+              "done");
+
   /**
-   * List all Recommendation Requests
+   * List recommendation requests a page at a time
    *
-   * @return an iterable of RecommendationRequests
+   * @param sort column to sort by, optionally followed by ",desc"
+   * @param after cursor of the page, from the Link header of the page before it
+   * @param limit maximum number of recommendation requests to list, or null to list them all on one
+   *     page
+   * @param stream whether to stream all recommendation requests rather than list a page
+   * @param fields only list these fields, if given
+   * @param requesterEmail only list requests from this email, if given
+   * @param professorEmail only list requests to this professor, if given
+   * @param done only list requests that are, or are not, done, if given
+   * @return a page of RecommendationRequest, with a Link header to the next page if there is one,
+   *     or the stream
    */
-  @Operation(summary = "List all recommendation requests")
+  @Operation(
+      summary =
+          "List recommendation requests a page at a time, optionally by requesterEmail,"
+              + " professorEmail or done")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<RecommendationRequest> allRecommendationRequests() {
-    Iterable<RecommendationRequest> recommendationRequests =
-        recommendationRequestRepository.findAll();
-    return recommendationRequests;
+  public ResponseEntity<?> allRecommendationRequests(
+      @Parameter(
+              name = "sort",
+              description =
+                  "Sort by id, requesterEmail, professorEmail, dateRequested, dateNeeded or done,"
+                      + " optionally followed by ,desc")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(
+              name = "after",
+              description = "List recommendation requests after this cursor (from the Link header)")
+          @RequestParam(required = false)
+          String after,
+      @Parameter(
+              name = "limit",
+              description =
+                  "Maximum number of recommendation requests to list (at most 1000); without limit"
+                      + " or after, every one is listed")
+          @RequestParam(required = false)
+          Integer limit,
+      @Parameter(
+              name = "stream",
+              description =
+                  "Stream all recommendation requests as a JSON array instead of listing a page"
+                      + " (or accept application/x-ndjson to stream NDJSON)")
+          @RequestParam(defaultValue = "false")
+          boolean stream,
+      @Parameter(
+              name = "fields",
+              description =
+                  "Only list these fields (with the id), separated by commas, e.g."
+                      + " professorEmail,done")
+          @RequestParam(required = false)
+          String fields,
+      @Parameter(name = "requesterEmail", description = "Only list requests from this email")
+          @RequestParam(required = false)
+          String requesterEmail,
+      @Parameter(name = "professorEmail", description = "Only list requests to this professor")
+          @RequestParam(required = false)
+          String professorEmail,
+      @Parameter(name = "done", description = "Only list requests that are, or are not, done")
+          @RequestParam(required = false)
+          Boolean done) {
+    return PAGER.page(
+        recommendationRequestRepository,
+        rowStreamer,
+        columnProjector,
+        stream,
+        fields,
+        sort,
+        after,
+        limit,
+        KeysetPager.equal("requesterEmail", requesterEmail),
+        KeysetPager.equal("professorEmail", professorEmail),
+        KeysetPager.equal("done", done));
   }
 
   /**
@@ -68,14 +160,16 @@ public class RecommendationRequestsController extends ApiController {
       @Parameter(
               name = "dateRequested",
               description =
-                  "date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS; see https://en.wikipedia.org/wiki/ISO_8601)")
+                  "date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS; see"
+                      + " https://en.wikipedia.org/wiki/ISO_8601)")
           @RequestParam("dateRequested")
           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
           LocalDateTime dateRequested,
       @Parameter(
               name = "dateNeeded",
               description =
-                  "date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS; see https://en.wikipedia.org/wiki/ISO_8601)")
+                  "date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS; see"
+                      + " https://en.wikipedia.org/wiki/ISO_8601)")
           @RequestParam("dateNeeded")
           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
           LocalDateTime dateNeeded,
@@ -101,16 +195,43 @@ public class RecommendationRequestsController extends ApiController {
     return savedRecommendationRequest;
   }
 
+  /**
+   * Create many recommendation requests at once
+   *
+   * @param incoming the recommendation requests to create; any ids they have are ignored
+   * @return the saved recommendation requests
+   */
+  @Operation(summary = "Create many recommendation requests at once, from a JSON array")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public List<RecommendationRequest> postRecommendationRequests(
+      @RequestBody List<RecommendationRequest> incoming) {
+    incoming.forEach(recommendationRequest -> recommendationRequest.setId(0));
+    return bulkInserter.saveAll(recommendationRequestRepository, incoming);
+  }
+
   /**
    * Get a single recommendation request by id
    *
    * @param id the id of the recommendation request
+   * @param fields only get these fields, if given
    * @return a RecommendationRequest
    */
   @Operation(summary = "Get a single recommendation request")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public RecommendationRequest getById(@Parameter(name = "id") @RequestParam Long id) {
+  public Object getById(
+      @Parameter(name = "id") @RequestParam Long id,
+      @Parameter(
+              name = "fields",
+              description =
+                  "Only get these fields (with the id), separated by commas, e.g."
+                      + " professorEmail,done")
+          @RequestParam(required = false)
+          String fields) {
+    if (fields != null) {
+      return PAGER.select(columnProjector, id, fields);
+    }
     RecommendationRequest recommendationRequest =
         recommendationRequestRepository
             .findById(id)
@@ -3,11 +3,16 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.services.BulkInserter;
+import edu.ucsb.cs156.example.services.ColumnProjector;
+import edu.ucsb.cs156.example.services.RowStreamer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -26,29 +31,93 @@ public class RestaurantsController extends ApiController {
 
   @Autowired RestaurantRepository restaurantRepository;
 
+  @Autowired RowStreamer rowStreamer;
+
+  @Autowired ColumnProjector columnProjector;
+
+  @Autowired BulkInserter bulkInserter;
+
+  private static final KeysetPager<Restaurant> PAGER =
+      KeysetPager.of(Restaurant.class, "id", "name").selectable("name", "description");
+
   /**
-   * This method returns a list of all restaurants.
+   * List restaurants a page at a time
    *
-   * @return a list of all restaurants
+   * @param sort column to sort by, optionally followed by ",desc"
+   * @param after cursor of the page, from the Link header of the page before it
+   * @param limit maximum number of restaurants to list, or null to list them all on one page
+   * @param stream whether to stream all restaurants rather than list a page
+   * @param fields only list these fields, if given
+   * @param name only list restaurants with this name, if given
+   * @return a page of Restaurant, with a Link header to the next page if there is one, or the
+   *     stream
    */
-  @Operation(summary = "List all restaurants")
+  @Operation(summary = "List restaurants a page at a time, optionally by name")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<Restaurant> allRestaurants() {
-    Iterable<Restaurant> restaurants = restaurantRepository.findAll();
-    return restaurants;
+  public ResponseEntity<?> allRestaurants(
+      @Parameter(name = "sort", description = "Sort by id or name, optionally followed by ,desc")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(
+              name = "after",
+              description = "List restaurants after this cursor (from the Link header)")
+          @RequestParam(required = false)
+          String after,
+      @Parameter(
+              name = "limit",
+              description =
+                  "Maximum number of restaurants to list (at most 1000); without limit or after,"
+                      + " every one is listed")
+          @RequestParam(required = false)
+          Integer limit,
+      @Parameter(
+              name = "stream",
+              description =
+                  "Stream all restaurants as a JSON array instead of listing a page (or accept"
+                      + " application/x-ndjson to stream NDJSON)")
+          @RequestParam(defaultValue = "false")
+          boolean stream,
+      @Parameter(
+              name = "fields",
+              description = "Only list these fields (with the id), separated by commas, e.g. name")
+          @RequestParam(required = false)
+          String fields,
+      @Parameter(name = "name", description = "Only list restaurants with this name")
+          @RequestParam(required = false)
+          String name) {
+    return PAGER.page(
+        restaurantRepository,
+        rowStreamer,
+        columnProjector,
+        stream,
+        fields,
+        sort,
+        after,
+        limit,
+        KeysetPager.equal("name", name));
   }
 
   /**
    * This method returns a single restaurant.
    *
    * @param id id of the restaurant to get
+   * @param fields only get these fields, if given
    * @return a single restaurant
    */
   @Operation(summary = "Get a single restaurant")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public Restaurant getById(@Parameter(name = "id") @RequestParam Long id) {
+  public Object getById(
+      @Parameter(name = "id") @RequestParam Long id,
+      @Parameter(
+              name = "fields",
+              description = "Only get these fields (with the id), separated by commas, e.g. name")
+          @RequestParam(required = false)
+          String fields) {
+    if (fields != null) {
+      return PAGER.select(columnProjector, id, fields);
+    }
     Restaurant restaurant =
         restaurantRepository
             .findById(id)
@@ -79,6 +148,20 @@ public class RestaurantsController extends ApiController {
     return savedrestaurant;
   }
 
+  /**
+   * Create many restaurants at once
+   *
+   * @param incoming the restaurants to create; any ids they have are ignored
+   * @return the saved restaurants
+   */
+  @Operation(summary = "Create many restaurants at once, from a JSON array")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public List<Restaurant> postRestaurants(@RequestBody List<Restaurant> incoming) {
+    incoming.forEach(restaurant -> restaurant.setId(0));
+    return bulkInserter.saveAll(restaurantRepository, incoming);
+  }
+
   /**
    * Deletes a restaurant. Accessible only to users with the role "ROLE_ADMIN".
    *
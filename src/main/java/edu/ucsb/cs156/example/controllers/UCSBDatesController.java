@@ -4,14 +4,19 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.BulkInserter;
+import edu.ucsb.cs156.example.services.ColumnProjector;
+import edu.ucsb.cs156.example.services.RowStreamer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -31,29 +36,105 @@ public class UCSBDatesController extends ApiController {
 
   @Autowired UCSBDateRepository ucsbDateRepository;
 
+  @Autowired RowStreamer rowStreamer;
+
+  @Autowired ColumnProjector columnProjector;
+
+  @Autowired BulkInserter bulkInserter;
+
+  private static final KeysetPager<UCSBDate> PAGER =
+      KeysetPager.of(UCSBDate.class, "id", "quarterYYYYQ", "name", "localDateTime")
+          .selectable("quarterYYYYQ", "name", "localDateTime");
+
   /**
-   * List all UCSB dates
+   * List ucsb dates a page at a time
    *
-   * @return an iterable of UCSBDate
+   * @param sort column to sort by, optionally followed by ",desc"
+   * @param after cursor of the page, from the Link header of the page before it
+   * @param limit maximum number of ucsb dates to list, or null to list them all on one page
+   * @param stream whether to stream all ucsb dates rather than list a page
+   * @param fields only list these fields, if given
+   * @param quarterYYYYQ only list dates in this quarter, if given
+   * @param name only list dates with this name, if given
+   * @return a page of UCSBDate, with a Link header to the next page if there is one, or the stream
    */
-  @Operation(summary = "List all ucsb dates")
+  @Operation(summary = "List ucsb dates a page at a time, optionally by quarterYYYYQ or name")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBDate> allUCSBDates() {
-    Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
-    return dates;
+  public ResponseEntity<?> allUCSBDates(
+      @Parameter(
+              name = "sort",
+              description =
+                  "Sort by id, quarterYYYYQ, name or localDateTime, optionally followed by ,desc")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(
+              name = "after",
+              description = "List ucsb dates after this cursor (from the Link header)")
+          @RequestParam(required = false)
+          String after,
+      @Parameter(
+              name = "limit",
+              description =
+                  "Maximum number of ucsb dates to list (at most 1000); without limit or after,"
+                      + " every one is listed")
+          @RequestParam(required = false)
+          Integer limit,
+      @Parameter(
+              name = "stream",
+              description =
+                  "Stream all ucsb dates as a JSON array instead of listing a page (or accept"
+                      + " application/x-ndjson to stream NDJSON)")
+          @RequestParam(defaultValue = "false")
+          boolean stream,
+      @Parameter(
+              name = "fields",
+              description =
+                  "Only list these fields (with the id), separated by commas, e.g."
+                      + " name,localDateTime")
+          @RequestParam(required = false)
+          String fields,
+      @Parameter(name = "quarterYYYYQ", description = "Only list dates in this quarter")
+          @RequestParam(required = false)
+          String quarterYYYYQ,
+      @Parameter(name = "name", description = "Only list dates with this name")
+          @RequestParam(required = false)
+          String name) {
+    return PAGER.page(
+        ucsbDateRepository,
+        rowStreamer,
+        columnProjector,
+        stream,
+        fields,
+        sort,
+        after,
+        limit,
+        KeysetPager.equal("quarterYYYYQ", quarterYYYYQ),
+        KeysetPager.equal("name", name));
   }
 
   /**
    * Get a single date by id
    *
    * @param id the id of the date
+   * @param fields only get these fields, if given
    * @return a UCSBDate
    */
   @Operation(summary = "Get a single date")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public UCSBDate getById(@Parameter(name = "id") @RequestParam Long id) {
+  public Object getById(
+      @Parameter(name = "id") @RequestParam Long id,
+      @Parameter(
+              name = "fields",
+              description =
+                  "Only get these fields (with the id), separated by commas, e.g."
+                      + " name,localDateTime")
+          @RequestParam(required = false)
+          String fields) {
+    if (fields != null) {
+      return PAGER.select(columnProjector, id, fields);
+    }
     UCSBDate ucsbDate =
         ucsbDateRepository
             .findById(id)
@@ -79,7 +160,8 @@ public class UCSBDatesController extends ApiController {
       @Parameter(
               name = "localDateTime",
               description =
-                  "date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS; see https://en.wikipedia.org/wiki/ISO_8601)")
+                  "date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS; see"
+                      + " https://en.wikipedia.org/wiki/ISO_8601)")
           @RequestParam("localDateTime")
           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
           LocalDateTime localDateTime)
@@ -100,6 +182,20 @@ public class UCSBDatesController extends ApiController {
     return savedUcsbDate;
   }
 
+  /**
+   * Create many dates at once
+   *
+   * @param incoming the dates to create; any ids they have are ignored
+   * @return the saved ucsb dates
+   */
+  @Operation(summary = "Create many dates at once, from a JSON array")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public List<UCSBDate> postUCSBDates(@RequestBody List<UCSBDate> incoming) {
+    incoming.forEach(ucsbDate -> ucsbDate.setId(0));
+    return bulkInserter.saveAll(ucsbDateRepository, incoming);
+  }
+
   /**
    * Delete a UCSBDate
    *
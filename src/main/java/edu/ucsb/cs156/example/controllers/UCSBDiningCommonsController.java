@@ -3,12 +3,17 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.BulkInserter;
+import edu.ucsb.cs156.example.services.ColumnProjector;
+import edu.ucsb.cs156.example.services.RowStreamer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -28,29 +33,120 @@ public class UCSBDiningCommonsController extends ApiController {
 
   @Autowired UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+  @Autowired RowStreamer rowStreamer;
+
+  @Autowired ColumnProjector columnProjector;
+
+  @Autowired BulkInserter bulkInserter;
+
+  private static final KeysetPager<UCSBDiningCommons> PAGER =
+      KeysetPager.of(UCSBDiningCommons.class, "code", "name")
+          .selectable(
+              "name", "hasSackMeal", "hasTakeOutMeal", "hasDiningCam", "latitude", "longitude");
+
   /**
-   * THis method returns a list of all ucsbdiningcommons.
+   * List ucsb dining commons a page at a time
    *
-   * @return a list of all ucsbdiningcommons
+   * @param sort column to sort by, optionally followed by ",desc"
+   * @param after cursor of the page, from the Link header of the page before it
+   * @param limit maximum number of ucsb dining commons to list, or null to list them all on one
+   *     page
+   * @param stream whether to stream all ucsb dining commons rather than list a page
+   * @param fields only list these fields, if given
+   * @param hasSackMeal only list dining commons that do, or do not, have sack meals, if given
+   * @param hasTakeOutMeal only list dining commons that do, or do not, have take out meals, if
+   *     given
+   * @param hasDiningCam only list dining commons that do, or do not, have a dining cam, if given
+   * @return a page of UCSBDiningCommons, with a Link header to the next page if there is one, or
+   *     the stream
    */
-  @Operation(summary = "List all ucsb dining commons")
+  @Operation(
+      summary =
+          "List ucsb dining commons a page at a time, optionally by hasSackMeal, hasTakeOutMeal or"
+              + " hasDiningCam")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBDiningCommons> allCommonss() {
-    Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
-    return commons;
+  public ResponseEntity<?> allCommonss(
+      @Parameter(name = "sort", description = "Sort by code or name, optionally followed by ,desc")
+          @RequestParam(defaultValue = "code")
+          String sort,
+      @Parameter(
+              name = "after",
+              description = "List ucsb dining commons after this cursor (from the Link header)")
+          @RequestParam(required = false)
+          String after,
+      @Parameter(
+              name = "limit",
+              description =
+                  "Maximum number of ucsb dining commons to list (at most 1000); without limit or"
+                      + " after, every one is listed")
+          @RequestParam(required = false)
+          Integer limit,
+      @Parameter(
+              name = "stream",
+              description =
+                  "Stream all ucsb dining commons as a JSON array instead of listing a page (or"
+                      + " accept application/x-ndjson to stream NDJSON)")
+          @RequestParam(defaultValue = "false")
+          boolean stream,
+      @Parameter(
+              name = "fields",
+              description =
+                  "Only list these fields (with the code), separated by commas, e.g."
+                      + " name,hasDiningCam")
+          @RequestParam(required = false)
+          String fields,
+      @Parameter(
+              name = "hasSackMeal",
+              description = "Only list dining commons that do, or do not, have sack meals")
+          @RequestParam(required = false)
+          Boolean hasSackMeal,
+      @Parameter(
+              name = "hasTakeOutMeal",
+              description = "Only list dining commons that do, or do not, have take out meals")
+          @RequestParam(required = false)
+          Boolean hasTakeOutMeal,
+      @Parameter(
+              name = "hasDiningCam",
+              description = "Only list dining commons that do, or do not, have a dining cam")
+          @RequestParam(required = false)
+          Boolean hasDiningCam) {
+    return PAGER.page(
+        ucsbDiningCommonsRepository,
+        rowStreamer,
+        columnProjector,
+        stream,
+        fields,
+        sort,
+        after,
+        limit,
+        KeysetPager.equal("hasSackMeal", hasSackMeal),
+        KeysetPager.equal("hasTakeOutMeal", hasTakeOutMeal),
+        KeysetPager.equal("hasDiningCam", hasDiningCam));
   }
 
   /**
    * This method returns a single diningcommons.
    *
    * @param code code of the diningcommons
+   * @param fields only get these fields, if given
    * @return a single diningcommons
    */
   @Operation(summary = "Get a single commons")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public UCSBDiningCommons getById(@Parameter(name = "code") @RequestParam String code) {
+  public Object getById(
+      @Parameter(name = "code") @RequestParam String code,
+      @Parameter(
+              name = "fields",
+              description =
+                  "Only get these fields (with the code), separated by commas, e.g."
+                      + " name,hasDiningCam")
+          @RequestParam(required = false)
+          String fields) {
+    if (fields != null) {
+      return PAGER.select(columnProjector, code, fields);
+    }
     UCSBDiningCommons commons =
         ucsbDiningCommonsRepository
             .findById(code)
@@ -97,6 +193,20 @@ public class UCSBDiningCommonsController extends ApiController {
     return savedCommons;
   }
 
+  /**
+   * Create many dining commons at once
+   *
+   * @param incoming the dining commons to create; any with a code already used replace it, as /post
+   *     does
+   * @return the saved dining commons
+   */
+  @Operation(summary = "Create many dining commons at once, from a JSON array")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public List<UCSBDiningCommons> postCommonsBulk(@RequestBody List<UCSBDiningCommons> incoming) {
+    return bulkInserter.saveAll(ucsbDiningCommonsRepository, incoming);
+  }
+
   /**
    * Delete a diningcommons. Accessible only to users with the role "ROLE_ADMIN".
    *
@@ -4,9 +4,13 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.BulkInserter;
+import edu.ucsb.cs156.example.services.ColumnProjector;
+import edu.ucsb.cs156.example.services.RowStreamer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -22,17 +26,88 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
 
   @Autowired UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+  @Autowired RowStreamer rowStreamer;
+
+  @Autowired ColumnProjector columnProjector;
+
+  @Autowired BulkInserter bulkInserter;
+
+  private static final KeysetPager<UCSBDiningCommonsMenuItem> PAGER =
+      KeysetPager.of(UCSBDiningCommonsMenuItem.class, "id", "diningCommonsCode", "name", "station")
+          .selectable("diningCommonsCode", "name", "station");
+
   /**
-   * List all UCSBDiningCommonsMenuItems
+   * List UCSB Dining Commons Menu Items a page at a time
    *
-   * @return all menu items
+   * @param sort column to sort by, optionally followed by ",desc"
+   * @param after cursor of the page, from the Link header of the page before it
+   * @param limit maximum number of UCSB Dining Commons Menu Items to list, or null to list them all
+   *     on one page
+   * @param stream whether to stream all UCSB Dining Commons Menu Items rather than list a page
+   * @param fields only list these fields, if given
+   * @param diningCommonsCode only list menu items of this dining commons, if given
+   * @param station only list menu items of this station, if given
+   * @return a page of UCSBDiningCommonsMenuItem, with a Link header to the next page if there is
+   *     one
    */
-  @Operation(summary = "List all UCSB Dining Commons Menu Items")
+  @Operation(
+      summary =
+          "List UCSB Dining Commons Menu Items a page at a time, optionally by diningCommonsCode or"
+              + " station")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBDiningCommonsMenuItem> allMenuItems() {
-    Iterable<UCSBDiningCommonsMenuItem> items = ucsbDiningCommonsMenuItemRepository.findAll();
-    return items;
+  public ResponseEntity<?> allMenuItems(
+      @Parameter(
+              name = "sort",
+              description =
+                  "Sort by id, diningCommonsCode, name or station, optionally followed by ,desc")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(
+              name = "after",
+              description =
+                  "List UCSB Dining Commons Menu Items after this cursor (from the Link header)")
+          @RequestParam(required = false)
+          String after,
+      @Parameter(
+              name = "limit",
+              description =
+                  "Maximum number of UCSB Dining Commons Menu Items to list (at most 1000); without"
+                      + " limit or after, every one is listed")
+          @RequestParam(required = false)
+          Integer limit,
+      @Parameter(
+              name = "stream",
+              description =
+                  "Stream all UCSB Dining Commons Menu Items as a JSON array instead of listing a"
+                      + " page (or accept application/x-ndjson to stream NDJSON)")
+          @RequestParam(defaultValue = "false")
+          boolean stream,
+      @Parameter(
+              name = "fields",
+              description =
+                  "Only list these fields (with the id), separated by commas, e.g. name,station")
+          @RequestParam(required = false)
+          String fields,
+      @Parameter(
+              name = "diningCommonsCode",
+              description = "Only list menu items of this dining commons")
+          @RequestParam(required = false)
+          String diningCommonsCode,
+      @Parameter(name = "station", description = "Only list menu items of this station")
+          @RequestParam(required = false)
+          String station) {
+    return PAGER.page(
+        ucsbDiningCommonsMenuItemRepository,
+        rowStreamer,
+        columnProjector,
+        stream,
+        fields,
+        sort,
+        after,
+        limit,
+        KeysetPager.equal("diningCommonsCode", diningCommonsCode),
+        KeysetPager.equal("station", station));
   }
 
   /**
@@ -64,16 +139,42 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     return savedItem;
   }
 
+  /**
+   * Create many menu items at once
+   *
+   * @param incoming the menu items to create; any ids they have are ignored
+   * @return the saved menu items
+   */
+  @Operation(summary = "Create many menu items at once, from a JSON array")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public List<UCSBDiningCommonsMenuItem> postMenuItems(
+      @RequestBody List<UCSBDiningCommonsMenuItem> incoming) {
+    incoming.forEach(menuItem -> menuItem.setId(null));
+    return bulkInserter.saveAll(ucsbDiningCommonsMenuItemRepository, incoming);
+  }
+
   /**
    * Get a single UCSBDiningCommonsMenuItem by id
    *
    * @param id the id of the menu item
+   * @param fields only get these fields, if given
    * @return the menu item with that id, or 404 if not found
    */
   @Operation(summary = "Get a single UCSB Dining Commons Menu Item by id")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public UCSBDiningCommonsMenuItem getById(@Parameter(name = "id") @RequestParam Long id) {
+  public Object getById(
+      @Parameter(name = "id") @RequestParam Long id,
+      @Parameter(
+              name = "fields",
+              description =
+                  "Only get these fields (with the id), separated by commas, e.g. name,station")
+          @RequestParam(required = false)
+          String fields) {
+    if (fields != null) {
+      return PAGER.select(columnProjector, id, fields);
+    }
 
     UCSBDiningCommonsMenuItem menuItem =
         ucsbDiningCommonsMenuItemRepository
@@ -3,12 +3,17 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.BulkInserter;
+import edu.ucsb.cs156.example.services.ColumnProjector;
+import edu.ucsb.cs156.example.services.RowStreamer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -28,29 +33,104 @@ public class UCSBOrganizationController extends ApiController {
 
   @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
 
+  @Autowired RowStreamer rowStreamer;
+
+  @Autowired ColumnProjector columnProjector;
+
+  @Autowired BulkInserter bulkInserter;
+
+  private static final KeysetPager<UCSBOrganization> PAGER =
+      KeysetPager.of(UCSBOrganization.class, "orgCode", "orgTranslationShort", "orgTranslation")
+          .selectable("orgTranslationShort", "orgTranslation", "inactive");
+
   /**
-   * This method returns a list of all ucsborganizations.
+   * List ucsb organizations a page at a time
    *
-   * @return a list of all ucsborganizations
+   * @param sort column to sort by, optionally followed by ",desc"
+   * @param after cursor of the page, from the Link header of the page before it
+   * @param limit maximum number of ucsb organizations to list, or null to list them all on one page
+   * @param stream whether to stream all ucsb organizations rather than list a page
+   * @param fields only list these fields, if given
+   * @param inactive only list organizations that are, or are not, inactive, if given
+   * @return a page of UCSBOrganization, with a Link header to the next page if there is one, or the
+   *     stream
    */
-  @Operation(summary = "List all ucsb organizations")
+  @Operation(summary = "List ucsb organizations a page at a time, optionally by inactive")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBOrganization> allOrganizations() {
-    Iterable<UCSBOrganization> organizations = ucsbOrganizationRepository.findAll();
-    return organizations;
+  public ResponseEntity<?> allOrganizations(
+      @Parameter(
+              name = "sort",
+              description =
+                  "Sort by orgCode, orgTranslationShort or orgTranslation, optionally followed by"
+                      + " ,desc")
+          @RequestParam(defaultValue = "orgCode")
+          String sort,
+      @Parameter(
+              name = "after",
+              description = "List ucsb organizations after this cursor (from the Link header)")
+          @RequestParam(required = false)
+          String after,
+      @Parameter(
+              name = "limit",
+              description =
+                  "Maximum number of ucsb organizations to list (at most 1000); without limit or"
+                      + " after, every one is listed")
+          @RequestParam(required = false)
+          Integer limit,
+      @Parameter(
+              name = "stream",
+              description =
+                  "Stream all ucsb organizations as a JSON array instead of listing a page (or"
+                      + " accept application/x-ndjson to stream NDJSON)")
+          @RequestParam(defaultValue = "false")
+          boolean stream,
+      @Parameter(
+              name = "fields",
+              description =
+                  "Only list these fields (with the orgCode), separated by commas, e.g."
+                      + " orgTranslationShort")
+          @RequestParam(required = false)
+          String fields,
+      @Parameter(
+              name = "inactive",
+              description = "Only list organizations that are, or are not, inactive")
+          @RequestParam(required = false)
+          Boolean inactive) {
+    return PAGER.page(
+        ucsbOrganizationRepository,
+        rowStreamer,
+        columnProjector,
+        stream,
+        fields,
+        sort,
+        after,
+        limit,
+        KeysetPager.equal("inactive", inactive));
   }
 
   /**
    * This method returns a single organization.
    *
    * @param orgCode orgCode of the organization
+   * @param fields only get these fields, if given
    * @return a single organization if found
    */
   @Operation(summary = "Get a single organization")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public UCSBOrganization getById(@Parameter(name = "orgCode") @RequestParam String orgCode) {
+  public Object getById(
+      @Parameter(name = "orgCode") @RequestParam String orgCode,
+      @Parameter(
+              name = "fields",
+              description =
+                  "Only get these fields (with the orgCode), separated by commas, e.g."
+                      + " orgTranslationShort")
+          @RequestParam(required = false)
+          String fields) {
+    if (fields != null) {
+      return PAGER.select(columnProjector, orgCode, fields);
+    }
     UCSBOrganization organization =
         ucsbOrganizationRepository
             .findById(orgCode)
@@ -88,6 +168,20 @@ public class UCSBOrganizationController extends ApiController {
     return organization;
   }
 
+  /**
+   * Create many organizations at once
+   *
+   * @param incoming the organizations to create; any with an orgCode already used replace it, as
+   *     /post does
+   * @return the saved organizations
+   */
+  @Operation(summary = "Create many organizations at once, from a JSON array")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public List<UCSBOrganization> postOrganizations(@RequestBody List<UCSBOrganization> incoming) {
+    return bulkInserter.saveAll(ucsbOrganizationRepository, incoming);
+  }
+
   /**
    * Update a single organization. Accessible only to users with the role "ROLE_ADMIN".
    *
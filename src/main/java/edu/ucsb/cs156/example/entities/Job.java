@@ -11,7 +11,7 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
-@Builder
+@Builder(toBuilder = true)
 @Entity(name = "jobs")
 @EntityListeners(AuditingEntityListener.class)
 public class Job {
@@ -27,12 +27,42 @@ public class Job {
   @CreatedDate private ZonedDateTime createdAt;
   @LastModifiedDate private ZonedDateTime updatedAt;
 
+  private String type;
   private String status;
 
-  // 1048576 is 2^20, which is the max size of a mediumtext in MySQL
-  @Column(
-      columnDefinition = "TEXT",
-      length = 1048576) // needed for long strings, i.e. log entries longer than 255
-  // characters
-  private String log;
+  private ZonedDateTime startedAt;
+  private ZonedDateTime finishedAt;
+  private Long durationMs;
+
+  // the workflow this job runs a node of, and the name of the node (see JobWorkflows)
+  private Long parentId;
+  private String workflowNode;
+
+  // CPU time and heap allocations of the job's thread and its child tasks (see JobUsage); null if
+  // the JVM cannot measure them
+  private Long cpuMs;
+  private Long allocatedBytes;
+
+  // what a node needs to run the job: the JSON of the job object for types listed in JobTypes
+  private String params;
+  private Long timeoutMs;
+
+  // the node running the job; the lease is renewed while it runs, and taken back once it expires
+  private String leaseOwner;
+  private ZonedDateTime leaseExpiresAt;
+  private ZonedDateTime heartbeatAt;
+
+  // set when the job is cancelled while another node holds its lease; that node stops the job on
+  // its next heartbeat (see JobDispatcher). Only ever written with JobsRepository updates, so that
+  // saving a job a node holds in memory never overwrites it.
+  @Column(insertable = false, updatable = false)
+  private ZonedDateTime cancelRequestedAt;
+
+  // progress of the child tasks the job fans out (see JobTasks); null if it has none
+  private Integer tasksTotal;
+  private Integer tasksDone;
+  private Integer tasksFailed;
+
+  // The log itself lives in job_log_chunks (see JobLogStore); the legacy jobs.log column is no
+  // longer mapped so that saving a status change never rewrites the log.
 }
@@ -0,0 +1,35 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that represents one append-only slice of a job's log.
+ *
+ * <p>The full log of a job is the concatenation of its chunks in order of sequenceNumber;
+ * startOffset is the position of the chunk's first byte in that log, and startLine the number of
+ * newlines in that log before the chunk.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+@Entity(name = "job_log_chunks")
+public class JobLogChunk {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private long id;
+
+  private long jobId;
+  private int sequenceNumber;
+  private long startOffset;
+  private long startLine;
+  private byte[] chunk;
+}
@@ -0,0 +1,60 @@
+package edu.ucsb.cs156.example.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import java.time.ZonedDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+/**
+ * This is a JPA entity that represents a job launched on a recurring schedule.
+ *
+ * <p>cron is a Spring cron expression (second, minute, hour, day of month, month, day of week), and
+ * jobType and params name a job of a type listed in JobTypes, as they are stored with the jobs it
+ * launches. nextRunAt is when the schedule is next due, or null if it is disabled or its expression
+ * never fires again; lastJobId is the job it last launched, while that job is kept. The jobs it
+ * launches are created by, and run as, the user who created it.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+@Entity(name = "job_schedules")
+@EntityListeners(AuditingEntityListener.class)
+public class JobSchedule {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private long id;
+
+  @JsonIgnore
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "created_by_id")
+  private User createdBy;
+
+  @CreatedDate private ZonedDateTime createdAt;
+  @LastModifiedDate private ZonedDateTime updatedAt;
+
+  private String name;
+  private String cron;
+  private String jobType;
+  private String params;
+  private Long timeoutMs;
+
+  @Builder.Default private boolean enabled = true;
+
+  private ZonedDateTime nextRunAt;
+  private ZonedDateTime lastRunAt;
+  private Long lastJobId;
+}
@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import java.time.ZonedDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that represents the last checkpoint a job saved.
+ *
+ * <p>There is at most one row per job; each checkpoint replaces the one before it. state is the
+ * JSON of the object passed to JobContext.checkpoint(key, state).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+@Entity(name = "job_states")
+public class JobState {
+  @Id private long jobId;
+
+  private String checkpointKey;
+  private String state;
+  private ZonedDateTime savedAt;
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import java.time.LocalDateTime;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -18,7 +19,11 @@ import lombok.NoArgsConstructor;
 @Entity(name = "recommendationrequests")
 public class RecommendationRequest {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recommendationrequests_seq")
+  @SequenceGenerator(
+      name = "recommendationrequests_seq",
+      sequenceName = "RECOMMENDATIONREQUESTS_SEQ",
+      allocationSize = 50)
   private long id;
 
   private String requesterEmail;
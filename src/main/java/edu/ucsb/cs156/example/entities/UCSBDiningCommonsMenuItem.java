@@ -4,6 +4,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -21,7 +22,11 @@ import lombok.NoArgsConstructor;
 @Entity(name = "ucsbdiningcommonsmenuitems")
 public class UCSBDiningCommonsMenuItem {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ucsbdiningcommonsmenuitems_seq")
+  @SequenceGenerator(
+      name = "ucsbdiningcommonsmenuitems_seq",
+      sequenceName = "UCSBDININGCOMMONSMENUITEMS_SEQ",
+      allocationSize = 50)
   private Long id;
 
   private String diningCommonsCode;
@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.errors;
+
+import java.io.IOException;
+import lombok.Getter;
+
+/**
+ * This is an error class for the IOException thrown by the stream JobContext.writeArtifact returns
+ * once more is written to it than the artifact may hold. The partial artifact is discarded.
+ */
+@Getter
+public class ArtifactTooLargeException extends IOException {
+  private final String name;
+  private final long maxBytes;
+
+  /**
+   * Constructor for the exception
+   *
+   * @param name name of the artifact
+   * @param maxBytes the most bytes it may hold
+   */
+  public ArtifactTooLargeException(String name, long maxBytes) {
+    super("Artifact %s is larger than the %d bytes allowed".formatted(name, maxBytes));
+    this.name = name;
+    this.maxBytes = maxBytes;
+  }
+}
@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException that is used to indicate that the rows of a
+ * bulk create could not all be saved, so none of them were.
+ *
+ * <p>The message names the index, in the request body, of the row the database refused, or the
+ * range of indexes it is among; why it was refused is only in the cause, which is logged, since the
+ * database's message may name tables, columns and constraints.
+ */
+public class BulkInsertException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param rows the number of rows that were to be saved
+   * @param first the index of the first row that may have been refused
+   * @param last the index of the last row that may have been refused
+   * @param cause why they could not be saved
+   */
+  public BulkInsertException(int rows, int first, int last, Throwable cause) {
+    super(
+        first == last
+            ? "None of the %d rows were saved; the row at index %d was refused"
+                .formatted(rows, first)
+            : "None of the %d rows were saved; a row at index %d to %d was refused"
+                .formatted(rows, first, last),
+        cause);
+  }
+}
@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException that is used to indicate that only some
+ * fields of an entity were asked for (fields=...), and one of them cannot be selected.
+ */
+public class InvalidFieldsException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param message what is wrong with the fields asked for
+   */
+  public InvalidFieldsException(String message) {
+    super(message);
+  }
+}
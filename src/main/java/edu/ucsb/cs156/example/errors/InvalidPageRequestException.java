@@ -0,0 +1,17 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException that is used to indicate that a page of a
+ * listing was asked for with a column that cannot be sorted by, or with a cursor that was not
+ * handed out for that listing.
+ */
+public class InvalidPageRequestException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param message what is wrong with the request
+   */
+  public InvalidPageRequestException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,17 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException that a job throws from
+ * JobContext.checkpoint() to stop once it has been cancelled or has timed out.
+ */
+public class JobCancelledException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param jobId id of the job
+   * @param reason the status the job stops with, "cancelled" or "timed_out"
+   */
+  public JobCancelledException(long jobId, String reason) {
+    super("Job %d stopped: %s".formatted(jobId, reason));
+  }
+}
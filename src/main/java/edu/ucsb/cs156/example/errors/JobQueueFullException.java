@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException that is used to indicate that a job could
+ * not be launched because the job queue is already at capacity.
+ */
+public class JobQueueFullException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param maxQueued the capacity of the queue that was full
+   */
+  public JobQueueFullException(int maxQueued) {
+    super("Job queue is full (%d jobs waiting); try again later".formatted(maxQueued));
+  }
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.errors;
+
+import lombok.Getter;
+
+/**
+ * This is an error class for a custom RuntimeException that JobContext.forEachInParallel throws
+ * once every task has finished if any of them failed. Each failure has been logged by then.
+ */
+@Getter
+public class JobTasksFailedException extends RuntimeException {
+  private final int failed;
+  private final int total;
+
+  /**
+   * Constructor for the exception
+   *
+   * @param failed number of tasks that failed
+   * @param total number of tasks run
+   */
+  public JobTasksFailedException(int failed, int total) {
+    super("%d of %d tasks failed".formatted(failed, total));
+    this.failed = failed;
+    this.total = total;
+  }
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.errors;
+
+import lombok.Getter;
+
+/**
+ * This is an error class for a custom RuntimeException that is used to indicate that a requested
+ * range of a job log lies outside the log.
+ */
+@Getter
+public class LogRangeNotSatisfiableException extends RuntimeException {
+  private final String unit;
+  private final long total;
+
+  /**
+   * Constructor for the exception
+   *
+   * @param unit the unit of the range, "bytes" or "lines"
+   * @param total the size of the log in that unit
+   */
+  public LogRangeNotSatisfiableException(String unit, long total) {
+    super("Range not satisfiable; the log has %d %s".formatted(total, unit));
+    this.unit = unit;
+    this.total = total;
+  }
+}
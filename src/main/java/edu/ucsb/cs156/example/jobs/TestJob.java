@@ -2,15 +2,22 @@ package edu.ucsb.cs156.example.jobs;
 
 import edu.ucsb.cs156.example.services.jobs.JobContext;
 import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import java.util.stream.IntStream;
 import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.jackson.Jacksonized;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 @Builder
+@Jacksonized
+@Getter
 public class TestJob implements JobContextConsumer {
 
   private boolean fail;
   private int sleepMs;
+  // when positive, the sleep is done by this many child tasks instead
+  private int tasks;
 
   @Override
   public void accept(JobContext ctx) throws Exception {
@@ -18,7 +25,16 @@ public class TestJob implements JobContextConsumer {
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
     ctx.log("Hello World! from test job!");
-    Thread.sleep(sleepMs);
+    if (tasks > 0) {
+      ctx.forEachInParallel(
+          IntStream.rangeClosed(1, tasks).boxed().toList(),
+          task -> {
+            Thread.sleep(sleepMs);
+            ctx.log("Task %d done".formatted(task));
+          });
+    } else {
+      Thread.sleep(sleepMs);
+    }
     if (fail) {
       throw new Exception("Fail!");
     }
@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * This is a model class that represents a file a job has written with JobContext.writeArtifact, as
+ * listed by /api/jobs/artifacts/{jobId}.
+ *
+ * <p>sha256 is the hex SHA-256 of the content, worked out as it was written; it is also the ETag of
+ * the download.
+ */
+@Data
+@AllArgsConstructor
+@Builder
+public class JobArtifact {
+  private String name;
+  private long bytes;
+  private String sha256;
+  private ZonedDateTime savedAt;
+
+  @JsonIgnore private Path file;
+}
@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.ZonedDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents one row of the jobs table as listed by /api/jobs/all.
+ *
+ * <p>It is filled by a JPQL constructor expression, so listing jobs selects only these columns and
+ * never loads a Job entity or its log.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobSummary {
+  private long id;
+  private ZonedDateTime createdAt;
+  private ZonedDateTime updatedAt;
+  private String type;
+  private String status;
+  private ZonedDateTime startedAt;
+  private ZonedDateTime finishedAt;
+  private Long durationMs;
+  private Long cpuMs;
+  private Long allocatedBytes;
+}
@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that sums up the CPU time and heap allocations of the jobs of one type, as
+ * listed by /api/jobs/usage.
+ *
+ * <p>Only jobs whose usage was measured count; totals are over every such job still in the jobs
+ * table, on every node.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobTypeUsage {
+  private String type;
+  private long jobs;
+  private Long totalCpuMs;
+  private Double averageCpuMs;
+  private Long maxCpuMs;
+  private Long totalAllocatedBytes;
+  private Double averageAllocatedBytes;
+  private Long maxAllocatedBytes;
+}
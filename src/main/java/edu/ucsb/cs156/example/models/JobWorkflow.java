@@ -0,0 +1,44 @@
+package edu.ucsb.cs156.example.models;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents a workflow posted to /api/jobs/workflows: jobs to run, each
+ * named by a node, and the nodes each of them waits for.
+ *
+ * <p>The nodes and the dependsOn edges between them must form a directed acyclic graph. The
+ * definition is kept as the params of the workflow's own job.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class JobWorkflow {
+  private String name;
+
+  @Builder.Default private List<Node> nodes = new ArrayList<>();
+
+  /** One job of a workflow. */
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  @Builder
+  public static class Node {
+    // unique within the workflow
+    private String name;
+    // a type listed in JobTypes
+    private String jobType;
+    // params of the job; none means {}
+    private JsonNode params;
+    private Long timeoutMs;
+
+    // the nodes that must complete before this one runs
+    @Builder.Default private List<String> dependsOn = new ArrayList<>();
+  }
+}
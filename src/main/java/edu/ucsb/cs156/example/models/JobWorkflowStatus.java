@@ -0,0 +1,20 @@
+package edu.ucsb.cs156.example.models;
+
+import edu.ucsb.cs156.example.entities.Job;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * This is a model class that represents a workflow as returned by /api/jobs/workflows: its own job,
+ * its definition, and the jobs run so far for its nodes, each with its workflowNode.
+ */
+@Data
+@AllArgsConstructor
+@Builder
+public class JobWorkflowStatus {
+  private Job workflow;
+  private JobWorkflow definition;
+  private List<Job> nodes;
+}
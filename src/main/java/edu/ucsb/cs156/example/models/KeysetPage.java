@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents one page of a keyset-paginated listing.
+ *
+ * <p>The next page is requested by passing nextAfterId back as afterId; it is null on the last
+ * page.
+ *
+ * @param <T> type of the items on the page
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class KeysetPage<T> {
+  private List<T> content;
+  private Long nextAfterId;
+}
@@ -1,9 +1,14 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
 /** The HelpRequestRepository is a repository for HelpRequest entities. */
 @Repository
-public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long> {}
+public interface HelpRequestRepository
+    extends CrudRepository<HelpRequest, Long>,
+        PagingAndSortingRepository<HelpRequest, Long>,
+        JpaSpecificationExecutor<HelpRequest> {}
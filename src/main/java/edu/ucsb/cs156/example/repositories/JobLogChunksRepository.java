@@ -0,0 +1,55 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobLogChunk;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+/** The JobLogChunksRepository is a repository for JobLogChunk entities. */
+@Repository
+public interface JobLogChunksRepository extends CrudRepository<JobLogChunk, Long> {
+  /**
+   * This method returns the next chunks of a job's log, in order, after a given sequence number.
+   *
+   * @param jobId id of the job
+   * @param sequenceNumber only chunks with a larger sequence number are returned
+   * @param limit maximum number of chunks to return
+   * @return list of chunks ordered by sequence number
+   */
+  List<JobLogChunk> findByJobIdAndSequenceNumberGreaterThanOrderBySequenceNumber(
+      long jobId, int sequenceNumber, Limit limit);
+
+  /**
+   * This method returns the most recent chunk of a job's log.
+   *
+   * @param jobId id of the job
+   * @return the chunk with the highest sequence number, if the job has any
+   */
+  Optional<JobLogChunk> findFirstByJobIdOrderBySequenceNumberDesc(long jobId);
+
+  /**
+   * This method returns the sequence number of the chunk that holds a given byte offset.
+   *
+   * @param jobId id of the job
+   * @param offset byte offset in the job's log
+   * @return the sequence number, or null if the job has no chunk starting at or before the offset
+   */
+  @Query(
+      "SELECT MAX(c.sequenceNumber) FROM job_log_chunks c"
+          + " WHERE c.jobId = :jobId AND c.startOffset <= :offset")
+  Integer findSequenceNumberAtOffset(long jobId, long offset);
+
+  /**
+   * This method returns the chunk that holds a given newline of a job's log.
+   *
+   * @param jobId id of the job
+   * @param line number of the newline, counting from 1
+   * @return the last chunk with fewer newlines before it, if the job has any; chunks without a
+   *     newline share their startLine with the chunk after them
+   */
+  Optional<JobLogChunk> findFirstByJobIdAndStartLineLessThanOrderByStartLineDescSequenceNumberDesc(
+      long jobId, long line);
+}
@@ -0,0 +1,57 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** The JobSchedulesRepository is a repository for JobSchedule entities. */
+@Repository
+public interface JobSchedulesRepository extends CrudRepository<JobSchedule, Long> {
+  @Override
+  List<JobSchedule> findAllById(Iterable<Long> ids);
+
+  /**
+   * This method locks the enabled schedules that are due, skipping schedules another node has
+   * locked. It is served by the JOB_SCHEDULES_DUE_IDX index, and must run in the transaction that
+   * moves them on to their next run.
+   *
+   * @param now the current time
+   * @return the ids of the locked schedules
+   */
+  @Query(
+      value =
+          "SELECT ID FROM JOB_SCHEDULES WHERE ENABLED = TRUE AND NEXT_RUN_AT <= :now ORDER BY"
+              + " NEXT_RUN_AT FOR UPDATE SKIP LOCKED",
+      nativeQuery = true)
+  List<Long> lockDue(ZonedDateTime now);
+
+  /**
+   * This method sets when a schedule is next due, without touching the rest of the row.
+   *
+   * @param id id of the schedule
+   * @param nextRunAt when it is next due, or null if never
+   * @return 1 if the schedule was updated, 0 if it no longer exists
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE job_schedules s SET s.nextRunAt = :nextRunAt WHERE s.id = :id")
+  int scheduleNext(long id, ZonedDateTime nextRunAt);
+
+  /**
+   * This method records the job a schedule has just launched, without touching the rest of the row.
+   *
+   * @param id id of the schedule
+   * @param jobId id of the job
+   * @param runAt when it was launched
+   * @return 1 if the schedule was updated, 0 if it no longer exists
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE job_schedules s SET s.lastJobId = :jobId, s.lastRunAt = :runAt WHERE s.id = :id")
+  int recordRun(long id, long jobId, ZonedDateTime runAt);
+}
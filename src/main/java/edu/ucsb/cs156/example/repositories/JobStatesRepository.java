@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobState;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** The JobStatesRepository is a repository for JobState entities. */
+@Repository
+public interface JobStatesRepository extends CrudRepository<JobState, Long> {
+  /**
+   * This method deletes the checkpoint of a job, if it has one, in a single statement.
+   *
+   * @param jobId id of the job
+   * @return the number of rows deleted
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM job_states s WHERE s.jobId = :jobId")
+  int deleteByJobId(long jobId);
+}
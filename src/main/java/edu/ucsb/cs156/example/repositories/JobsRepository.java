@@ -1,8 +1,339 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.models.JobTypeUsage;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface JobsRepository extends CrudRepository<Job, Long> {}
+public interface JobsRepository extends CrudRepository<Job, Long> {
+  String SUMMARY =
+      "SELECT new edu.ucsb.cs156.example.models.JobSummary(j.id, j.createdAt, j.updatedAt,"
+          + " j.type, j.status, j.startedAt, j.finishedAt, j.durationMs, j.cpuMs,"
+          + " j.allocatedBytes) FROM jobs j";
+
+  String RERUNNABLE =
+      "j.params IS NOT NULL AND (j.status = 'queued' OR j.type IN :idempotentTypes)";
+
+  /**
+   * This method returns the jobs with an id greater than afterId, in order of id.
+   *
+   * @param afterId only jobs with a larger id are returned
+   * @param limit maximum number of jobs to return
+   * @return list of job summaries ordered by id
+   */
+  @Query(SUMMARY + " WHERE j.id > :afterId ORDER BY j.id")
+  List<JobSummary> findSummaries(long afterId, Limit limit);
+
+  /**
+   * This method returns the jobs with a given status and an id greater than afterId, in order of
+   * id. It is served by the JOBS_STATUS_ID_IDX index.
+   *
+   * @param status status of the jobs to return
+   * @param afterId only jobs with a larger id are returned
+   * @param limit maximum number of jobs to return
+   * @return list of job summaries ordered by id
+   */
+  @Query(SUMMARY + " WHERE j.status = :status AND j.id > :afterId ORDER BY j.id")
+  List<JobSummary> findSummariesByStatus(String status, long afterId, Limit limit);
+
+  /**
+   * This method returns the id of the newest job created before a given time.
+   *
+   * @param cutoff the time
+   * @return the id, or null if there is no such job
+   */
+  @Query("SELECT MAX(j.id) FROM jobs j WHERE j.createdAt < :cutoff")
+  Long findLastIdCreatedBefore(ZonedDateTime cutoff);
+
+  /**
+   * This method returns the id of the newest job that is not among the newest count jobs.
+   *
+   * @param count number of jobs to skip, newest first
+   * @return the id, or null if there are no more than count jobs
+   */
+  @Query(value = "SELECT ID FROM JOBS ORDER BY ID DESC LIMIT 1 OFFSET :count", nativeQuery = true)
+  Long findIdBeyondNewest(int count);
+
+  /**
+   * This method returns the id of the newest job at which the total size of the logs, counted from
+   * the newest job down, exceeds a limit.
+   *
+   * @param maxBytes the limit
+   * @return the id, or null if all logs together stay within the limit
+   */
+  @Query(
+      value =
+          "SELECT ID FROM (SELECT J.ID, SUM(COALESCE(L.BYTES, 0)) OVER (ORDER BY J.ID DESC) AS"
+              + " TOTAL FROM JOBS J LEFT JOIN (SELECT JOB_ID, SUM(OCTET_LENGTH(CHUNK)) AS BYTES"
+              + " FROM JOB_LOG_CHUNKS GROUP BY JOB_ID) L ON L.JOB_ID = J.ID) T WHERE TOTAL >"
+              + " :maxBytes ORDER BY ID DESC LIMIT 1",
+      nativeQuery = true)
+  Long findIdBeyondLogBytes(long maxBytes);
+
+  /**
+   * This method deletes up to batchSize finished jobs, oldest first, with an id of at most maxId.
+   * The nodes of a running workflow are kept, since the workflow goes by them to tell which of its
+   * nodes have run.
+   *
+   * @param maxId largest id to delete
+   * @param batchSize maximum number of jobs to delete
+   * @return the number of jobs deleted
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      value =
+          "DELETE FROM JOBS WHERE ID IN (SELECT J.ID FROM JOBS J WHERE J.ID <= :maxId"
+              + " AND J.STATUS NOT IN ('queued', 'running') AND NOT EXISTS (SELECT 1 FROM JOBS P"
+              + " WHERE P.ID = J.PARENT_ID AND P.STATUS = 'running') ORDER BY J.ID"
+              + " LIMIT :batchSize)",
+      nativeQuery = true)
+  int deleteFinishedUpTo(long maxId, int batchSize);
+
+  /**
+   * This method deletes up to batchSize jobs, oldest first, whatever their status.
+   *
+   * @param batchSize maximum number of jobs to delete
+   * @return the number of jobs deleted
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      value = "DELETE FROM JOBS WHERE ID IN (SELECT ID FROM JOBS ORDER BY ID LIMIT :batchSize)",
+      nativeQuery = true)
+  int deleteBatch(int batchSize);
+
+  /**
+   * This method sums up the CPU time and heap allocations of the jobs whose usage was measured, per
+   * job type, the type using the most CPU time first.
+   *
+   * @return one row per job type
+   */
+  @Query(
+      "SELECT new edu.ucsb.cs156.example.models.JobTypeUsage(j.type, COUNT(j), SUM(j.cpuMs),"
+          + " AVG(j.cpuMs), MAX(j.cpuMs), SUM(j.allocatedBytes), AVG(j.allocatedBytes),"
+          + " MAX(j.allocatedBytes)) FROM jobs j WHERE j.cpuMs IS NOT NULL GROUP BY j.type"
+          + " ORDER BY SUM(j.cpuMs) DESC")
+  List<JobTypeUsage> summarizeUsageByType();
+
+  /**
+   * This method returns which of the given ids belong to jobs that exist.
+   *
+   * @param ids the ids
+   * @return the ids of the jobs that exist
+   */
+  @Query("SELECT j.id FROM jobs j WHERE j.id IN :ids")
+  List<Long> findExistingIds(Collection<Long> ids);
+
+  /**
+   * This method tells whether a job exists with one of the given statuses.
+   *
+   * @param id id of the job
+   * @param statuses the statuses
+   * @return whether the job exists and has one of the statuses
+   */
+  boolean existsByIdAndStatusIn(long id, Collection<String> statuses);
+
+  /**
+   * This method counts the queued jobs that no node has leased yet.
+   *
+   * @return the number of jobs waiting in the shared queue
+   */
+  @Query("SELECT COUNT(j) FROM jobs j WHERE j.status = 'queued' AND j.leaseOwner IS NULL")
+  long countUnleased();
+
+  /**
+   * This method locks up to limit queued jobs that no node has leased, oldest first, skipping jobs
+   * another node has locked. It must run in the transaction that leases them.
+   *
+   * @param limit maximum number of jobs to lock
+   * @return the ids of the locked jobs
+   */
+  @Query(
+      value =
+          "SELECT ID FROM JOBS WHERE STATUS = 'queued' AND LEASE_OWNER IS NULL ORDER BY ID"
+              + " LIMIT :limit FOR UPDATE SKIP LOCKED",
+      nativeQuery = true)
+  List<Long> lockUnleased(int limit);
+
+  /**
+   * This method leases jobs to a node.
+   *
+   * @param ids ids of the jobs
+   * @param owner the node
+   * @param expiresAt when the lease expires
+   * @param now the current time
+   * @return the number of jobs leased
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE jobs j SET j.leaseOwner = :owner, j.leaseExpiresAt = :expiresAt,"
+          + " j.heartbeatAt = :now WHERE j.id IN :ids")
+  int lease(List<Long> ids, String owner, ZonedDateTime expiresAt, ZonedDateTime now);
+
+  /**
+   * This method renews the leases a node holds on its queued and running jobs.
+   *
+   * @param owner the node
+   * @param expiresAt when the leases now expire
+   * @param now the current time
+   * @return the number of leases renewed
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE jobs j SET j.leaseExpiresAt = :expiresAt, j.heartbeatAt = :now"
+          + " WHERE j.leaseOwner = :owner AND j.status IN ('queued', 'running')")
+  int renewLeases(String owner, ZonedDateTime expiresAt, ZonedDateTime now);
+
+  /**
+   * This method recovers orphaned jobs: queued or running jobs whose lease has expired, that are
+   * leased by a node known to have stopped, or that are running without a lease. An orphan goes
+   * back to the shared queue if it has params to be run again from and either never started or is
+   * of an idempotent type; otherwise it is marked "interrupted". A workflow is never an orphan: no
+   * node runs it; it moves on as its nodes finish.
+   *
+   * @param owner a node whose jobs are all orphans, such as this node as it starts; or null
+   * @param now the current time
+   * @param idempotentTypes types of the jobs that may safely run again after being interrupted
+   * @return the number of jobs recovered
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE jobs j SET"
+          + " j.status = CASE WHEN "
+          + RERUNNABLE
+          + " THEN 'queued' ELSE 'interrupted' END,"
+          + " j.finishedAt = CASE WHEN "
+          + RERUNNABLE
+          + " THEN NULL ELSE :now END,"
+          + " j.leaseOwner = NULL, j.leaseExpiresAt = NULL"
+          + " WHERE j.status IN ('queued', 'running') AND COALESCE(j.type, '') <> 'Workflow'"
+          + " AND (j.leaseOwner = :owner"
+          + " OR j.leaseExpiresAt < :now OR (j.leaseOwner IS NULL AND j.status = 'running'))")
+  int recoverOrphans(String owner, ZonedDateTime now, Collection<String> idempotentTypes);
+
+  /**
+   * This method cancels a job that is waiting in the shared queue.
+   *
+   * @param id id of the job
+   * @param now the current time
+   * @return 1 if the job was cancelled, 0 if it is not queued or a node has leased it
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE jobs j SET j.status = 'cancelled', j.finishedAt = :now"
+          + " WHERE j.id = :id AND j.status = 'queued' AND j.leaseOwner IS NULL")
+  int cancelUnleased(long id, ZonedDateTime now);
+
+  /**
+   * This method records that a job another node has leased is to be cancelled; that node stops it
+   * on its next heartbeat.
+   *
+   * @param id id of the job
+   * @param node the node asking
+   * @param now the current time
+   * @return 1 if the cancel was recorded, 0 if the job is not queued or running, or no other node
+   *     has leased it
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE jobs j SET j.cancelRequestedAt = :now"
+          + " WHERE j.id = :id AND j.status IN ('queued', 'running') AND j.leaseOwner <> :node")
+  int requestCancel(long id, String node, ZonedDateTime now);
+
+  /**
+   * This method finds the queued and running jobs a node has leased that are to be cancelled.
+   *
+   * @param owner the node
+   * @return the ids of the jobs
+   */
+  @Query(
+      "SELECT j.id FROM jobs j WHERE j.leaseOwner = :owner AND j.cancelRequestedAt IS NOT NULL"
+          + " AND j.status IN ('queued', 'running')")
+  List<Long> findIdsToCancel(String owner);
+
+  /**
+   * This method puts a job that did not complete back in the shared queue, clearing what its last
+   * run recorded. Only jobs that any node can rebuild from their params are resumed; a workflow is
+   * not, though its nodes are.
+   *
+   * @param id id of the job
+   * @return 1 if the job was queued again, 0 if it cannot be resumed
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE jobs j SET j.status = 'queued', j.startedAt = NULL, j.finishedAt = NULL,"
+          + " j.durationMs = NULL, j.tasksTotal = NULL, j.tasksDone = NULL, j.tasksFailed = NULL,"
+          + " j.cancelRequestedAt = NULL"
+          + " WHERE j.id = :id AND j.params IS NOT NULL AND j.type <> 'Workflow'"
+          + " AND j.status IN ('error', 'cancelled', 'timed_out', 'interrupted')")
+  int resume(long id);
+
+  /**
+   * This method records how far a running job has got through its child tasks, without touching the
+   * rest of the row.
+   *
+   * @param id id of the job
+   * @param total number of tasks started so far
+   * @param done number of those that have finished
+   * @param failed number of those that failed
+   * @return 1 if the job was updated, 0 if it no longer exists
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE jobs j SET j.tasksTotal = :total, j.tasksDone = :done, j.tasksFailed = :failed"
+          + " WHERE j.id = :id")
+  int updateTaskProgress(long id, int total, int done, int failed);
+
+  /**
+   * This method returns the jobs run for the nodes of a workflow, in the order they were launched.
+   * It is served by the JOBS_WORKFLOW_NODE_IDX index.
+   *
+   * @param parentId id of the workflow
+   * @return the jobs
+   */
+  List<Job> findByParentIdOrderById(long parentId);
+
+  /**
+   * This method returns the ids of the jobs of a type with a given status.
+   *
+   * @param type the type
+   * @param status the status
+   * @return the ids, in order
+   */
+  @Query("SELECT j.id FROM jobs j WHERE j.type = :type AND j.status = :status ORDER BY j.id")
+  List<Long> findIdsByTypeAndStatus(String type, String status);
+
+  /**
+   * This method records the outcome of a workflow once the last of its nodes has finished. Only the
+   * first call for a workflow has any effect.
+   *
+   * @param id id of the workflow
+   * @param status the outcome
+   * @param now the current time
+   * @param durationMs how long the workflow ran
+   * @return 1 if the outcome was recorded, 0 if the workflow is not running
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE jobs j SET j.status = :status, j.finishedAt = :now, j.durationMs = :durationMs"
+          + " WHERE j.id = :id AND j.status = 'running'")
+  int finishWorkflow(long id, String status, ZonedDateTime now, long durationMs);
+}
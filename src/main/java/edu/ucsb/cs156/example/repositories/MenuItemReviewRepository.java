@@ -1,11 +1,16 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
 /** The ReviewRepository is a repository for Review entities. */
 @Repository
-public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {
+public interface MenuItemReviewRepository
+    extends CrudRepository<MenuItemReview, Long>,
+        PagingAndSortingRepository<MenuItemReview, Long>,
+        JpaSpecificationExecutor<MenuItemReview> {
   Iterable<MenuItemReview> findAllByStars(int stars);
 }
@@ -1,10 +1,14 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
 /** The RecommendationRequestRepository is a repository for RecommendationRequest entities. */
 @Repository
 public interface RecommendationRequestRepository
-    extends CrudRepository<RecommendationRequest, Long> {}
+    extends CrudRepository<RecommendationRequest, Long>,
+        PagingAndSortingRepository<RecommendationRequest, Long>,
+        JpaSpecificationExecutor<RecommendationRequest> {}
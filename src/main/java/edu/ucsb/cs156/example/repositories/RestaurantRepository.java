@@ -1,9 +1,14 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
 /** The RestaurantRepository is a repository for Restaurant entities */
 @Repository
-public interface RestaurantRepository extends CrudRepository<Restaurant, Long> {}
+public interface RestaurantRepository
+    extends CrudRepository<Restaurant, Long>,
+        PagingAndSortingRepository<Restaurant, Long>,
+        JpaSpecificationExecutor<Restaurant> {}
@@ -1,12 +1,17 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
 /** The UCSBDateRepository is a repository for UCSBDate entities. */
 @Repository
-public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
+public interface UCSBDateRepository
+    extends CrudRepository<UCSBDate, Long>,
+        PagingAndSortingRepository<UCSBDate, Long>,
+        JpaSpecificationExecutor<UCSBDate> {
   /**
    * This method returns all UCSBDate entities with a given quarterYYYYQ.
    *
@@ -1,7 +1,9 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -9,4 +11,6 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 public interface UCSBDiningCommonsMenuItemRepository
-    extends CrudRepository<UCSBDiningCommonsMenuItem, Long> {}
+    extends CrudRepository<UCSBDiningCommonsMenuItem, Long>,
+        PagingAndSortingRepository<UCSBDiningCommonsMenuItem, Long>,
+        JpaSpecificationExecutor<UCSBDiningCommonsMenuItem> {}
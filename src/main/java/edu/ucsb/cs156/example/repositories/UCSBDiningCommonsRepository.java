@@ -1,9 +1,14 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
 /** The UCSBDiningCommonsRepository is a repository for UCSBDiningCommons entities */
 @Repository
-public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {}
+public interface UCSBDiningCommonsRepository
+    extends CrudRepository<UCSBDiningCommons, String>,
+        PagingAndSortingRepository<UCSBDiningCommons, String>,
+        JpaSpecificationExecutor<UCSBDiningCommons> {}
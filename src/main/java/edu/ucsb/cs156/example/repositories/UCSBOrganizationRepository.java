@@ -1,9 +1,14 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
 /** The UCSBOrganizationRepository is a repository for UCSBOrganization entities */
 @Repository
-public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String> {}
+public interface UCSBOrganizationRepository
+    extends CrudRepository<UCSBOrganization, String>,
+        PagingAndSortingRepository<UCSBOrganization, String>,
+        JpaSpecificationExecutor<UCSBOrganization> {}
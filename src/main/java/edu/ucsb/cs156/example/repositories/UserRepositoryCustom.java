@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.User;
+
+/** Queries of the UserRepository that differ between databases; see UserRepositoryCustomImpl. */
+public interface UserRepositoryCustom {
+  /**
+   * This method inserts a user, or, if a user with the same email is already there, makes that user
+   * an admin if the given one is. It is one statement, so a user who logs in on two requests at
+   * once is still stored only once.
+   *
+   * @param user the user; its id is ignored
+   * @return the number of rows inserted or updated
+   */
+  int upsert(User user);
+}
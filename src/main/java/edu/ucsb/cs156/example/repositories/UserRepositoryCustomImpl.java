@@ -0,0 +1,76 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * This is the implementation of UserRepositoryCustom. Postgres upserts with INSERT ... ON CONFLICT,
+ * which takes the USERS_EMAIL_UK index as the arbiter and so never fails on a concurrent insert;
+ * H2, used in development and tests, has no ON CONFLICT, and upserts with MERGE instead.
+ */
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+  private static final String COLUMNS =
+      "EMAIL, GOOGLE_SUB, PICTURE_URL, FULL_NAME, GIVEN_NAME, FAMILY_NAME, EMAIL_VERIFIED, LOCALE,"
+          + " HOSTED_DOMAIN, ADMIN";
+
+  static final String POSTGRES_UPSERT =
+      "INSERT INTO USERS ("
+          + COLUMNS
+          + ") VALUES (?1, ?2, ?3, ?4, ?5, ?6, ?7, ?8, ?9, ?10)"
+          + " ON CONFLICT (EMAIL) DO UPDATE SET ADMIN = USERS.ADMIN OR EXCLUDED.ADMIN";
+
+  static final String H2_UPSERT =
+      "MERGE INTO USERS U USING (SELECT CAST(?1 AS VARCHAR(255)) EMAIL, CAST(?2 AS VARCHAR(255))"
+          + " GOOGLE_SUB, CAST(?3 AS VARCHAR(255)) PICTURE_URL, CAST(?4 AS VARCHAR(255)) FULL_NAME,"
+          + " CAST(?5 AS VARCHAR(255)) GIVEN_NAME, CAST(?6 AS VARCHAR(255)) FAMILY_NAME,"
+          + " CAST(?7 AS BOOLEAN) EMAIL_VERIFIED, CAST(?8 AS VARCHAR(255)) LOCALE,"
+          + " CAST(?9 AS VARCHAR(255)) HOSTED_DOMAIN, CAST(?10 AS BOOLEAN) ADMIN) S"
+          + " ON U.EMAIL = S.EMAIL"
+          + " WHEN MATCHED THEN UPDATE SET ADMIN = U.ADMIN OR S.ADMIN"
+          + " WHEN NOT MATCHED THEN INSERT ("
+          + COLUMNS
+          + ") VALUES (S.EMAIL, S.GOOGLE_SUB, S.PICTURE_URL, S.FULL_NAME, S.GIVEN_NAME,"
+          + " S.FAMILY_NAME, S.EMAIL_VERIFIED, S.LOCALE, S.HOSTED_DOMAIN, S.ADMIN)";
+
+  @PersistenceContext private EntityManager entityManager;
+
+  private volatile Boolean postgres;
+
+  @Override
+  @Transactional
+  public int upsert(User user) {
+    // typed, so that a null binds as a string on Postgres
+    NativeQuery<?> query =
+        entityManager
+            .createNativeQuery(isPostgres() ? POSTGRES_UPSERT : H2_UPSERT)
+            .unwrap(NativeQuery.class);
+    query.setParameter(1, user.getEmail(), StandardBasicTypes.STRING);
+    query.setParameter(2, user.getGoogleSub(), StandardBasicTypes.STRING);
+    query.setParameter(3, user.getPictureUrl(), StandardBasicTypes.STRING);
+    query.setParameter(4, user.getFullName(), StandardBasicTypes.STRING);
+    query.setParameter(5, user.getGivenName(), StandardBasicTypes.STRING);
+    query.setParameter(6, user.getFamilyName(), StandardBasicTypes.STRING);
+    query.setParameter(7, user.getEmailVerified(), StandardBasicTypes.BOOLEAN);
+    query.setParameter(8, user.getLocale(), StandardBasicTypes.STRING);
+    query.setParameter(9, user.getHostedDomain(), StandardBasicTypes.STRING);
+    query.setParameter(10, user.getAdmin(), StandardBasicTypes.BOOLEAN);
+    return query.executeUpdate();
+  }
+
+  private boolean isPostgres() {
+    if (postgres == null) {
+      postgres =
+          entityManager
+              .unwrap(Session.class)
+              .doReturningWork(
+                  connection ->
+                      connection.getMetaData().getDatabaseProductName().equals("PostgreSQL"));
+    }
+    return postgres;
+  }
+}
@@ -0,0 +1,80 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.errors.BulkInsertException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * This is a service that saves many entities at once, for the bulk create endpoints.
+ *
+ * <p>The entities are saved in one transaction, app.bulk.chunkSize at a time. Ids come from a
+ * sequence that hands out many at once, so Hibernate can send the inserts of a chunk to the
+ * database in JDBC batches of hibernate.jdbc.batch_size; once a chunk is flushed the persistence
+ * context is cleared, so the memory used does not grow with the number of entities.
+ *
+ * <p>If any entity cannot be saved the transaction is rolled back, so either every entity is saved
+ * or none is. A failure found when a chunk is flushed can only be traced to that chunk, since its
+ * inserts were sent to the database together.
+ */
+@Slf4j
+@Service
+public class BulkInserter {
+  @PersistenceContext private EntityManager entityManager;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Value("${app.bulk.chunkSize:1000}")
+  private int chunkSize;
+
+  /**
+   * Save entities, a chunk at a time.
+   *
+   * @param repository the repository of the entities
+   * @param entities the entities to save
+   * @return the saved entities, in the same order
+   * @param <T> type of the entities
+   * @throws BulkInsertException if the database refuses an entity; none are then saved
+   */
+  public <T> List<T> saveAll(CrudRepository<T, ?> repository, List<T> entities) {
+    List<T> saved = new ArrayList<>(entities.size());
+    if (entities.isEmpty()) {
+      return saved;
+    }
+    // the indexes of the first and last entity that a failure could come from
+    int[] at = new int[2];
+    try {
+      new TransactionTemplate(transactionManager)
+          .executeWithoutResult(
+              status -> {
+                for (int from = 0; from < entities.size(); from += chunkSize) {
+                  int to = Math.min(entities.size(), from + chunkSize);
+                  for (int i = from; i < to; i++) {
+                    at[0] = at[1] = i;
+                    saved.add(repository.save(entities.get(i)));
+                  }
+                  at[0] = from;
+                  at[1] = to - 1;
+                  entityManager.flush();
+                  entityManager.clear();
+                }
+              });
+    } catch (DataIntegrityViolationException | PersistenceException e) {
+      // from the repository, or untranslated from flush
+      log.warn(
+          "Bulk insert of {} rows refused at index {} to {}", entities.size(), at[0], at[1], e);
+      throw new BulkInsertException(entities.size(), at[0], at[1], e);
+    }
+    return saved;
+  }
+}
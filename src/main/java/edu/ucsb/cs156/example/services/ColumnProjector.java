@@ -0,0 +1,70 @@
+package edu.ucsb.cs156.example.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that reads only some of the columns of a table, for requests that ask for only
+ * some fields (fields=...).
+ *
+ * <p>The columns are selected with a criteria tuple query, so the other columns are neither read
+ * from the database nor sent on; no entity is made of a row, and each row is returned as a map from
+ * attribute to value, in the order the columns were asked for.
+ */
+@Service
+public class ColumnProjector {
+  @PersistenceContext private EntityManager entityManager;
+
+  /**
+   * Read some columns of the rows of a query.
+   *
+   * @param entityType type of the entities
+   * @param columns the attributes to read
+   * @param where the rows to read
+   * @param sort the order to read them in
+   * @param limit the largest number of rows to read
+   * @return a map from attribute to value for each row
+   * @param <T> type of the entities
+   */
+  public <T> List<Map<String, Object>> list(
+      Class<T> entityType, List<String> columns, Specification<T> where, Sort sort, int limit) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Tuple> query = cb.createTupleQuery();
+    Root<T> root = query.from(entityType);
+    List<Selection<?>> selections = new ArrayList<>();
+    for (String column : columns) {
+      selections.add(root.get(column));
+    }
+    query.multiselect(selections);
+    Predicate predicate = where.toPredicate(root, query, cb);
+    if (predicate != null) {
+      query.where(predicate);
+    }
+    query.orderBy(QueryUtils.toOrders(sort, root, cb));
+    return entityManager.createQuery(query).setMaxResults(limit).getResultList().stream()
+        .map(tuple -> row(columns, tuple))
+        .toList();
+  }
+
+  private static Map<String, Object> row(List<String> columns, Tuple tuple) {
+    Map<String, Object> row = new LinkedHashMap<>();
+    for (int i = 0; i < columns.size(); i++) {
+      row.put(columns.get(i), tuple.get(i));
+    }
+    return row;
+  }
+}
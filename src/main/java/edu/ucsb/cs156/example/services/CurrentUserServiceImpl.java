@@ -3,13 +3,10 @@ package edu.ucsb.cs156.example.services;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.repositories.UserRepository;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -18,22 +15,31 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 /**
  * This is a service that provides information about the current user.
  *
  * <p>This is the version of the service used in production.
+ *
+ * <p>The user is looked up once per request at most, and kept in a UserCache between requests, so
+ * most requests do not read the users table at all.
  */
 @Slf4j
 @Service("currentUser")
 @Primary
 public class CurrentUserServiceImpl extends CurrentUserService {
+  // the request attribute that holds the user once it has been looked up for a request
+  static final String USER_ATTRIBUTE = CurrentUserServiceImpl.class.getName() + ".user";
+
   @Autowired private UserRepository userRepository;
 
+  @Autowired private UserCache userCache;
+
   @Autowired GrantedAuthoritiesService grantedAuthoritiesService;
 
-  @Value("${app.admin.emails}")
-  private final List<String> adminEmails = new ArrayList<String>();
+  @Autowired private UserAuthoritiesService userAuthoritiesService;
 
   /**
    * This method returns the current user as a User object.
@@ -42,7 +48,7 @@ public class CurrentUserServiceImpl extends CurrentUserService {
    */
   public CurrentUser getCurrentUser() {
     CurrentUser cu = CurrentUser.builder().user(this.getUser()).roles(this.getRoles()).build();
-    log.info("getCurrentUser returns {}", cu);
+    log.debug("getCurrentUser returns {}", cu);
     return cu;
   }
 
@@ -51,7 +57,10 @@ public class CurrentUserServiceImpl extends CurrentUserService {
    * automatically injected by Spring.
    *
    * <p>This method also has a side effect of storing the user in the database if they are not
-   * already there.
+   * already there, or making them an admin if they are on the list of admin emails (in any case, as
+   * UserAuthoritiesService matches them when it grants ROLE_ADMIN). Both are done with one upsert,
+   * so concurrent first logins store the user once. A user found in the UserCache is returned
+   * without reading the database.
    *
    * @param securityContext the security context (provided by Spring)
    * @param authentication the authentication token (provided by Spring)
@@ -62,6 +71,23 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     OAuth2User oAuthUser = ((OAuth2AuthenticationToken) authentication).getPrincipal();
     String email = oAuthUser.getAttribute("email");
     String googleSub = oAuthUser.getAttribute("sub");
+    String key = UserCache.keyOf(googleSub, email);
+
+    User cached = userCache.get(key);
+    if (cached != null) {
+      return cached;
+    }
+
+    java.util.Map<java.lang.String, java.lang.Object> attrs = oAuthUser.getAttributes();
+    log.debug("attrs={}", attrs);
+
+    boolean admin = userAuthoritiesService.isAdminEmail(email);
+    Optional<User> ou = userRepository.findByEmail(email);
+    if (ou.isPresent() && (ou.get().getAdmin() || !admin)) {
+      userCache.put(key, ou.get());
+      return ou.get();
+    }
+
     String pictureUrl = oAuthUser.getAttribute("picture");
     String fullName = oAuthUser.getAttribute("name");
     String givenName = oAuthUser.getAttribute("given_name");
@@ -70,19 +96,6 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     String locale = oAuthUser.getAttribute("locale");
     String hostedDomain = oAuthUser.getAttribute("hd");
 
-    java.util.Map<java.lang.String, java.lang.Object> attrs = oAuthUser.getAttributes();
-    log.info("attrs={}", attrs);
-
-    Optional<User> ou = userRepository.findByEmail(email);
-    if (ou.isPresent()) {
-      User u = ou.get();
-      if (adminEmails.contains(email) && !u.getAdmin()) {
-        u.setAdmin(true);
-        userRepository.save(u);
-      }
-      return u;
-    }
-
     User u =
         User.builder()
             .googleSub(googleSub)
@@ -94,14 +107,18 @@ public class CurrentUserServiceImpl extends CurrentUserService {
             .emailVerified(emailVerified)
             .locale(locale)
             .hostedDomain(hostedDomain)
-            .admin(adminEmails.contains(email))
+            .admin(admin)
             .build();
-    userRepository.save(u);
+    userRepository.upsert(u);
+    userCache.invalidate(email);
+    u = userRepository.findByEmail(email).orElseThrow();
+    userCache.put(key, u);
     return u;
   }
 
   /**
-   * This method returns the current user as a User object.
+   * This method returns the current user as a User object. Within a request, the user is looked up
+   * the first time only.
    *
    * @return the current user
    */
@@ -109,10 +126,20 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     SecurityContext securityContext = SecurityContextHolder.getContext();
     Authentication authentication = securityContext.getAuthentication();
 
-    if (authentication instanceof OAuth2AuthenticationToken) {
-      return getOAuth2AuthenticatedUser(securityContext, authentication);
+    if (!(authentication instanceof OAuth2AuthenticationToken)) {
+      return null;
+    }
+    RequestAttributes request = RequestContextHolder.getRequestAttributes();
+    if (request != null
+        && request.getAttribute(USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST)
+            instanceof User user) {
+      return user;
+    }
+    User user = getOAuth2AuthenticatedUser(securityContext, authentication);
+    if (request != null) {
+      request.setAttribute(USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
     }
-    return null;
+    return user;
   }
 
   /**
@@ -0,0 +1,224 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.data.domain.Sort;
+
+/**
+ * This is a fixed SQL projection of the table of an entity, that writes each row of a ResultSet as
+ * JSON without making an entity of it.
+ *
+ * <p>The columns are those Jackson writes for the entity, in the same order and under the same
+ * names, and each is written by a writer chosen once for its type; the JSON is byte for byte the
+ * JSON Jackson writes for the entity. Only entities whose serialized properties are all basic
+ * columns of one table can be projected.
+ *
+ * @param <T> type of the entity
+ */
+final class RowProjection<T> {
+  /** Writes one column of the current row. */
+  @FunctionalInterface
+  private interface ColumnWriter {
+    void write(ResultSet row, int index, JsonGenerator json) throws SQLException, IOException;
+  }
+
+  private final String table;
+
+  // the column of each attribute that is written, in the order they are written
+  private final Map<String, String> columns;
+
+  private final String select;
+
+  private final SerializableString[] names;
+
+  private final ColumnWriter[] writers;
+
+  private RowProjection(
+      String table,
+      Map<String, String> columns,
+      List<SerializableString> names,
+      List<ColumnWriter> writers) {
+    this.table = table;
+    this.columns = columns;
+    this.select = "select " + String.join(", ", columns.values()) + " from " + table;
+    this.names = names.toArray(SerializableString[]::new);
+    this.writers = writers.toArray(ColumnWriter[]::new);
+  }
+
+  /**
+   * @param entityType type of the entity
+   * @param persister the Hibernate persister of the entity
+   * @param mapper the ObjectMapper the entity would be written with
+   * @return the projection of the table of the entity
+   * @param <T> type of the entity
+   * @throws IllegalArgumentException if a property of the entity is not a column of its table
+   */
+  static <T> RowProjection<T> of(
+      Class<T> entityType, AbstractEntityPersister persister, ObjectMapper mapper) {
+    Map<String, String> columns = new LinkedHashMap<>();
+    List<SerializableString> names = new ArrayList<>();
+    List<ColumnWriter> writers = new ArrayList<>();
+    for (BeanPropertyDefinition property :
+        mapper
+            .getSerializationConfig()
+            .introspect(mapper.constructType(entityType))
+            .findProperties()) {
+      if (!property.couldSerialize()) {
+        continue;
+      }
+      String attribute = property.getInternalName();
+      boolean id = attribute.equals(persister.getIdentifierPropertyName());
+      String[] column =
+          id ? persister.getIdentifierColumnNames() : persister.getPropertyColumnNames(attribute);
+      if (column.length != 1
+          || !(id
+              || persister
+                  .getIdentifierTableName()
+                  .equals(persister.getPropertyTableName(attribute)))) {
+        throw new IllegalArgumentException(
+            "%s.%s is not a column of %s"
+                .formatted(
+                    entityType.getSimpleName(), attribute, persister.getIdentifierTableName()));
+      }
+      columns.put(attribute, column[0]);
+      names.add(new SerializedString(property.getName()));
+      writers.add(writerFor(property.getRawPrimaryType(), mapper));
+    }
+    return new RowProjection<>(persister.getIdentifierTableName(), columns, names, writers);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ColumnWriter writerFor(Class<?> type, ObjectMapper mapper) {
+    if (type == String.class) {
+      return (row, i, json) -> {
+        String value = row.getString(i);
+        if (value == null) {
+          json.writeNull();
+        } else {
+          json.writeString(value);
+        }
+      };
+    } else if (type == long.class) {
+      return (row, i, json) -> json.writeNumber(row.getLong(i));
+    } else if (type == int.class) {
+      return (row, i, json) -> json.writeNumber(row.getInt(i));
+    } else if (type == double.class) {
+      return (row, i, json) -> json.writeNumber(row.getDouble(i));
+    } else if (type == boolean.class) {
+      return (row, i, json) -> json.writeBoolean(row.getBoolean(i));
+    } else if (type == Long.class) {
+      return (row, i, json) -> {
+        long value = row.getLong(i);
+        if (row.wasNull()) {
+          json.writeNull();
+        } else {
+          json.writeNumber(value);
+        }
+      };
+    } else if (type == Integer.class) {
+      return (row, i, json) -> {
+        int value = row.getInt(i);
+        if (row.wasNull()) {
+          json.writeNull();
+        } else {
+          json.writeNumber(value);
+        }
+      };
+    } else if (type == Double.class) {
+      return (row, i, json) -> {
+        double value = row.getDouble(i);
+        if (row.wasNull()) {
+          json.writeNull();
+        } else {
+          json.writeNumber(value);
+        }
+      };
+    } else if (type == Boolean.class) {
+      return (row, i, json) -> {
+        boolean value = row.getBoolean(i);
+        if (row.wasNull()) {
+          json.writeNull();
+        } else {
+          json.writeBoolean(value);
+        }
+      };
+    }
+    // any other type, such as LocalDateTime, is read as that type and written by its serializer
+    SerializerProvider provider = mapper.getSerializerProviderInstance();
+    JsonSerializer<Object> serializer;
+    try {
+      serializer = provider.findTypedValueSerializer(type, true, null);
+    } catch (JsonMappingException e) {
+      throw new IllegalArgumentException("Cannot write a column of type " + type.getName(), e);
+    }
+    return (row, i, json) -> {
+      Object value = row.getObject(i, (Class<Object>) type);
+      if (value == null) {
+        json.writeNull();
+      } else {
+        serializer.serialize(value, json, provider);
+      }
+    };
+  }
+
+  /**
+   * The SQL to read the rows of the table.
+   *
+   * @param equal attributes that must equal a parameter, in the order the parameters are bound
+   * @param sort the order to read the rows in
+   * @return the SQL
+   * @throws IllegalArgumentException if an attribute is not one of the projection
+   */
+  String sql(Collection<String> equal, Sort sort) {
+    StringBuilder sql = new StringBuilder(select);
+    StringJoiner where = new StringJoiner(" and ", " where ", "").setEmptyValue("");
+    for (String attribute : equal) {
+      where.add(column(attribute) + " = ?");
+    }
+    sql.append(where);
+    StringJoiner orderBy = new StringJoiner(", ", " order by ", "").setEmptyValue("");
+    for (Sort.Order order : sort) {
+      orderBy.add(column(order.getProperty()) + (order.isAscending() ? " asc" : " desc"));
+    }
+    return sql.append(orderBy).toString();
+  }
+
+  private String column(String attribute) {
+    String column = columns.get(attribute);
+    if (column == null) {
+      throw new IllegalArgumentException("%s has no column %s".formatted(table, attribute));
+    }
+    return column;
+  }
+
+  /**
+   * Write the current row of a ResultSet read with sql as a JSON object.
+   *
+   * @param row the ResultSet, on the row to write
+   * @param json the generator to write it to
+   */
+  void write(ResultSet row, JsonGenerator json) throws SQLException, IOException {
+    json.writeStartObject();
+    for (int i = 0; i < writers.length; i++) {
+      json.writeFieldName(names[i]);
+      writers[i].write(row, i + 1, json);
+    }
+    json.writeEndObject();
+  }
+}
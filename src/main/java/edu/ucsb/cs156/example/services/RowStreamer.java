@@ -0,0 +1,219 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * This is a service that writes every row a query finds straight to a response, for exports of
+ * whole tables.
+ *
+ * <p>The rows are read in a read-only transaction from a cursor, app.streaming.fetchSize rows at a
+ * time, and each row is written out as soon as it is read. Every fetchSize rows the output is
+ * flushed and the persistence context cleared, so the memory used is the same however many rows
+ * there are. Rows are written as NDJSON (one JSON object per line), or as a JSON array that is the
+ * same as the one a list endpoint returns.
+ *
+ * <p>With app.streaming.jdbc=true, exports whose filters are all on the values of columns skip
+ * Hibernate: they are read with a fixed SQL projection of the table, and each row is written from
+ * the ResultSet by a RowProjection, as the same JSON, without an entity being made of it.
+ */
+@Service
+public class RowStreamer {
+  @PersistenceContext private EntityManager entityManager;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private ObjectMapper objectMapper;
+
+  @Value("${app.streaming.fetchSize:500}")
+  private int fetchSize;
+
+  @Value("${app.streaming.jdbc:false}")
+  private boolean jdbc;
+
+  private final Map<Class<?>, RowProjection<?>> projections = new ConcurrentHashMap<>();
+
+  /**
+   * Stream the rows of a query.
+   *
+   * @param entityType type of the entities
+   * @param where the rows to stream
+   * @param equalTo the same rows as where, as the value each attribute must equal, or null if where
+   *     cannot be put that way
+   * @param sort the order to stream them in
+   * @param ndjson whether to write NDJSON rather than a JSON array
+   * @return the response, which writes the rows once it is returned from the controller
+   * @param <T> type of the entities
+   */
+  public <T> ResponseEntity<StreamingResponseBody> stream(
+      Class<T> entityType,
+      Specification<T> where,
+      Map<String, Object> equalTo,
+      Sort sort,
+      boolean ndjson) {
+    StreamingResponseBody body;
+    if (jdbc && equalTo != null) {
+      RowProjection<T> projection = projection(entityType);
+      String sql = projection.sql(equalTo.keySet(), sort);
+      Object[] values = equalTo.values().toArray();
+      body = out -> write(out, ndjson, rows -> readColumns(projection, sql, values, rows));
+    } else {
+      ObjectWriter writer =
+          objectMapper.writerFor(entityType).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+      body = out -> write(out, ndjson, rows -> readEntities(entityType, where, sort, writer, rows));
+    }
+    return ResponseEntity.ok()
+        .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+        .body(body);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> RowProjection<T> projection(Class<T> entityType) {
+    return (RowProjection<T>)
+        projections.computeIfAbsent(
+            entityType,
+            type ->
+                RowProjection.of(
+                    type,
+                    (AbstractEntityPersister)
+                        entityManager
+                            .getEntityManagerFactory()
+                            .unwrap(SessionFactoryImplementor.class)
+                            .getMappingMetamodel()
+                            .getEntityDescriptor(type),
+                    objectMapper));
+  }
+
+  /** Where rows are written, one after another. */
+  private final class Rows {
+    private final JsonGenerator json;
+
+    private final boolean ndjson;
+
+    private long count = 0;
+
+    Rows(JsonGenerator json, boolean ndjson) {
+      this.json = json;
+      this.ndjson = ndjson;
+    }
+
+    /** Finish the row just written to json. */
+    void next() throws IOException {
+      if (ndjson) {
+        json.writeRaw('\n');
+      }
+      if (++count % fetchSize == 0) {
+        json.flush();
+        entityManager.clear();
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface RowReader {
+    void read(Rows rows) throws IOException;
+  }
+
+  private void write(OutputStream out, boolean ndjson, RowReader reader) {
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    transaction.setReadOnly(true);
+    transaction.executeWithoutResult(
+        status -> {
+          try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // NDJSON ends each row with a newline, rather than separating them with a space
+            json.setRootValueSeparator(null);
+            if (!ndjson) {
+              json.writeStartArray();
+            }
+            reader.read(new Rows(json, ndjson));
+            if (!ndjson) {
+              json.writeEndArray();
+            }
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+  }
+
+  private <T> void readEntities(
+      Class<T> entityType, Specification<T> where, Sort sort, ObjectWriter writer, Rows rows)
+      throws IOException {
+    try (Stream<T> entities = query(entityType, where, sort)) {
+      for (Iterator<T> i = entities.iterator(); i.hasNext(); ) {
+        writer.writeValue(rows.json, i.next());
+        rows.next();
+      }
+    }
+  }
+
+  private void readColumns(RowProjection<?> projection, String sql, Object[] values, Rows rows) {
+    jdbcTemplate.query(
+        connection -> {
+          PreparedStatement statement = connection.prepareStatement(sql);
+          statement.setFetchSize(fetchSize);
+          for (int i = 0; i < values.length; i++) {
+            statement.setObject(i + 1, values[i]);
+          }
+          return statement;
+        },
+        (ResultSet row) -> {
+          try {
+            projection.write(row, rows.json);
+            rows.next();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+  }
+
+  private <T> Stream<T> query(Class<T> entityType, Specification<T> where, Sort sort) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<T> query = cb.createQuery(entityType);
+    Root<T> root = query.from(entityType);
+    Predicate predicate = where.toPredicate(root, query, cb);
+    if (predicate != null) {
+      query.where(predicate);
+    }
+    query.orderBy(QueryUtils.toOrders(sort, root, cb));
+    return entityManager
+        .createQuery(query)
+        .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+        .setHint(HibernateHints.HINT_READ_ONLY, true)
+        .getResultStream();
+  }
+}
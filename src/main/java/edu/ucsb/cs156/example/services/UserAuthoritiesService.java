@@ -0,0 +1,134 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
+
+/**
+ * This is a service that works out the roles of a user as they log in with OAuth2, for
+ * SecurityConfig's authorities mapper.
+ *
+ * <p>Every OAuth2 user gets ROLE_USER; users with a ucsb.edu email also get ROLE_MEMBER; and users
+ * whose email is in app.admin.emails, or who are admins in the users table, also get ROLE_ADMIN.
+ * The admin emails are trimmed, lower-cased and put in a hash set once, and the users table is read
+ * through the UserCache, so a login usually costs a few hash lookups.
+ */
+@Slf4j
+public class UserAuthoritiesService {
+  static final GrantedAuthority ROLE_USER = new SimpleGrantedAuthority("ROLE_USER");
+  static final GrantedAuthority ROLE_ADMIN = new SimpleGrantedAuthority("ROLE_ADMIN");
+  static final GrantedAuthority ROLE_MEMBER = new SimpleGrantedAuthority("ROLE_MEMBER");
+
+  private final Set<String> adminEmails;
+
+  private final UserRepository userRepository;
+
+  private final UserCache userCache;
+
+  /**
+   * @param adminEmails the emails of the admins, as listed in app.admin.emails
+   * @param userRepository where users are kept
+   * @param userCache users recently read, shared with CurrentUserServiceImpl
+   */
+  public UserAuthoritiesService(
+      Collection<String> adminEmails, UserRepository userRepository, UserCache userCache) {
+    this.adminEmails =
+        adminEmails.stream()
+            .map(UserAuthoritiesService::normalize)
+            .filter(email -> !email.isEmpty())
+            .collect(Collectors.toUnmodifiableSet());
+    this.userRepository = userRepository;
+    this.userCache = userCache;
+  }
+
+  private static String normalize(String email) {
+    return email.trim().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * @param email an email
+   * @return whether it is listed in app.admin.emails, in any case
+   */
+  public boolean isAdminEmail(String email) {
+    return email != null && adminEmails.contains(normalize(email));
+  }
+
+  /**
+   * @param sub the OAuth sub of the user, if any
+   * @param email the email of the user
+   * @return whether the user is an admin, by app.admin.emails or the users table
+   */
+  public boolean isAdmin(String sub, String email) {
+    if (isAdminEmail(email)) {
+      return true;
+    }
+    String key = UserCache.keyOf(sub, email);
+    User user = userCache.get(key);
+    if (user == null) {
+      user = userRepository.findByEmail(email).orElse(null);
+      if (user == null) {
+        return false;
+      }
+      userCache.put(key, user);
+    }
+    return user.getAdmin();
+  }
+
+  /**
+   * Add the roles of the user to the authorities granted by the OAuth2 provider.
+   *
+   * @param authorities the authorities granted by the provider
+   * @return those authorities and the roles of the user
+   */
+  public Set<GrantedAuthority> mapAuthorities(Collection<? extends GrantedAuthority> authorities) {
+    Set<GrantedAuthority> mapped = new HashSet<>(authorities);
+    for (GrantedAuthority authority : authorities) {
+      if (authority instanceof OAuth2UserAuthority oauth2UserAuthority) {
+        Map<String, Object> attributes = oauth2UserAuthority.getAttributes();
+        String email = (String) attributes.get("email");
+        mapped.add(ROLE_USER);
+        if (isAdmin((String) attributes.get("sub"), email)) {
+          mapped.add(ROLE_ADMIN);
+        }
+        if (email != null && normalize(email).endsWith("@ucsb.edu")) {
+          mapped.add(ROLE_MEMBER);
+        }
+      }
+    }
+    log.debug("authorities={}, mappedAuthorities={}", authorities, mapped);
+    return mapped;
+  }
+
+  /**
+   * Log a user in again without OAuth2, for a job they launched that runs where nobody is logged
+   * in. They get the roles they would get by logging in now, and CurrentUserService finds them as
+   * it does after a login.
+   *
+   * @param user the user
+   * @return an authentication of the user, like the one an OAuth2 login gives
+   */
+  public OAuth2AuthenticationToken authenticationOf(User user) {
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put("email", user.getEmail());
+    if (user.getGoogleSub() != null) {
+      attributes.put("sub", user.getGoogleSub());
+    }
+    Set<GrantedAuthority> authorities =
+        mapAuthorities(List.of(new OAuth2UserAuthority(attributes)));
+    return new OAuth2AuthenticationToken(
+        new DefaultOAuth2User(authorities, attributes, "email"), authorities, "google");
+  }
+}
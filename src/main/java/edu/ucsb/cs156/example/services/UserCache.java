@@ -0,0 +1,103 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * This is a component that keeps the users CurrentUserServiceImpl has looked up, so that the users
+ * table is not read on every request.
+ *
+ * <p>Users are kept by the key of their login (the OAuth sub, or the email if there is none) for
+ * app.users.cache.ttlMs; once app.users.cache.maxSize are kept, the one used least recently makes
+ * way for the next. Whatever changes a user must call invalidate(email), so that the change is seen
+ * on that user's next request rather than once the entry expires.
+ */
+@Component("cachedUsers")
+public class UserCache {
+  @Value("${app.users.cache.maxSize:1000}")
+  private int maxSize;
+
+  @Value("${app.users.cache.ttlMs:60000}")
+  private long ttlMs;
+
+  private LongSupplier clock = System::currentTimeMillis;
+
+  private record Entry(User user, long expiresAt) {}
+
+  // in access order, so the eldest entry is the one used least recently
+  private final LinkedHashMap<String, Entry> entries =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+          return size() > maxSize;
+        }
+      };
+
+  /**
+   * @param sub the OAuth sub of a login, if any
+   * @param email the email of the login
+   * @return the key users of the login are kept by
+   */
+  public static String keyOf(String sub, String email) {
+    return sub != null ? sub : email;
+  }
+
+  /**
+   * @param key the key of a login
+   * @return the user, or null if it is not kept or has expired
+   */
+  public synchronized User get(String key) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.expiresAt() <= clock.getAsLong()) {
+      entries.remove(key);
+      return null;
+    }
+    return entry.user();
+  }
+
+  /**
+   * Keep a user.
+   *
+   * @param key the key of a login
+   * @param user the user
+   */
+  public synchronized void put(String key, User user) {
+    if (maxSize > 0 && ttlMs > 0) {
+      entries.put(key, new Entry(user, clock.getAsLong() + ttlMs));
+    }
+  }
+
+  /**
+   * Forget a user, after it has changed.
+   *
+   * @param email email of the user
+   */
+  public synchronized void invalidate(String email) {
+    for (Iterator<Entry> i = entries.values().iterator(); i.hasNext(); ) {
+      if (Objects.equals(i.next().user().getEmail(), email)) {
+        i.remove();
+      }
+    }
+  }
+
+  /** Forget every user. */
+  public synchronized void invalidateAll() {
+    entries.clear();
+  }
+
+  /**
+   * @return the number of users kept, some of which may have expired
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+}
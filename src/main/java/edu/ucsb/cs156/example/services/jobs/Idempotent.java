@@ -0,0 +1,17 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a job type, listed in JobTypes, as safe to run again from the start after a run of it was
+ * interrupted by a crash or a shutdown. Interrupted jobs of other types are marked "interrupted"
+ * instead.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Idempotent {}
@@ -0,0 +1,319 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.errors.ArtifactTooLargeException;
+import edu.ucsb.cs156.example.models.JobArtifact;
+import jakarta.annotation.PostConstruct;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * This is a component that keeps the files jobs write with JobContext.writeArtifact.
+ *
+ * <p>Each job has a directory named after its id under app.jobs.artifacts.dir, holding one file per
+ * artifact. An artifact is written to a hidden temporary file and moved into place when its stream
+ * is closed, so a download never sees a partial file; its SHA-256, worked out as it is written, is
+ * kept beside it in a hidden .sha256 file. An artifact may hold at most
+ * app.jobs.artifacts.maxBytes, and the artifacts of a job together at most
+ * app.jobs.artifacts.maxJobBytes.
+ *
+ * <p>Artifacts are only on the node that wrote them; when several nodes share the jobs table,
+ * app.jobs.artifacts.dir should be on storage they all mount.
+ */
+@Slf4j
+@Component
+public class JobArtifactStore {
+  private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]{0,127}");
+  private static final String CHECKSUM_SUFFIX = ".sha256";
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  @Value("${app.jobs.artifacts.dir:${java.io.tmpdir}/job-artifacts}")
+  private String dir;
+
+  @Value("${app.jobs.artifacts.maxBytes:1073741824}")
+  private long maxBytes;
+
+  @Value("${app.jobs.artifacts.maxJobBytes:10737418240}")
+  private long maxJobBytes;
+
+  private Path root;
+
+  @PostConstruct
+  void init() {
+    root = Path.of(dir).toAbsolutePath().normalize();
+    log.info("JobArtifactStore: dir={}, maxBytes={}, maxJobBytes={}", root, maxBytes, maxJobBytes);
+  }
+
+  /**
+   * Start writing an artifact of a job. An artifact of the same name is replaced once the stream is
+   * closed.
+   *
+   * @param jobId id of the job
+   * @param name name of the artifact
+   * @return a stream for the content, which throws ArtifactTooLargeException, and discards what was
+   *     written, once the artifact grows past its limit
+   * @throws IOException if the artifact cannot be created
+   * @throws IllegalArgumentException if the name is not allowed
+   */
+  public OutputStream open(long jobId, String name) throws IOException {
+    if (name == null || !NAME.matcher(name).matches()) {
+      throw new IllegalArgumentException(
+          "Artifact names are 1 to 128 letters, digits, '.', '_' or '-', not starting with '.';"
+              + " not "
+              + name);
+    }
+    Path jobDir = Files.createDirectories(jobDir(jobId));
+    long limit = Math.max(0, Math.min(maxBytes, maxJobBytes - bytesOf(jobDir, name)));
+    Path part = Files.createTempFile(jobDir, "." + name + ".", ".part");
+    return new ArtifactOutputStream(jobDir, name, part, limit);
+  }
+
+  /**
+   * @param jobId id of the job
+   * @param name name of the artifact
+   * @return the artifact, if the job has one of that name
+   */
+  public Optional<JobArtifact> find(long jobId, String name) {
+    if (name == null || !NAME.matcher(name).matches()) {
+      return Optional.empty();
+    }
+    return describe(jobDir(jobId).resolve(name));
+  }
+
+  /**
+   * @param jobId id of the job
+   * @return the artifacts of the job, by name
+   */
+  public List<JobArtifact> list(long jobId) {
+    Path jobDir = jobDir(jobId);
+    if (!Files.isDirectory(jobDir)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.list(jobDir)) {
+      return files
+          .filter(file -> NAME.matcher(file.getFileName().toString()).matches())
+          .map(this::describe)
+          .flatMap(Optional::stream)
+          .sorted(Comparator.comparing(JobArtifact::getName))
+          .toList();
+    } catch (IOException e) {
+      log.warn("Cannot list the artifacts of job {}: {}", jobId, e.getMessage());
+      return List.of();
+    }
+  }
+
+  /**
+   * @return the ids of the jobs that have artifacts
+   */
+  public List<Long> jobIds() {
+    List<Long> ids = new ArrayList<>();
+    if (!Files.isDirectory(root)) {
+      return ids;
+    }
+    try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+      for (Path jobDir : dirs) {
+        try {
+          ids.add(Long.parseLong(jobDir.getFileName().toString()));
+        } catch (NumberFormatException e) {
+          // not one of ours
+        }
+      }
+    } catch (IOException e) {
+      log.warn("Cannot list the artifact directories: {}", e.getMessage());
+    }
+    return ids;
+  }
+
+  /**
+   * Delete the artifacts of a job.
+   *
+   * @param jobId id of the job
+   */
+  public void delete(long jobId) {
+    Path jobDir = jobDir(jobId);
+    if (!Files.isDirectory(jobDir)) {
+      return;
+    }
+    try (Stream<Path> files = Files.walk(jobDir)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.deleteIfExists(file);
+      }
+    } catch (IOException e) {
+      log.warn("Cannot delete the artifacts of job {}: {}", jobId, e.getMessage());
+    }
+  }
+
+  private Path jobDir(long jobId) {
+    return root.resolve(Long.toString(jobId));
+  }
+
+  private Optional<JobArtifact> describe(Path file) {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      if (!attributes.isRegularFile()) {
+        return Optional.empty();
+      }
+      String name = file.getFileName().toString();
+      String sha256;
+      try {
+        sha256 = Files.readString(checksumFile(file.getParent(), name), StandardCharsets.US_ASCII);
+      } catch (NoSuchFileException e) {
+        sha256 = null;
+      }
+      return Optional.of(
+          new JobArtifact(
+              name,
+              attributes.size(),
+              sha256,
+              ZonedDateTime.ofInstant(
+                  attributes.lastModifiedTime().toInstant(), ZoneId.systemDefault()),
+              file));
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    } catch (IOException e) {
+      log.warn("Cannot read artifact {}: {}", file, e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  private static Path checksumFile(Path jobDir, String name) {
+    return jobDir.resolve("." + name + CHECKSUM_SUFFIX);
+  }
+
+  /** Bytes the artifacts of a job take up, leaving out the one about to be replaced. */
+  private static long bytesOf(Path jobDir, String replaced) throws IOException {
+    try (Stream<Path> files = Files.list(jobDir)) {
+      return files
+          .filter(file -> !file.getFileName().toString().equals(replaced))
+          .filter(file -> !file.getFileName().toString().endsWith(CHECKSUM_SUFFIX))
+          .mapToLong(
+              file -> {
+                try {
+                  return Files.size(file);
+                } catch (IOException e) {
+                  // gone since it was listed
+                  return 0;
+                }
+              })
+          .sum();
+    }
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Writes to the temporary file, and moves it into place on close. */
+  private static class ArtifactOutputStream extends OutputStream {
+    private final Path jobDir;
+    private final String name;
+    private final Path part;
+    private final long limit;
+    private final MessageDigest digest = sha256();
+    private final OutputStream out;
+    private long written;
+    private boolean closed;
+
+    ArtifactOutputStream(Path jobDir, String name, Path part, long limit) throws IOException {
+      this.jobDir = jobDir;
+      this.name = name;
+      this.part = part;
+      this.limit = limit;
+      this.out =
+          new DigestOutputStream(
+              new BufferedOutputStream(Files.newOutputStream(part), BUFFER_SIZE), digest);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      reserve(1);
+      out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      reserve(len);
+      out.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (!closed) {
+        out.flush();
+      }
+    }
+
+    private void reserve(int len) throws IOException {
+      if (closed) {
+        throw new IOException("Artifact " + name + " is closed");
+      }
+      if (written + len > limit) {
+        discard();
+        throw new ArtifactTooLargeException(name, limit);
+      }
+      written += len;
+    }
+
+    private void discard() throws IOException {
+      closed = true;
+      try {
+        out.close();
+      } finally {
+        Files.deleteIfExists(part);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        out.close();
+        // the checksum goes first, so a download never finds new content without one
+        Path checksum = Files.createTempFile(jobDir, "." + name + ".", ".part");
+        Files.writeString(
+            checksum, HexFormat.of().formatHex(digest.digest()), StandardCharsets.US_ASCII);
+        Files.move(
+            checksum,
+            checksumFile(jobDir, name),
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+        Files.move(
+            part,
+            jobDir.resolve(name),
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(part);
+      }
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.JobState;
+import edu.ucsb.cs156.example.repositories.JobStatesRepository;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * This is a component that keeps the last checkpoint of each job in the job_states table.
+ *
+ * <p>A job saves a checkpoint with JobContext.checkpoint(key, state) once it has finished a piece
+ * of work; when it runs again, whether resumed after a failure or queued again after an
+ * interruption, it reads the checkpoint back with JobContext.lastCheckpoint() and carries on from
+ * there. The checkpoint is dropped once the job completes.
+ */
+@Component
+public class JobCheckpoints {
+  static final int MAX_STATE_LENGTH = 65536;
+
+  @Autowired private JobStatesRepository jobStatesRepository;
+
+  @Autowired private ObjectMapper objectMapper;
+
+  /**
+   * Save the checkpoint of a job, replacing the one before it.
+   *
+   * @param jobId id of the job
+   * @param key names the point the job has reached
+   * @param state what the job needs to carry on from there; stored as JSON, and may be null
+   * @throws IllegalArgumentException if the key is null, or the state cannot be written as JSON of
+   *     at most MAX_STATE_LENGTH characters
+   */
+  public void save(long jobId, String key, Object state) {
+    if (key == null) {
+      throw new IllegalArgumentException("A checkpoint needs a key");
+    }
+    String json;
+    try {
+      json = state == null ? null : objectMapper.writeValueAsString(state);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Cannot store the state of checkpoint " + key, e);
+    }
+    if (json != null && json.length() > MAX_STATE_LENGTH) {
+      throw new IllegalArgumentException(
+          "The state of checkpoint %s is %d characters; at most %d can be stored"
+              .formatted(key, json.length(), MAX_STATE_LENGTH));
+    }
+    jobStatesRepository.save(
+        JobState.builder()
+            .jobId(jobId)
+            .checkpointKey(key)
+            .state(json)
+            .savedAt(ZonedDateTime.now())
+            .build());
+  }
+
+  /**
+   * @param jobId id of the job
+   * @return the last checkpoint the job saved, if any
+   */
+  public Optional<JobState> last(long jobId) {
+    return jobStatesRepository.findById(jobId);
+  }
+
+  /**
+   * Read back the state of a checkpoint.
+   *
+   * @param checkpoint the checkpoint
+   * @param stateType the type the state was saved as
+   * @param <T> the type the state was saved as
+   * @return the state, or null if none was saved
+   * @throws IllegalArgumentException if the state cannot be read as stateType
+   */
+  public <T> T read(JobState checkpoint, Class<T> stateType) {
+    if (checkpoint.getState() == null) {
+      return null;
+    }
+    try {
+      return objectMapper.readValue(checkpoint.getState(), stateType);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException(
+          "Cannot read the state of checkpoint " + checkpoint.getCheckpointKey(), e);
+    }
+  }
+
+  /**
+   * Drop the checkpoint of a job.
+   *
+   * @param jobId id of the job
+   */
+  public void clear(long jobId) {
+    jobStatesRepository.deleteByJobId(jobId);
+  }
+}
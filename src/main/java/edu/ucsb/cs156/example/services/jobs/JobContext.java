@@ -1,20 +1,248 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import edu.ucsb.cs156.example.entities.Job;
-import edu.ucsb.cs156.example.repositories.JobsRepository;
-import lombok.AllArgsConstructor;
+import edu.ucsb.cs156.example.entities.JobState;
+import edu.ucsb.cs156.example.errors.JobCancelledException;
+import edu.ucsb.cs156.example.errors.JobTasksFailedException;
+import edu.ucsb.cs156.example.services.jobs.JobTasks.TaskCounts;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
 
-@AllArgsConstructor
 @Slf4j
 public class JobContext {
-  private JobsRepository jobsRepository;
+  private JobLogStore jobLogStore;
   private Job job;
+  private JobControl control;
+  private JobTasks jobTasks;
+  private JobCheckpoints jobCheckpoints;
+  private JobArtifactStore jobArtifactStore;
+  private final TaskCounts taskCounts = new TaskCounts();
+  private final JobUsage usage = new JobUsage();
+  // child tasks log from their own threads
+  private final AtomicLong logBytes = new AtomicLong();
+  private final AtomicLong logLines = new AtomicLong();
+
+  public JobContext(JobLogStore jobLogStore, Job job) {
+    this(jobLogStore, job, null, null, null, null);
+  }
+
+  JobContext(
+      JobLogStore jobLogStore,
+      Job job,
+      JobControl control,
+      JobTasks jobTasks,
+      JobCheckpoints jobCheckpoints,
+      JobArtifactStore jobArtifactStore) {
+    this.jobLogStore = jobLogStore;
+    this.job = job;
+    this.control = control;
+    this.jobTasks = jobTasks;
+    this.jobCheckpoints = jobCheckpoints;
+    this.jobArtifactStore = jobArtifactStore;
+  }
 
   public void log(String message) {
     log.info("Job %s: %s".formatted(job.getId(), message));
-    String previousLog = job.getLog() == null ? "" : (job.getLog() + "\n");
-    job.setLog(previousLog + message);
-    if (jobsRepository != null) jobsRepository.save(job);
+    append(message);
+  }
+
+  /**
+   * Write a record to the log with a level and the time, so that it can be found with
+   * /api/jobs/logs/{id}?level=. See log(level, message, fields).
+   *
+   * @param level level of the record
+   * @param message the message
+   */
+  public void log(JobLogLevel level, String message) {
+    log(level, message, Map.of());
+  }
+
+  /**
+   * Write a record to the log with a level, the time, and fields such as the id of the row being
+   * processed. The record is one line of the log, which /api/jobs/logs/{id}?level=&amp;grep= can
+   * pick out of a long log without sending the rest of it.
+   *
+   * @param level level of the record
+   * @param message the message
+   * @param fields values to keep with the message; they are written as JSON
+   */
+  public void log(JobLogLevel level, String message, Map<String, ?> fields) {
+    log.atLevel(Level.valueOf(level.name())).log("Job {}: {} {}", job.getId(), message, fields);
+    append(JobLogRecords.format(level, Instant.now(), message, fields));
+  }
+
+  private void append(String line) {
+    if (jobLogStore != null) logBytes.addAndGet(jobLogStore.append(job.getId(), line));
+    logLines.incrementAndGet();
+  }
+
+  /**
+   * @return number of bytes this job has written to its log
+   */
+  long getLogBytes() {
+    return logBytes.get();
+  }
+
+  /**
+   * @return number of lines this job has written to its log
+   */
+  long getLogLines() {
+    return logLines.get();
+  }
+
+  Job getJob() {
+    return job;
+  }
+
+  TaskCounts getTaskCounts() {
+    return taskCounts;
+  }
+
+  /**
+   * @return the CPU time and allocations of this job's threads so far
+   */
+  JobUsage getUsage() {
+    return usage;
+  }
+
+  /**
+   * Run a task for each item on child threads, as many at once as app.jobs.tasks.parallelism
+   * allows, and wait for all of them. See forEachInParallel(items, maxParallelism, task).
+   *
+   * @param items the items, taken in order
+   * @param task the task
+   * @param <T> type of the items
+   * @throws InterruptedException if the job is stopped while its tasks run
+   * @throws JobTasksFailedException once every task has finished, if any failed
+   */
+  public <T> void forEachInParallel(Collection<T> items, JobTask<T> task)
+      throws InterruptedException {
+    forEachInParallel(items, Integer.MAX_VALUE, task);
+  }
+
+  /**
+   * Run a task for each item on child threads, at most maxParallelism at once, and wait for all of
+   * them. Tasks may log and call checkpoint() like the job itself. A task that throws is logged and
+   * counted as failed without stopping the others; the job's progress through its tasks is recorded
+   * on the job as they run. Once the job is cancelled or times out, no further task starts and the
+   * running ones are interrupted.
+   *
+   * @param items the items, taken in order
+   * @param maxParallelism the most tasks to run at once; app.jobs.tasks.parallelism caps it
+   * @param task the task
+   * @param <T> type of the items
+   * @throws InterruptedException if the job is stopped while its tasks run
+   * @throws JobTasksFailedException once every task has finished, if any failed
+   */
+  public <T> void forEachInParallel(Collection<T> items, int maxParallelism, JobTask<T> task)
+      throws InterruptedException {
+    if (jobTasks == null) {
+      throw new IllegalStateException("Only jobs run by the JobService can run child tasks");
+    }
+    jobTasks.run(this, items, maxParallelism, task);
+  }
+
+  /**
+   * Split a list into consecutive batches, so that each child task can work on a batch.
+   *
+   * @param items the items
+   * @param size the most items in a batch
+   * @param <T> type of the items
+   * @return the batches, in order; every batch but the last holds size items
+   */
+  public static <T> List<List<T>> partition(List<T> items, int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("Batch size must be at least 1");
+    }
+    List<List<T>> batches = new ArrayList<>();
+    for (int from = 0; from < items.size(); from += size) {
+      batches.add(new ArrayList<>(items.subList(from, Math.min(items.size(), from + size))));
+    }
+    return batches;
+  }
+
+  /**
+   * @return whether the job has been cancelled or has timed out and should stop
+   */
+  public boolean isCancelled() {
+    return control != null && control.getStopReason() != null;
+  }
+
+  /**
+   * Stop the job here if it has been cancelled or has timed out. Jobs that do not block in
+   * interruptible calls should call this between steps.
+   *
+   * @throws JobCancelledException if the job should stop
+   */
+  public void checkpoint() {
+    if (isCancelled()) {
+      throw new JobCancelledException(job.getId(), control.getStopReason());
+    }
+  }
+
+  /**
+   * Save how far the job has got, replacing its previous checkpoint, so that a later run of the
+   * job, such as one resumed through /api/jobs/resume after a failure, can carry on from here
+   * rather than start over. Then stop the job here if it has been cancelled, as checkpoint() does.
+   *
+   * @param key names the point the job has reached
+   * @param state what the job needs to carry on from there, such as the last id processed; it is
+   *     stored as JSON
+   * @throws JobCancelledException if the job should stop
+   * @throws IllegalArgumentException if the state cannot be stored
+   */
+  public void checkpoint(String key, Object state) {
+    if (jobCheckpoints == null) {
+      throw new IllegalStateException("Only jobs run by the JobService can save checkpoints");
+    }
+    jobCheckpoints.save(job.getId(), key, state);
+    checkpoint();
+  }
+
+  /**
+   * @return the last checkpoint saved by this job, in this run or an earlier one, if any
+   */
+  public Optional<JobState> lastCheckpoint() {
+    return jobCheckpoints == null ? Optional.empty() : jobCheckpoints.last(job.getId());
+  }
+
+  /**
+   * Read back the state of the last checkpoint saved by this job.
+   *
+   * @param stateType the type the state was saved as
+   * @param <T> the type the state was saved as
+   * @return the state, if the job has saved a checkpoint with one
+   * @throws IllegalArgumentException if the state cannot be read as stateType
+   */
+  public <T> Optional<T> lastCheckpoint(Class<T> stateType) {
+    return lastCheckpoint().map(checkpoint -> jobCheckpoints.read(checkpoint, stateType));
+  }
+
+  /**
+   * Write a file for admins to download from /api/jobs/artifacts/{jobId}/{name}, such as an export
+   * or a report too big for the log. The content goes straight to disk, and is served from there.
+   * Use the stream in a try-with-resources block: the artifact is saved, replacing any of the same
+   * name, when the stream is closed.
+   *
+   * @param name name of the artifact: letters, digits, '.', '_' and '-', not starting with '.'
+   * @return a stream for the content
+   * @throws IOException if the artifact cannot be created; writing more than app.jobs.artifacts
+   *     allows throws ArtifactTooLargeException
+   * @throws IllegalArgumentException if the name is not allowed
+   */
+  public OutputStream writeArtifact(String name) throws IOException {
+    if (jobArtifactStore == null) {
+      throw new IllegalStateException("Only jobs run by the JobService can write artifacts");
+    }
+    return jobArtifactStore.open(job.getId(), name);
   }
 }
@@ -1,6 +1,20 @@
 package edu.ucsb.cs156.example.services.jobs;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 @FunctionalInterface
 public interface JobContextConsumer {
   void accept(JobContext c) throws Exception;
+
+  /**
+   * The type of the job, under which it is listed and its metrics are kept.
+   *
+   * @return the simple name of the implementing class, or of the class a lambda is declared in
+   */
+  @JsonIgnore
+  default String getJobType() {
+    String name = getClass().getSimpleName();
+    int lambda = name.indexOf("$$Lambda");
+    return lambda < 0 ? name : name.substring(0, lambda);
+  }
 }
@@ -0,0 +1,118 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import java.util.concurrent.Future;
+
+/**
+ * Tracks one queued or running job so that it can be stopped.
+ *
+ * <p>Stopping a job that is running interrupts its thread; stopping a job that is still queued
+ * cancels it before it starts. Once the job has finished, stopping it does nothing, so a late
+ * cancel can never interrupt the thread while it records the outcome.
+ */
+class JobControl {
+  private final Job job;
+  private final long queuedAtNanos = System.nanoTime();
+  private long startedAtNanos;
+  private Future<?> future;
+  private Thread thread;
+  private boolean finished;
+  private volatile String stopReason;
+
+  JobControl(Job job) {
+    this.job = job;
+  }
+
+  Job getJob() {
+    return job;
+  }
+
+  /**
+   * @return how long the job waited before it started, or has waited so far, in milliseconds
+   */
+  synchronized long getQueueWaitMs() {
+    return ((thread != null ? startedAtNanos : System.nanoTime()) - queuedAtNanos) / 1_000_000;
+  }
+
+  /**
+   * @return how long the job ran, in milliseconds, or -1 if it never started
+   */
+  synchronized long getRunTimeMs() {
+    return thread != null ? (System.nanoTime() - startedAtNanos) / 1_000_000 : -1;
+  }
+
+  /**
+   * @return "cancelled", "timed_out" or "interrupted" once the job has been asked to stop,
+   *     otherwise null
+   */
+  String getStopReason() {
+    return stopReason;
+  }
+
+  /**
+   * Remember the executor's handle on the job, so that it can be cancelled while queued.
+   *
+   * @param future the handle
+   */
+  synchronized void setFuture(Future<?> future) {
+    this.future = future;
+    if (stopReason != null && thread == null) {
+      future.cancel(true);
+    }
+  }
+
+  /**
+   * @return whether the job has started to run
+   */
+  synchronized boolean isStarted() {
+    return thread != null;
+  }
+
+  /**
+   * Called on the job's thread before it runs.
+   *
+   * @return false if the job was stopped while queued and must not run
+   */
+  synchronized boolean start() {
+    if (stopReason != null) {
+      return false;
+    }
+    thread = Thread.currentThread();
+    startedAtNanos = System.nanoTime();
+    return true;
+  }
+
+  /**
+   * Ask the job to stop.
+   *
+   * @param reason "cancelled", "timed_out" or "interrupted"
+   * @return true if the job had not started, in which case it never will and the caller records the
+   *     outcome
+   */
+  synchronized boolean stop(String reason) {
+    if (finished || stopReason != null) {
+      return false;
+    }
+    stopReason = reason;
+    if (thread != null) {
+      thread.interrupt();
+      return false;
+    }
+    if (future != null) {
+      future.cancel(true);
+    }
+    return true;
+  }
+
+  /**
+   * Called on the job's thread once it has run. Clears any interrupt meant for the job, so that
+   * recording the outcome is not disturbed.
+   *
+   * @return the reason the job was asked to stop, or null
+   */
+  synchronized String finish() {
+    finished = true;
+    Thread.interrupted();
+    return stopReason;
+  }
+}
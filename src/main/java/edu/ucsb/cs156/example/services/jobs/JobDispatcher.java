@@ -0,0 +1,92 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.ZonedDateTime;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * This is a service that shares the jobs in the jobs table among the nodes running the app.
+ *
+ * <p>Every app.jobs.pollIntervalMs, a node with free run slots leases that many jobs from the
+ * shared queue, oldest first. The jobs are locked with SELECT ... FOR UPDATE SKIP LOCKED (which
+ * both Postgres and H2 support) in the transaction that leases them, so two nodes never lease the
+ * same job and neither waits for the other.
+ *
+ * <p>Every app.jobs.lease.heartbeatMs, a node renews the leases on its jobs, stops those that were
+ * cancelled on another node (see JobService.cancelJob), and takes back the leases that other nodes
+ * have let expire. A job whose lease expired is queued again if it never started or is @Idempotent,
+ * and marked "interrupted" otherwise (see JobsRepository.recoverOrphans); so an idempotent job may
+ * run again if its node stops renewing the lease while it still runs. Then the running workflows
+ * are advanced (see JobWorkflows), in case one of their nodes was recovered, or finished on a node
+ * that stopped before launching the next.
+ */
+@Service
+@Slf4j
+public class JobDispatcher {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobService jobService;
+
+  @Autowired private JobExecutor jobExecutor;
+
+  @Autowired private JobLeases jobLeases;
+
+  @Autowired private JobTypes jobTypes;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  /**
+   * Lease as many jobs from the shared queue as this node can start right away, and run them.
+   *
+   * @return the number of jobs leased
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.pollIntervalMs:1000}")
+  public int leaseQueuedJobs() {
+    int idle = jobExecutor.getIdleCapacity();
+    if (idle == 0) {
+      return 0;
+    }
+    ZonedDateTime now = ZonedDateTime.now();
+    List<Long> ids =
+        transactionTemplate.execute(
+            status -> {
+              List<Long> locked = jobsRepository.lockUnleased(idle);
+              if (!locked.isEmpty()) {
+                jobsRepository.lease(locked, jobLeases.getNodeId(), jobLeases.expiryFrom(now), now);
+              }
+              return locked;
+            });
+    if (ids == null) {
+      // only a TransactionTemplate that does not run the callback (a mock) returns null
+      return 0;
+    }
+    for (Job job : jobsRepository.findAllById(ids)) {
+      jobService.runLeased(job);
+    }
+    return ids.size();
+  }
+
+  /** Renew the leases on this node's jobs, and take back the leases that have expired. */
+  @Scheduled(fixedDelayString = "${app.jobs.lease.heartbeatMs:15000}")
+  public void heartbeat() {
+    ZonedDateTime now = ZonedDateTime.now();
+    jobsRepository.renewLeases(jobLeases.getNodeId(), jobLeases.expiryFrom(now), now);
+    // cancels asked for on other nodes, of jobs this node holds
+    for (long jobId : jobsRepository.findIdsToCancel(jobLeases.getNodeId())) {
+      log.info("Cancelling job {} as requested on another node", jobId);
+      jobService.cancelJob(jobId);
+    }
+    int recovered = jobsRepository.recoverOrphans(null, now, jobTypes.getIdempotentTypes());
+    if (recovered > 0) {
+      log.warn("Recovered {} jobs whose lease expired", recovered);
+    }
+    // a workflow whose node was recovered, or whose node stopped before advancing it, moves on
+    jobService.advanceWorkflows();
+  }
+}
@@ -0,0 +1,230 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import com.zaxxer.hikari.HikariDataSource;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that runs jobs.
+ *
+ * <p>A job waits for its turn on a virtual thread of its own, and runs on it. When
+ * app.jobs.usage.enabled is true, it runs on a platform thread instead, since the JVM only reports
+ * the CPU time and allocations of platform threads (see JobUsage); there are then never more
+ * platform threads than running jobs, but each job pays for starting one.
+ *
+ * <p>At most app.jobs.maxConcurrent jobs run at once; the rest wait, in the order they were
+ * submitted, for a running job to finish. At most app.jobs.maxQueued jobs may be waiting, and
+ * further submissions are rejected with a JobQueueFullException, as are submissions once the
+ * executor has been drained for shutdown.
+ *
+ * <p>When app.jobs.maxConcurrent is 0, the limit is half of the JDBC connection pool, so that
+ * running jobs can never take every connection away from request threads.
+ */
+@Slf4j
+@Service
+public class JobExecutor {
+  @Autowired private DataSource dataSource;
+
+  @Value("${app.jobs.maxConcurrent:0}")
+  private int maxConcurrent;
+
+  @Value("${app.jobs.maxQueued:100}")
+  private int maxQueued;
+
+  @Value("${app.jobs.usage.enabled:false}")
+  private boolean measureUsage;
+
+  private Semaphore runPermits;
+  private Semaphore queueSlots;
+
+  private final ExecutorService executor =
+      Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("job-", 0).factory());
+
+  private final ThreadFactory runners = Thread.ofPlatform().daemon().name("job-run-", 0).factory();
+
+  @PostConstruct
+  void init() {
+    if (maxConcurrent <= 0) {
+      maxConcurrent =
+          dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() / 2 : 1;
+      maxConcurrent = Math.max(1, maxConcurrent);
+    }
+    runPermits = new Semaphore(maxConcurrent, true);
+    queueSlots = new Semaphore(maxQueued);
+    log.info(
+        "JobExecutor: maxConcurrent={}, maxQueued={}, usage.enabled={}",
+        maxConcurrent,
+        maxQueued,
+        measureUsage);
+  }
+
+  /**
+   * Queue a task to run as soon as fewer than maxConcurrent tasks are running. The security context
+   * of the caller is made available to the task.
+   *
+   * @param task the task to run
+   * @return a handle that interrupts the task, whether waiting or running, when cancelled
+   * @throws JobQueueFullException if maxQueued tasks are already waiting, or after drain
+   */
+  public Future<?> submit(Runnable task) {
+    if (!queueSlots.tryAcquire()) {
+      throw new JobQueueFullException(maxQueued);
+    }
+    AtomicBoolean dequeued = new AtomicBoolean();
+    Runnable leaveQueue =
+        () -> {
+          if (dequeued.compareAndSet(false, true)) {
+            queueSlots.release();
+          }
+        };
+    FutureTask<Void> future =
+        new FutureTask<>(
+            new DelegatingSecurityContextRunnable(() -> runWhenPermitted(task, leaveQueue)), null) {
+          @Override
+          protected void done() {
+            // a task cancelled before it started never runs, so give up its queue slot here
+            leaveQueue.run();
+            if (state() == State.FAILED) {
+              log.error("Job task failed", exceptionNow());
+            }
+          }
+        };
+    try {
+      executor.execute(future);
+    } catch (RejectedExecutionException e) {
+      // the app is shutting down; nothing more will run here
+      leaveQueue.run();
+      throw new JobQueueFullException(maxQueued);
+    }
+    return future;
+  }
+
+  private void runWhenPermitted(Runnable task, Runnable leaveQueue) {
+    try {
+      runPermits.acquire();
+    } catch (InterruptedException e) {
+      leaveQueue.run();
+      Thread.currentThread().interrupt();
+      return;
+    }
+    leaveQueue.run();
+    try {
+      if (measureUsage) {
+        runOnPlatformThread(task);
+      } else {
+        task.run();
+      }
+    } finally {
+      runPermits.release();
+    }
+  }
+
+  /**
+   * Run a task on a platform thread and wait for it. An interrupt of the waiting thread, such as
+   * cancelling the task's Future, is passed on to the task; a failure of the task is thrown here.
+   */
+  private void runOnPlatformThread(Runnable task) {
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread runner =
+        runners.newThread(
+            new DelegatingSecurityContextRunnable(
+                () -> {
+                  try {
+                    task.run();
+                  } catch (Throwable t) {
+                    failure.set(t);
+                  }
+                }));
+    runner.start();
+    boolean interrupted = false;
+    while (true) {
+      try {
+        runner.join();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+        runner.interrupt();
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (failure.get() instanceof RuntimeException e) {
+      throw e;
+    } else if (failure.get() instanceof Error e) {
+      throw e;
+    } else if (failure.get() != null) {
+      throw new IllegalStateException(failure.get());
+    }
+  }
+
+  /**
+   * @return the number of tasks waiting to run
+   */
+  public int getQueuedCount() {
+    return maxQueued - queueSlots.availablePermits();
+  }
+
+  /**
+   * @return the number of tasks currently running
+   */
+  public int getRunningCount() {
+    return maxConcurrent - runPermits.availablePermits();
+  }
+
+  /**
+   * @return the number of further tasks that would start right away rather than wait
+   */
+  public int getIdleCapacity() {
+    return Math.max(0, runPermits.availablePermits() - getQueuedCount());
+  }
+
+  /**
+   * @return the maximum number of tasks that run at once
+   */
+  public int getMaxConcurrent() {
+    return maxConcurrent;
+  }
+
+  /**
+   * @return the maximum number of tasks that may wait to run
+   */
+  public int getMaxQueued() {
+    return maxQueued;
+  }
+
+  /**
+   * Stop taking tasks, and wait for the tasks already submitted, whether running or waiting, to
+   * finish.
+   *
+   * @param timeoutMs how long to wait, in milliseconds
+   * @return whether every task finished in time
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean drain(long timeoutMs) throws InterruptedException {
+    executor.shutdown();
+    return executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,71 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import jakarta.annotation.PostConstruct;
+import java.lang.management.ManagementFactory;
+import java.time.ZonedDateTime;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * This is a component that knows which node this is, and how long the leases it takes on jobs last.
+ *
+ * <p>app.jobs.nodeId names the node; it defaults to the pid@host of the JVM. A lease lasts
+ * app.jobs.lease.durationMs, and is renewed by the JobDispatcher while the job is queued or running
+ * here.
+ */
+@Slf4j
+@Component
+public class JobLeases {
+  @Value("${app.jobs.nodeId:}")
+  private String nodeId;
+
+  @Value("${app.jobs.lease.durationMs:60000}")
+  private long durationMs;
+
+  @PostConstruct
+  void init() {
+    if (nodeId == null || nodeId.isBlank()) {
+      nodeId = ManagementFactory.getRuntimeMXBean().getName();
+    }
+    log.info("JobLeases: nodeId={}, durationMs={}", nodeId, durationMs);
+  }
+
+  /**
+   * @return the name this node leases jobs under
+   */
+  public String getNodeId() {
+    return nodeId;
+  }
+
+  /**
+   * @param now the current time
+   * @return when a lease taken or renewed now expires
+   */
+  public ZonedDateTime expiryFrom(ZonedDateTime now) {
+    return now.plusNanos(durationMs * 1_000_000);
+  }
+
+  /**
+   * Take, or renew, the lease on a job for this node. The job is not saved.
+   *
+   * @param job the job
+   */
+  public void lease(Job job) {
+    ZonedDateTime now = ZonedDateTime.now();
+    job.setLeaseOwner(nodeId);
+    job.setLeaseExpiresAt(expiryFrom(now));
+    job.setHeartbeatAt(now);
+  }
+
+  /**
+   * Give up the lease on a job. The job is not saved.
+   *
+   * @param job the job
+   */
+  public void release(Job job) {
+    job.setLeaseOwner(null);
+    job.setLeaseExpiresAt(null);
+  }
+}
@@ -0,0 +1,111 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Reads the lines of a log that are at or above a level and contain some text, joined by newlines.
+ * Lines that are not records (see JobLogRecords) count as INFO.
+ *
+ * <p>The log is read a chunk at a time as the stream is read, and each line is tested as soon as it
+ * is complete, so filtering a log never holds more than one chunk and one line of it in memory.
+ */
+class JobLogFilter extends InputStream {
+  private final Iterator<byte[]> chunks;
+  private final JobLogLevel minLevel;
+  private final String grep;
+  private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+  private final ByteArrayOutputStream matches = new ByteArrayOutputStream();
+  private byte[] out = new byte[0];
+  private int position;
+  private boolean read;
+  private boolean matched;
+  private boolean exhausted;
+
+  /**
+   * @param chunks the log, a chunk at a time
+   * @param minLevel the least severe level to keep, or null for every level
+   * @param grep text the lines kept must contain, or null
+   */
+  JobLogFilter(Iterator<byte[]> chunks, JobLogLevel minLevel, String grep) {
+    this.chunks = chunks;
+    this.minLevel = minLevel;
+    this.grep = grep == null || grep.isEmpty() ? null : grep;
+  }
+
+  @Override
+  public int read() {
+    byte[] one = new byte[1];
+    return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) {
+    if (len == 0) {
+      return 0;
+    }
+    while (position == out.length) {
+      if (exhausted) {
+        return -1;
+      }
+      fill();
+    }
+    int n = Math.min(len, out.length - position);
+    System.arraycopy(out, position, b, off, n);
+    position += n;
+    return n;
+  }
+
+  @Override
+  public int available() {
+    return out.length - position;
+  }
+
+  private void fill() {
+    matches.reset();
+    if (chunks.hasNext()) {
+      byte[] chunk = chunks.next();
+      read = read || chunk.length > 0;
+      int start = 0;
+      for (int i = 0; i < chunk.length; i++) {
+        if (chunk[i] == '\n') {
+          line.write(chunk, start, i - start);
+          test();
+          start = i + 1;
+        }
+      }
+      line.write(chunk, start, chunk.length - start);
+    } else {
+      exhausted = true;
+      if (read) {
+        // the last line of a log has no newline after it
+        test();
+      }
+    }
+    out = matches.toByteArray();
+    position = 0;
+  }
+
+  private void test() {
+    byte[] bytes = line.toByteArray();
+    String text = new String(bytes, UTF_8);
+    line.reset();
+    if (grep != null && !text.contains(grep)) {
+      return;
+    }
+    if (minLevel != null) {
+      JobLogLevel level = JobLogRecords.levelOf(text);
+      if ((level != null ? level : JobLogLevel.INFO).compareTo(minLevel) < 0) {
+        return;
+      }
+    }
+    if (matched) {
+      matches.write('\n');
+    }
+    matches.writeBytes(bytes);
+    matched = true;
+  }
+}
@@ -0,0 +1,86 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is an in-process fan-out hub for job logs.
+ *
+ * <p>JobLogStore publishes every appended line here, tagged with its byte offset in the job's log,
+ * and announces when a job's log is complete. Any number of listeners may follow the same job;
+ * publishing to a job nobody follows costs a single map lookup.
+ */
+@Service
+public class JobLogHub {
+
+  /** Receives the lines appended to one job's log. Implementations must not block. */
+  public interface Listener {
+    /**
+     * Called for each append, in log order.
+     *
+     * @param offset byte offset of the first appended byte in the job's log
+     * @param bytes the appended bytes, including the newline that separates them from the previous
+     *     line
+     */
+    void onAppend(long offset, byte[] bytes);
+
+    /** Called once the job has finished and its log is complete. */
+    void onComplete();
+  }
+
+  private final Map<Long, Set<Listener>> listeners = new ConcurrentHashMap<>();
+
+  /**
+   * Follow the log of a job.
+   *
+   * @param jobId id of the job
+   * @param listener the listener to call
+   * @return a Runnable that stops following
+   */
+  public Runnable subscribe(long jobId, Listener listener) {
+    listeners.computeIfAbsent(jobId, id -> ConcurrentHashMap.newKeySet()).add(listener);
+    return () ->
+        listeners.computeIfPresent(
+            jobId,
+            (id, set) -> {
+              set.remove(listener);
+              return set.isEmpty() ? null : set;
+            });
+  }
+
+  /**
+   * @param jobId id of the job
+   * @return whether anybody is following the job
+   */
+  public boolean hasListeners(long jobId) {
+    return listeners.containsKey(jobId);
+  }
+
+  /**
+   * Deliver appended bytes to everybody following a job.
+   *
+   * @param jobId id of the job
+   * @param offset byte offset of the first appended byte
+   * @param bytes the appended bytes
+   */
+  public void publish(long jobId, long offset, byte[] bytes) {
+    Set<Listener> set = listeners.get(jobId);
+    if (set != null) {
+      set.forEach(listener -> listener.onAppend(offset, bytes));
+    }
+  }
+
+  /**
+   * Tell everybody following a job that its log is complete.
+   *
+   * @param jobId id of the job
+   */
+  public void complete(long jobId) {
+    Set<Listener> set = listeners.get(jobId);
+    if (set != null) {
+      set.forEach(Listener::onComplete);
+    }
+  }
+}
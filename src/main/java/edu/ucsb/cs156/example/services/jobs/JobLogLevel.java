@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+/**
+ * The level of a record a job writes to its log with JobContext.log(level, message, fields), from
+ * least to most severe. Lines written with JobContext.log(message) count as INFO.
+ */
+public enum JobLogLevel {
+  DEBUG,
+  INFO,
+  WARN,
+  ERROR;
+
+  /**
+   * @param name the name of a level
+   * @return the level, or null if there is none of that name
+   */
+  static JobLogLevel of(String name) {
+    for (JobLogLevel level : values()) {
+      if (level.name().equals(name)) {
+        return level;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,69 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+/**
+ * The format of the records jobs write with JobContext.log(level, message, fields).
+ *
+ * <p>A record is one line of the job's log: the time it was written, its level, the message, and
+ * then its fields as a JSON object, if it has any:
+ *
+ * <pre>
+ * 2025-10-17T23:23:51.089Z WARN Skipped a row {"row":17,"reason":"no email"}
+ * </pre>
+ *
+ * Newlines in the message are written as "\n", so a record never spans lines. Because records are
+ * lines of the text log, byte and line ranges, the tail and the live stream of a log serve them
+ * like any other line, and a downloaded log stays readable.
+ */
+final class JobLogRecords {
+  private static final ObjectMapper MAPPER = JsonMapper.builder().findAndAddModules().build();
+
+  private JobLogRecords() {}
+
+  /**
+   * @param level level of the record
+   * @param time when it was written; kept to the millisecond
+   * @param message the message
+   * @param fields values to keep with the message, or none
+   * @return the record, as a line of the log
+   */
+  static String format(JobLogLevel level, Instant time, String message, Map<String, ?> fields) {
+    StringBuilder record =
+        new StringBuilder()
+            .append(DateTimeFormatter.ISO_INSTANT.format(time.truncatedTo(ChronoUnit.MILLIS)))
+            .append(' ')
+            .append(level.name())
+            .append(' ')
+            .append(String.valueOf(message).replace("\r", "").replace("\n", "\\n"));
+    if (fields != null && !fields.isEmpty()) {
+      record.append(' ');
+      try {
+        record.append(MAPPER.writeValueAsString(fields));
+      } catch (JsonProcessingException e) {
+        record.append(String.valueOf(fields).replace("\r", "").replace("\n", "\\n"));
+      }
+    }
+    return record.toString();
+  }
+
+  /**
+   * @param line a line of a log
+   * @return the level of the record on the line, or null if the line is not a record
+   */
+  static JobLogLevel levelOf(String line) {
+    int time = line.indexOf(' ');
+    // the shortest time written is yyyy-mm-ddThh:mm:ssZ
+    if (time < 20 || line.charAt(time - 1) != 'Z' || line.charAt(10) != 'T') {
+      return null;
+    }
+    int level = line.indexOf(' ', time + 1);
+    return JobLogLevel.of(level < 0 ? line.substring(time + 1) : line.substring(time + 1, level));
+  }
+}
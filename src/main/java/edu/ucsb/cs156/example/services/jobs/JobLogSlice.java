@@ -0,0 +1,33 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.io.InputStream;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * This is a range of a job log, either of bytes, counted from 0, or of lines, counted from 1. first
+ * and last are inclusive, and total is the size of the whole log in the same unit.
+ */
+@Getter
+@AllArgsConstructor
+public class JobLogSlice {
+  private final InputStream content;
+  private final String unit;
+  private final long first;
+  private final long last;
+  private final long total;
+
+  /**
+   * @return whether the slice holds nothing, as for the tail of an empty log
+   */
+  public boolean isEmpty() {
+    return last < first;
+  }
+
+  /**
+   * @return the value of the Content-Range header describing the slice
+   */
+  public String getContentRange() {
+    return "%s %d-%d/%d".formatted(unit, first, last, total);
+  }
+}
@@ -0,0 +1,485 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import edu.ucsb.cs156.example.entities.JobLogChunk;
+import edu.ucsb.cs156.example.repositories.JobLogChunksRepository;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that stores job logs as append-only chunks.
+ *
+ * <p>Log messages are buffered in memory per job, and a buffer is written to the job_log_chunks
+ * table as a single row once it holds at least app.jobs.log.flushBytes bytes, once it has been
+ * pending for app.jobs.log.flushIntervalMs milliseconds, or when the job finishes. Appending a line
+ * therefore never rewrites what has already been stored.
+ *
+ * <p>Every chunk records the byte offset at which it starts and the number of lines before it, so a
+ * log can be read from any offset or line without fetching the chunks before it, and every append
+ * is published to the JobLogHub for clients following the job live.
+ */
+@Service
+public class JobLogStore {
+  static final int PAGE_SIZE = 64;
+
+  @Autowired private JobLogChunksRepository jobLogChunksRepository;
+
+  @Autowired private JobLogHub jobLogHub;
+
+  @Value("${app.jobs.log.flushBytes:8192}")
+  private int flushBytes;
+
+  @Value("${app.jobs.log.flushIntervalMs:1000}")
+  private long flushIntervalMs;
+
+  private final Map<Long, LogBuffer> buffers = new ConcurrentHashMap<>();
+
+  /**
+   * Append a line to the log of a job. Lines are separated by a newline.
+   *
+   * @param jobId id of the job
+   * @param message the line to append
+   * @return the number of bytes appended, including the separating newline
+   */
+  public int append(long jobId, String message) {
+    byte[] bytes = String.valueOf(message).getBytes(UTF_8);
+    while (true) {
+      LogBuffer buffer = buffers.get(jobId);
+      if (buffer == null) {
+        // opened before it is put in the map, so no map lock is held across the query
+        LogBuffer opened = openBuffer(jobId);
+        buffer = Objects.requireNonNullElse(buffers.putIfAbsent(jobId, opened), opened);
+      }
+      buffer.lock.lock();
+      try {
+        if (buffer.closed) {
+          buffers.remove(jobId, buffer);
+          continue;
+        }
+        boolean newline = buffer.hasContent;
+        long offset = buffer.startOffset + buffer.bytes.size();
+        if (newline) {
+          buffer.bytes.write('\n');
+        }
+        if (buffer.bytes.size() == 0) {
+          buffer.pendingSince = System.currentTimeMillis();
+        }
+        buffer.bytes.writeBytes(bytes);
+        buffer.newlines += countNewlines(bytes) + (newline ? 1 : 0);
+        buffer.hasContent = true;
+        if (jobLogHub.hasListeners(jobId)) {
+          jobLogHub.publish(jobId, offset, newline ? withNewline(bytes) : bytes);
+        }
+        if (buffer.bytes.size() >= flushBytes) {
+          flush(jobId, buffer);
+        }
+        return newline ? bytes.length + 1 : bytes.length;
+      } finally {
+        buffer.lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Write out anything still buffered for a job and release its buffer. Called when a job finishes.
+   *
+   * @param jobId id of the job
+   */
+  public void close(long jobId) {
+    LogBuffer buffer = buffers.get(jobId);
+    if (buffer == null) {
+      return;
+    }
+    buffer.lock.lock();
+    try {
+      flush(jobId, buffer);
+      buffer.closed = true;
+    } finally {
+      buffer.lock.unlock();
+    }
+    buffers.remove(jobId, buffer);
+    jobLogHub.complete(jobId);
+  }
+
+  /** Write out every buffer that has been pending for longer than the flush interval. */
+  @Scheduled(fixedDelayString = "${app.jobs.log.flushIntervalMs:1000}")
+  public void flushPending() {
+    long now = System.currentTimeMillis();
+    buffers.forEach(
+        (jobId, buffer) -> {
+          buffer.lock.lock();
+          try {
+            if (buffer.bytes.size() > 0 && now - buffer.pendingSince >= flushIntervalMs) {
+              flush(jobId, buffer);
+            }
+          } finally {
+            buffer.lock.unlock();
+          }
+        });
+  }
+
+  /**
+   * Measure the log of a job, including whatever is still buffered in memory.
+   *
+   * @param jobId id of the job
+   * @return the number of bytes and lines in the log at one moment
+   */
+  public LogSize size(long jobId) {
+    LogBuffer buffer = buffers.get(jobId);
+    if (buffer != null) {
+      buffer.lock.lock();
+      try {
+        if (!buffer.closed) {
+          return buffer.size();
+        }
+      } finally {
+        buffer.lock.unlock();
+      }
+    }
+    return openBuffer(jobId).size();
+  }
+
+  /**
+   * Find where a line of the log of a job starts. Only the one chunk holding the newline before it
+   * is fetched.
+   *
+   * @param jobId id of the job
+   * @param newlines number of newlines before the line; must be at least 1
+   * @return the byte offset just past the given newline, or -1 if the log has fewer newlines
+   */
+  public long offsetAfterNewline(long jobId, long newlines) {
+    LogBuffer buffer = buffers.get(jobId);
+    if (buffer != null) {
+      buffer.lock.lock();
+      try {
+        if (!buffer.closed && newlines > buffer.startLine) {
+          int at = indexAfterNewline(buffer.bytes.toByteArray(), newlines - buffer.startLine);
+          return at < 0 ? -1 : buffer.startOffset + at;
+        }
+      } finally {
+        buffer.lock.unlock();
+      }
+    }
+    return jobLogChunksRepository
+        .findFirstByJobIdAndStartLineLessThanOrderByStartLineDescSequenceNumberDesc(jobId, newlines)
+        .map(
+            c -> {
+              int at = indexAfterNewline(c.getChunk(), newlines - c.getStartLine());
+              return at < 0 ? -1 : c.getStartOffset() + at;
+            })
+        .orElse(-1L);
+  }
+
+  /**
+   * Open the log of a job for reading. Chunks are fetched from the database a page at a time as the
+   * stream is consumed, followed by whatever is still buffered in memory.
+   *
+   * @param jobId id of the job
+   * @return the log as a stream of UTF-8 bytes
+   */
+  public InputStream openStream(long jobId) {
+    return openStream(jobId, 0);
+  }
+
+  /**
+   * Open the log of a job for reading from a byte offset. Only the chunks at or after the offset
+   * are fetched.
+   *
+   * @param jobId id of the job
+   * @param fromOffset number of leading bytes to leave out
+   * @return the rest of the log as a stream of UTF-8 bytes
+   */
+  public InputStream openStream(long jobId, long fromOffset) {
+    Iterator<byte[]> cursor = cursor(jobId, fromOffset);
+    return new SequenceInputStream(
+        new Enumeration<InputStream>() {
+          @Override
+          public boolean hasMoreElements() {
+            return cursor.hasNext();
+          }
+
+          @Override
+          public InputStream nextElement() {
+            return new ByteArrayInputStream(cursor.next());
+          }
+        }) {
+      @Override
+      public void close() {
+        // SequenceInputStream closes every remaining element, which would fetch the rest of the
+        // log; the slices are plain byte arrays that need no closing
+      }
+    };
+  }
+
+  /**
+   * Open a byte range of the log of a job for reading. Only the chunks overlapping the range are
+   * fetched.
+   *
+   * @param jobId id of the job
+   * @param fromOffset offset of the first byte to read
+   * @param toOffset offset just past the last byte to read
+   * @return the range as a stream of UTF-8 bytes
+   */
+  public InputStream openStream(long jobId, long fromOffset, long toOffset) {
+    return new LimitedInputStream(openStream(jobId, fromOffset), toOffset - fromOffset);
+  }
+
+  /**
+   * Read the log of a job from a byte offset as consecutive slices; each slice is a stored chunk or
+   * the in-memory buffer, so slices end on line boundaries.
+   *
+   * @param jobId id of the job
+   * @param fromOffset number of leading bytes to leave out
+   * @return the slices in log order
+   */
+  public Iterator<byte[]> cursor(long jobId, long fromOffset) {
+    return new LogCursor(jobId, fromOffset);
+  }
+
+  private LogBuffer openBuffer(long jobId) {
+    return jobLogChunksRepository
+        .findFirstByJobIdOrderBySequenceNumberDesc(jobId)
+        .map(
+            last ->
+                new LogBuffer(
+                    last.getSequenceNumber() + 1,
+                    last.getStartOffset() + last.getChunk().length,
+                    last.getStartLine() + countNewlines(last.getChunk()),
+                    true))
+        .orElseGet(() -> new LogBuffer(0, 0, 0, false));
+  }
+
+  private static int countNewlines(byte[] bytes) {
+    int count = 0;
+    for (byte b : bytes) {
+      if (b == '\n') {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** Returns the index just past the n-th newline in bytes, or -1 if there are fewer. */
+  private static int indexAfterNewline(byte[] bytes, long n) {
+    for (int i = 0; i < bytes.length; i++) {
+      if (bytes[i] == '\n' && --n == 0) {
+        return i + 1;
+      }
+    }
+    return -1;
+  }
+
+  private static byte[] withNewline(byte[] bytes) {
+    byte[] result = new byte[bytes.length + 1];
+    result[0] = '\n';
+    System.arraycopy(bytes, 0, result, 1, bytes.length);
+    return result;
+  }
+
+  private void flush(long jobId, LogBuffer buffer) {
+    if (buffer.bytes.size() == 0) {
+      return;
+    }
+    JobLogChunk chunk =
+        JobLogChunk.builder()
+            .jobId(jobId)
+            .sequenceNumber(buffer.nextSequenceNumber)
+            .startOffset(buffer.startOffset)
+            .startLine(buffer.startLine)
+            .chunk(buffer.bytes.toByteArray())
+            .build();
+    jobLogChunksRepository.save(chunk);
+    buffer.nextSequenceNumber++;
+    buffer.startOffset += buffer.bytes.size();
+    buffer.startLine += buffer.newlines;
+    buffer.newlines = 0;
+    buffer.bytes.reset();
+  }
+
+  private static class LogBuffer {
+    // a ReentrantLock rather than synchronized, since flushing holds it across a write to the
+    // database, and the virtual threads of jobs and their tasks must not pin their carrier
+    // meanwhile
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private int nextSequenceNumber;
+    private long startOffset;
+    private long startLine;
+    private int newlines;
+    private boolean hasContent;
+    private boolean closed;
+    private long pendingSince;
+
+    LogBuffer(int nextSequenceNumber, long startOffset, long startLine, boolean hasContent) {
+      this.nextSequenceNumber = nextSequenceNumber;
+      this.startOffset = startOffset;
+      this.startLine = startLine;
+      this.hasContent = hasContent;
+    }
+
+    LogSize size() {
+      // a log with content has one more line than it has newlines
+      return new LogSize(startOffset + bytes.size(), hasContent ? startLine + newlines + 1 : 0);
+    }
+  }
+
+  /** The number of bytes and lines in a job's log. */
+  @Getter
+  @AllArgsConstructor
+  public static class LogSize {
+    private final long bytes;
+    private final long lines;
+  }
+
+  /** Ends a stream after a given number of bytes, so nothing past that is fetched. */
+  private static class LimitedInputStream extends FilterInputStream {
+    private long remaining;
+
+    LimitedInputStream(InputStream in, long limit) {
+      super(in);
+      this.remaining = Math.max(0, limit);
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int b = super.read();
+      if (b >= 0) {
+        remaining--;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (remaining <= 0) {
+        return len == 0 ? 0 : -1;
+      }
+      int n = super.read(b, off, (int) Math.min(len, remaining));
+      if (n > 0) {
+        remaining -= n;
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(Math.min(n, remaining));
+      remaining -= skipped;
+      return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return (int) Math.min(super.available(), remaining);
+    }
+  }
+
+  /**
+   * Walks the stored chunks of one job using keyset pagination on the sequence number, starting
+   * with the chunk that holds the requested offset, then hands over to the in-memory buffer once
+   * every flushed chunk has been read.
+   */
+  private class LogCursor implements Iterator<byte[]> {
+    private final long jobId;
+    private final long fromOffset;
+    private final Deque<byte[]> pending = new ArrayDeque<>();
+    private int lastSequenceNumber = -1;
+    private boolean retried;
+    private boolean exhausted;
+
+    LogCursor(long jobId, long fromOffset) {
+      this.jobId = jobId;
+      this.fromOffset = fromOffset;
+      if (fromOffset > 0) {
+        Integer first = jobLogChunksRepository.findSequenceNumberAtOffset(jobId, fromOffset);
+        if (first != null) {
+          lastSequenceNumber = first - 1;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (pending.isEmpty() && !exhausted) {
+        fill();
+      }
+      return !pending.isEmpty();
+    }
+
+    @Override
+    public byte[] next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return pending.poll();
+    }
+
+    private void add(long startOffset, byte[] bytes) {
+      long skip = fromOffset - startOffset;
+      if (skip <= 0) {
+        pending.add(bytes);
+      } else if (skip < bytes.length) {
+        pending.add(Arrays.copyOfRange(bytes, (int) skip, bytes.length));
+      }
+    }
+
+    private void fill() {
+      List<JobLogChunk> chunks =
+          jobLogChunksRepository.findByJobIdAndSequenceNumberGreaterThanOrderBySequenceNumber(
+              jobId, lastSequenceNumber, Limit.of(PAGE_SIZE));
+      if (!chunks.isEmpty()) {
+        chunks.forEach(c -> add(c.getStartOffset(), c.getChunk()));
+        lastSequenceNumber = chunks.get(chunks.size() - 1).getSequenceNumber();
+        retried = false;
+        return;
+      }
+      LogBuffer buffer = buffers.get(jobId);
+      if (buffer == null) {
+        // The buffer may have been flushed and released after the query above; look once more.
+        exhausted = retried;
+        retried = true;
+        return;
+      }
+      buffer.lock.lock();
+      try {
+        if (buffer.nextSequenceNumber > lastSequenceNumber + 1 && !retried) {
+          // Chunks were flushed after the query above and are committed by now; read them first.
+          retried = true;
+          return;
+        }
+        if (buffer.bytes.size() > 0) {
+          add(buffer.startOffset, buffer.bytes.toByteArray());
+        }
+        exhausted = true;
+      } finally {
+        buffer.lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BooleanSupplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Follows the log of one job for one Server-Sent Events client.
+ *
+ * <p>The tail subscribes to the JobLogHub before reading the stored log from the client's offset,
+ * so no line can fall between the two; lines that arrive during the catch-up are dropped by offset.
+ * Each "log" event carries the offset just past its data as its id, which the client sends back as
+ * Last-Event-ID when it reconnects. An "end" event follows once the job has finished.
+ *
+ * <p>Appends are queued rather than sent on the job's thread. If a slow client lets the queue fill
+ * up, the queue is discarded and the tail catches up from the store again.
+ */
+@Slf4j
+class JobLogTail implements JobLogHub.Listener, Runnable {
+  static final int QUEUE_CAPACITY = 1024;
+
+  private static final Object COMPLETE = new Object();
+  private static final Object STOP = new Object();
+
+  private record Append(long offset, byte[] bytes) {}
+
+  private final JobLogStore jobLogStore;
+  private final JobLogHub jobLogHub;
+  private final SseEmitter emitter;
+  private final long jobId;
+  private final BooleanSupplier jobFinished;
+  private final BlockingQueue<Object> events = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+
+  private long position;
+  private volatile boolean overflowed;
+  private volatile boolean complete;
+  private volatile boolean stopped;
+
+  /**
+   * @param jobLogStore where the stored log is read from
+   * @param jobLogHub where new lines are received from
+   * @param emitter the client
+   * @param jobId id of the job
+   * @param fromOffset number of bytes of the log the client already has
+   * @param jobFinished tells whether the job has already finished
+   */
+  JobLogTail(
+      JobLogStore jobLogStore,
+      JobLogHub jobLogHub,
+      SseEmitter emitter,
+      long jobId,
+      long fromOffset,
+      BooleanSupplier jobFinished) {
+    this.jobLogStore = jobLogStore;
+    this.jobLogHub = jobLogHub;
+    this.emitter = emitter;
+    this.jobId = jobId;
+    this.position = fromOffset;
+    this.jobFinished = jobFinished;
+    emitter.onCompletion(this::stop);
+    emitter.onTimeout(this::stop);
+    emitter.onError(e -> stop());
+  }
+
+  @Override
+  public void onAppend(long offset, byte[] bytes) {
+    if (!events.offer(new Append(offset, bytes))) {
+      overflowed = true;
+    }
+  }
+
+  @Override
+  public void onComplete() {
+    complete = true;
+    events.offer(COMPLETE);
+  }
+
+  void stop() {
+    stopped = true;
+    events.offer(STOP);
+  }
+
+  @Override
+  public void run() {
+    Runnable unsubscribe = jobLogHub.subscribe(jobId, this);
+    try {
+      boolean finished = jobFinished.getAsBoolean();
+      catchUp();
+      while (!finished) {
+        Object event = events.take();
+        if (stopped) {
+          return;
+        }
+        if (overflowed) {
+          overflowed = false;
+          events.clear();
+          catchUp();
+          finished = complete;
+        } else if (event == COMPLETE) {
+          finished = true;
+        } else {
+          Append append = (Append) event;
+          send(append.offset(), append.bytes());
+        }
+      }
+      emitter.send(SseEmitter.event().name("end").data(""));
+      emitter.complete();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      emitter.complete();
+    } catch (IOException | IllegalStateException e) {
+      // the client has gone away
+      log.debug("Stopped following log of job {}: {}", jobId, e.getMessage());
+    } finally {
+      unsubscribe.run();
+    }
+  }
+
+  private void catchUp() throws IOException {
+    Iterator<byte[]> cursor = jobLogStore.cursor(jobId, position);
+    while (cursor.hasNext()) {
+      send(position, cursor.next());
+    }
+  }
+
+  private void send(long offset, byte[] bytes) throws IOException {
+    long end = offset + bytes.length;
+    if (end <= position) {
+      return;
+    }
+    if (offset < position) {
+      bytes = Arrays.copyOfRange(bytes, (int) (position - offset), bytes.length);
+    }
+    emitter.send(
+        SseEmitter.event().id(Long.toString(end)).name("log").data(new String(bytes, UTF_8)));
+    position = end;
+  }
+}
@@ -0,0 +1,115 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that collects execution metrics for jobs, per job type.
+ *
+ * <p>For each type it counts outcomes and keeps histograms of how long jobs waited in the queue,
+ * how long they ran, and how many log bytes and lines they wrote. Recording only increments
+ * LongAdders in fixed buckets, so it never blocks a job and uses constant memory per type.
+ */
+@Service
+public class JobMetrics {
+  static final long[] MILLISECOND_BUCKETS = {
+    1, 5, 10, 50, 100, 500, 1_000, 5_000, 10_000, 30_000, 60_000, 300_000, 900_000, 3_600_000
+  };
+  static final long[] BYTE_BUCKETS = {1_024, 10_240, 102_400, 1_048_576, 10_485_760, 104_857_600};
+  static final long[] LINE_BUCKETS = {1, 10, 100, 1_000, 10_000, 100_000};
+
+  private final Map<String, TypeMetrics> types = new ConcurrentHashMap<>();
+
+  /**
+   * Record a finished job.
+   *
+   * @param type the job type
+   * @param outcome the final status of the job
+   * @param queueWaitMs how long the job waited before it started
+   * @param runTimeMs how long the job ran, or -1 if it never started
+   * @param logBytes number of log bytes the job wrote
+   * @param logLines number of log lines the job wrote
+   */
+  public void record(
+      String type, String outcome, long queueWaitMs, long runTimeMs, long logBytes, long logLines) {
+    TypeMetrics metrics = types.computeIfAbsent(type, t -> new TypeMetrics());
+    metrics.outcomes.computeIfAbsent(outcome, o -> new LongAdder()).increment();
+    metrics.queueWaitMs.record(queueWaitMs);
+    if (runTimeMs >= 0) {
+      metrics.runTimeMs.record(runTimeMs);
+    }
+    metrics.logBytes.record(logBytes);
+    metrics.logLines.record(logLines);
+  }
+
+  /**
+   * @return the metrics of every job type seen so far, by type name
+   */
+  public Map<String, Object> snapshot() {
+    Map<String, Object> result = new TreeMap<>();
+    types.forEach((type, metrics) -> result.put(type, metrics.snapshot()));
+    return result;
+  }
+
+  private static class TypeMetrics {
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final Histogram queueWaitMs = new Histogram(MILLISECOND_BUCKETS);
+    private final Histogram runTimeMs = new Histogram(MILLISECOND_BUCKETS);
+    private final Histogram logBytes = new Histogram(BYTE_BUCKETS);
+    private final Histogram logLines = new Histogram(LINE_BUCKETS);
+
+    Map<String, Object> snapshot() {
+      Map<String, Long> outcomeCounts = new TreeMap<>();
+      outcomes.forEach((outcome, count) -> outcomeCounts.put(outcome, count.sum()));
+      Map<String, Object> result = new LinkedHashMap<>();
+      result.put("outcomes", outcomeCounts);
+      result.put("queueWaitMs", queueWaitMs.snapshot());
+      result.put("runTimeMs", runTimeMs.snapshot());
+      result.put("logBytes", logBytes.snapshot());
+      result.put("logLines", logLines.snapshot());
+      return result;
+    }
+  }
+
+  /**
+   * A histogram with fixed bucket bounds. Each value is counted in the first bucket whose upper
+   * bound it does not exceed, or in the last, unbounded bucket.
+   */
+  static class Histogram {
+    private final long[] bounds;
+    private final LongAdder[] counts;
+    private final LongAdder sum = new LongAdder();
+
+    Histogram(long[] bounds) {
+      this.bounds = bounds;
+      this.counts = new LongAdder[bounds.length + 1];
+      Arrays.setAll(counts, i -> new LongAdder());
+    }
+
+    void record(long value) {
+      int index = Arrays.binarySearch(bounds, value);
+      counts[index >= 0 ? index : -index - 1].increment();
+      sum.add(value);
+    }
+
+    Map<String, Object> snapshot() {
+      Map<String, Long> buckets = new LinkedHashMap<>();
+      long count = 0;
+      for (int i = 0; i < counts.length; i++) {
+        long n = counts[i].sum();
+        buckets.put(i < bounds.length ? Long.toString(bounds[i]) : "+Inf", n);
+        count += n;
+      }
+      Map<String, Object> result = new LinkedHashMap<>();
+      result.put("count", count);
+      result.put("sum", sum.sum());
+      result.put("buckets", buckets);
+      return result;
+    }
+  }
+}
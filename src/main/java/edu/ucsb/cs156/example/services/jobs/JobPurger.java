@@ -0,0 +1,107 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.ZonedDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntSupplier;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that deletes old jobs according to the retention policy.
+ *
+ * <p>A finished job is purged once it is older than app.jobs.retention.maxAgeDays, once more than
+ * app.jobs.retention.maxCount newer jobs exist, or once the logs of the jobs newer than it (and its
+ * own) exceed app.jobs.retention.maxLogBytes. A setting of 0 turns that limit off. Queued and
+ * running jobs are never purged.
+ *
+ * <p>Each limit is turned into the id of the newest job it condemns, and jobs up to that id are
+ * deleted app.jobs.retention.batchSize rows per statement, each statement in its own transaction.
+ * No entities are loaded, and log chunks go with their jobs through ON DELETE CASCADE. The
+ * artifacts of the deleted jobs are deleted from JobArtifactStore afterwards.
+ */
+@Service
+@Slf4j
+public class JobPurger {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobArtifactStore jobArtifactStore;
+
+  @Value("${app.jobs.retention.maxAgeDays:30}")
+  private int maxAgeDays;
+
+  @Value("${app.jobs.retention.maxCount:1000}")
+  private int maxCount;
+
+  @Value("${app.jobs.retention.maxLogBytes:104857600}")
+  private long maxLogBytes;
+
+  @Value("${app.jobs.retention.batchSize:500}")
+  private int batchSize;
+
+  /**
+   * Apply the retention policy.
+   *
+   * @return the number of jobs deleted
+   */
+  @Scheduled(
+      initialDelayString = "${app.jobs.retention.intervalMs:3600000}",
+      fixedDelayString = "${app.jobs.retention.intervalMs:3600000}")
+  public int purge() {
+    Long maxId =
+        Stream.of(
+                maxAgeDays > 0
+                    ? jobsRepository.findLastIdCreatedBefore(
+                        ZonedDateTime.now().minusDays(maxAgeDays))
+                    : null,
+                maxCount > 0 ? jobsRepository.findIdBeyondNewest(maxCount) : null,
+                maxLogBytes > 0 ? jobsRepository.findIdBeyondLogBytes(maxLogBytes) : null)
+            .filter(id -> id != null)
+            .max(Long::compare)
+            .orElse(null);
+    if (maxId == null) {
+      return 0;
+    }
+    int deleted = deleteInBatches(() -> jobsRepository.deleteFinishedUpTo(maxId, batchSize));
+    deleteArtifactsOfDeletedJobs();
+    log.info("Purged {} jobs with id up to {}", deleted, maxId);
+    return deleted;
+  }
+
+  /**
+   * Delete every job, whatever its status.
+   *
+   * @return the number of jobs deleted
+   */
+  public int deleteAll() {
+    int deleted = deleteInBatches(() -> jobsRepository.deleteBatch(batchSize));
+    deleteArtifactsOfDeletedJobs();
+    return deleted;
+  }
+
+  /** Delete the artifacts of jobs that are no longer in the jobs table. */
+  private void deleteArtifactsOfDeletedJobs() {
+    List<Long> withArtifacts = jobArtifactStore.jobIds();
+    if (withArtifacts.isEmpty()) {
+      return;
+    }
+    Set<Long> kept = new HashSet<>(jobsRepository.findExistingIds(withArtifacts));
+    withArtifacts.stream().filter(id -> !kept.contains(id)).forEach(jobArtifactStore::delete);
+  }
+
+  private int deleteInBatches(IntSupplier batch) {
+    int total = 0;
+    int deleted;
+    do {
+      deleted = batch.getAsInt();
+      total += deleted;
+    } while (deleted >= batchSize);
+    return total;
+  }
+}
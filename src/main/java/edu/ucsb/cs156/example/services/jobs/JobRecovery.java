@@ -0,0 +1,37 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.ZonedDateTime;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * This is a component that, as the app starts, recovers the jobs left behind when a node stopped
+ * without finishing them: those still leased by this node, those whose lease has expired, and those
+ * running without a lease, from before jobs were leased.
+ *
+ * <p>All of them are recovered by one UPDATE (see JobsRepository.recoverOrphans): jobs that never
+ * started or are @Idempotent go back to the shared queue, and the rest are marked "interrupted".
+ */
+@Component
+@Slf4j
+public class JobRecovery implements ApplicationRunner {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobLeases jobLeases;
+
+  @Autowired private JobTypes jobTypes;
+
+  @Override
+  public void run(ApplicationArguments args) {
+    int recovered =
+        jobsRepository.recoverOrphans(
+            jobLeases.getNodeId(), ZonedDateTime.now(), jobTypes.getIdempotentTypes());
+    if (recovered > 0) {
+      log.warn("Recovered {} jobs left queued or running when a node stopped", recovered);
+    }
+  }
+}
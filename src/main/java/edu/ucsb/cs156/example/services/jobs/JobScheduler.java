@@ -0,0 +1,144 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import edu.ucsb.cs156.example.repositories.JobSchedulesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.ZonedDateTime;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * This is a service that launches the jobs in the job_schedules table when they are due.
+ *
+ * <p>Every app.jobs.schedules.pollIntervalMs, a node locks the enabled schedules whose nextRunAt
+ * has passed with SELECT ... FOR UPDATE SKIP LOCKED and moves each on to the next time its cron
+ * expression fires, so only one node launches a given run. Runs missed while no node was up are not
+ * made up: a schedule that is overdue runs once, and is then due at its next time from now.
+ *
+ * <p>Runs of a schedule never overlap: a run is skipped while the job the schedule last launched is
+ * still queued or running. A run is also skipped if the shared queue is full.
+ */
+@Service
+@Slf4j
+public class JobScheduler {
+  private static final List<String> ACTIVE = List.of("queued", "running");
+
+  @Autowired private JobSchedulesRepository jobSchedulesRepository;
+
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobService jobService;
+
+  @Autowired private JobTypes jobTypes;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  /**
+   * Launch the jobs of the schedules that are due.
+   *
+   * @return the number of jobs launched
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.schedules.pollIntervalMs:1000}")
+  public int runDueSchedules() {
+    ZonedDateTime now = ZonedDateTime.now();
+    List<JobSchedule> due =
+        transactionTemplate.execute(
+            status -> {
+              List<Long> ids = jobSchedulesRepository.lockDue(now);
+              if (ids.isEmpty()) {
+                return List.<JobSchedule>of();
+              }
+              List<JobSchedule> schedules = jobSchedulesRepository.findAllById(ids);
+              for (JobSchedule schedule : schedules) {
+                jobSchedulesRepository.scheduleNext(schedule.getId(), nextRunOf(schedule, now));
+              }
+              return schedules;
+            });
+    if (due == null) {
+      // only a TransactionTemplate that does not run the callback (a mock) returns null
+      return 0;
+    }
+    int launched = 0;
+    for (JobSchedule schedule : due) {
+      if (launch(schedule, now)) {
+        launched++;
+      }
+    }
+    return launched;
+  }
+
+  private boolean launch(JobSchedule schedule, ZonedDateTime now) {
+    Long lastJobId = schedule.getLastJobId();
+    if (lastJobId != null && jobsRepository.existsByIdAndStatusIn(lastJobId, ACTIVE)) {
+      log.info(
+          "Skipping run of schedule {} ({}); job {} is still active",
+          schedule.getId(),
+          schedule.getName(),
+          lastJobId);
+      return false;
+    }
+    try {
+      JobContextConsumer jobFunction =
+          jobTypes.fromParams(schedule.getJobType(), schedule.getParams());
+      long timeoutMs = schedule.getTimeoutMs() != null ? schedule.getTimeoutMs() : 0;
+      Job job = jobService.runAsJob(jobFunction, timeoutMs, schedule.getCreatedBy());
+      jobSchedulesRepository.recordRun(schedule.getId(), job.getId(), now);
+      log.info(
+          "Schedule {} ({}) launched job {}", schedule.getId(), schedule.getName(), job.getId());
+      return true;
+    } catch (IllegalArgumentException | JobQueueFullException e) {
+      log.warn(
+          "Skipping run of schedule {} ({}): {}",
+          schedule.getId(),
+          schedule.getName(),
+          e.getMessage());
+      return false;
+    }
+  }
+
+  private static ZonedDateTime nextRunOf(JobSchedule schedule, ZonedDateTime now) {
+    try {
+      return nextRun(schedule.getCron(), now);
+    } catch (IllegalArgumentException e) {
+      // checked when saved, so only an expression edited in the table gets here; never run it again
+      log.warn("Schedule {} has an invalid cron expression: {}", schedule.getId(), e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Check that a schedule can be run, and set when it is next due.
+   *
+   * @param schedule the schedule; its params are rewritten as the job stores them
+   * @param now the current time
+   * @throws IllegalArgumentException if its cron expression is invalid, or its job type is unknown
+   *     or its params cannot be read
+   */
+  public void prepare(JobSchedule schedule, ZonedDateTime now) {
+    if (schedule.getCron() == null) {
+      throw new IllegalArgumentException("A schedule needs a cron expression");
+    }
+    ZonedDateTime next = nextRun(schedule.getCron(), now);
+    JobContextConsumer jobFunction =
+        jobTypes.fromParams(schedule.getJobType(), schedule.getParams());
+    schedule.setParams(jobTypes.toParams(jobFunction));
+    schedule.setNextRunAt(schedule.getEnabled() ? next : null);
+  }
+
+  /**
+   * @param cron a Spring cron expression
+   * @param after the time to start from
+   * @return the first time after that the expression fires, or null if it never does
+   * @throws IllegalArgumentException if the expression is invalid
+   */
+  static ZonedDateTime nextRun(String cron, ZonedDateTime after) {
+    return CronExpression.parse(cron).next(after);
+  }
+}
@@ -1,53 +1,687 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import edu.ucsb.cs156.example.errors.LogRangeNotSatisfiableException;
+import edu.ucsb.cs156.example.models.JobWorkflow;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.UserAuthoritiesService;
+import edu.ucsb.cs156.example.services.jobs.JobLogStore.LogSize;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Lazy;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpRange;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+/**
+ * This is a service that launches jobs, tracks the ones running on this node, and follows their
+ * logs.
+ *
+ * <p>When the app shuts down, jobs running or queued here get up to app.jobs.shutdownGraceMs to
+ * finish. Then the rest are stopped: shared jobs that never started, and @Idempotent jobs, go back
+ * to the shared queue, and the others end with status "interrupted".
+ *
+ * <p>A job runs as the user who launched it. One started where nobody is logged in, such as a
+ * shared job leased by the JobDispatcher or a job launched by a JobSchedule, is run as the user
+ * recorded as its creator; if there is none, it runs with no one logged in.
+ */
+@Slf4j
 @Service
-public class JobService {
+public class JobService implements SmartLifecycle {
+  // how long jobs stopped at the end of the grace period get to record their outcome
+  private static final long STOP_WAIT_MS = 5_000;
+
   @Autowired private JobsRepository jobsRepository;
 
+  @Autowired private JobLogStore jobLogStore;
+
+  @Autowired private JobLogHub jobLogHub;
+
+  @Autowired private JobExecutor jobExecutor;
+
   @Autowired private CurrentUserService currentUserService;
 
-  @Lazy @Autowired private JobService self;
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private UserAuthoritiesService userAuthoritiesService;
+
+  @Autowired private JobMetrics jobMetrics;
+
+  @Autowired private JobTypes jobTypes;
+
+  @Autowired private JobLeases jobLeases;
+
+  @Autowired private JobTasks jobTasks;
+
+  @Autowired private JobCheckpoints jobCheckpoints;
+
+  @Autowired private JobArtifactStore jobArtifactStore;
+
+  @Autowired private JobWorkflows jobWorkflows;
+
+  @Value("${app.jobs.log.streamTimeoutMs:1800000}")
+  private long logStreamTimeoutMs;
+
+  @Value("${app.jobs.shutdownGraceMs:30000}")
+  private long shutdownGraceMs;
+
+  private volatile boolean running;
+
+  private final Map<Long, JobControl> activeJobs = new ConcurrentHashMap<>();
+
+  private final ScheduledExecutorService timeouts =
+      Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("job-timeouts").factory());
 
+  private final ExecutorService logTails =
+      Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("job-log-tail-", 0).factory());
+
+  /**
+   * Queue a job to be run by the JobExecutor. The job is saved with status "queued", and changes to
+   * "running" once the executor starts it.
+   *
+   * @param jobFunction the job to run
+   * @return the saved job
+   * @throws JobQueueFullException if the queue is full; the job is not kept
+   */
   public Job runAsJob(JobContextConsumer jobFunction) {
-    Job job = Job.builder().createdBy(currentUserService.getUser()).status("running").build();
+    return runAsJob(jobFunction, 0);
+  }
+
+  /**
+   * Queue a job, stopping it with status "timed_out" if it runs for longer than timeoutMs.
+   *
+   * <p>A job of a shared type (see JobTypes) is leased to this node and run here if a run slot is
+   * free; otherwise it is left in the shared queue for whichever node has room first. Any other job
+   * is run by this node's JobExecutor.
+   *
+   * @param jobFunction the job to run
+   * @param timeoutMs how long the job may run, in milliseconds; 0 for no limit
+   * @return the saved job
+   * @throws JobQueueFullException if the queue is full; the job is not kept
+   */
+  public Job runAsJob(JobContextConsumer jobFunction, long timeoutMs) {
+    return runAsJob(jobFunction, timeoutMs, currentUserService.getUser());
+  }
 
+  /**
+   * Queue a job on behalf of a user who need not be logged in, such as the creator of a
+   * JobSchedule; the job runs as that user.
+   *
+   * @param jobFunction the job to run
+   * @param timeoutMs how long the job may run, in milliseconds; 0 for no limit
+   * @param launchedBy the user the job is recorded as created by, or null for none
+   * @return the saved job
+   * @throws JobQueueFullException if the queue is full; the job is not kept
+   */
+  public Job runAsJob(JobContextConsumer jobFunction, long timeoutMs, User launchedBy) {
+    boolean shared = jobTypes.isShared(jobFunction);
+    Job job =
+        Job.builder()
+            .createdBy(launchedBy)
+            .type(jobFunction.getJobType())
+            .params(shared ? jobTypes.toParams(jobFunction) : null)
+            .timeoutMs(timeoutMs > 0 ? timeoutMs : null)
+            .status("queued")
+            .build();
+    return launch(job, jobFunction, true);
+  }
+
+  /**
+   * Run a job here if it is not shared or a run slot is free, and otherwise leave it in the shared
+   * queue.
+   *
+   * @param job the job, not yet saved; it is shared if it has params
+   * @param jobFunction the job to run
+   * @param limitQueue whether to refuse the job if the shared queue is full
+   * @return the job as it was queued
+   */
+  private Job launch(Job job, JobContextConsumer jobFunction, boolean limitQueue) {
+    boolean shared = job.getParams() != null;
+    boolean runHere = !shared || jobExecutor.getIdleCapacity() > 0;
+    if (runHere) {
+      jobLeases.lease(job);
+    } else if (limitQueue && jobsRepository.countUnleased() >= jobExecutor.getMaxQueued()) {
+      throw new JobQueueFullException(jobExecutor.getMaxQueued());
+    }
     jobsRepository.save(job);
-    self.runJobAsync(job, jobFunction);
+    // the job thread updates its own copy, so the caller always sees the job as it was queued
+    Job queued = job.toBuilder().build();
+    if (!runHere) {
+      return queued;
+    }
+    try {
+      submit(job, jobFunction);
+    } catch (JobQueueFullException e) {
+      if (!shared) {
+        jobsRepository.delete(job);
+        throw e;
+      }
+      // another launch took the free slot first; leave the job to whichever node has room
+      jobLeases.release(job);
+      jobsRepository.save(job);
+      queued = job.toBuilder().build();
+    }
+
+    return queued;
+  }
 
-    return job;
+  /**
+   * Start a workflow: a graph of jobs of shared types, each run once the jobs it depends on have
+   * completed (see JobWorkflows). The workflow is saved as a job of type "Workflow" with status
+   * "running", and its first nodes are launched right away.
+   *
+   * @param workflow the workflow
+   * @return the saved job of the workflow
+   * @throws IllegalArgumentException if the workflow is not valid
+   */
+  public Job runWorkflow(JobWorkflow workflow) {
+    Job job =
+        Job.builder()
+            .createdBy(currentUserService.getUser())
+            .type(JobWorkflows.TYPE)
+            .params(jobWorkflows.toParams(workflow))
+            .status("running")
+            .startedAt(ZonedDateTime.now())
+            .build();
+    jobsRepository.save(job);
+    Job started = job.toBuilder().build();
+    advanceWorkflow(job.getId());
+    return started;
   }
 
-  @Async
-  public void runJobAsync(Job job, JobContextConsumer jobFunction) {
-    JobContext context = new JobContext(jobsRepository, job);
+  /**
+   * Launch the nodes of a workflow that are ready to run, and record its outcome once they have all
+   * finished. Called whenever one of its nodes finishes.
+   *
+   * @param workflowId id of the workflow
+   */
+  void advanceWorkflow(long workflowId) {
+    try {
+      Job workflow = jobsRepository.findById(workflowId).orElse(null);
+      if (workflow == null) {
+        return;
+      }
+      for (JobWorkflow.Node node : jobWorkflows.advance(workflow)) {
+        JobContextConsumer jobFunction =
+            jobTypes.fromParams(node.getJobType(), node.getParams().toString());
+        Long timeoutMs = node.getTimeoutMs();
+        Job job =
+            Job.builder()
+                .createdBy(workflow.getCreatedBy())
+                .type(jobFunction.getJobType())
+                .params(node.getParams().toString())
+                .timeoutMs(timeoutMs != null && timeoutMs > 0 ? timeoutMs : null)
+                .parentId(workflowId)
+                .workflowNode(node.getName())
+                .status("queued")
+                .build();
+        try {
+          // the nodes of a running workflow are never refused, or it could not finish
+          launch(job, jobFunction, false);
+        } catch (DataIntegrityViolationException e) {
+          // launched by another node that finished a dependency at the same time
+        }
+      }
+    } catch (RuntimeException e) {
+      log.warn("Cannot advance workflow {}: {}", workflowId, e.getMessage());
+    }
+  }
+
+  /**
+   * Advance every running workflow, in case a node finished without doing so: for instance when its
+   * own node stopped and it was recovered as "interrupted".
+   */
+  public void advanceWorkflows() {
+    for (long workflowId : jobsRepository.findIdsByTypeAndStatus(JobWorkflows.TYPE, "running")) {
+      advanceWorkflow(workflowId);
+    }
+  }
+
+  /**
+   * Run a job of a shared type that this node has just leased from the shared queue. If it cannot
+   * be rebuilt from its params it ends with status "error"; if the executor has no room after all
+   * it goes back to the shared queue.
+   *
+   * @param job the job
+   */
+  void runLeased(Job job) {
+    if (job.getCancelRequestedAt() != null) {
+      // cancelled while a node that has since stopped held its lease
+      endUnstarted(job, "cancelled", JobLogLevel.WARN, "Cancelled before it started");
+      return;
+    }
+    JobContextConsumer jobFunction;
+    try {
+      jobFunction = jobTypes.fromParams(job.getType(), job.getParams());
+    } catch (IllegalArgumentException e) {
+      endUnstarted(job, "error", JobLogLevel.ERROR, e.getMessage());
+      return;
+    }
+    try {
+      submit(job, jobFunction);
+    } catch (JobQueueFullException e) {
+      jobLeases.release(job);
+      jobsRepository.save(job);
+    }
+  }
+
+  /** End a job this node has leased but will not run, and release it. */
+  private void endUnstarted(Job job, String status, JobLogLevel level, String message) {
+    job.setStatus(status);
+    job.setFinishedAt(ZonedDateTime.now());
+    jobLeases.release(job);
+    jobLogStore.append(job.getId(), record(level, message));
+    jobLogStore.close(job.getId());
+    jobsRepository.save(job);
+    if (job.getParentId() != null) {
+      advanceWorkflow(job.getParentId());
+    }
+  }
+
+  private void submit(Job job, JobContextConsumer jobFunction) {
+    long timeoutMs = job.getTimeoutMs() != null ? job.getTimeoutMs() : 0;
+    JobControl control = new JobControl(job);
+    activeJobs.put(job.getId(), control);
+    try {
+      control.setFuture(
+          jobExecutor.submit(asLauncher(job, () -> runJob(control, jobFunction, timeoutMs))));
+    } catch (JobQueueFullException e) {
+      activeJobs.remove(job.getId(), control);
+      throw e;
+    }
+  }
+
+  /**
+   * The JobExecutor runs a task as whoever submitted it, so a task submitted where nobody is logged
+   * in is run as the creator of its job instead, if it has one that is still kept.
+   */
+  private Runnable asLauncher(Job job, Runnable task) {
+    if (SecurityContextHolder.getContext().getAuthentication() != null
+        || job.getCreatedBy() == null) {
+      return task;
+    }
+    // the creator of a job read outside a transaction is a proxy with only its id loaded
+    User launcher = userRepository.findById(job.getCreatedBy().getId()).orElse(null);
+    if (launcher == null) {
+      return task;
+    }
+    SecurityContext context = SecurityContextHolder.createEmptyContext();
+    context.setAuthentication(userAuthoritiesService.authenticationOf(launcher));
+    return new DelegatingSecurityContextRunnable(task, context);
+  }
+
+  void runJob(JobControl control, JobContextConsumer jobFunction, long timeoutMs) {
+    if (!control.start()) {
+      // cancelled while queued; cancelJob has recorded it
+      return;
+    }
+    Job job = control.getJob();
+    ScheduledFuture<?> timeout =
+        timeoutMs > 0
+            ? timeouts.schedule(() -> control.stop("timed_out"), timeoutMs, TimeUnit.MILLISECONDS)
+            : null;
+
+    job.setStatus("running");
+    job.setStartedAt(ZonedDateTime.now());
+    // the job may have waited here for longer than its lease
+    jobLeases.lease(job);
+    jobsRepository.save(job);
+
+    JobContext context =
+        new JobContext(jobLogStore, job, control, jobTasks, jobCheckpoints, jobArtifactStore);
 
+    Exception failure = null;
+    JobUsage.Sample before = JobUsage.sample();
     try {
       jobFunction.accept(context);
     } catch (Exception e) {
+      failure = e;
+    }
+    context.getUsage().addSince(before);
+    job.setCpuMs(context.getUsage().getCpuMs());
+    job.setAllocatedBytes(context.getUsage().getAllocatedBytes());
+    String stopReason = control.finish();
+    if (timeout != null) {
+      timeout.cancel(false);
+    }
+
+    if (failure == null) {
+      job.setStatus("complete");
+      // a complete job is never resumed, so its checkpoint is of no further use
+      jobCheckpoints.clear(job.getId());
+    } else if ("interrupted".equals(stopReason) && jobTypes.isRerunnable(job)) {
+      requeue(control, "Interrupted by shutdown; queued to run again");
+      return;
+    } else if (stopReason != null) {
+      job.setStatus(stopReason);
+      context.log(
+          JobLogLevel.WARN,
+          switch (stopReason) {
+            case "timed_out" -> "Timed out after %d ms".formatted(timeoutMs);
+            case "interrupted" -> "Interrupted by shutdown";
+            default -> "Cancelled";
+          });
+    } else {
       job.setStatus("error");
-      context.log(e.getMessage());
+      context.log(JobLogLevel.ERROR, failure.getMessage());
+    }
+
+    finish(control, context.getLogBytes(), context.getLogLines());
+  }
+
+  /**
+   * Stop a queued or running job. A running job is interrupted, and ends with status "cancelled"
+   * once it stops; a queued job is marked "cancelled" right away and never runs. Cancelling a
+   * running workflow cancels its nodes that have not finished. A job another node has leased is
+   * marked to be cancelled, and that node stops it on its next heartbeat (see JobDispatcher).
+   *
+   * @param jobId id of the job
+   * @return false if the job is neither queued nor running, here, in the shared queue or on another
+   *     node
+   */
+  public boolean cancelJob(long jobId) {
+    JobControl control = activeJobs.get(jobId);
+    if (control == null) {
+      ZonedDateTime now = ZonedDateTime.now();
+      if (jobsRepository.cancelUnleased(jobId, now) == 0) {
+        return cancelWorkflow(jobId)
+            || jobsRepository.requestCancel(jobId, jobLeases.getNodeId(), now) > 0;
+      }
+      jobLogStore.append(jobId, record(JobLogLevel.WARN, "Cancelled before it started"));
+      jobLogStore.close(jobId);
+      jobsRepository.findById(jobId).map(Job::getParentId).ifPresent(this::advanceWorkflow);
+      return true;
+    }
+    if (control.stop("cancelled")) {
+      Job job = control.getJob();
+      job.setStatus("cancelled");
+      int logBytes =
+          jobLogStore.append(jobId, record(JobLogLevel.WARN, "Cancelled before it started"));
+      finish(control, logBytes, 1);
+    }
+    return true;
+  }
+
+  /** Mark a running workflow "cancelled", then cancel its nodes that have not finished. */
+  private boolean cancelWorkflow(long jobId) {
+    Job workflow = jobsRepository.findById(jobId).orElse(null);
+    if (workflow == null
+        || !JobWorkflows.TYPE.equals(workflow.getType())
+        || workflow.getStartedAt() == null) {
+      return false;
+    }
+    ZonedDateTime now = ZonedDateTime.now();
+    long durationMs = Duration.between(workflow.getStartedAt(), now).toMillis();
+    if (jobsRepository.finishWorkflow(jobId, "cancelled", now, durationMs) == 0) {
+      return false;
+    }
+    List<Job> nodes = jobsRepository.findByParentIdOrderById(jobId);
+    nodes.stream().filter(node -> !isFinished(node)).forEach(node -> cancelJob(node.getId()));
+    return true;
+  }
+
+  /**
+   * Run a job that failed, was cancelled, timed out or was interrupted again, from its last
+   * checkpoint (see JobContext.checkpoint(key, state)), or from the start if it saved none. The job
+   * goes back to the shared queue with status "queued", keeping its id and log, and runs on the
+   * first node with room for it. Only jobs of a type listed in JobTypes can be resumed.
+   *
+   * @param jobId id of the job
+   * @return false if the job cannot be resumed
+   * @throws JobQueueFullException if the shared queue is full
+   */
+  public boolean resumeJob(long jobId) {
+    if (jobsRepository.countUnleased() >= jobExecutor.getMaxQueued()) {
+      throw new JobQueueFullException(jobExecutor.getMaxQueued());
+    }
+    if (jobsRepository.resume(jobId) == 0) {
+      return false;
+    }
+    jobLogStore.append(
+        jobId,
+        record(
+            JobLogLevel.INFO,
+            jobCheckpoints
+                .last(jobId)
+                .map(checkpoint -> "Resumed from checkpoint " + checkpoint.getCheckpointKey())
+                .orElse("Resumed from the start; no checkpoint was saved")));
+    jobLogStore.close(jobId);
+    return true;
+  }
+
+  /**
+   * Wait up to app.jobs.shutdownGraceMs for the jobs running or queued here to finish, then stop
+   * the rest.
+   */
+  @Override
+  public void stop() {
+    running = false;
+    try {
+      if (jobExecutor.drain(shutdownGraceMs)) {
+        return;
+      }
+      log.warn("Stopping {} jobs still active after {} ms", activeJobs.size(), shutdownGraceMs);
+      // stop the queued jobs first, so that none starts in a slot a stopped job gives up
+      activeJobs.values().stream()
+          .sorted(Comparator.comparing(JobControl::isStarted))
+          .forEach(this::interrupt);
+      jobExecutor.drain(STOP_WAIT_MS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void interrupt(JobControl control) {
+    if (!control.stop("interrupted")) {
+      // running; runJob records the outcome once it stops
       return;
     }
+    Job job = control.getJob();
+    if (job.getParams() != null) {
+      requeue(control, "Not started before shutdown; queued to run again");
+    } else {
+      job.setStatus("interrupted");
+      int logBytes =
+          jobLogStore.append(
+              job.getId(), record(JobLogLevel.WARN, "Interrupted by shutdown before it started"));
+      finish(control, logBytes, 1);
+    }
+  }
+
+  @Override
+  public void start() {
+    running = true;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  private static String record(JobLogLevel level, String message) {
+    return JobLogRecords.format(level, Instant.now(), message, Map.of());
+  }
 
-    job.setStatus("complete");
+  private void requeue(JobControl control, String message) {
+    Job job = control.getJob();
+    job.setStatus("queued");
+    jobLeases.release(job);
+    activeJobs.remove(job.getId(), control);
+    jobLogStore.append(job.getId(), record(JobLogLevel.WARN, message));
+    jobLogStore.close(job.getId());
     jobsRepository.save(job);
   }
 
-  public String getJobLogs(Long jobId) {
-    Job job =
-        jobsRepository
-            .findById(jobId)
-            .orElseThrow(() -> new IllegalArgumentException("Job not found"));
+  private void finish(JobControl control, long logBytes, long logLines) {
+    Job job = control.getJob();
+    long runTimeMs = control.getRunTimeMs();
+    job.setFinishedAt(ZonedDateTime.now());
+    job.setDurationMs(runTimeMs >= 0 ? runTimeMs : null);
+    jobLeases.release(job);
+    jobMetrics.record(
+        job.getType(), job.getStatus(), control.getQueueWaitMs(), runTimeMs, logBytes, logLines);
+    activeJobs.remove(job.getId(), control);
+    // flush the log before the final status is visible, so a finished job always has its full log
+    jobLogStore.close(job.getId());
+    jobsRepository.save(job);
+    if (job.getParentId() != null) {
+      advanceWorkflow(job.getParentId());
+    }
+  }
+
+  public InputStream getJobLogs(Long jobId) {
+    if (!jobsRepository.existsById(jobId)) {
+      throw new IllegalArgumentException("Job not found");
+    }
+
+    return jobLogStore.openStream(jobId);
+  }
+
+  /**
+   * Read the lines of the log of a job at or above a level, or containing some text. The log is
+   * read and filtered a chunk at a time as the returned stream is read, so only the matching lines
+   * are ever sent.
+   *
+   * @param jobId id of the job
+   * @param minLevel the least severe level to return (see JobLogLevel), or null for every level;
+   *     lines written without a level count as INFO
+   * @param grep text the lines returned must contain, or null
+   * @return the matching lines, separated by newlines
+   */
+  public InputStream getJobLogRecords(Long jobId, JobLogLevel minLevel, String grep) {
+    if (!jobsRepository.existsById(jobId)) {
+      throw new IllegalArgumentException("Job not found");
+    }
+
+    return new JobLogFilter(jobLogStore.cursor(jobId, 0), minLevel, grep);
+  }
+
+  /**
+   * Read a byte range of the log of a job. Only the chunks overlapping the range are fetched.
+   *
+   * @param jobId id of the job
+   * @param range the requested range; a suffix range counts back from the end of the log
+   * @return the bytes in the range
+   * @throws LogRangeNotSatisfiableException if the range starts past the end of the log
+   */
+  public JobLogSlice getJobLogBytes(Long jobId, HttpRange range) {
+    if (!jobsRepository.existsById(jobId)) {
+      throw new IllegalArgumentException("Job not found");
+    }
+
+    long length = jobLogStore.size(jobId).getBytes();
+    long first = range.getRangeStart(length);
+    long last = range.getRangeEnd(length);
+    if (first >= length || last < first) {
+      throw new LogRangeNotSatisfiableException("bytes", length);
+    }
+    return new JobLogSlice(
+        jobLogStore.openStream(jobId, first, last + 1), "bytes", first, last, length);
+  }
+
+  /**
+   * Read a range of lines of the log of a job. The chunks holding the newlines on either side of
+   * the range are found through the line index, so only the chunks overlapping it are fetched.
+   *
+   * @param jobId id of the job
+   * @param fromLine first line to read, counting from 1
+   * @param toLine last line to read, or null to read to the end of the log
+   * @return the lines in the range, separated by newlines
+   * @throws LogRangeNotSatisfiableException if the range starts past the end of the log
+   */
+  public JobLogSlice getJobLogLines(Long jobId, long fromLine, Long toLine) {
+    if (!jobsRepository.existsById(jobId)) {
+      throw new IllegalArgumentException("Job not found");
+    }
+
+    LogSize size = jobLogStore.size(jobId);
+    long lastLine = toLine == null ? size.getLines() : Math.min(toLine, size.getLines());
+    if (fromLine < 1 || fromLine > lastLine) {
+      throw new LogRangeNotSatisfiableException("lines", size.getLines());
+    }
+    return readLines(jobId, fromLine, lastLine, size);
+  }
+
+  /**
+   * Read the last lines of the log of a job.
+   *
+   * @param jobId id of the job
+   * @param lines number of lines to read
+   * @return up to that many lines from the end of the log, separated by newlines
+   */
+  public JobLogSlice getJobLogTail(Long jobId, long lines) {
+    if (!jobsRepository.existsById(jobId)) {
+      throw new IllegalArgumentException("Job not found");
+    }
+
+    LogSize size = jobLogStore.size(jobId);
+    if (size.getLines() == 0 || lines < 1) {
+      return new JobLogSlice(InputStream.nullInputStream(), "lines", 1, 0, size.getLines());
+    }
+    return readLines(jobId, Math.max(1, size.getLines() - lines + 1), size.getLines(), size);
+  }
+
+  private JobLogSlice readLines(long jobId, long fromLine, long lastLine, LogSize size) {
+    long from = fromLine == 1 ? 0 : jobLogStore.offsetAfterNewline(jobId, fromLine - 1);
+    // the newline ending the last line is left out; the final line of a log has none
+    long end = lastLine == size.getLines() ? -1 : jobLogStore.offsetAfterNewline(jobId, lastLine);
+    long to = end < 0 ? size.getBytes() : end - 1;
+    return new JobLogSlice(
+        jobLogStore.openStream(jobId, from, to), "lines", fromLine, lastLine, size.getLines());
+  }
+
+  /**
+   * Follow the log of a job as Server-Sent Events: first whatever is stored after fromOffset, then
+   * each line as the job logs it, until the job finishes.
+   *
+   * @param jobId id of the job
+   * @param fromOffset number of bytes of the log the client already has
+   * @return the emitter the events are sent to
+   */
+  public SseEmitter tailJobLogs(Long jobId, long fromOffset) {
+    if (!jobsRepository.existsById(jobId)) {
+      throw new IllegalArgumentException("Job not found");
+    }
+
+    SseEmitter emitter = new SseEmitter(logStreamTimeoutMs);
+    logTails.execute(
+        new JobLogTail(
+            jobLogStore,
+            jobLogHub,
+            emitter,
+            jobId,
+            Math.max(0, fromOffset),
+            () -> jobsRepository.findById(jobId).map(JobService::isFinished).orElse(true)));
+    return emitter;
+  }
 
-    String log = job.getLog();
-    return log != null ? log : "";
+  /**
+   * @param job a job
+   * @return whether the job has stopped, successfully or not
+   */
+  static boolean isFinished(Job job) {
+    return !"queued".equals(job.getStatus()) && !"running".equals(job.getStatus());
   }
 }
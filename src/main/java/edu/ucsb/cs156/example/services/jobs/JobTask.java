@@ -0,0 +1,11 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+/**
+ * One piece of a job's work, run for each item passed to JobContext.forEachInParallel.
+ *
+ * @param <T> type of the items
+ */
+@FunctionalInterface
+public interface JobTask<T> {
+  void run(T item) throws Exception;
+}
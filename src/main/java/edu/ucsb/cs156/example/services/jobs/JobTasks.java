@@ -0,0 +1,183 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.errors.JobTasksFailedException;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the child tasks a job fans out with JobContext.forEachInParallel.
+ *
+ * <p>Each call starts up to app.jobs.tasks.parallelism virtual threads (0 means one per available
+ * processor), or platform threads when app.jobs.usage.enabled is true (see JobExecutor), which take
+ * the items in order until none are left; the job's thread waits for all of them. A failing task is
+ * logged and counted, and the others carry on. While the tasks run, the number of tasks, finished
+ * tasks and failed tasks is written to the job every app.jobs.tasks.progressIntervalMs, so it can
+ * be followed through /api/jobs.
+ */
+@Slf4j
+@Component
+public class JobTasks {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Value("${app.jobs.tasks.parallelism:0}")
+  private int parallelism;
+
+  @Value("${app.jobs.tasks.progressIntervalMs:1000}")
+  private long progressIntervalMs;
+
+  @Value("${app.jobs.usage.enabled:false}")
+  private boolean measureUsage;
+
+  @PostConstruct
+  void init() {
+    if (parallelism <= 0) {
+      parallelism = Runtime.getRuntime().availableProcessors();
+    }
+    log.info("JobTasks: parallelism={}", parallelism);
+  }
+
+  /**
+   * @return the most tasks of one call that run at once
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Run a task for each item and wait for all of them.
+   *
+   * @param context the context of the job fanning out
+   * @param items the items, taken in order
+   * @param maxParallelism the most tasks to run at once; app.jobs.tasks.parallelism caps it
+   * @param task the task
+   * @param <T> type of the items
+   * @throws InterruptedException if the job is interrupted while waiting; its tasks are interrupted
+   *     too, and waited for
+   * @throws JobTasksFailedException once every task has finished, if any failed
+   */
+  <T> void run(JobContext context, Collection<T> items, int maxParallelism, JobTask<T> task)
+      throws InterruptedException {
+    context.checkpoint();
+    List<T> work = new ArrayList<>(items);
+    if (work.isEmpty()) {
+      return;
+    }
+    TaskCounts counts = context.getTaskCounts();
+    counts.total.addAndGet(work.size());
+
+    AtomicInteger next = new AtomicInteger();
+    AtomicInteger succeeded = new AtomicInteger();
+    AtomicInteger failed = new AtomicInteger();
+    Runnable worker =
+        new DelegatingSecurityContextRunnable(
+            () -> {
+              JobUsage.Sample before = JobUsage.sample();
+              try {
+                for (int i = next.getAndIncrement();
+                    i < work.size() && !context.isCancelled();
+                    i = next.getAndIncrement()) {
+                  try {
+                    task.run(work.get(i));
+                    succeeded.incrementAndGet();
+                  } catch (Exception e) {
+                    if (context.isCancelled()) {
+                      // stopped along with the job; not a failure of the task
+                      return;
+                    }
+                    failed.incrementAndGet();
+                    counts.failed.incrementAndGet();
+                    context.log(
+                        JobLogLevel.ERROR, "Task %d failed: %s".formatted(i + 1, e.getMessage()));
+                  }
+                  counts.done.incrementAndGet();
+                }
+              } finally {
+                context.getUsage().addSince(before);
+              }
+            });
+
+    Job job = context.getJob();
+    // with app.jobs.usage.enabled, platform threads, so that their CPU time and allocations count
+    // towards the job's (see JobUsage); there are never more of them than tasks.parallelism
+    String name = "job-%d-task-".formatted(job.getId());
+    Thread.Builder threads =
+        measureUsage
+            ? Thread.ofPlatform().daemon().name(name, 0)
+            : Thread.ofVirtual().name(name, 0);
+    int workers = Math.clamp(work.size(), 1, Math.clamp(maxParallelism, 1, parallelism));
+    List<Thread> started = new ArrayList<>();
+    for (int n = 0; n < workers; n++) {
+      started.add(threads.start(worker));
+    }
+    try {
+      for (Thread thread : started) {
+        while (!thread.join(Duration.ofMillis(progressIntervalMs))) {
+          report(job, counts);
+        }
+      }
+    } catch (InterruptedException e) {
+      started.forEach(Thread::interrupt);
+      joinUninterruptibly(started);
+      throw e;
+    } finally {
+      report(job, counts);
+    }
+
+    context.checkpoint();
+    context.log(
+        "Ran %d tasks: %d succeeded, %d failed"
+            .formatted(work.size(), succeeded.get(), failed.get()));
+    if (failed.get() > 0) {
+      throw new JobTasksFailedException(failed.get(), work.size());
+    }
+  }
+
+  private void report(Job job, TaskCounts counts) {
+    if (job.getTasksDone() != null
+        && job.getTasksTotal() == counts.total.get()
+        && job.getTasksDone() == counts.done.get()
+        && job.getTasksFailed() == counts.failed.get()) {
+      return;
+    }
+    job.setTasksTotal(counts.total.get());
+    job.setTasksDone(counts.done.get());
+    job.setTasksFailed(counts.failed.get());
+    jobsRepository.updateTaskProgress(
+        job.getId(), job.getTasksTotal(), job.getTasksDone(), job.getTasksFailed());
+  }
+
+  private static void joinUninterruptibly(List<Thread> threads) {
+    boolean interrupted = false;
+    for (Thread thread : threads) {
+      while (true) {
+        try {
+          thread.join();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** The child tasks of one job, over all of its calls to forEachInParallel. */
+  static class TaskCounts {
+    final AtomicInteger total = new AtomicInteger();
+    final AtomicInteger done = new AtomicInteger();
+    final AtomicInteger failed = new AtomicInteger();
+  }
+}
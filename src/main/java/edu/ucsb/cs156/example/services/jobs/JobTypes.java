@@ -0,0 +1,102 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * This is a component that turns jobs into the params stored with them, and back.
+ *
+ * <p>A job of a type listed here is stored as the JSON of its object, so that any node can rebuild
+ * and run it; such a job waits in the shared queue until a node has room for it. Any other job,
+ * such as a lambda, can only run on the node that launched it.
+ *
+ * <p>A listed type marked @Idempotent is run again when a run of it is interrupted.
+ */
+@Component
+public class JobTypes {
+  private static final List<Class<? extends JobContextConsumer>> SHARED = List.of(TestJob.class);
+
+  private final Map<String, Class<? extends JobContextConsumer>> types;
+
+  private final Set<String> idempotentTypes;
+
+  @Autowired private ObjectMapper objectMapper;
+
+  public JobTypes() {
+    this(SHARED);
+  }
+
+  /**
+   * @param shared the types to list instead of the usual ones
+   */
+  JobTypes(List<Class<? extends JobContextConsumer>> shared) {
+    types = shared.stream().collect(Collectors.toMap(Class::getSimpleName, Function.identity()));
+    idempotentTypes =
+        shared.stream()
+            .filter(type -> type.isAnnotationPresent(Idempotent.class))
+            .map(Class::getSimpleName)
+            .collect(Collectors.toUnmodifiableSet());
+  }
+
+  /**
+   * @param job a job
+   * @return whether the job can be stored and run on any node
+   */
+  public boolean isShared(JobContextConsumer job) {
+    return types.get(job.getJobType()) == job.getClass();
+  }
+
+  /**
+   * @return the shared types that are marked @Idempotent
+   */
+  public Set<String> getIdempotentTypes() {
+    return idempotentTypes;
+  }
+
+  /**
+   * @param job a stored job
+   * @return whether the job can safely be run again from its params after being interrupted
+   */
+  public boolean isRerunnable(Job job) {
+    return job.getParams() != null && idempotentTypes.contains(job.getType());
+  }
+
+  /**
+   * @param job a job of a shared type
+   * @return the params to store with the job
+   */
+  public String toParams(JobContextConsumer job) {
+    try {
+      return objectMapper.writeValueAsString(job);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Cannot store job of type " + job.getJobType(), e);
+    }
+  }
+
+  /**
+   * @param type the type of a stored job
+   * @param params the params stored with it
+   * @return the job, ready to run
+   * @throws IllegalArgumentException if the type is unknown or the params cannot be read
+   */
+  public JobContextConsumer fromParams(String type, String params) {
+    Class<? extends JobContextConsumer> jobClass = types.get(type);
+    if (jobClass == null || params == null) {
+      throw new IllegalArgumentException("Unknown job type " + type);
+    }
+    try {
+      return objectMapper.readValue(params, jobClass);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Cannot read params of job type " + type, e);
+    }
+  }
+}
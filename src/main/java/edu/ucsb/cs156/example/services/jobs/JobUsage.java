@@ -0,0 +1,72 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adds up the CPU time and heap allocations of the threads running one job: the job's own thread
+ * and the threads of its child tasks.
+ *
+ * <p>Each thread samples its counters with sample() before it runs job code and adds what it used
+ * with addSince(sample) afterwards. The JVM only keeps these counters for platform threads, which
+ * is why JobExecutor and JobTasks run job code on platform threads when app.jobs.usage.enabled is
+ * true; on a virtual thread, or on a JVM without com.sun.management.ThreadMXBean, nothing is
+ * counted.
+ */
+class JobUsage {
+  private static final com.sun.management.ThreadMXBean THREADS =
+      ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+          ? threads
+          : null;
+
+  private final LongAdder cpuNanos = new LongAdder();
+  private final LongAdder allocatedBytes = new LongAdder();
+  private volatile boolean cpuMeasured;
+  private volatile boolean allocationsMeasured;
+
+  /** The counters of one thread at one point in time; -1 where the JVM cannot tell. */
+  record Sample(long cpuNanos, long allocatedBytes) {}
+
+  /**
+   * @return the counters of the current thread
+   */
+  static Sample sample() {
+    if (THREADS == null || Thread.currentThread().isVirtual()) {
+      return new Sample(-1, -1);
+    }
+    return new Sample(
+        THREADS.isThreadCpuTimeEnabled() ? THREADS.getCurrentThreadCpuTime() : -1,
+        THREADS.isThreadAllocatedMemoryEnabled() ? THREADS.getCurrentThreadAllocatedBytes() : -1);
+  }
+
+  /**
+   * Add what the current thread has used since a sample it took.
+   *
+   * @param start the sample
+   */
+  void addSince(Sample start) {
+    Sample end = sample();
+    if (start.cpuNanos() >= 0 && end.cpuNanos() >= 0) {
+      cpuNanos.add(end.cpuNanos() - start.cpuNanos());
+      cpuMeasured = true;
+    }
+    if (start.allocatedBytes() >= 0 && end.allocatedBytes() >= 0) {
+      allocatedBytes.add(end.allocatedBytes() - start.allocatedBytes());
+      allocationsMeasured = true;
+    }
+  }
+
+  /**
+   * @return the CPU time used, in milliseconds, or null if none could be measured
+   */
+  Long getCpuMs() {
+    return cpuMeasured ? cpuNanos.sum() / 1_000_000 : null;
+  }
+
+  /**
+   * @return the bytes allocated on the heap, or null if none could be measured
+   */
+  Long getAllocatedBytes() {
+    return allocationsMeasured ? allocatedBytes.sum() : null;
+  }
+}
@@ -0,0 +1,242 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.models.JobWorkflow;
+import edu.ucsb.cs156.example.models.JobWorkflow.Node;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * This is a component that works out which nodes of a workflow (see JobWorkflow) are due to run.
+ *
+ * <p>A workflow is a job of type "Workflow" whose params hold its definition. It is not run by any
+ * node: each of its nodes is run as a job of its own, a child of the workflow, as soon as the nodes
+ * it depends on have completed, so independent branches run side by side and the workflow takes as
+ * long as its longest chain of dependencies. Every time a node finishes, JobService calls advance
+ * to launch the nodes that have become ready.
+ *
+ * <p>A node whose dependencies did not all complete never runs; it is recorded as a child with
+ * status "skipped", and so are the nodes that depend on it, while the other branches carry on. Once
+ * every node has finished the workflow ends "complete" if they all completed, or "error" if not.
+ *
+ * <p>Nodes may finish at the same time on several threads or nodes. Each child is unique per
+ * workflow and node (JOBS_WORKFLOW_NODE_IDX), so a node is never launched twice, and only the first
+ * call to JobsRepository.finishWorkflow records the outcome.
+ */
+@Component
+public class JobWorkflows {
+  public static final String TYPE = "Workflow";
+
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobTypes jobTypes;
+
+  @Autowired private JobLogStore jobLogStore;
+
+  @Autowired private ObjectMapper objectMapper;
+
+  /**
+   * Check a workflow, and turn it into the params to store with its job. The params of each node
+   * are read as its job type and written back, so they hold every field of the job.
+   *
+   * @param workflow the workflow
+   * @return the params
+   * @throws IllegalArgumentException if a node is unnamed, named twice, of an unknown type, has
+   *     params that cannot be read, depends on an unknown node, or the dependencies form a cycle
+   */
+  public String toParams(JobWorkflow workflow) {
+    if (workflow.getNodes() == null || workflow.getNodes().isEmpty()) {
+      throw new IllegalArgumentException("A workflow needs at least one node");
+    }
+    Map<String, Node> nodes = new HashMap<>();
+    for (Node node : workflow.getNodes()) {
+      if (node.getName() == null || node.getName().isBlank()) {
+        throw new IllegalArgumentException("Every node of a workflow needs a name");
+      }
+      if (nodes.putIfAbsent(node.getName(), node) != null) {
+        throw new IllegalArgumentException(
+            "Node names must be unique; %s is used twice".formatted(node.getName()));
+      }
+      String params = node.getParams() == null ? "{}" : node.getParams().toString();
+      JobContextConsumer job = jobTypes.fromParams(node.getJobType(), params);
+      try {
+        node.setParams(objectMapper.readTree(jobTypes.toParams(job)));
+      } catch (JsonProcessingException e) {
+        throw new IllegalArgumentException("Cannot store job of type " + node.getJobType(), e);
+      }
+      if (node.getDependsOn() == null) {
+        node.setDependsOn(new ArrayList<>());
+      }
+    }
+    for (Node node : workflow.getNodes()) {
+      for (String dependency : node.getDependsOn()) {
+        if (!nodes.containsKey(dependency)) {
+          throw new IllegalArgumentException(
+              "Node %s depends on unknown node %s".formatted(node.getName(), dependency));
+        }
+      }
+    }
+    checkAcyclic(workflow.getNodes());
+    try {
+      return objectMapper.writeValueAsString(workflow);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Cannot store workflow " + workflow.getName(), e);
+    }
+  }
+
+  /** Kahn's algorithm: whatever cannot be put in order once the roots are taken away is a cycle. */
+  private static void checkAcyclic(List<Node> nodes) {
+    Map<String, Integer> waitingFor = new HashMap<>();
+    Map<String, List<String>> dependants = new HashMap<>();
+    for (Node node : nodes) {
+      waitingFor.put(node.getName(), new HashSet<>(node.getDependsOn()).size());
+      for (String dependency : new HashSet<>(node.getDependsOn())) {
+        dependants.computeIfAbsent(dependency, d -> new ArrayList<>()).add(node.getName());
+      }
+    }
+    Deque<String> ready = new ArrayDeque<>();
+    waitingFor.forEach(
+        (name, count) -> {
+          if (count == 0) {
+            ready.add(name);
+          }
+        });
+    while (!ready.isEmpty()) {
+      String name = ready.poll();
+      waitingFor.remove(name);
+      for (String dependant : dependants.getOrDefault(name, List.of())) {
+        if (waitingFor.merge(dependant, -1, Integer::sum) == 0) {
+          ready.add(dependant);
+        }
+      }
+    }
+    if (!waitingFor.isEmpty()) {
+      throw new IllegalArgumentException(
+          "The dependencies of nodes %s form a cycle"
+              .formatted(String.join(", ", waitingFor.keySet().stream().sorted().toList())));
+    }
+  }
+
+  /**
+   * @param workflow the job of a workflow
+   * @return its definition
+   * @throws IllegalArgumentException if its params cannot be read
+   */
+  public JobWorkflow fromParams(Job workflow) {
+    try {
+      return objectMapper.readValue(workflow.getParams(), JobWorkflow.class);
+    } catch (JsonProcessingException | IllegalArgumentException e) {
+      throw new IllegalArgumentException("Cannot read workflow " + workflow.getId(), e);
+    }
+  }
+
+  /**
+   * Work out which nodes of a running workflow can run now that all they depend on has completed.
+   * Nodes that can no longer run are recorded as skipped, and once every node has finished the
+   * outcome of the workflow is recorded.
+   *
+   * @param workflow the job of the workflow
+   * @return the nodes to launch
+   */
+  List<Node> advance(Job workflow) {
+    if (!"running".equals(workflow.getStatus())) {
+      return List.of();
+    }
+    JobWorkflow definition = fromParams(workflow);
+    Map<String, Job> children = new HashMap<>();
+    for (Job child : jobsRepository.findByParentIdOrderById(workflow.getId())) {
+      children.put(child.getWorkflowNode(), child);
+    }
+
+    List<Node> ready = new ArrayList<>();
+    Set<String> launching = new HashSet<>();
+    boolean skipped = true;
+    // skipping a node may mean skipping the nodes that depend on it, so go round until none is
+    while (skipped) {
+      skipped = false;
+      for (Node node : definition.getNodes()) {
+        if (children.containsKey(node.getName()) || launching.contains(node.getName())) {
+          continue;
+        }
+        String failed = null;
+        boolean waiting = false;
+        for (String dependency : node.getDependsOn()) {
+          Job child = children.get(dependency);
+          if (child == null || !JobService.isFinished(child)) {
+            waiting = true;
+          } else if (!"complete".equals(child.getStatus())) {
+            failed = dependency;
+          }
+        }
+        if (failed != null) {
+          Job skip = skip(workflow, node, failed);
+          if (skip == null) {
+            // another thread is advancing the workflow too; leave the rest to it
+            return List.of();
+          }
+          children.put(node.getName(), skip);
+          skipped = true;
+        } else if (!waiting) {
+          ready.add(node);
+          launching.add(node.getName());
+        }
+      }
+    }
+
+    if (ready.isEmpty()
+        && children.size() == definition.getNodes().size()
+        && children.values().stream().allMatch(JobService::isFinished)) {
+      boolean complete = children.values().stream().allMatch(c -> "complete".equals(c.getStatus()));
+      ZonedDateTime now = ZonedDateTime.now();
+      long durationMs =
+          workflow.getStartedAt() == null
+              ? 0
+              : Duration.between(workflow.getStartedAt(), now).toMillis();
+      jobsRepository.finishWorkflow(
+          workflow.getId(), complete ? "complete" : "error", now, durationMs);
+    }
+    return ready;
+  }
+
+  private Job skip(Job workflow, Node node, String failed) {
+    Job child =
+        Job.builder()
+            .createdBy(workflow.getCreatedBy())
+            .type(node.getJobType())
+            .params(node.getParams().toString())
+            .parentId(workflow.getId())
+            .workflowNode(node.getName())
+            .status("skipped")
+            .finishedAt(ZonedDateTime.now())
+            .build();
+    try {
+      jobsRepository.save(child);
+    } catch (DataIntegrityViolationException e) {
+      return null;
+    }
+    jobLogStore.append(
+        child.getId(),
+        JobLogRecords.format(
+            JobLogLevel.WARN,
+            Instant.now(),
+            "Skipped because node %s did not complete".formatted(failed),
+            Map.of()));
+    jobLogStore.close(child.getId());
+    return child;
+  }
+}
@@ -2,8 +2,11 @@ package edu.ucsb.cs156.example;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.services.BulkInserter;
+import edu.ucsb.cs156.example.services.ColumnProjector;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.services.RowStreamer;
 import edu.ucsb.cs156.example.services.wiremock.WiremockService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.io.UnsupportedEncodingException;
@@ -28,6 +31,12 @@ public abstract class ControllerTestCase {
 
   @MockitoBean WiremockService mockWiremockService;
 
+  @MockitoBean public RowStreamer rowStreamer;
+
+  @MockitoBean public ColumnProjector columnProjector;
+
+  @MockitoBean public BulkInserter bulkInserter;
+
   protected Map<String, Object> responseToJson(MvcResult result)
       throws UnsupportedEncodingException, JsonProcessingException {
     String responseString = result.getResponse().getContentAsString();
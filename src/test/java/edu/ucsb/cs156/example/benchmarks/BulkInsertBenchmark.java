@@ -0,0 +1,114 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.BulkInserter;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Rows per second inserted into menuitemreviews, in an H2 database in memory.
+ *
+ * <p>oneAtATime saves each row in a transaction of its own, as a client creating the rows with
+ * /api/menuitemreviews/post does; bulk saves them all with the BulkInserter behind
+ * /api/menuitemreviews/bulk, all in one transaction and the inserts of a chunk in JDBC batches.
+ * Both leave out the HTTP requests, so a database over the network gains more from bulk than H2
+ * does here.
+ *
+ * <p>Run with BENCHMARK=true mvn test-compile exec:exec -Dbenchmarks=BulkInsert.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 8, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BulkInsertBenchmark {
+
+  private static final int ROWS = 5000;
+
+  private ConfigurableApplicationContext context;
+
+  private MenuItemReviewRepository repository;
+
+  private BulkInserter bulkInserter;
+
+  private JdbcTemplate jdbcTemplate;
+
+  @Setup
+  public void setup() {
+    context =
+        new SpringApplicationBuilder(ExampleApplication.class, TestConfig.class)
+            .profiles("integration")
+            // as arguments, so they override the SQL logging of the integration profile
+            .run(
+                "--server.port=0",
+                "--logging.level.root=WARN",
+                "--logging.level.sql=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN");
+    repository = context.getBean(MenuItemReviewRepository.class);
+    bulkInserter = context.getBean(BulkInserter.class);
+    jdbcTemplate = context.getBean(JdbcTemplate.class);
+  }
+
+  @TearDown(Level.Invocation)
+  public void emptyTable() {
+    jdbcTemplate.update("DELETE FROM MENUITEMREVIEWS");
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  private static List<MenuItemReview> reviews() {
+    List<MenuItemReview> reviews = new ArrayList<>(ROWS);
+    for (int i = 0; i < ROWS; i++) {
+      reviews.add(
+          MenuItemReview.builder()
+              .itemId(i % 100)
+              .reviewerEmail("reviewer" + i + "@ucsb.edu")
+              .stars(i % 5 + 1)
+              .dateReviewed(LocalDateTime.parse("2022-01-03T10:15:30").plusMinutes(i))
+              .comments("Review " + i + " of a dish that was tasty, warm and served quickly")
+              .build());
+    }
+    return reviews;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public int oneAtATime() {
+    List<MenuItemReview> reviews = reviews();
+    for (MenuItemReview review : reviews) {
+      repository.save(review);
+    }
+    return reviews.size();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public int bulk() {
+    return bulkInserter.saveAll(repository, reviews()).size();
+  }
+}
@@ -0,0 +1,122 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.RowStreamer;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * The cost of streaming a whole table, as /api/menuitemreviews/all?stream=true does, from an H2
+ * database in memory.
+ *
+ * <p>entities streams the rows as Hibernate entities, written by Jackson; jdbc streams them with
+ * app.streaming.jdbc=true, written straight from the ResultSet by a RowProjection. Both write the
+ * same bytes, to a stream that discards them.
+ *
+ * <p>Run with BENCHMARK=true mvn test-compile exec:exec -Dbenchmarks=RowStreaming; to see the bytes
+ * allocated per row as well, run org.openjdk.jmh.Main RowStreaming -prof gc on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowStreamingBenchmark {
+
+  @Param({"10000"})
+  int rows;
+
+  private ConfigurableApplicationContext context;
+
+  private RowStreamer rowStreamer;
+
+  @Setup
+  public void setup() {
+    context =
+        new SpringApplicationBuilder(ExampleApplication.class, TestConfig.class)
+            .profiles("integration")
+            .properties(
+                "server.port=0",
+                "logging.level.root=WARN",
+                "logging.level.sql=WARN",
+                "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN")
+            .run();
+    rowStreamer = context.getBean(RowStreamer.class);
+    List<MenuItemReview> reviews = new ArrayList<>();
+    for (int i = 0; i < rows; i++) {
+      reviews.add(
+          MenuItemReview.builder()
+              .itemId(i % 100)
+              .reviewerEmail("reviewer" + i + "@ucsb.edu")
+              .stars(i % 5 + 1)
+              .dateReviewed(LocalDateTime.parse("2022-01-03T10:15:30").plusMinutes(i))
+              .comments("Review " + i + " of a dish that was tasty, warm and served quickly")
+              .build());
+    }
+    context.getBean(MenuItemReviewRepository.class).saveAll(reviews);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  private long stream(boolean jdbc) throws IOException {
+    ReflectionTestUtils.setField(rowStreamer, "jdbc", jdbc);
+    CountingOutputStream out = new CountingOutputStream();
+    rowStreamer.stream(
+            MenuItemReview.class, (root, query, cb) -> null, Map.of(), Sort.by("id"), false)
+        .getBody()
+        .writeTo(out);
+    return out.count;
+  }
+
+  @Benchmark
+  public long entities() throws IOException {
+    return stream(false);
+  }
+
+  @Benchmark
+  public long jdbc() throws IOException {
+    return stream(true);
+  }
+
+  private static final class CountingOutputStream extends OutputStream {
+    long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+}
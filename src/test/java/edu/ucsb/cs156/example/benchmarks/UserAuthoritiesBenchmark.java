@@ -0,0 +1,134 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.UserAuthoritiesService;
+import edu.ucsb.cs156.example.services.UserCache;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * The cost of mapping the authorities of a login, as SecurityConfig does for every OAuth2 login.
+ *
+ * <p>legacyMapping is the mapping as it was: the admin emails in an ArrayList, and the user looked
+ * up by email in a users table with no index on it, modelled as a scan of a list of users.
+ * mapAuthorities is UserAuthoritiesService, with the user already in the UserCache, as it is for
+ * any login within app.users.cache.ttlMs of the last. Neither includes the log lines, which were at
+ * INFO and are now at DEBUG. The user logging in is not an admin, so both check every source.
+ *
+ * <p>Run with BENCHMARK=true mvn test-compile exec:exec -Dbenchmarks=UserAuthorities
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserAuthoritiesBenchmark {
+
+  @Param({"5", "100"})
+  int admins;
+
+  @Param({"1000", "100000"})
+  int users;
+
+  private List<String> adminEmailList;
+
+  private List<User> userTable;
+
+  private UserAuthoritiesService userAuthoritiesService;
+
+  private List<OAuth2UserAuthority> login;
+
+  @Setup
+  public void setup() {
+    ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+    adminEmailList = new ArrayList<>();
+    for (int i = 0; i < admins; i++) {
+      adminEmailList.add("admin" + i + "@ucsb.edu");
+    }
+    userTable = new ArrayList<>();
+    for (int i = 0; i < users; i++) {
+      userTable.add(User.builder().email("user" + i + "@ucsb.edu").googleSub("sub" + i).build());
+    }
+    String email = "user" + (users - 1) + "@ucsb.edu";
+    login = List.of(new OAuth2UserAuthority(Map.of("sub", "sub" + (users - 1), "email", email)));
+
+    UserRepository userRepository =
+        (UserRepository)
+            Proxy.newProxyInstance(
+                UserRepository.class.getClassLoader(),
+                new Class<?>[] {UserRepository.class},
+                (proxy, method, args) -> findByEmail((String) args[0]));
+    UserCache userCache = new UserCache();
+    ReflectionTestUtils.setField(userCache, "maxSize", 1000);
+    ReflectionTestUtils.setField(userCache, "ttlMs", 3_600_000L);
+    userAuthoritiesService = new UserAuthoritiesService(adminEmailList, userRepository, userCache);
+    userAuthoritiesService.mapAuthorities(login);
+  }
+
+  private Optional<User> findByEmail(String email) {
+    for (User user : userTable) {
+      if (user.getEmail().equals(email)) {
+        return Optional.of(user);
+      }
+    }
+    return Optional.empty();
+  }
+
+  @Benchmark
+  public Set<GrantedAuthority> legacyMapping() {
+    Collection<? extends GrantedAuthority> authorities = login;
+    Set<GrantedAuthority> mappedAuthorities = new HashSet<>();
+    authorities.forEach(
+        authority -> {
+          mappedAuthorities.add(authority);
+          if (authority instanceof OAuth2UserAuthority oauth2UserAuthority) {
+            Map<String, Object> userAttributes = oauth2UserAuthority.getAttributes();
+            mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_USER"));
+            String email = (String) userAttributes.get("email");
+            boolean admin =
+                adminEmailList.contains(email)
+                    || findByEmail(email).map(User::getAdmin).orElse(false);
+            if (admin) {
+              mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
+            }
+            if (email.endsWith("@ucsb.edu")) {
+              mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_MEMBER"));
+            }
+          }
+        });
+    return mappedAuthorities;
+  }
+
+  @Benchmark
+  public Set<GrantedAuthority> mapAuthorities() {
+    return userAuthoritiesService.mapAuthorities(login);
+  }
+}
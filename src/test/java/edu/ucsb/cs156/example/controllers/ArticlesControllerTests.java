@@ -1,8 +1,13 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -20,12 +25,19 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -50,6 +62,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(articlesRepository.findBy(any(), any())).thenReturn(List.of());
     mockMvc.perform(get("/api/articles/all")).andExpect(status().is(200)); // logged
   }
 
@@ -145,7 +158,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
     ArrayList<Articles> expectedArticles = new ArrayList<>();
     expectedArticles.add(article1);
 
-    when(articlesRepository.findAll()).thenReturn(expectedArticles);
+    when(articlesRepository.findBy(any(), any())).thenReturn(expectedArticles);
 
     // act
     MvcResult response =
@@ -153,12 +166,210 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(articlesRepository, times(1)).findAll();
+    verify(articlesRepository, times(1)).findBy(any(), any());
     String expectedJson = mapper.writeValueAsString(expectedArticles);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  @SuppressWarnings("unchecked")
+  private FetchableFluentQuery<Articles> queryReturning(List<Articles> articles) {
+    FetchableFluentQuery<Articles> query = mock(FetchableFluentQuery.class, RETURNS_SELF);
+    when(query.all()).thenReturn(articles);
+    when(articlesRepository.findBy(any(), any()))
+        .thenAnswer(
+            invocation ->
+                invocation
+                    .<Function<FetchableFluentQuery<Articles>, List<Articles>>>getArgument(1)
+                    .apply(query));
+    return query;
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_gets_every_article_on_one_page_without_limit_or_after()
+      throws Exception {
+
+    // arrange
+    List<Articles> articles = new ArrayList<>();
+    for (long id = 1; id <= KeysetPager.MAX_LIMIT + 1; id++) {
+      articles.add(Articles.builder().id(id).title("article " + id).build());
+    }
+    FetchableFluentQuery<Articles> query = queryReturning(articles);
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/articles/all")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    verify(query).sortBy(Sort.by(Direction.ASC, "id"));
+    verify(query, never()).limit(anyInt());
+    assertNull(response.getResponse().getHeader("Link"));
+    assertEquals(mapper.writeValueAsString(articles), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_gets_a_full_page_after_a_cursor_without_limit() throws Exception {
+
+    // arrange
+    FetchableFluentQuery<Articles> query = queryReturning(List.of());
+    String cursor =
+        Base64.getUrlEncoder()
+            .withoutPadding()
+            .encodeToString("[\"id,asc\",\"5\",\"5\"]".getBytes());
+
+    // act
+    mockMvc.perform(get("/api/articles/all?after=" + cursor)).andExpect(status().isOk());
+
+    // assert
+    verify(query).limit(KeysetPager.MAX_LIMIT + 1);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_list_some_fields_of_every_article_without_limit()
+      throws Exception {
+
+    // arrange
+    Map<String, Object> row = new LinkedHashMap<>();
+    row.put("id", 1L);
+    row.put("title", "CS156 Canvas");
+    when(columnProjector.list(
+            eq(Articles.class),
+            eq(List.of("id", "title")),
+            any(),
+            eq(Sort.by(Direction.ASC, "id")),
+            eq(Integer.MAX_VALUE)))
+        .thenReturn(List.of(row));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/articles/all?fields=title"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertNull(response.getResponse().getHeader("Link"));
+    assertEquals(
+        "[{\"id\":1,\"title\":\"CS156 Canvas\"}]", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_list_only_some_fields_of_articles() throws Exception {
+
+    // arrange
+    Map<String, Object> row = new LinkedHashMap<>();
+    row.put("id", 1L);
+    row.put("title", "CS156 Canvas");
+    row.put("email", "natalieforte@ucsb.edu");
+    row.put("dateAdded", LocalDateTime.parse("2025-10-25T00:00:00"));
+    when(columnProjector.list(
+            eq(Articles.class),
+            eq(List.of("id", "title", "email", "dateAdded")),
+            any(),
+            eq(Sort.by(Direction.DESC, "dateAdded", "id")),
+            eq(11)))
+        .thenReturn(List.of(row));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/articles/all?fields=email,title&sort=dateAdded,desc&limit=10"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(articlesRepository, times(0)).findBy(any(), any());
+    assertEquals(
+        "[{\"id\":1,\"title\":\"CS156 Canvas\",\"email\":\"natalieforte@ucsb.edu\","
+            + "\"dateAdded\":\"2025-10-25T00:00:00\"}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_cannot_list_fields_of_articles_that_are_not_selectable()
+      throws Exception {
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/articles/all?fields=title,secret"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("InvalidFieldsException", json.get("type"));
+    assertEquals(
+        "Cannot select field secret; select from title, url, explanation, email, dateAdded",
+        json.get("message"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_cannot_stream_only_some_fields_of_articles() throws Exception {
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/articles/all?stream=true&fields=title"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Cannot select fields of a stream; list pages instead", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_only_some_fields_of_an_article() throws Exception {
+
+    // arrange
+    Map<String, Object> row = new LinkedHashMap<>();
+    row.put("id", 7L);
+    row.put("url", "https://ucsb.instructure.com/courses/27687");
+    when(columnProjector.list(
+            eq(Articles.class), eq(List.of("id", "url")), any(), eq(Sort.unsorted()), eq(1)))
+        .thenReturn(List.of(row));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/articles?id=7&fields=url"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(articlesRepository, times(0)).findById(any());
+    assertEquals(mapper.writeValueAsString(row), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_gets_not_found_for_some_fields_of_a_missing_article()
+      throws Exception {
+
+    // arrange
+    when(columnProjector.list(eq(Articles.class), any(), any(), any(), eq(1)))
+        .thenReturn(List.of());
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/articles?id=7&fields=url"))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Articles with id 7 not found", json.get("message"));
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void an_admin_user_can_post_a_new_article() throws Exception {
@@ -220,7 +431,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
     // assert
     verify(articlesRepository, times(1)).findById(15L);
-    verify(articlesRepository, times(1)).delete(any());
+    verify(articlesRepository, times(1)).delete(any(Articles.class));
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("Articles with id 15 deleted", json.get("message"));
@@ -333,4 +544,49 @@ public class ArticlesControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("Articles with id 67 not found", json.get("message"));
   }
+
+  // Tests for /api/articles/bulk
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_post_in_bulk() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/articles/bulk")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_articles_in_bulk() throws Exception {
+    // arrange
+    Articles first = Articles.builder().id(7L).title("first").build();
+    Articles second = Articles.builder().title("second").build();
+    // the id of the first is ignored, so it is saved as a new row
+    List<Articles> expected = List.of(Articles.builder().title("first").build(), second);
+    List<Articles> saved =
+        List.of(
+            Articles.builder().id(1L).title("first").build(),
+            Articles.builder().id(2L).title("second").build());
+
+    when(bulkInserter.saveAll(eq(articlesRepository), eq(expected))).thenReturn(saved);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/articles/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(first, second))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkInserter, times(1)).saveAll(eq(articlesRepository), eq(expected));
+    assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+  }
 }
@@ -1,8 +1,13 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -20,12 +25,17 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -44,6 +54,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(helpRequestRepository.findBy(any(), any())).thenReturn(List.of());
     mockMvc.perform(get("/api/helprequest/all")).andExpect(status().is(200));
   }
 
@@ -86,17 +97,52 @@ public class HelpRequestControllerTests extends ControllerTestCase {
     ArrayList<HelpRequest> expected = new ArrayList<>();
     expected.addAll(Arrays.asList(h1, h2));
 
-    when(helpRequestRepository.findAll()).thenReturn(expected);
+    when(helpRequestRepository.findBy(any(), any())).thenReturn(expected);
 
     MvcResult response =
         mockMvc.perform(get("/api/helprequest/all")).andExpect(status().isOk()).andReturn();
 
-    verify(helpRequestRepository, times(1)).findAll();
+    verify(helpRequestRepository, times(1)).findBy(any(), any());
     String expectedJson = mapper.writeValueAsString(expected);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  private FetchableFluentQuery<HelpRequest> queryReturning(List<HelpRequest> rows) {
+    FetchableFluentQuery<HelpRequest> query = mock(FetchableFluentQuery.class, RETURNS_SELF);
+    when(query.all()).thenReturn(rows);
+    when(helpRequestRepository.findBy(any(), any()))
+        .thenAnswer(
+            invocation ->
+                invocation
+                    .<Function<FetchableFluentQuery<HelpRequest>, List<HelpRequest>>>getArgument(1)
+                    .apply(query));
+    return query;
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_gets_every_help_request_on_one_page_without_limit_or_after()
+      throws Exception {
+
+    // arrange
+    List<HelpRequest> rows = new ArrayList<>();
+    for (long id = 1; id <= KeysetPager.MAX_LIMIT + 1; id++) {
+      rows.add(HelpRequest.builder().id(id).requesterEmail("requester" + id + "@ucsb.edu").build());
+    }
+    FetchableFluentQuery<HelpRequest> query = queryReturning(rows);
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/helprequest/all")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    verify(query).sortBy(Sort.by(Direction.ASC, "id"));
+    verify(query, never()).limit(anyInt());
+    assertNull(response.getResponse().getHeader("Link"));
+    assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void admin_user_can_post_a_new_help_request() throws Exception {
@@ -207,7 +253,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             .andReturn();
 
     verify(helpRequestRepository, times(1)).findById(5L);
-    verify(helpRequestRepository, times(1)).delete(any());
+    verify(helpRequestRepository, times(1)).delete(any(HelpRequest.class));
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("HelpRequest with id 5 deleted", json.get("message"));
@@ -309,4 +355,50 @@ public class HelpRequestControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("HelpRequest with id 999 not found", json.get("message"));
   }
+
+  // Tests for /api/helprequest/bulk
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_post_in_bulk() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/helprequest/bulk")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_helprequest_in_bulk() throws Exception {
+    // arrange
+    HelpRequest first = HelpRequest.builder().id(7L).requesterEmail("first").build();
+    HelpRequest second = HelpRequest.builder().requesterEmail("second").build();
+    // the id of the first is ignored, so it is saved as a new row
+    List<HelpRequest> expected =
+        List.of(HelpRequest.builder().requesterEmail("first").build(), second);
+    List<HelpRequest> saved =
+        List.of(
+            HelpRequest.builder().id(1L).requesterEmail("first").build(),
+            HelpRequest.builder().id(2L).requesterEmail("second").build());
+
+    when(bulkInserter.saveAll(eq(helpRequestRepository), eq(expected))).thenReturn(saved);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/helprequest/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(first, second))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkInserter, times(1)).saveAll(eq(helpRequestRepository), eq(expected));
+    assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+  }
 }
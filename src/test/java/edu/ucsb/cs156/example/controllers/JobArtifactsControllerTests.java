@@ -0,0 +1,231 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.JobArtifact;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobArtifactStore;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MvcResult;
+
+@WebMvcTest(controllers = JobArtifactsController.class)
+@Import(TestConfig.class)
+public class JobArtifactsControllerTests extends ControllerTestCase {
+
+  private static final String CONTENT = "id,name\n1,Chris\n2,Pat\n";
+
+  @MockitoBean JobsRepository jobsRepository;
+
+  @MockitoBean JobArtifactStore jobArtifactStore;
+
+  @MockitoBean UserRepository userRepository;
+
+  @TempDir Path dir;
+
+  private JobArtifact artifact;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    Path file = Files.writeString(dir.resolve("report.csv"), CONTENT);
+    artifact = new JobArtifact("report.csv", CONTENT.length(), "abc123", ZonedDateTime.now(), file);
+    when(jobsRepository.existsById(7L)).thenReturn(true);
+    when(jobArtifactStore.find(7L, "report.csv")).thenReturn(Optional.of(artifact));
+  }
+
+  @Test
+  public void logged_out_users_cannot_list_artifacts() throws Exception {
+    mockMvc.perform(get("/api/jobs/artifacts/7")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_users_cannot_download_artifacts() throws Exception {
+    mockMvc.perform(get("/api/jobs/artifacts/7/report.csv")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_list_the_artifacts_of_a_job() throws Exception {
+    when(jobArtifactStore.list(7L)).thenReturn(List.of(artifact));
+
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/artifacts/7")).andExpect(status().isOk()).andReturn();
+
+    String body = response.getResponse().getContentAsString();
+    assertEquals("report.csv", mapper.readTree(body).get(0).get("name").asText());
+    assertEquals(CONTENT.length(), mapper.readTree(body).get(0).get("bytes").asLong());
+    assertEquals("abc123", mapper.readTree(body).get(0).get("sha256").asText());
+    assertNull(mapper.readTree(body).get(0).get("file"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void listing_the_artifacts_of_a_missing_job_is_not_found() throws Exception {
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/artifacts/8")).andExpect(status().isNotFound()).andReturn();
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Job with id 8 not found", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_download_an_artifact() throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/artifacts/7/report.csv"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"abc123\""))
+            .andExpect(header().string("Accept-Ranges", "bytes"))
+            .andExpect(
+                header().string("Content-Disposition", "attachment; filename=\"report.csv\""))
+            .andExpect(content().contentType("text/csv"))
+            .andReturn();
+
+    assertEquals(CONTENT, response.getResponse().getContentAsString(StandardCharsets.UTF_8));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_download_a_range_of_an_artifact() throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/artifacts/7/report.csv").header("Range", "bytes=8-14"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string("Content-Range", "bytes 8-14/" + CONTENT.length()))
+            .andReturn();
+
+    assertEquals("1,Chris", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void an_unchanged_artifact_is_not_sent_again() throws Exception {
+    mockMvc
+        .perform(
+            get("/api/jobs/artifacts/7/report.csv")
+                .header("If-None-Match", "\"abc123\"")
+                .requestAttr(JobArtifactsController.SENDFILE_SUPPORT, true))
+        .andExpect(status().isNotModified());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void a_missing_artifact_is_not_found() throws Exception {
+    when(jobArtifactStore.find(7L, "other.csv")).thenReturn(Optional.empty());
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/artifacts/7/other.csv"))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("JobArtifact with id 7/other.csv not found", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void an_artifact_of_a_missing_job_is_not_found() throws Exception {
+    mockMvc.perform(get("/api/jobs/artifacts/8/report.csv")).andExpect(status().isNotFound());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void the_container_sends_the_whole_file_when_it_can() throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/jobs/artifacts/7/report.csv")
+                    .requestAttr(JobArtifactsController.SENDFILE_SUPPORT, true))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Length", Integer.toString(CONTENT.length())))
+            .andExpect(header().string("ETag", "\"abc123\""))
+            .andReturn();
+
+    MockHttpServletRequest request = response.getRequest();
+    assertEquals("", response.getResponse().getContentAsString());
+    assertEquals(
+        artifact.getFile().toString(),
+        request.getAttribute(JobArtifactsController.SENDFILE_FILENAME));
+    assertEquals(0L, request.getAttribute(JobArtifactsController.SENDFILE_START));
+    assertEquals(
+        (long) CONTENT.length(), request.getAttribute(JobArtifactsController.SENDFILE_END));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void the_container_sends_a_single_range_when_it_can() throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/jobs/artifacts/7/report.csv")
+                    .header("Range", "bytes=8-14")
+                    .requestAttr(JobArtifactsController.SENDFILE_SUPPORT, true))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string("Content-Range", "bytes 8-14/" + CONTENT.length()))
+            .andExpect(header().string("Content-Length", "7"))
+            .andReturn();
+
+    MockHttpServletRequest request = response.getRequest();
+    assertEquals(8L, request.getAttribute(JobArtifactsController.SENDFILE_START));
+    assertEquals(15L, request.getAttribute(JobArtifactsController.SENDFILE_END));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void an_unsatisfiable_range_is_refused() throws Exception {
+    for (String range : new String[] {"bytes=1000-", "chars=1-2", "bytes=5-2"}) {
+      MvcResult response =
+          mockMvc
+              .perform(
+                  get("/api/jobs/artifacts/7/report.csv")
+                      .header("Range", range)
+                      .requestAttr(JobArtifactsController.SENDFILE_SUPPORT, true))
+              .andExpect(status().isRequestedRangeNotSatisfiable())
+              .andExpect(header().string("Content-Range", "bytes */" + CONTENT.length()))
+              .andReturn();
+
+      assertNull(response.getRequest().getAttribute(JobArtifactsController.SENDFILE_FILENAME));
+    }
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void several_ranges_are_left_to_spring() throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/jobs/artifacts/7/report.csv")
+                    .header("Range", "bytes=0-1,8-14")
+                    .requestAttr(JobArtifactsController.SENDFILE_SUPPORT, true))
+            .andExpect(status().isPartialContent())
+            .andReturn();
+
+    assertNull(response.getRequest().getAttribute(JobArtifactsController.SENDFILE_FILENAME));
+    String body = response.getResponse().getContentAsString();
+    assertEquals(true, body.contains("1,Chris"));
+    assertEquals(true, response.getResponse().getContentType().startsWith("multipart/byteranges"));
+  }
+}
@@ -0,0 +1,280 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import edu.ucsb.cs156.example.repositories.JobSchedulesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobScheduler;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import edu.ucsb.cs156.example.services.jobs.JobTypes;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@WebMvcTest(controllers = JobSchedulesController.class)
+@Import({TestConfig.class, JobScheduler.class, JobTypes.class})
+public class JobSchedulesControllerTests extends ControllerTestCase {
+
+  @MockitoBean JobSchedulesRepository jobSchedulesRepository;
+
+  @MockitoBean JobsRepository jobsRepository;
+
+  @MockitoBean JobService jobService;
+
+  @MockitoBean TransactionTemplate transactionTemplate;
+
+  @MockitoBean UserRepository userRepository;
+
+  @BeforeEach
+  public void setup() {
+    when(jobSchedulesRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+  }
+
+  private static JobSchedule nightly() {
+    return JobSchedule.builder()
+        .id(3L)
+        .name("nightly")
+        .cron("0 0 3 * * *")
+        .jobType("TestJob")
+        .params("{\"fail\":false,\"sleepMs\":0,\"tasks\":0}")
+        .nextRunAt(ZonedDateTime.now().plusHours(1))
+        .build();
+  }
+
+  @Test
+  public void logged_out_users_cannot_get_all() throws Exception {
+    mockMvc.perform(get("/api/jobs/schedules/all")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_users_cannot_get_all() throws Exception {
+    mockMvc.perform(get("/api/jobs/schedules/all")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_users_cannot_post() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/jobs/schedules/post?name=a&cron=* * * * * *&jobType=TestJob").with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_all_schedules() throws Exception {
+    JobSchedule schedule = nightly();
+    when(jobSchedulesRepository.findAll()).thenReturn(List.of(schedule));
+
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/schedules/all")).andExpect(status().isOk()).andReturn();
+
+    assertEquals(
+        mapper.writeValueAsString(List.of(schedule)), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_a_schedule_by_id() throws Exception {
+    JobSchedule schedule = nightly();
+    when(jobSchedulesRepository.findById(3L)).thenReturn(Optional.of(schedule));
+
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/schedules?id=3")).andExpect(status().isOk()).andReturn();
+
+    assertEquals(mapper.writeValueAsString(schedule), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void getting_a_schedule_that_does_not_exist_returns_404() throws Exception {
+    when(jobSchedulesRepository.findById(3L)).thenReturn(Optional.empty());
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/schedules?id=3"))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    assertEquals("JobSchedule with id 3 not found", responseToJson(response).get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_post_a_schedule_that_is_theirs_and_due_at_the_next_time_its_cron_fires()
+      throws Exception {
+    mockMvc
+        .perform(
+            post("/api/jobs/schedules/post")
+                .param("name", "nightly")
+                .param("cron", "0 0 3 * * *")
+                .param("jobType", "TestJob")
+                .param("params", "{\"sleepMs\":10}")
+                .param("timeoutMs", "60000")
+                .with(csrf()))
+        .andExpect(status().isOk());
+
+    ArgumentCaptor<JobSchedule> saved = ArgumentCaptor.forClass(JobSchedule.class);
+    verify(jobSchedulesRepository).save(saved.capture());
+    JobSchedule schedule = saved.getValue();
+    assertEquals("nightly", schedule.getName());
+    assertEquals("user@example.org", schedule.getCreatedBy().getEmail());
+    assertEquals("{\"fail\":false,\"sleepMs\":10,\"tasks\":0}", schedule.getParams());
+    assertEquals(60000L, schedule.getTimeoutMs());
+    assertTrue(schedule.getEnabled());
+    assertEquals(3, schedule.getNextRunAt().getHour());
+    assertEquals(0, schedule.getNextRunAt().getMinute());
+    assertTrue(schedule.getNextRunAt().isAfter(ZonedDateTime.now()));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void a_disabled_schedule_is_never_due() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/jobs/schedules/post")
+                .param("name", "off")
+                .param("cron", "0 0 3 * * *")
+                .param("jobType", "TestJob")
+                .param("enabled", "false")
+                .with(csrf()))
+        .andExpect(status().isOk());
+
+    ArgumentCaptor<JobSchedule> saved = ArgumentCaptor.forClass(JobSchedule.class);
+    verify(jobSchedulesRepository).save(saved.capture());
+    assertNull(saved.getValue().getNextRunAt());
+    assertNull(saved.getValue().getTimeoutMs());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void posting_a_schedule_with_an_invalid_cron_expression_returns_400() throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/jobs/schedules/post")
+                    .param("name", "bad")
+                    .param("cron", "every night")
+                    .param("jobType", "TestJob")
+                    .with(csrf()))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("IllegalArgumentException", json.get("type"));
+    assertNotNull(json.get("message"));
+    verify(jobSchedulesRepository, never()).save(any());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void posting_a_schedule_for_an_unknown_job_type_returns_400() throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/jobs/schedules/post")
+                    .param("name", "bad")
+                    .param("cron", "0 0 3 * * *")
+                    .param("jobType", "NoSuchJob")
+                    .with(csrf()))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    assertEquals("Unknown job type NoSuchJob", responseToJson(response).get("message"));
+    verify(jobSchedulesRepository, never()).save(any());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_edit_a_schedule_and_when_it_is_due_is_worked_out_again() throws Exception {
+    JobSchedule schedule = nightly().toBuilder().lastJobId(12L).build();
+    when(jobSchedulesRepository.findById(3L)).thenReturn(Optional.of(schedule));
+    JobSchedule incoming =
+        nightly().toBuilder().name("hourly").cron("0 30 * * * *").params("{}").build();
+
+    mockMvc
+        .perform(
+            put("/api/jobs/schedules?id=3")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("utf-8")
+                .content(mapper.writeValueAsString(incoming))
+                .with(csrf()))
+        .andExpect(status().isOk());
+
+    verify(jobSchedulesRepository).save(schedule);
+    assertEquals("hourly", schedule.getName());
+    assertEquals("0 30 * * * *", schedule.getCron());
+    assertEquals(30, schedule.getNextRunAt().getMinute());
+    assertEquals(12L, schedule.getLastJobId());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void editing_a_schedule_that_does_not_exist_returns_404() throws Exception {
+    when(jobSchedulesRepository.findById(3L)).thenReturn(Optional.empty());
+
+    mockMvc
+        .perform(
+            put("/api/jobs/schedules?id=3")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(nightly()))
+                .with(csrf()))
+        .andExpect(status().isNotFound());
+
+    verify(jobSchedulesRepository, never()).save(any());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_delete_a_schedule() throws Exception {
+    JobSchedule schedule = nightly();
+    when(jobSchedulesRepository.findById(3L)).thenReturn(Optional.of(schedule));
+
+    MvcResult response =
+        mockMvc
+            .perform(delete("/api/jobs/schedules?id=3").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    verify(jobSchedulesRepository).delete(schedule);
+    assertEquals("JobSchedule with id 3 deleted", responseToJson(response).get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void deleting_a_schedule_that_does_not_exist_returns_404() throws Exception {
+    when(jobSchedulesRepository.findById(3L)).thenReturn(Optional.empty());
+
+    mockMvc
+        .perform(delete("/api/jobs/schedules?id=3").with(csrf()))
+        .andExpect(status().isNotFound());
+
+    verify(jobSchedulesRepository, never()).delete(any());
+  }
+}
@@ -0,0 +1,164 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.models.JobWorkflow;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobLogStore;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import edu.ucsb.cs156.example.services.jobs.JobTypes;
+import edu.ucsb.cs156.example.services.jobs.JobWorkflows;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MvcResult;
+
+@WebMvcTest(controllers = JobWorkflowsController.class)
+@Import({TestConfig.class, JobWorkflows.class, JobTypes.class})
+public class JobWorkflowsControllerTests extends ControllerTestCase {
+
+  private static final String WORKFLOW =
+      """
+      {"name":"nightly","nodes":[
+        {"name":"extract","jobType":"TestJob","params":{"sleepMs":10}},
+        {"name":"report","jobType":"TestJob","dependsOn":["extract"],"timeoutMs":5000}]}
+      """;
+
+  @MockitoBean JobsRepository jobsRepository;
+
+  @MockitoBean JobService jobService;
+
+  @MockitoBean JobLogStore jobLogStore;
+
+  @MockitoBean UserRepository userRepository;
+
+  @Test
+  public void logged_out_users_cannot_get_workflows() throws Exception {
+    mockMvc.perform(get("/api/jobs/workflows?id=1")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_users_cannot_start_workflows() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/jobs/workflows")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(WORKFLOW)
+                .with(csrf()))
+        .andExpect(status().is(403));
+    verify(jobService, never()).runWorkflow(any());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_start_a_workflow() throws Exception {
+    Job started = Job.builder().id(1L).type("Workflow").status("running").build();
+    when(jobService.runWorkflow(any())).thenReturn(started);
+
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/jobs/workflows")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(WORKFLOW)
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    ArgumentCaptor<JobWorkflow> workflow = ArgumentCaptor.forClass(JobWorkflow.class);
+    verify(jobService).runWorkflow(workflow.capture());
+    assertEquals("nightly", workflow.getValue().getName());
+    assertEquals(List.of("extract"), workflow.getValue().getNodes().get(1).getDependsOn());
+    assertEquals(5000L, workflow.getValue().getNodes().get(1).getTimeoutMs());
+    assertEquals(mapper.writeValueAsString(started), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void an_invalid_workflow_is_a_bad_request() throws Exception {
+    when(jobService.runWorkflow(any()))
+        .thenThrow(new IllegalArgumentException("The dependencies of nodes a, b form a cycle"));
+
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/jobs/workflows")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(WORKFLOW)
+                    .with(csrf()))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    assertEquals(
+        Map.of(
+            "type", "IllegalArgumentException",
+            "message", "The dependencies of nodes a, b form a cycle"),
+        responseToJson(response));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_a_workflow_with_its_node_jobs() throws Exception {
+    Job workflow = Job.builder().id(1L).type("Workflow").status("running").params(WORKFLOW).build();
+    Job extract =
+        Job.builder()
+            .id(2L)
+            .type("TestJob")
+            .status("complete")
+            .parentId(1L)
+            .workflowNode("extract")
+            .build();
+    when(jobsRepository.findById(1L)).thenReturn(Optional.of(workflow));
+    when(jobsRepository.findByParentIdOrderById(1L)).thenReturn(List.of(extract));
+
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/workflows?id=1")).andExpect(status().isOk()).andReturn();
+
+    JsonNode body = mapper.readTree(response.getResponse().getContentAsString());
+    assertEquals("running", body.get("workflow").get("status").asText());
+    assertEquals("report", body.get("definition").get("nodes").get(1).get("name").asText());
+    assertEquals(1, body.get("nodes").size());
+    assertEquals("extract", body.get("nodes").get(0).get("workflowNode").asText());
+    assertEquals(1L, body.get("nodes").get(0).get("parentId").asLong());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void a_job_that_is_not_a_workflow_is_not_found() throws Exception {
+    when(jobsRepository.findById(2L))
+        .thenReturn(Optional.of(Job.builder().id(2L).type("TestJob").build()));
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/workflows?id=2"))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    assertEquals(
+        Map.of(
+            "type", "EntityNotFoundException",
+            "message", "JobWorkflow with id 2 not found"),
+        responseToJson(response));
+  }
+}
@@ -3,7 +3,12 @@ package edu.ucsb.cs156.example.controllers;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.endsWith;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -11,41 +16,95 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Job;
-import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.models.JobTypeUsage;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.repositories.JobStatesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobArtifactStore;
+import edu.ucsb.cs156.example.services.jobs.JobCheckpoints;
+import edu.ucsb.cs156.example.services.jobs.JobExecutor;
+import edu.ucsb.cs156.example.services.jobs.JobLeases;
+import edu.ucsb.cs156.example.services.jobs.JobLogHub;
+import edu.ucsb.cs156.example.services.jobs.JobLogStore;
+import edu.ucsb.cs156.example.services.jobs.JobLogStore.LogSize;
+import edu.ucsb.cs156.example.services.jobs.JobMetrics;
+import edu.ucsb.cs156.example.services.jobs.JobPurger;
 import edu.ucsb.cs156.example.services.jobs.JobService;
-import java.util.ArrayList;
-import java.util.Arrays;
+import edu.ucsb.cs156.example.services.jobs.JobTasks;
+import edu.ucsb.cs156.example.services.jobs.JobTypes;
+import edu.ucsb.cs156.example.services.jobs.JobWorkflows;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureDataJpa;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 @Slf4j
 @WebMvcTest(controllers = JobsController.class)
-@Import(JobService.class)
+@Import({
+  JobService.class,
+  JobExecutor.class,
+  JobLogHub.class,
+  JobTypes.class,
+  JobLeases.class,
+  JobTasks.class,
+  JobCheckpoints.class,
+  JobWorkflows.class
+})
 @AutoConfigureDataJpa
+// jobs run on platform threads, so that their usage is measured
+@TestPropertySource(properties = "app.jobs.usage.enabled=true")
 public class JobsControllerTests extends ControllerTestCase {
 
   @MockitoBean JobsRepository jobsRepository;
 
   @MockitoBean UserRepository userRepository;
 
+  @MockitoBean JobLogStore jobLogStore;
+
   @Autowired JobService jobService;
 
+  @MockitoSpyBean JobExecutor jobExecutor;
+
+  @MockitoBean JobPurger jobPurger;
+
+  @MockitoBean JobMetrics jobMetrics;
+
+  @MockitoBean JobStatesRepository jobStatesRepository;
+
+  @MockitoBean JobArtifactStore jobArtifactStore;
+
+  @Autowired JobLogHub jobLogHub;
+
   @Autowired ObjectMapper objectMapper;
 
   @WithMockUser(roles = {"ADMIN"})
@@ -54,13 +113,10 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // arrange
 
-    Job job1 = Job.builder().log("this is job 1").build();
-    Job job2 = Job.builder().log("this is job 2").build();
+    JobSummary job1 = JobSummary.builder().id(1L).status("complete").build();
+    JobSummary job2 = JobSummary.builder().id(2L).status("error").build();
 
-    ArrayList<Job> expectedJobs = new ArrayList<>();
-    expectedJobs.addAll(Arrays.asList(job1, job2));
-
-    when(jobsRepository.findAll()).thenReturn(expectedJobs);
+    when(jobsRepository.findSummaries(0L, Limit.of(51))).thenReturn(List.of(job1, job2));
 
     // act
     MvcResult response =
@@ -68,19 +124,71 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(jobsRepository, atLeastOnce()).findAll();
-    String expectedJson = mapper.writeValueAsString(expectedJobs);
+    verify(jobsRepository, never()).findAll();
+    String expectedJson = mapper.writeValueAsString(new KeysetPage<>(List.of(job1, job2), null));
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_gets_the_id_to_continue_from_when_there_are_more_jobs() throws Exception {
+
+    // arrange
+
+    JobSummary job3 = JobSummary.builder().id(3L).status("complete").build();
+    JobSummary job4 = JobSummary.builder().id(4L).status("complete").build();
+    JobSummary job5 = JobSummary.builder().id(5L).status("complete").build();
+
+    when(jobsRepository.findSummariesByStatus("complete", 2L, Limit.of(3)))
+        .thenReturn(List.of(job3, job4, job5));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/all?afterId=2&limit=2&status=complete"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    String expectedJson = mapper.writeValueAsString(new KeysetPage<>(List.of(job3, job4), 4L));
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void job_listing_page_size_is_kept_within_bounds() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.findSummaries(eq(0L), any())).thenReturn(List.of());
+
+    // act
+
+    mockMvc.perform(get("/api/jobs/all?limit=100000")).andExpect(status().isOk());
+    mockMvc.perform(get("/api/jobs/all?limit=0")).andExpect(status().isOk());
+
+    // assert
+
+    verify(jobsRepository).findSummaries(0L, Limit.of(JobsController.MAX_PAGE_SIZE + 1));
+    verify(jobsRepository).findSummaries(0L, Limit.of(2));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void users_cannot_list_jobs() throws Exception {
+    mockMvc.perform(get("/api/jobs/all")).andExpect(status().isForbidden());
+  }
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void api_getJobLogById__admin_logged_in__returns_job_by_id() throws Exception {
 
     // arrange
 
-    Job job = Job.builder().id(1L).status("completed").log("This is a test job log.").build();
+    Job job = Job.builder().id(1L).status("completed").build();
 
     when(jobsRepository.findById(eq(1L))).thenReturn(Optional.of(job));
 
@@ -123,7 +231,7 @@ public class JobsControllerTests extends ControllerTestCase {
   @Test
   public void admin_can_delete_all_jobs() throws Exception {
 
-    doNothing().when(jobsRepository).deleteAll();
+    when(jobPurger.deleteAll()).thenReturn(2);
 
     // act
     MvcResult response =
@@ -134,7 +242,8 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(jobsRepository, times(1)).deleteAll();
+    verify(jobPurger, times(1)).deleteAll();
+    verify(jobsRepository, never()).deleteAll();
     String expectedJson = mapper.writeValueAsString(Map.of("message", "All jobs deleted"));
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
@@ -146,9 +255,9 @@ public class JobsControllerTests extends ControllerTestCase {
     // Arrange
     Long jobId = 1L;
     String jobLog = "This is a job log";
-    Job job = Job.builder().build();
-    job.setLog(jobLog);
-    when(jobsRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobsRepository.existsById(jobId)).thenReturn(true);
+    when(jobLogStore.openStream(jobId))
+        .thenReturn(new ByteArrayInputStream(jobLog.getBytes(StandardCharsets.UTF_8)));
 
     // Act & Assert
     mockMvc
@@ -162,9 +271,8 @@ public class JobsControllerTests extends ControllerTestCase {
   public void test_getJobLogs_admin_can_get_empty_log() throws Exception {
     // Arrange
     Long jobId = 2L;
-    Job job = Job.builder().build();
-    job.setLog("");
-    when(jobsRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobsRepository.existsById(jobId)).thenReturn(true);
+    when(jobLogStore.openStream(jobId)).thenReturn(new ByteArrayInputStream(new byte[0]));
 
     // Act & Assert
     mockMvc
@@ -173,6 +281,268 @@ public class JobsControllerTests extends ControllerTestCase {
         .andExpect(content().string(""));
   }
 
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void test_getJobLogs_returns_only_the_lines_at_or_above_a_level() throws Exception {
+    String log =
+        "Hello\n"
+            + "2025-10-17T23:23:51.089Z WARN Skipped a row {\"row\":17}\n"
+            + "2025-10-17T23:23:51.090Z ERROR Could not save row 18\n"
+            + "Goodbye";
+    when(jobsRepository.existsById(1L)).thenReturn(true);
+    when(jobLogStore.cursor(1L, 0)).thenAnswer(invocation -> List.of(log.getBytes()).iterator());
+
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 1L).param("level", "ERROR"))
+        .andExpect(status().isOk())
+        .andExpect(content().string("2025-10-17T23:23:51.090Z ERROR Could not save row 18"));
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 1L).param("level", "WARN").param("grep", "Skipped"))
+        .andExpect(status().isOk())
+        .andExpect(content().string("2025-10-17T23:23:51.089Z WARN Skipped a row {\"row\":17}"));
+    // the filter applies to the whole log, whatever range is asked for
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 1L).param("grep", "bye").param("tail", "1"))
+        .andExpect(status().isOk())
+        .andExpect(content().string("Goodbye"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void test_getJobLogs_rejects_an_unknown_level() throws Exception {
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 1L).param("level", "LOUD"))
+        .andExpect(status().isBadRequest());
+  }
+
+  // "one\ntwo\nthree\nfour": 18 bytes, 4 lines, with newlines ending at offsets 4, 8 and 14
+  private void stubFourLineLog(long jobId) {
+    when(jobsRepository.existsById(jobId)).thenReturn(true);
+    when(jobLogStore.size(jobId)).thenReturn(new LogSize(18, 4));
+    when(jobLogStore.offsetAfterNewline(jobId, 1)).thenReturn(4L);
+    when(jobLogStore.offsetAfterNewline(jobId, 2)).thenReturn(8L);
+    when(jobLogStore.offsetAfterNewline(jobId, 3)).thenReturn(14L);
+  }
+
+  private static ByteArrayInputStream bytesOf(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void test_getJobLogs_returns_a_range_of_lines() throws Exception {
+    stubFourLineLog(1L);
+    when(jobLogStore.openStream(1L, 4L, 13L)).thenReturn(bytesOf("two\nthree"));
+
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 1L).param("fromLine", "2").param("toLine", "3"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "lines 2-3/4"))
+        .andExpect(content().string("two\nthree"));
+    verify(jobLogStore, never()).openStream(anyLong());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void test_getJobLogs_line_range_defaults_to_the_start_and_end_of_the_log()
+      throws Exception {
+    stubFourLineLog(1L);
+    when(jobLogStore.openStream(1L, 0L, 3L)).thenReturn(bytesOf("one"));
+    when(jobLogStore.openStream(1L, 14L, 18L)).thenReturn(bytesOf("four"));
+
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 1L).param("toLine", "1"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "lines 1-1/4"))
+        .andExpect(content().string("one"));
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 1L).param("fromLine", "4").param("toLine", "99"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "lines 4-4/4"))
+        .andExpect(content().string("four"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void test_getJobLogs_returns_the_tail_of_the_log() throws Exception {
+    stubFourLineLog(1L);
+    when(jobLogStore.openStream(1L, 8L, 18L)).thenReturn(bytesOf("three\nfour"));
+    when(jobLogStore.openStream(1L, 0L, 18L)).thenReturn(bytesOf("one\ntwo\nthree\nfour"));
+
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 1L).param("tail", "2"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "lines 3-4/4"))
+        .andExpect(content().string("three\nfour"));
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 1L).param("tail", "10"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "lines 1-4/4"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void test_getJobLogs_tail_of_an_empty_log_is_empty() throws Exception {
+    when(jobsRepository.existsById(1L)).thenReturn(true);
+    when(jobLogStore.size(1L)).thenReturn(new LogSize(0, 0));
+
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 1L).param("tail", "5"))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+        .andExpect(content().string(""));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void test_getJobLogs_lines_past_the_end_are_not_satisfiable() throws Exception {
+    stubFourLineLog(1L);
+
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 1L).param("fromLine", "5"))
+        .andExpect(status().isRequestedRangeNotSatisfiable())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "lines */4"))
+        .andExpect(
+            content()
+                .json(
+                    "{\"type\":\"LogRangeNotSatisfiableException\","
+                        + "\"message\":\"Range not satisfiable; the log has 4 lines\"}"));
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 1L).param("fromLine", "3").param("toLine", "2"))
+        .andExpect(status().isRequestedRangeNotSatisfiable());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void test_getJobLogs_returns_a_byte_range() throws Exception {
+    stubFourLineLog(1L);
+    when(jobLogStore.openStream(1L, 4L, 7L)).thenReturn(bytesOf("two"));
+    when(jobLogStore.openStream(1L, 14L, 18L)).thenReturn(bytesOf("four"));
+
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 1L).header(HttpHeaders.RANGE, "bytes=4-6"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 4-6/18"))
+        .andExpect(content().string("two"));
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 1L).header(HttpHeaders.RANGE, "bytes=-4"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 14-17/18"))
+        .andExpect(content().string("four"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void test_getJobLogs_bytes_past_the_end_are_not_satisfiable() throws Exception {
+    stubFourLineLog(1L);
+
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 1L).header(HttpHeaders.RANGE, "bytes=18-"))
+        .andExpect(status().isRequestedRangeNotSatisfiable())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */18"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void test_getJobLogs_ignores_a_malformed_range_header() throws Exception {
+    when(jobsRepository.existsById(1L)).thenReturn(true);
+    when(jobLogStore.openStream(1L)).thenReturn(bytesOf("whole log"));
+
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 1L).header(HttpHeaders.RANGE, "lines=1-2"))
+        .andExpect(status().isOk())
+        .andExpect(content().string("whole log"));
+  }
+
+  private String streamJobLogs(MockHttpServletRequestBuilder request) throws Exception {
+    MvcResult result = mockMvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+    result.getAsyncResult(5000);
+    assertEquals(MediaType.TEXT_EVENT_STREAM_VALUE, result.getResponse().getContentType());
+    return result.getResponse().getContentAsString();
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_stream_the_log_of_a_finished_job() throws Exception {
+    // Arrange
+    Job job = Job.builder().id(1L).status("complete").build();
+    when(jobsRepository.existsById(1L)).thenReturn(true);
+    when(jobsRepository.findById(1L)).thenReturn(Optional.of(job));
+    when(jobLogStore.cursor(1L, 0L)).thenReturn(List.of("one\ntwo".getBytes()).iterator());
+
+    // Act
+    String body = streamJobLogs(get("/api/jobs/logs/{id}/stream", 1L));
+
+    // Assert
+    assertEquals("id:7\nevent:log\ndata:one\ndata:two\n\nevent:end\ndata:\n\n", body);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_stream_the_log_of_a_running_job_as_it_grows() throws Exception {
+    // Arrange
+    Job job = Job.builder().id(1L).status("running").build();
+    when(jobsRepository.existsById(1L)).thenReturn(true);
+    when(jobsRepository.findById(1L)).thenReturn(Optional.of(job));
+    when(jobLogStore.cursor(1L, 3L)).thenReturn(List.of("\nfour".getBytes()).iterator());
+
+    // Act
+    MvcResult result =
+        mockMvc
+            .perform(get("/api/jobs/logs/{id}/stream?offset=3", 1L))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    await().atMost(5, SECONDS).until(() -> jobLogHub.hasListeners(1L));
+    jobLogHub.publish(1L, 8L, "\nfive".getBytes());
+    jobLogHub.complete(1L);
+    result.getAsyncResult(5000);
+
+    // Assert
+    assertEquals(
+        "id:8\nevent:log\ndata:\ndata:four\n\n"
+            + "id:13\nevent:log\ndata:\ndata:five\n\n"
+            + "event:end\ndata:\n\n",
+        result.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void a_reconnecting_client_resumes_from_last_event_id() throws Exception {
+    // Arrange: the job has been deleted since the client connected
+    when(jobsRepository.existsById(1L)).thenReturn(true);
+    when(jobsRepository.findById(1L)).thenReturn(Optional.empty());
+    when(jobLogStore.cursor(1L, 7L)).thenReturn(List.of("\nthree".getBytes()).iterator());
+
+    // Act
+    String body =
+        streamJobLogs(get("/api/jobs/logs/{id}/stream?offset=2", 1L).header("Last-Event-ID", "7"));
+
+    // Assert
+    assertEquals("id:13\nevent:log\ndata:\ndata:three\n\nevent:end\ndata:\n\n", body);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void a_negative_offset_streams_the_whole_log() throws Exception {
+    // Arrange
+    when(jobsRepository.existsById(1L)).thenReturn(true);
+    when(jobsRepository.findById(1L))
+        .thenReturn(Optional.of(Job.builder().id(1L).status("error").build()));
+    when(jobLogStore.cursor(1L, 0L)).thenReturn(Collections.emptyIterator());
+
+    // Act
+    String body = streamJobLogs(get("/api/jobs/logs/{id}/stream?offset=-5", 1L));
+
+    // Assert
+    assertEquals("event:end\ndata:\n\n", body);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void users_cannot_stream_job_logs() throws Exception {
+    mockMvc.perform(get("/api/jobs/logs/{id}/stream", 1L)).andExpect(status().isForbidden());
+  }
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void admin_can_delete_specific_job() throws Exception {
@@ -192,6 +562,7 @@ public class JobsControllerTests extends ControllerTestCase {
     // assert
 
     verify(jobsRepository, times(1)).deleteById(eq(1L));
+    verify(jobArtifactStore).delete(1L);
     String expectedJson = mapper.writeValueAsString(Map.of("message", "Job with id 1 deleted"));
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
@@ -226,29 +597,7 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // arrange
 
-    User user = currentUserService.getUser();
-
-    Job jobStarted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("running")
-            .log("Hello World! from test job!")
-            .build();
-
-    Job jobCompleted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("complete")
-            .log("Hello World! from test job!\nGoodbye from test job!")
-            .build();
-
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobCompleted);
+    when(jobsRepository.save(any(Job.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
     // act
     MvcResult response =
@@ -261,14 +610,47 @@ public class JobsControllerTests extends ControllerTestCase {
     String responseString = response.getResponse().getContentAsString();
     Job jobReturned = objectMapper.readValue(responseString, Job.class);
 
-    assertEquals("running", jobReturned.getStatus());
+    assertEquals("queued", jobReturned.getStatus());
 
     await()
         .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
+        .untilAsserted(() -> verify(jobLogStore).append(0L, "Hello World! from test job!"));
     await()
         .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(4)).save(eq(jobCompleted)));
+        .untilAsserted(() -> verify(jobsRepository, times(3)).save(any(Job.class)));
+
+    InOrder inOrder = inOrder(jobLogStore, jobsRepository);
+    inOrder.verify(jobLogStore).append(0L, "Goodbye from test job!");
+    inOrder.verify(jobLogStore).close(0L);
+    ArgumentCaptor<Job> savedJob = ArgumentCaptor.forClass(Job.class);
+    inOrder.verify(jobsRepository).save(savedJob.capture());
+    assertEquals("complete", savedJob.getValue().getStatus());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_test_job_with_child_tasks() throws Exception {
+    mockMvc
+        .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=10&tasks=3").with(csrf()))
+        .andExpect(status().isOk());
+
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(() -> verify(jobsRepository, times(3)).save(any(Job.class)));
+
+    verify(jobLogStore).append(0L, "Task 1 done");
+    verify(jobLogStore).append(0L, "Task 3 done");
+    verify(jobsRepository).updateTaskProgress(0L, 3, 3, 0);
+    InOrder inOrder = inOrder(jobLogStore, jobsRepository);
+    inOrder.verify(jobLogStore).append(0L, "Ran 3 tasks: 3 succeeded, 0 failed");
+    inOrder.verify(jobLogStore).append(0L, "Goodbye from test job!");
+    ArgumentCaptor<Job> savedJob = ArgumentCaptor.forClass(Job.class);
+    inOrder.verify(jobsRepository).save(savedJob.capture());
+    assertEquals("complete", savedJob.getValue().getStatus());
+    assertEquals(3, savedJob.getValue().getTasksDone());
+    // the job and its child tasks ran on platform threads, so their usage was measured
+    assertNotNull(savedJob.getValue().getCpuMs());
+    assertTrue(savedJob.getValue().getAllocatedBytes() > 0);
   }
 
   @WithMockUser(roles = {"ADMIN"})
@@ -277,48 +659,415 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // arrange
 
-    User user = currentUserService.getUser();
+    when(jobsRepository.save(any(Job.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/launch/testjob?fail=true&sleepMs=4000").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    String responseString = response.getResponse().getContentAsString();
+    Job jobReturned = objectMapper.readValue(responseString, Job.class);
+
+    assertEquals("queued", jobReturned.getStatus());
+
+    await()
+        .atMost(1, SECONDS)
+        .untilAsserted(() -> verify(jobLogStore).append(0L, "Hello World! from test job!"));
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(() -> verify(jobsRepository, times(3)).save(any(Job.class)));
+
+    InOrder inOrder = inOrder(jobLogStore, jobsRepository);
+    inOrder.verify(jobLogStore).append(eq(0L), endsWith(" ERROR Fail!"));
+    inOrder.verify(jobLogStore).close(0L);
+    ArgumentCaptor<Job> savedJob = ArgumentCaptor.forClass(Job.class);
+    inOrder.verify(jobsRepository).save(savedJob.capture());
+    assertEquals("error", savedJob.getValue().getStatus());
+    verify(jobLogStore, never()).append(0L, "Goodbye from test job!");
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_test_job_that_times_out() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.save(any(Job.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    mockMvc
+        .perform(
+            post("/api/jobs/launch/testjob?fail=false&sleepMs=60000&timeoutMs=100").with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(() -> verify(jobsRepository, times(3)).save(any(Job.class)));
+
+    InOrder inOrder = inOrder(jobLogStore, jobsRepository);
+    inOrder.verify(jobLogStore).append(eq(0L), endsWith(" WARN Timed out after 100 ms"));
+    inOrder.verify(jobLogStore).close(0L);
+    ArgumentCaptor<Job> savedJob = ArgumentCaptor.forClass(Job.class);
+    inOrder.verify(jobsRepository).save(savedJob.capture());
+    assertEquals("timed_out", savedJob.getValue().getStatus());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_cancel_a_running_job() throws Exception {
 
-    Job jobStarted =
+    // arrange
+
+    when(jobsRepository.save(any(Job.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    when(jobsRepository.existsById(0L)).thenReturn(true);
+    mockMvc
+        .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=60000").with(csrf()))
+        .andExpect(status().isOk());
+    await()
+        .atMost(5, SECONDS)
+        .untilAsserted(() -> verify(jobLogStore).append(0L, "Hello World! from test job!"));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/cancel?id=0").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    String expectedJson = mapper.writeValueAsString(Map.of("message", "Job with id 0 cancelled"));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(() -> verify(jobsRepository, times(3)).save(any(Job.class)));
+    ArgumentCaptor<Job> savedJob = ArgumentCaptor.forClass(Job.class);
+    verify(jobsRepository, times(3)).save(savedJob.capture());
+    assertEquals("cancelled", savedJob.getValue().getStatus());
+    verify(jobLogStore).append(eq(0L), endsWith(" WARN Cancelled"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void cancelling_a_job_running_on_another_node_says_which() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.existsById(5L)).thenReturn(true);
+    when(jobsRepository.requestCancel(eq(5L), any(), any())).thenReturn(1);
+    Job job =
         Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
+            .id(5L)
             .status("running")
-            .log("Hello World! from test job!")
+            .leaseOwner("node-b")
+            .cancelRequestedAt(ZonedDateTime.now())
             .build();
+    when(jobsRepository.findById(5L)).thenReturn(Optional.of(job));
 
-    Job jobFailed =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("error")
-            .log("Hello World! from test job!\nFail!")
-            .build();
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/cancel?id=5").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
 
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobFailed);
+    // assert
+    String expectedJson =
+        mapper.writeValueAsString(
+            Map.of(
+                "message",
+                "Job with id 5 is running on node node-b, which will cancel it at its next"
+                    + " heartbeat"));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void cancelling_a_job_another_node_stopped_already_says_it_is_cancelled()
+      throws Exception {
+    when(jobsRepository.existsById(5L)).thenReturn(true);
+    when(jobsRepository.requestCancel(eq(5L), any(), any())).thenReturn(1);
+    Job job =
+        Job.builder().id(5L).status("cancelled").cancelRequestedAt(ZonedDateTime.now()).build();
+    when(jobsRepository.findById(5L)).thenReturn(Optional.of(job));
+
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/cancel?id=5").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    String expectedJson = mapper.writeValueAsString(Map.of("message", "Job with id 5 cancelled"));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void cancelling_a_job_that_is_not_running_says_so() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.existsById(5L)).thenReturn(true);
 
     // act
     MvcResult response =
         mockMvc
-            .perform(post("/api/jobs/launch/testjob?fail=true&sleepMs=4000").with(csrf()))
+            .perform(post("/api/jobs/cancel?id=5").with(csrf()))
             .andExpect(status().isOk())
             .andReturn();
 
-    String responseString = response.getResponse().getContentAsString();
-    Job jobReturned = objectMapper.readValue(responseString, Job.class);
+    // assert
+    String expectedJson =
+        mapper.writeValueAsString(Map.of("message", "Job with id 5 is not queued or running"));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
 
-    assertEquals("running", jobReturned.getStatus());
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_resume_a_failed_job() throws Exception {
+    when(jobsRepository.existsById(5L)).thenReturn(true);
+    when(jobsRepository.resume(5L)).thenReturn(1);
 
-    await()
-        .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/resume?id=5").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    String expectedJson = mapper.writeValueAsString(Map.of("message", "Job with id 5 resumed"));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+    verify(jobLogStore)
+        .append(eq(5L), endsWith(" INFO Resumed from the start; no checkpoint was saved"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void resuming_a_job_that_cannot_be_resumed_says_so() throws Exception {
+    when(jobsRepository.existsById(5L)).thenReturn(true);
+    when(jobsRepository.resume(5L)).thenReturn(0);
+
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/resume?id=5").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    String expectedJson =
+        mapper.writeValueAsString(Map.of("message", "Job with id 5 cannot be resumed"));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void resuming_a_job_that_does_not_exist_returns_404() throws Exception {
+    when(jobsRepository.existsById(6L)).thenReturn(false);
 
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/resume?id=6").with(csrf()))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Job with id 6 not found", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void users_cannot_resume_jobs() throws Exception {
+    mockMvc.perform(post("/api/jobs/resume?id=5").with(csrf())).andExpect(status().isForbidden());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void cancelling_a_job_that_does_not_exist_returns_404() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.existsById(6L)).thenReturn(false);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/cancel?id=6").with(csrf()))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("EntityNotFoundException", json.get("type"));
+    assertEquals("Job with id 6 not found", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void launching_a_job_when_the_queue_is_full_returns_429() throws Exception {
+
+    // arrange
+
+    doReturn(0).when(jobExecutor).getIdleCapacity();
+    when(jobsRepository.countUnleased()).thenReturn(100L);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=0").with(csrf()))
+            .andExpect(status().isTooManyRequests())
+            .andReturn();
+
+    // assert
+
+    verify(jobsRepository, never()).save(any(Job.class));
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("JobQueueFullException", json.get("type"));
+    assertEquals("Job queue is full (100 jobs waiting); try again later", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void a_job_launched_on_a_busy_node_is_left_for_another_node() throws Exception {
+
+    // arrange
+
+    doReturn(0).when(jobExecutor).getIdleCapacity();
+    when(jobsRepository.save(any(Job.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=0").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    Job jobReturned =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    assertEquals("queued", jobReturned.getStatus());
+    assertEquals("TestJob", jobReturned.getType());
+    assertEquals("{\"fail\":false,\"sleepMs\":0,\"tasks\":0}", jobReturned.getParams());
+    assertNull(jobReturned.getLeaseOwner());
+    verify(jobExecutor, never()).submit(any(Runnable.class));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void a_job_that_loses_the_race_for_a_run_slot_is_left_for_another_node() throws Exception {
+
+    // arrange
+
+    doThrow(new JobQueueFullException(100)).when(jobExecutor).submit(any(Runnable.class));
+    when(jobsRepository.save(any(Job.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=0").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    Job jobReturned =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    assertNull(jobReturned.getLeaseOwner());
+    verify(jobsRepository, times(2)).save(any(Job.class));
+    verify(jobsRepository, never()).delete(any(Job.class));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_job_metrics() throws Exception {
+
+    // arrange
+
+    Map<String, Object> metrics = Map.of("TestJob", Map.of("outcomes", Map.of("complete", 2)));
+    when(jobMetrics.snapshot()).thenReturn(metrics);
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/metrics")).andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    assertEquals(mapper.writeValueAsString(metrics), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_users_cannot_get_job_usage() throws Exception {
+    mockMvc.perform(get("/api/jobs/usage")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_job_usage_per_type() throws Exception {
+
+    // arrange
+
+    List<JobTypeUsage> usage =
+        List.of(
+            JobTypeUsage.builder()
+                .type("TestJob")
+                .jobs(2)
+                .totalCpuMs(30L)
+                .averageCpuMs(15.0)
+                .maxCpuMs(20L)
+                .totalAllocatedBytes(4_000L)
+                .averageAllocatedBytes(2_000.0)
+                .maxAllocatedBytes(3_000L)
+                .build());
+    when(jobsRepository.summarizeUsageByType()).thenReturn(usage);
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/usage")).andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    assertEquals(mapper.writeValueAsString(usage), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void launched_jobs_are_recorded_in_the_metrics() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.save(any(Job.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    mockMvc
+        .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=0").with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert
     await()
         .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(3)).save(eq(jobFailed)));
+        .untilAsserted(
+            () ->
+                verify(jobMetrics)
+                    .record(
+                        eq("TestJob"), eq("complete"), anyLong(), anyLong(), anyLong(), eq(2L)));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_queue_depth() throws Exception {
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/queue")).andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(0, json.get("queued"));
+    assertEquals(0, json.get("running"));
+    assertEquals(jobExecutor.getMaxQueued(), json.get("maxQueued"));
+    assertEquals(jobExecutor.getMaxConcurrent(), json.get("maxConcurrent"));
   }
 }
@@ -1,8 +1,13 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -15,18 +20,25 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.errors.BulkInsertException;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -49,6 +61,7 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(menuItemReviewRepository.findBy(any(), any())).thenReturn(List.of());
     mockMvc.perform(get("/api/menuitemreviews/all")).andExpect(status().is(200)); // logged
   }
 
@@ -95,7 +108,7 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
     ArrayList<MenuItemReview> expectedReviews = new ArrayList<>();
     expectedReviews.addAll(Arrays.asList(menuItemReview1, menuItemReview2));
 
-    when(menuItemReviewRepository.findAll()).thenReturn(expectedReviews);
+    when(menuItemReviewRepository.findBy(any(), any())).thenReturn(expectedReviews);
 
     // act
     MvcResult response =
@@ -103,12 +116,49 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(menuItemReviewRepository, times(1)).findAll();
+    verify(menuItemReviewRepository, times(1)).findBy(any(), any());
     String expectedJson = mapper.writeValueAsString(expectedReviews);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  private FetchableFluentQuery<MenuItemReview> queryReturning(List<MenuItemReview> rows) {
+    FetchableFluentQuery<MenuItemReview> query = mock(FetchableFluentQuery.class, RETURNS_SELF);
+    when(query.all()).thenReturn(rows);
+    when(menuItemReviewRepository.findBy(any(), any()))
+        .thenAnswer(
+            invocation ->
+                invocation
+                    .<Function<FetchableFluentQuery<MenuItemReview>, List<MenuItemReview>>>
+                        getArgument(1)
+                    .apply(query));
+    return query;
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_gets_every_menuitemreview_on_one_page_without_limit_or_after()
+      throws Exception {
+
+    // arrange
+    List<MenuItemReview> rows = new ArrayList<>();
+    for (long id = 1; id <= KeysetPager.MAX_LIMIT + 1; id++) {
+      rows.add(
+          MenuItemReview.builder().id(id).reviewerEmail("reviewer" + id + "@ucsb.edu").build());
+    }
+    FetchableFluentQuery<MenuItemReview> query = queryReturning(rows);
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/menuitemreviews/all")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    verify(query).sortBy(Sort.by(Direction.ASC, "id"));
+    verify(query, never()).limit(anyInt());
+    assertNull(response.getResponse().getHeader("Link"));
+    assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void an_admin_user_can_post_a_new_menuitemreview() throws Exception {
@@ -320,7 +370,7 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
 
     // assert
     verify(menuItemReviewRepository, times(1)).findById(15L);
-    verify(menuItemReviewRepository, times(1)).delete(any());
+    verify(menuItemReviewRepository, times(1)).delete(any(MenuItemReview.class));
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("MenuItemReview with id 15 deleted", json.get("message"));
@@ -346,4 +396,82 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("MenuItemReview with id 15 not found", json.get("message"));
   }
+
+  // Tests for /api/menuitemreviews/bulk
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_post_in_bulk() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/menuitemreviews/bulk")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_menuitemreviews_in_bulk() throws Exception {
+    // arrange
+    MenuItemReview first = MenuItemReview.builder().id(7L).reviewerEmail("first").build();
+    MenuItemReview second = MenuItemReview.builder().reviewerEmail("second").build();
+    // the id of the first is ignored, so it is saved as a new row
+    List<MenuItemReview> expected =
+        List.of(MenuItemReview.builder().reviewerEmail("first").build(), second);
+    List<MenuItemReview> saved =
+        List.of(
+            MenuItemReview.builder().id(1L).reviewerEmail("first").build(),
+            MenuItemReview.builder().id(2L).reviewerEmail("second").build());
+
+    when(bulkInserter.saveAll(eq(menuItemReviewRepository), eq(expected))).thenReturn(saved);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/menuitemreviews/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(first, second))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkInserter, times(1)).saveAll(eq(menuItemReviewRepository), eq(expected));
+    assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_is_told_when_none_of_a_bulk_post_was_saved() throws Exception {
+    // arrange
+    MenuItemReview review = MenuItemReview.builder().reviewerEmail("first").build();
+    when(bulkInserter.saveAll(eq(menuItemReviewRepository), eq(List.of(review))))
+        .thenThrow(
+            new BulkInsertException(
+                1,
+                0,
+                0,
+                new DataIntegrityViolationException("value too long for column COMMENTS")));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/menuitemreviews/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(review))))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("BulkInsertException", json.get("type"));
+    // the database's message, which may name tables and columns, is not passed on
+    assertEquals(
+        "None of the 1 rows were saved; the row at index 0 was refused", json.get("message"));
+  }
 }
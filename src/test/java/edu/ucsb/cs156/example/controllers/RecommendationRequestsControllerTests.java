@@ -1,8 +1,14 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -20,13 +26,18 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -43,12 +54,13 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
         .perform(get("/api/recommendationrequests/all"))
         .andExpect(status().is(403)); // logged out users can't get all
 
-    verify(recommendationRequestRepository, times(0)).findAll();
+    verify(recommendationRequestRepository, times(0)).findBy(any(), any());
   }
 
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(recommendationRequestRepository.findBy(any(), any())).thenReturn(List.of());
     mockMvc.perform(get("/api/recommendationrequests/all")).andExpect(status().is(200)); // logged
   }
 
@@ -88,7 +100,8 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
     ArrayList<RecommendationRequest> expectedRecommendationRequests = new ArrayList<>();
     expectedRecommendationRequests.add(recommendationRequest1);
 
-    when(recommendationRequestRepository.findAll()).thenReturn(expectedRecommendationRequests);
+    when(recommendationRequestRepository.findBy(any(), any()))
+        .thenReturn(expectedRecommendationRequests);
 
     // act
     MvcResult response =
@@ -99,12 +112,59 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(recommendationRequestRepository, times(1)).findAll();
+    verify(recommendationRequestRepository, times(1)).findBy(any(), any());
     String expectedJson = mapper.writeValueAsString(expectedRecommendationRequests);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  private FetchableFluentQuery<RecommendationRequest> queryReturning(
+      List<RecommendationRequest> rows) {
+    FetchableFluentQuery<RecommendationRequest> query =
+        mock(FetchableFluentQuery.class, RETURNS_SELF);
+    when(query.all()).thenReturn(rows);
+    when(recommendationRequestRepository.findBy(any(), any()))
+        .thenAnswer(
+            invocation ->
+                invocation
+                    .<Function<
+                            FetchableFluentQuery<RecommendationRequest>,
+                            List<RecommendationRequest>>>
+                        getArgument(1)
+                    .apply(query));
+    return query;
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_gets_every_recommendationrequest_on_one_page_without_limit_or_after()
+      throws Exception {
+
+    // arrange
+    List<RecommendationRequest> rows = new ArrayList<>();
+    for (long id = 1; id <= KeysetPager.MAX_LIMIT + 1; id++) {
+      rows.add(
+          RecommendationRequest.builder()
+              .id(id)
+              .requesterEmail("requester" + id + "@ucsb.edu")
+              .build());
+    }
+    FetchableFluentQuery<RecommendationRequest> query = queryReturning(rows);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/recommendationrequests/all"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(query).sortBy(Sort.by(Direction.ASC, "id"));
+    verify(query, never()).limit(anyInt());
+    assertNull(response.getResponse().getHeader("Link"));
+    assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void an_admin_user_can_post_a_new_recommendationrequest() throws Exception {
@@ -362,4 +422,51 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("RecommendationRequest with id 15 not found", json.get("message"));
   }
+
+  // Tests for /api/recommendationrequests/bulk
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_post_in_bulk() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/recommendationrequests/bulk")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_recommendationrequests_in_bulk() throws Exception {
+    // arrange
+    RecommendationRequest first =
+        RecommendationRequest.builder().id(7L).requesterEmail("first").build();
+    RecommendationRequest second = RecommendationRequest.builder().requesterEmail("second").build();
+    // the id of the first is ignored, so it is saved as a new row
+    List<RecommendationRequest> expected =
+        List.of(RecommendationRequest.builder().requesterEmail("first").build(), second);
+    List<RecommendationRequest> saved =
+        List.of(
+            RecommendationRequest.builder().id(1L).requesterEmail("first").build(),
+            RecommendationRequest.builder().id(2L).requesterEmail("second").build());
+
+    when(bulkInserter.saveAll(eq(recommendationRequestRepository), eq(expected))).thenReturn(saved);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/recommendationrequests/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(first, second))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkInserter, times(1)).saveAll(eq(recommendationRequestRepository), eq(expected));
+    assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+  }
 }
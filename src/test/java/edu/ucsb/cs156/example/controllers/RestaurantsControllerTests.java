@@ -1,8 +1,13 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -17,11 +22,16 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -47,6 +57,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(restaurantRepository.findBy(any(), any())).thenReturn(List.of());
     mockMvc.perform(get("/api/restaurants/all")).andExpect(status().is(200)); // logged
   }
 
@@ -131,7 +142,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
     ArrayList<Restaurant> expectedRestaurants = new ArrayList<>();
     expectedRestaurants.addAll(Arrays.asList(restaurant1, restaurant2));
 
-    when(restaurantRepository.findAll()).thenReturn(expectedRestaurants);
+    when(restaurantRepository.findBy(any(), any())).thenReturn(expectedRestaurants);
 
     // act
     MvcResult response =
@@ -139,12 +150,47 @@ public class RestaurantsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(restaurantRepository, times(1)).findAll();
+    verify(restaurantRepository, times(1)).findBy(any(), any());
     String expectedJson = mapper.writeValueAsString(expectedRestaurants);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  private FetchableFluentQuery<Restaurant> queryReturning(List<Restaurant> rows) {
+    FetchableFluentQuery<Restaurant> query = mock(FetchableFluentQuery.class, RETURNS_SELF);
+    when(query.all()).thenReturn(rows);
+    when(restaurantRepository.findBy(any(), any()))
+        .thenAnswer(
+            invocation ->
+                invocation
+                    .<Function<FetchableFluentQuery<Restaurant>, List<Restaurant>>>getArgument(1)
+                    .apply(query));
+    return query;
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_gets_every_restaurant_on_one_page_without_limit_or_after()
+      throws Exception {
+
+    // arrange
+    List<Restaurant> rows = new ArrayList<>();
+    for (long id = 1; id <= KeysetPager.MAX_LIMIT + 1; id++) {
+      rows.add(Restaurant.builder().id(id).name("restaurant " + id).build());
+    }
+    FetchableFluentQuery<Restaurant> query = queryReturning(rows);
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/restaurants/all")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    verify(query).sortBy(Sort.by(Direction.ASC, "id"));
+    verify(query, never()).limit(anyInt());
+    assertNull(response.getResponse().getHeader("Link"));
+    assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void an_admin_user_can_post_a_new_restaurant() throws Exception {
@@ -186,7 +232,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
 
     // assert
     verify(restaurantRepository, times(1)).findById(15L);
-    verify(restaurantRepository, times(1)).delete(any());
+    verify(restaurantRepository, times(1)).delete(any(Restaurant.class));
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("Restaurant with id 15 deleted", json.get("message"));
@@ -277,4 +323,49 @@ public class RestaurantsControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("Restaurant with id 67 not found", json.get("message"));
   }
+
+  // Tests for /api/restaurants/bulk
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_post_in_bulk() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/restaurants/bulk")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_restaurants_in_bulk() throws Exception {
+    // arrange
+    Restaurant first = Restaurant.builder().id(7L).name("first").build();
+    Restaurant second = Restaurant.builder().name("second").build();
+    // the id of the first is ignored, so it is saved as a new row
+    List<Restaurant> expected = List.of(Restaurant.builder().name("first").build(), second);
+    List<Restaurant> saved =
+        List.of(
+            Restaurant.builder().id(1L).name("first").build(),
+            Restaurant.builder().id(2L).name("second").build());
+
+    when(bulkInserter.saveAll(eq(restaurantRepository), eq(expected))).thenReturn(saved);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/restaurants/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(first, second))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkInserter, times(1)).saveAll(eq(restaurantRepository), eq(expected));
+    assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+  }
 }
@@ -1,8 +1,13 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -18,12 +23,19 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
@@ -48,6 +60,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(ucsbDateRepository.findBy(any(), any())).thenReturn(List.of());
     mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().is(200)); // logged
   }
 
@@ -150,7 +163,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
     ArrayList<UCSBDate> expectedDates = new ArrayList<>();
     expectedDates.addAll(Arrays.asList(ucsbDate1, ucsbDate2));
 
-    when(ucsbDateRepository.findAll()).thenReturn(expectedDates);
+    when(ucsbDateRepository.findBy(any(), any())).thenReturn(expectedDates);
 
     // act
     MvcResult response =
@@ -158,10 +171,168 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(ucsbDateRepository, times(1)).findAll();
+    verify(ucsbDateRepository, times(1)).findBy(any(), any());
     String expectedJson = mapper.writeValueAsString(expectedDates);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
+    assertNull(response.getResponse().getHeader("Link"));
+  }
+
+  private FetchableFluentQuery<UCSBDate> queryReturning(List<UCSBDate> rows) {
+    FetchableFluentQuery<UCSBDate> query = mock(FetchableFluentQuery.class, RETURNS_SELF);
+    when(query.all()).thenReturn(rows);
+    when(ucsbDateRepository.findBy(any(), any()))
+        .thenAnswer(
+            invocation ->
+                invocation
+                    .<Function<FetchableFluentQuery<UCSBDate>, List<UCSBDate>>>getArgument(1)
+                    .apply(query));
+    return query;
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_gets_every_ucsbdate_on_one_page_without_limit_or_after()
+      throws Exception {
+
+    // arrange
+    List<UCSBDate> rows = new ArrayList<>();
+    for (long id = 1; id <= KeysetPager.MAX_LIMIT + 1; id++) {
+      rows.add(UCSBDate.builder().id(id).name("date " + id).build());
+    }
+    FetchableFluentQuery<UCSBDate> query = queryReturning(rows);
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    verify(query).sortBy(Sort.by(Direction.ASC, "id"));
+    verify(query, never()).limit(anyInt());
+    assertNull(response.getResponse().getHeader("Link"));
+    assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_gets_a_link_to_the_next_page_of_ucsbdates() throws Exception {
+
+    // arrange
+    UCSBDate ucsbDate1 =
+        UCSBDate.builder()
+            .id(1L)
+            .name("firstDayOfClasses")
+            .quarterYYYYQ("20222")
+            .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+            .build();
+    UCSBDate ucsbDate2 =
+        UCSBDate.builder()
+            .id(2L)
+            .name("lastDayOfClasses")
+            .quarterYYYYQ("20222")
+            .localDateTime(LocalDateTime.parse("2022-03-11T00:00:00"))
+            .build();
+
+    // one more than the limit, so there is a next page
+    when(ucsbDateRepository.findBy(any(), any())).thenReturn(List.of(ucsbDate1, ucsbDate2));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdates/all?quarterYYYYQ=20222&sort=name&limit=1"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        mapper.writeValueAsString(List.of(ucsbDate1)), response.getResponse().getContentAsString());
+    String cursor =
+        Base64.getUrlEncoder()
+            .withoutPadding()
+            .encodeToString("[\"name,asc\",\"1\",\"firstDayOfClasses\"]".getBytes());
+    assertEquals(
+        "<http://localhost/api/ucsbdates/all?quarterYYYYQ=20222&sort=name&limit=1&after=%s>;"
+                .formatted(cursor)
+            + " rel=\"next\"",
+        response.getResponse().getHeader("Link"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_stream_all_ucsbdates_as_a_json_array() throws Exception {
+
+    // arrange
+    when(rowStreamer.stream(eq(UCSBDate.class), any(), any(), any(), eq(false)))
+        .thenReturn(ResponseEntity.ok().build());
+
+    // act
+    mockMvc
+        .perform(get("/api/ucsbdates/all?stream=true&quarterYYYYQ=20222&sort=name,desc&limit=1"))
+        .andExpect(status().isOk());
+
+    // assert
+    verify(rowStreamer, times(1)).stream(
+        eq(UCSBDate.class),
+        any(),
+        eq(Map.of("quarterYYYYQ", "20222")),
+        eq(Sort.by(Direction.DESC, "name", "id")),
+        eq(false));
+    verify(ucsbDateRepository, times(0)).findBy(any(), any());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_stream_all_ucsbdates_as_ndjson() throws Exception {
+
+    // arrange
+    when(rowStreamer.stream(eq(UCSBDate.class), any(), any(), any(), eq(true)))
+        .thenReturn(ResponseEntity.ok().build());
+
+    // act
+    mockMvc
+        .perform(get("/api/ucsbdates/all").accept(MediaType.APPLICATION_NDJSON))
+        .andExpect(status().isOk());
+
+    // assert
+    verify(rowStreamer, times(1)).stream(
+        eq(UCSBDate.class), any(), eq(Map.of()), eq(Sort.by(Direction.ASC, "id")), eq(true));
+    verify(ucsbDateRepository, times(0)).findBy(any(), any());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_cannot_sort_ucsbdates_by_an_unlisted_column() throws Exception {
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdates/all?sort=secret"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    verify(ucsbDateRepository, times(0)).findBy(any(), any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("InvalidPageRequestException", json.get("type"));
+    assertEquals(
+        "Cannot sort by secret; sort by one of id, quarterYYYYQ, name, localDateTime",
+        json.get("message"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_cannot_use_a_cursor_that_cannot_be_read() throws Exception {
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdates/all?after=notacursor"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Cursor notacursor cannot be read", json.get("message"));
   }
 
   @WithMockUser(roles = {"ADMIN", "USER"})
@@ -221,7 +392,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
     // assert
     verify(ucsbDateRepository, times(1)).findById(15L);
-    verify(ucsbDateRepository, times(1)).delete(any());
+    verify(ucsbDateRepository, times(1)).delete(any(UCSBDate.class));
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDate with id 15 deleted", json.get("message"));
@@ -328,4 +499,49 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDate with id 67 not found", json.get("message"));
   }
+
+  // Tests for /api/ucsbdates/bulk
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_post_in_bulk() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/ucsbdates/bulk")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_ucsbdates_in_bulk() throws Exception {
+    // arrange
+    UCSBDate first = UCSBDate.builder().id(7L).name("first").build();
+    UCSBDate second = UCSBDate.builder().name("second").build();
+    // the id of the first is ignored, so it is saved as a new row
+    List<UCSBDate> expected = List.of(UCSBDate.builder().name("first").build(), second);
+    List<UCSBDate> saved =
+        List.of(
+            UCSBDate.builder().id(1L).name("first").build(),
+            UCSBDate.builder().id(2L).name("second").build());
+
+    when(bulkInserter.saveAll(eq(ucsbDateRepository), eq(expected))).thenReturn(saved);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdates/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(first, second))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkInserter, times(1)).saveAll(eq(ucsbDateRepository), eq(expected));
+    assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+  }
 }
@@ -1,8 +1,13 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -17,11 +22,16 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -47,6 +57,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(ucsbDiningCommonsRepository.findBy(any(), any())).thenReturn(List.of());
     mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().is(200)); // logged
   }
 
@@ -163,7 +174,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
     ArrayList<UCSBDiningCommons> expectedCommons = new ArrayList<>();
     expectedCommons.addAll(Arrays.asList(carrillo, dlg));
 
-    when(ucsbDiningCommonsRepository.findAll()).thenReturn(expectedCommons);
+    when(ucsbDiningCommonsRepository.findBy(any(), any())).thenReturn(expectedCommons);
 
     // act
     MvcResult response =
@@ -171,12 +182,48 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+    verify(ucsbDiningCommonsRepository, times(1)).findBy(any(), any());
     String expectedJson = mapper.writeValueAsString(expectedCommons);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  private FetchableFluentQuery<UCSBDiningCommons> queryReturning(List<UCSBDiningCommons> rows) {
+    FetchableFluentQuery<UCSBDiningCommons> query = mock(FetchableFluentQuery.class, RETURNS_SELF);
+    when(query.all()).thenReturn(rows);
+    when(ucsbDiningCommonsRepository.findBy(any(), any()))
+        .thenAnswer(
+            invocation ->
+                invocation
+                    .<Function<FetchableFluentQuery<UCSBDiningCommons>, List<UCSBDiningCommons>>>
+                        getArgument(1)
+                    .apply(query));
+    return query;
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_gets_every_ucsbdiningcommons_on_one_page_without_limit_or_after()
+      throws Exception {
+
+    // arrange
+    List<UCSBDiningCommons> rows = new ArrayList<>();
+    for (int n = 1; n <= KeysetPager.MAX_LIMIT + 1; n++) {
+      rows.add(UCSBDiningCommons.builder().code("commons" + n).name("commons " + n).build());
+    }
+    FetchableFluentQuery<UCSBDiningCommons> query = queryReturning(rows);
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    verify(query).sortBy(Sort.by(Direction.ASC, "code"));
+    verify(query, never()).limit(anyInt());
+    assertNull(response.getResponse().getHeader("Link"));
+    assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void an_admin_user_can_post_a_new_commons() throws Exception {
@@ -238,7 +285,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
     // assert
     verify(ucsbDiningCommonsRepository, times(1)).findById("portola");
-    verify(ucsbDiningCommonsRepository, times(1)).delete(any());
+    verify(ucsbDiningCommonsRepository, times(1)).delete(any(UCSBDiningCommons.class));
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDiningCommons with id portola deleted", json.get("message"));
@@ -354,4 +401,45 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
   }
+
+  // Tests for /api/ucsbdiningcommons/bulk
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_post_in_bulk() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/ucsbdiningcommons/bulk")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_ucsbdiningcommons_in_bulk() throws Exception {
+    // arrange
+    UCSBDiningCommons first = UCSBDiningCommons.builder().code("first").build();
+    UCSBDiningCommons second = UCSBDiningCommons.builder().code("second").build();
+    List<UCSBDiningCommons> expected = List.of(first, second);
+    List<UCSBDiningCommons> saved = expected;
+
+    when(bulkInserter.saveAll(eq(ucsbDiningCommonsRepository), eq(expected))).thenReturn(saved);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdiningcommons/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(first, second))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkInserter, times(1)).saveAll(eq(ucsbDiningCommonsRepository), eq(expected));
+    assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+  }
 }
@@ -1,8 +1,13 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -21,12 +26,18 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -96,7 +107,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
     ArrayList<UCSBDiningCommonsMenuItem> expectedItems =
         new ArrayList<>(Arrays.asList(item1, item2));
 
-    when(ucsbDiningCommonsMenuItemRepository.findAll()).thenReturn(expectedItems);
+    when(ucsbDiningCommonsMenuItemRepository.findBy(any(), any())).thenReturn(expectedItems);
 
     MvcResult response =
         mockMvc
@@ -104,12 +115,56 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
             .andExpect(status().isOk())
             .andReturn();
 
-    verify(ucsbDiningCommonsMenuItemRepository, times(1)).findAll();
+    verify(ucsbDiningCommonsMenuItemRepository, times(1)).findBy(any(), any());
     String expectedJson = mapper.writeValueAsString(expectedItems);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  private FetchableFluentQuery<UCSBDiningCommonsMenuItem> queryReturning(
+      List<UCSBDiningCommonsMenuItem> rows) {
+    FetchableFluentQuery<UCSBDiningCommonsMenuItem> query =
+        mock(FetchableFluentQuery.class, RETURNS_SELF);
+    when(query.all()).thenReturn(rows);
+    when(ucsbDiningCommonsMenuItemRepository.findBy(any(), any()))
+        .thenAnswer(
+            invocation ->
+                invocation
+                    .<Function<
+                            FetchableFluentQuery<UCSBDiningCommonsMenuItem>,
+                            List<UCSBDiningCommonsMenuItem>>>
+                        getArgument(1)
+                    .apply(query));
+    return query;
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void
+      logged_in_user_gets_every_ucsbdiningcommonsmenuitem_on_one_page_without_limit_or_after()
+          throws Exception {
+
+    // arrange
+    List<UCSBDiningCommonsMenuItem> rows = new ArrayList<>();
+    for (long id = 1; id <= KeysetPager.MAX_LIMIT + 1; id++) {
+      rows.add(UCSBDiningCommonsMenuItem.builder().id(id).name("item " + id).build());
+    }
+    FetchableFluentQuery<UCSBDiningCommonsMenuItem> query = queryReturning(rows);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommonsmenuitem/all"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(query).sortBy(Sort.by(Direction.ASC, "id"));
+    verify(query, never()).limit(anyInt());
+    assertNull(response.getResponse().getHeader("Link"));
+    assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+  }
+
   // POST /api/ucsbdiningcommonsmenuitem/post
   @Test
   public void logged_out_users_cannot_post() throws Exception {
@@ -138,7 +193,8 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
     MvcResult response =
         mockMvc
             .perform(
-                post("/api/ucsbdiningcommonsmenuitem/post?diningCommonsCode=carrillo&name=Chicken Parmesan&station=Main")
+                post("/api/ucsbdiningcommonsmenuitem/post?diningCommonsCode=carrillo&name=Chicken"
+                        + " Parmesan&station=Main")
                     .with(csrf()))
             .andExpect(status().isOk())
             .andReturn();
@@ -190,7 +246,8 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
     JsonNode expected =
         mapper.readTree(
-            "{\"message\":\"UCSBDiningCommonsMenuItem with id 999 not found\",\"type\":\"EntityNotFoundException\"}");
+            "{\"message\":\"UCSBDiningCommonsMenuItem with id 999 not"
+                + " found\",\"type\":\"EntityNotFoundException\"}");
     JsonNode actual = mapper.readTree(responseString);
     assertEquals(expected, actual);
   }
@@ -275,7 +332,8 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
     String responseString = response.getResponse().getContentAsString();
     JsonNode expected =
         mapper.readTree(
-            "{\"message\":\"UCSBDiningCommonsMenuItem with id 99 not found\",\"type\":\"EntityNotFoundException\"}");
+            "{\"message\":\"UCSBDiningCommonsMenuItem with id 99 not"
+                + " found\",\"type\":\"EntityNotFoundException\"}");
     JsonNode actual = mapper.readTree(responseString);
     assertEquals(expected, actual);
   }
@@ -319,13 +377,63 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
             .andReturn();
 
     verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(999L);
-    verify(ucsbDiningCommonsMenuItemRepository, times(0)).delete(any());
+    verify(ucsbDiningCommonsMenuItemRepository, times(0))
+        .delete(any(UCSBDiningCommonsMenuItem.class));
 
     String responseString = response.getResponse().getContentAsString();
     JsonNode expected =
         mapper.readTree(
-            "{\"message\":\"UCSBDiningCommonsMenuItem with id 999 not found\",\"type\":\"EntityNotFoundException\"}");
+            "{\"message\":\"UCSBDiningCommonsMenuItem with id 999 not"
+                + " found\",\"type\":\"EntityNotFoundException\"}");
     JsonNode actual = mapper.readTree(responseString);
     assertEquals(expected, actual);
   }
+
+  // Tests for /api/ucsbdiningcommonsmenuitem/bulk
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_post_in_bulk() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/ucsbdiningcommonsmenuitem/bulk")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_ucsbdiningcommonsmenuitem_in_bulk() throws Exception {
+    // arrange
+    UCSBDiningCommonsMenuItem first =
+        UCSBDiningCommonsMenuItem.builder().id(7L).name("first").build();
+    UCSBDiningCommonsMenuItem second = UCSBDiningCommonsMenuItem.builder().name("second").build();
+    // the id of the first is ignored, so it is saved as a new row
+    List<UCSBDiningCommonsMenuItem> expected =
+        List.of(UCSBDiningCommonsMenuItem.builder().name("first").build(), second);
+    List<UCSBDiningCommonsMenuItem> saved =
+        List.of(
+            UCSBDiningCommonsMenuItem.builder().id(1L).name("first").build(),
+            UCSBDiningCommonsMenuItem.builder().id(2L).name("second").build());
+
+    when(bulkInserter.saveAll(eq(ucsbDiningCommonsMenuItemRepository), eq(expected)))
+        .thenReturn(saved);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdiningcommonsmenuitem/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(first, second))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkInserter, times(1)).saveAll(eq(ucsbDiningCommonsMenuItemRepository), eq(expected));
+    assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+  }
 }
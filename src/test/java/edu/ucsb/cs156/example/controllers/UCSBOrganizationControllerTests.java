@@ -1,8 +1,13 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -20,11 +25,16 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -49,6 +59,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(ucsbOrganizationRepository.findBy(any(), any())).thenReturn(List.of());
     mockMvc
         .perform(get("/api/ucsborganization/all"))
         .andExpect(status().is(200)); // logged in users can get all
@@ -95,19 +106,56 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
     ArrayList<UCSBOrganization> expectedOrganizations = new ArrayList<>();
     expectedOrganizations.addAll(Arrays.asList(org1, org2));
 
-    when(ucsbOrganizationRepository.findAll()).thenReturn(expectedOrganizations);
+    when(ucsbOrganizationRepository.findBy(any(), any())).thenReturn(expectedOrganizations);
 
     // act
     MvcResult response =
         mockMvc.perform(get("/api/ucsborganization/all")).andExpect(status().isOk()).andReturn();
 
     // assert
-    verify(ucsbOrganizationRepository, times(1)).findAll();
+    verify(ucsbOrganizationRepository, times(1)).findBy(any(), any());
     String expectedJson = mapper.writeValueAsString(expectedOrganizations);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  private FetchableFluentQuery<UCSBOrganization> queryReturning(List<UCSBOrganization> rows) {
+    FetchableFluentQuery<UCSBOrganization> query = mock(FetchableFluentQuery.class, RETURNS_SELF);
+    when(query.all()).thenReturn(rows);
+    when(ucsbOrganizationRepository.findBy(any(), any()))
+        .thenAnswer(
+            invocation ->
+                invocation
+                    .<Function<FetchableFluentQuery<UCSBOrganization>, List<UCSBOrganization>>>
+                        getArgument(1)
+                    .apply(query));
+    return query;
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_gets_every_ucsborganization_on_one_page_without_limit_or_after()
+      throws Exception {
+
+    // arrange
+    List<UCSBOrganization> rows = new ArrayList<>();
+    for (int n = 1; n <= KeysetPager.MAX_LIMIT + 1; n++) {
+      rows.add(
+          UCSBOrganization.builder().orgCode("org" + n).orgTranslationShort("org " + n).build());
+    }
+    FetchableFluentQuery<UCSBOrganization> query = queryReturning(rows);
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/ucsborganization/all")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    verify(query).sortBy(Sort.by(Direction.ASC, "orgCode"));
+    verify(query, never()).limit(anyInt());
+    assertNull(response.getResponse().getHeader("Link"));
+    assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void an_admin_user_can_post_a_new_organization() throws Exception {
@@ -127,7 +175,8 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
     MvcResult response =
         mockMvc
             .perform(
-                post("/api/ucsborganization/post?orgCode=SKY&orgTranslationShort=SKYDIVING CLUB&orgTranslation=SKYDIVING CLUB AT UCSB&inactive=false")
+                post("/api/ucsborganization/post?orgCode=SKY&orgTranslationShort=SKYDIVING"
+                        + " CLUB&orgTranslation=SKYDIVING CLUB AT UCSB&inactive=false")
                     .with(csrf()))
             .andExpect(status().isOk())
             .andReturn();
@@ -158,7 +207,8 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
     MvcResult response =
         mockMvc
             .perform(
-                post("/api/ucsborganization/post?orgCode=OSLI&orgTranslationShort=STUDENT LIFE&orgTranslation=OFFICE OF STUDENT LIFE&inactive=true")
+                post("/api/ucsborganization/post?orgCode=OSLI&orgTranslationShort=STUDENT"
+                        + " LIFE&orgTranslation=OFFICE OF STUDENT LIFE&inactive=true")
                     .with(csrf()))
             .andExpect(status().isOk())
             .andReturn();
@@ -435,9 +485,50 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
     // assert
     verify(ucsbOrganizationRepository, times(1)).findById("DNE");
-    verify(ucsbOrganizationRepository, times(0)).delete(any());
+    verify(ucsbOrganizationRepository, times(0)).delete(any(UCSBOrganization.class));
     String responseString = response.getResponse().getContentAsString();
     assert responseString.contains("EntityNotFoundException");
     assert responseString.contains("DNE");
   }
+
+  // Tests for /api/ucsborganization/bulk
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_post_in_bulk() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/ucsborganization/bulk")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_ucsborganization_in_bulk() throws Exception {
+    // arrange
+    UCSBOrganization first = UCSBOrganization.builder().orgCode("first").build();
+    UCSBOrganization second = UCSBOrganization.builder().orgCode("second").build();
+    List<UCSBOrganization> expected = List.of(first, second);
+    List<UCSBOrganization> saved = expected;
+
+    when(bulkInserter.saveAll(eq(ucsbOrganizationRepository), eq(expected))).thenReturn(saved);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsborganization/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(first, second))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkInserter, times(1)).saveAll(eq(ucsbOrganizationRepository), eq(expected));
+    assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+  }
 }
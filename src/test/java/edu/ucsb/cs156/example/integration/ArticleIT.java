@@ -75,6 +75,52 @@ public class ArticleIT {
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_page_through_only_some_fields_of_articles() throws Exception {
+    // arrange
+    for (int i = 1; i <= 3; i++) {
+      articlesRepository.save(
+          Articles.builder()
+              .title("Article " + i)
+              .url("https://example.org/" + i)
+              .explanation("A long explanation of article " + i)
+              .email("author" + (4 - i) + "@ucsb.edu")
+              .dateAdded(LocalDateTime.parse("2025-10-25T00:00:00").plusDays(i))
+              .build());
+    }
+
+    // act
+    MvcResult first =
+        mockMvc
+            .perform(get("/api/articles/all?fields=title&sort=email&limit=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+    String link = first.getResponse().getHeader("Link");
+    MvcResult second =
+        mockMvc
+            .perform(get(link.substring(link.indexOf('<') + 1, link.indexOf('>'))))
+            .andExpect(status().isOk())
+            .andReturn();
+    MvcResult one =
+        mockMvc
+            .perform(get("/api/articles?id=2&fields=url,dateAdded"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        "[{\"id\":3,\"title\":\"Article 3\",\"email\":\"author1@ucsb.edu\"},"
+            + "{\"id\":2,\"title\":\"Article 2\",\"email\":\"author2@ucsb.edu\"}]",
+        first.getResponse().getContentAsString());
+    assertEquals(
+        "[{\"id\":1,\"title\":\"Article 1\",\"email\":\"author3@ucsb.edu\"}]",
+        second.getResponse().getContentAsString());
+    assertEquals(
+        "{\"id\":2,\"url\":\"https://example.org/2\",\"dateAdded\":\"2025-10-27T00:00:00\"}",
+        one.getResponse().getContentAsString());
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void an_admin_user_can_post_a_new_article() throws Exception {
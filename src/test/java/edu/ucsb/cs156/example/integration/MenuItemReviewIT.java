@@ -1,29 +1,40 @@
 package edu.ucsb.cs156.example.integration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.BulkInserter;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -40,6 +51,8 @@ public class MenuItemReviewIT {
 
   @Autowired MenuItemReviewRepository menuItemReviewRepository;
 
+  @Autowired BulkInserter bulkInserter;
+
   @Autowired public MockMvc mockMvc;
 
   @Autowired public ObjectMapper mapper;
@@ -71,4 +84,92 @@ public class MenuItemReviewIT {
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_menu_item_reviews_in_bulk() throws Exception {
+    // arrange
+    LocalDateTime ldt = LocalDateTime.parse("2025-11-11T12:04:00");
+    menuItemReviewRepository.save(
+        MenuItemReview.builder().itemId(1).reviewerEmail("first@ucsb.edu").stars(3).build());
+    List<MenuItemReview> incoming = new ArrayList<>();
+    for (int i = 0; i < 120; i++) {
+      incoming.add(
+          MenuItemReview.builder()
+              .id(1) // ignored
+              .itemId(i)
+              .reviewerEmail("reviewer" + i + "@ucsb.edu")
+              .stars(i % 5 + 1)
+              .dateReviewed(ldt.plusMinutes(i))
+              .comments("review " + i)
+              .build());
+    }
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/menuitemreviews/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    List<MenuItemReview> saved =
+        mapper.readValue(
+            response.getResponse().getContentAsString(),
+            new TypeReference<List<MenuItemReview>>() {});
+    assertEquals(120, saved.size());
+    Set<Long> ids = new HashSet<>();
+    for (int i = 0; i < 120; i++) {
+      assertTrue(saved.get(i).getId() > 1);
+      ids.add(saved.get(i).getId());
+      incoming.get(i).setId(saved.get(i).getId());
+    }
+    assertEquals(120, ids.size());
+    assertEquals(121, menuItemReviewRepository.count());
+    for (MenuItemReview review : incoming) {
+      assertEquals(review, menuItemReviewRepository.findById(review.getId()).get());
+    }
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void a_bulk_post_refused_part_way_through_saves_nothing() throws Exception {
+    // arrange: chunks of two rows, and a row in the second chunk too long for its column
+    ReflectionTestUtils.setField(bulkInserter, "chunkSize", 2);
+    List<MenuItemReview> incoming = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      incoming.add(
+          MenuItemReview.builder()
+              .itemId(i)
+              .reviewerEmail("reviewer" + i + "@ucsb.edu")
+              .stars(3)
+              .comments(i == 3 ? "x".repeat(300) : "review " + i)
+              .build());
+    }
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/menuitemreviews/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json =
+        mapper.readValue(
+            response.getResponse().getContentAsString(),
+            new TypeReference<Map<String, Object>>() {});
+    assertEquals("BulkInsertException", json.get("type"));
+    assertEquals(
+        "None of the 5 rows were saved; a row at index 2 to 3 was refused", json.get("message"));
+    assertEquals(0, menuItemReviewRepository.count());
+  }
 }
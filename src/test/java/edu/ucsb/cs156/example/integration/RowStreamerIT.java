@@ -0,0 +1,212 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.controllers.KeysetPager;
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.RowStreamer;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/** Checks that rows streamed from JDBC are written as the same JSON as the entities would be. */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class RowStreamerIT {
+  @Autowired RowStreamer rowStreamer;
+
+  @Autowired ObjectMapper mapper;
+
+  @Autowired ArticlesRepository articlesRepository;
+
+  @Autowired HelpRequestRepository helpRequestRepository;
+
+  @Autowired MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired RecommendationRequestRepository recommendationRequestRepository;
+
+  @Autowired RestaurantRepository restaurantRepository;
+
+  @Autowired UCSBDateRepository ucsbDateRepository;
+
+  @Autowired UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @MockitoBean UserRepository userRepository;
+
+  private static final LocalDateTime TIME = LocalDateTime.parse("2022-01-03T10:15:30.250");
+
+  private String streamed(
+      boolean jdbc,
+      Class<?> entityType,
+      Map<String, Object> equalTo,
+      Sort sort,
+      boolean ndjson,
+      Specification<?> where)
+      throws Exception {
+    ReflectionTestUtils.setField(rowStreamer, "jdbc", jdbc);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ResponseEntity<StreamingResponseBody> response =
+        rowStreamer.stream((Class) entityType, (Specification) where, equalTo, sort, ndjson);
+    response.getBody().writeTo(out);
+    return out.toString();
+  }
+
+  /** Stream the rows both ways, check they are the same, and return them. */
+  private String sameBothWays(Class<?> entityType, Sort sort, Map<String, Object> equalTo)
+      throws Exception {
+    Specification<?> where =
+        Specification.allOf(
+            equalTo.entrySet().stream()
+                .map(e -> KeysetPager.<Object>equal(e.getKey(), e.getValue()))
+                .toList());
+    for (boolean ndjson : new boolean[] {true, false}) {
+      String entities = streamed(false, entityType, equalTo, sort, ndjson, where);
+      String rows = streamed(true, entityType, equalTo, sort, ndjson, where);
+      assertEquals(entities, rows);
+      assertNotEquals(ndjson ? "" : "[]", rows);
+    }
+    return streamed(true, entityType, equalTo, sort, false, where);
+  }
+
+  @Test
+  public void rows_of_every_table_are_written_as_their_entities_are() throws Exception {
+    // arrange
+    articlesRepository.saveAll(
+        List.of(
+            Articles.builder()
+                .title("Using \"quotes\"")
+                .url("https://example.org/a?b=c&d=é")
+                .explanation(null)
+                .email("a@ucsb.edu")
+                .dateAdded(TIME)
+                .build(),
+            Articles.builder().title("second").email("b@ucsb.edu").build()));
+    helpRequestRepository.saveAll(
+        List.of(
+            HelpRequest.builder()
+                .requesterEmail("a@ucsb.edu")
+                .teamId("s22-5pm-3")
+                .tableOrBreakoutRoom("7")
+                .requestTime(TIME)
+                .explanation("Need help with\nSwagger")
+                .solved(true)
+                .build(),
+            HelpRequest.builder().requesterEmail("b@ucsb.edu").build()));
+    menuItemReviewRepository.saveAll(
+        List.of(
+            MenuItemReview.builder()
+                .itemId(7)
+                .reviewerEmail("a@ucsb.edu")
+                .stars(5)
+                .dateReviewed(TIME)
+                .comments("great")
+                .build(),
+            MenuItemReview.builder().itemId(-1).stars(0).build()));
+    recommendationRequestRepository.saveAll(
+        List.of(
+            RecommendationRequest.builder()
+                .requesterEmail("a@ucsb.edu")
+                .professorEmail("p@ucsb.edu")
+                .explanation("grad school")
+                .dateRequested(TIME)
+                .dateNeeded(TIME.plusDays(30))
+                .done(true)
+                .build(),
+            RecommendationRequest.builder().requesterEmail("b@ucsb.edu").build()));
+    restaurantRepository.saveAll(
+        List.of(
+            Restaurant.builder().name("Freebirds").description("burritos").build(),
+            Restaurant.builder().name("Unknown").build()));
+    ucsbDateRepository.saveAll(
+        List.of(
+            UCSBDate.builder().quarterYYYYQ("20221").name("first").localDateTime(TIME).build(),
+            UCSBDate.builder().quarterYYYYQ("20222").build()));
+    ucsbDiningCommonsRepository.saveAll(
+        List.of(
+            UCSBDiningCommons.builder()
+                .code("carrillo")
+                .name("Carrillo")
+                .hasSackMeal(true)
+                .hasDiningCam(true)
+                .latitude(34.409953)
+                .longitude(-119.85277)
+                .build(),
+            UCSBDiningCommons.builder().code("ortega").build()));
+    ucsbDiningCommonsMenuItemRepository.saveAll(
+        List.of(
+            UCSBDiningCommonsMenuItem.builder()
+                .diningCommonsCode("ortega")
+                .name("Baked Pesto Pasta")
+                .station("Entree Specials")
+                .build(),
+            UCSBDiningCommonsMenuItem.builder().diningCommonsCode("carrillo").build()));
+    ucsbOrganizationRepository.saveAll(
+        List.of(
+            UCSBOrganization.builder()
+                .orgCode("ZPR")
+                .orgTranslationShort("ZETA PHI RHO")
+                .orgTranslation("ZETA PHI RHO")
+                .inactive(false)
+                .build(),
+            UCSBOrganization.builder().orgCode("OSLI").inactive(true).build()));
+
+    // act and assert
+    assertEquals(
+        mapper.writeValueAsString(articlesRepository.findAll()),
+        sameBothWays(Articles.class, Sort.by("id"), Map.of()));
+    sameBothWays(HelpRequest.class, Sort.by(Direction.DESC, "requestTime", "id"), Map.of());
+    sameBothWays(MenuItemReview.class, Sort.by("id"), Map.of("stars", 5));
+    sameBothWays(RecommendationRequest.class, Sort.by("dateNeeded", "id"), Map.of("done", false));
+    sameBothWays(Restaurant.class, Sort.by(Direction.DESC, "id"), Map.of());
+    sameBothWays(UCSBDate.class, Sort.by("name", "id"), Map.of("quarterYYYYQ", "20222"));
+    sameBothWays(UCSBDiningCommons.class, Sort.by("code"), Map.of());
+    sameBothWays(UCSBDiningCommonsMenuItem.class, Sort.by("station", "id"), Map.of());
+    sameBothWays(UCSBOrganization.class, Sort.by("orgCode"), Map.of("inactive", true));
+  }
+}
@@ -0,0 +1,212 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class UCSBDatesIT {
+  @Autowired public CurrentUserService currentUserService;
+
+  @Autowired public GrantedAuthoritiesService grantedAuthoritiesService;
+
+  @Autowired UCSBDateRepository ucsbDateRepository;
+
+  @Autowired public MockMvc mockMvc;
+
+  @Autowired public ObjectMapper mapper;
+
+  @MockitoBean UserRepository userRepository;
+
+  private List<UCSBDate> saveDates() {
+    List<UCSBDate> dates = new ArrayList<>();
+    String[] names = {"b", null, "a", "c", "b", null, "a"};
+    for (int i = 0; i < names.length; i++) {
+      dates.add(
+          ucsbDateRepository.save(
+              UCSBDate.builder()
+                  .quarterYYYYQ(i % 2 == 0 ? "20221" : "20222")
+                  .name(names[i])
+                  .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00").plusDays(i))
+                  .build()));
+    }
+    return dates;
+  }
+
+  /** Follow the Link headers from the first page to the last, and return every date listed. */
+  private List<UCSBDate> allPages(String url) throws Exception {
+    List<UCSBDate> listed = new ArrayList<>();
+    String next = url;
+    while (next != null) {
+      MvcResult response = mockMvc.perform(get(next)).andExpect(status().isOk()).andReturn();
+      List<UCSBDate> page =
+          mapper.readValue(
+              response.getResponse().getContentAsString(), new TypeReference<List<UCSBDate>>() {});
+      listed.addAll(page);
+      String link = response.getResponse().getHeader("Link");
+      next = link == null ? null : link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+    }
+    return listed;
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_page_through_dates_by_id() throws Exception {
+    // arrange
+    List<UCSBDate> dates = saveDates();
+
+    // act
+    List<UCSBDate> listed = allPages("/api/ucsbdates/all?limit=3");
+
+    // assert
+    assertEquals(dates, listed);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_page_through_dates_by_name_with_nulls_last() throws Exception {
+    // arrange
+    List<UCSBDate> dates = saveDates();
+    Comparator<UCSBDate> byName =
+        Comparator.comparing(UCSBDate::getName, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    // act
+    List<UCSBDate> ascending = allPages("/api/ucsbdates/all?sort=name&limit=2");
+    List<UCSBDate> descending = allPages("/api/ucsbdates/all?sort=name,desc&limit=2");
+
+    // assert
+    assertEquals(dates.stream().sorted(byName.thenComparing(UCSBDate::getId)).toList(), ascending);
+    assertEquals(
+        dates.stream().sorted(byName.thenComparing(UCSBDate::getId).reversed()).toList(),
+        descending);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_page_through_dates_of_a_quarter() throws Exception {
+    // arrange
+    List<UCSBDate> dates = saveDates();
+
+    // act
+    List<UCSBDate> listed =
+        allPages("/api/ucsbdates/all?quarterYYYYQ=20221&sort=localDateTime,desc&limit=1");
+
+    // assert
+    assertEquals(
+        dates.stream()
+            .filter(d -> d.getQuarterYYYYQ().equals("20221"))
+            .sorted(Comparator.comparing(UCSBDate::getLocalDateTime).reversed())
+            .toList(),
+        listed);
+  }
+
+  /** Perform a request that streams its response, and return the response once it is written. */
+  private MvcResult streamed(MockHttpServletRequestBuilder request) throws Exception {
+    MvcResult started = mockMvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+    return mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_stream_all_dates_as_a_json_array() throws Exception {
+    // arrange
+    List<UCSBDate> dates = saveDates();
+
+    // act
+    MvcResult response =
+        streamed(get("/api/ucsbdates/all?stream=true&sort=localDateTime,desc&limit=1"));
+
+    // assert
+    assertEquals("application/json", response.getResponse().getContentType());
+    assertEquals(
+        mapper.writeValueAsString(
+            dates.stream()
+                .sorted(Comparator.comparing(UCSBDate::getLocalDateTime).reversed())
+                .toList()),
+        response.getResponse().getContentAsString());
+    assertNull(response.getResponse().getHeader("Link"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_stream_the_dates_of_a_quarter_as_ndjson() throws Exception {
+    // arrange
+    List<UCSBDate> dates = saveDates();
+
+    // act
+    MvcResult response =
+        streamed(get("/api/ucsbdates/all?quarterYYYYQ=20222").accept(MediaType.APPLICATION_NDJSON));
+
+    // assert
+    assertEquals("application/x-ndjson", response.getResponse().getContentType());
+    StringBuilder expected = new StringBuilder();
+    for (UCSBDate date : dates) {
+      if (date.getQuarterYYYYQ().equals("20222")) {
+        expected.append(mapper.writeValueAsString(date)).append('\n');
+      }
+    }
+    assertEquals(expected.toString(), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void a_cursor_for_one_sort_cannot_be_used_with_another() throws Exception {
+    // arrange
+    saveDates();
+    MvcResult first =
+        mockMvc
+            .perform(get("/api/ucsbdates/all?sort=name&limit=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+    String link = first.getResponse().getHeader("Link");
+    String cursor = link.substring(link.indexOf("after=") + 6, link.indexOf('>'));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdates/all?sort=id&after=" + cursor))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        "Cursor %s is not for sort id,asc".formatted(cursor),
+        mapper.readTree(response.getResponse().getContentAsString()).get("message").asText());
+    assertNull(response.getResponse().getHeader("Link"));
+  }
+}
@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.jobs;
+
+import edu.ucsb.cs156.example.services.jobs.Idempotent;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.jackson.Jacksonized;
+
+/** A job that may safely run again, for the tests of what happens to interrupted jobs. */
+@Builder
+@Jacksonized
+@Getter
+@Idempotent
+public class IdempotentTestJob implements JobContextConsumer {
+
+  private int sleepMs;
+
+  @Override
+  public void accept(JobContext ctx) throws Exception {
+    Thread.sleep(sleepMs);
+  }
+}
@@ -0,0 +1,107 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.errors.BulkInsertException;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+public class BulkInserterTests {
+
+  @Mock private EntityManager entityManager;
+
+  @Mock private PlatformTransactionManager transactionManager;
+
+  @Mock private RestaurantRepository restaurantRepository;
+
+  private final BulkInserter bulkInserter = new BulkInserter();
+
+  private final List<Restaurant> restaurants = new ArrayList<>();
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(bulkInserter, "entityManager", entityManager);
+    ReflectionTestUtils.setField(bulkInserter, "transactionManager", transactionManager);
+    ReflectionTestUtils.setField(bulkInserter, "chunkSize", 2);
+    for (int i = 1; i <= 5; i++) {
+      restaurants.add(Restaurant.builder().name("restaurant" + i).build());
+    }
+    when(restaurantRepository.save(any(Restaurant.class)))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+  }
+
+  @Test
+  void test_saveAll_saves_every_chunk_in_one_transaction() {
+    // Act
+    List<Restaurant> saved = bulkInserter.saveAll(restaurantRepository, restaurants);
+
+    // Assert
+    assertEquals(restaurants, saved);
+    restaurants.forEach(restaurant -> verify(restaurantRepository).save(restaurant));
+    verify(transactionManager, times(1)).commit(any());
+    verify(entityManager, times(3)).flush();
+    verify(entityManager, times(3)).clear();
+  }
+
+  @Test
+  void test_saveAll_rolls_back_every_chunk_when_one_is_refused() {
+    // Arrange
+    doNothing().doThrow(new PersistenceException("value too long")).when(entityManager).flush();
+
+    // Act
+    BulkInsertException e =
+        assertThrows(
+            BulkInsertException.class,
+            () -> bulkInserter.saveAll(restaurantRepository, restaurants));
+
+    // Assert
+    assertEquals(
+        "None of the 5 rows were saved; a row at index 2 to 3 was refused", e.getMessage());
+    assertEquals("value too long", e.getCause().getMessage());
+    verify(restaurantRepository, times(4)).save(any());
+    verify(transactionManager, times(1)).rollback(any());
+    verify(transactionManager, never()).commit(any());
+  }
+
+  @Test
+  void test_saveAll_reports_rows_the_repository_refuses() {
+    // Arrange
+    when(restaurantRepository.save(restaurants.get(2)))
+        .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+    // Act
+    BulkInsertException e =
+        assertThrows(
+            BulkInsertException.class,
+            () -> bulkInserter.saveAll(restaurantRepository, restaurants));
+
+    // Assert
+    assertEquals("None of the 5 rows were saved; the row at index 2 was refused", e.getMessage());
+    verify(transactionManager, times(1)).rollback(any());
+  }
+
+  @Test
+  void test_saveAll_of_nothing_opens_no_transaction() {
+    // Act
+    List<Restaurant> saved = bulkInserter.saveAll(restaurantRepository, List.of());
+
+    // Assert
+    assertEquals(List.of(), saved);
+    verifyNoInteractions(transactionManager, entityManager, restaurantRepository);
+  }
+}
@@ -0,0 +1,182 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+public class CurrentUserServiceImplTests {
+
+  @Mock private UserRepository userRepository;
+
+  @InjectMocks private CurrentUserServiceImpl currentUserService;
+
+  private UserCache userCache;
+
+  private final User pat = User.builder().id(3L).email("pat@ucsb.edu").googleSub("sub-pat").build();
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    userCache = new UserCache();
+    ReflectionTestUtils.setField(userCache, "maxSize", 10);
+    ReflectionTestUtils.setField(userCache, "ttlMs", 60_000L);
+    ReflectionTestUtils.setField(currentUserService, "userCache", userCache);
+    ReflectionTestUtils.setField(
+        currentUserService,
+        "userAuthoritiesService",
+        new UserAuthoritiesService(List.of("Admin@UCSB.edu"), userRepository, userCache));
+    login("sub-pat", "pat@ucsb.edu");
+    newRequest();
+  }
+
+  @AfterEach
+  public void teardown() {
+    SecurityContextHolder.clearContext();
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  private static void login(String sub, String email) {
+    DefaultOAuth2User principal =
+        new DefaultOAuth2User(
+            List.of(new SimpleGrantedAuthority("ROLE_USER")),
+            Map.of("sub", sub, "email", email, "email_verified", true, "name", "Pat"),
+            "sub");
+    SecurityContextHolder.getContext()
+        .setAuthentication(
+            new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google"));
+  }
+
+  private static void newRequest() {
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+  }
+
+  @Test
+  public void a_user_is_looked_up_once_per_request() {
+    when(userRepository.findByEmail("pat@ucsb.edu")).thenReturn(Optional.of(pat));
+
+    assertSame(pat, currentUserService.getUser());
+    userCache.invalidateAll();
+    assertSame(pat, currentUserService.getUser());
+
+    verify(userRepository, times(1)).findByEmail("pat@ucsb.edu");
+  }
+
+  @Test
+  public void later_requests_find_the_user_in_the_cache() {
+    when(userRepository.findByEmail("pat@ucsb.edu")).thenReturn(Optional.of(pat));
+    currentUserService.getUser();
+
+    newRequest();
+    assertSame(pat, currentUserService.getUser());
+    RequestContextHolder.resetRequestAttributes();
+    assertSame(pat, currentUserService.getUser());
+
+    verify(userRepository, times(1)).findByEmail("pat@ucsb.edu");
+  }
+
+  @Test
+  public void a_user_is_read_again_once_invalidated() {
+    when(userRepository.findByEmail("pat@ucsb.edu")).thenReturn(Optional.of(pat));
+    currentUserService.getUser();
+
+    userCache.invalidate("pat@ucsb.edu");
+    newRequest();
+    currentUserService.getUser();
+
+    verify(userRepository, times(2)).findByEmail("pat@ucsb.edu");
+  }
+
+  @Test
+  public void a_new_user_is_upserted_and_kept() {
+    when(userRepository.findByEmail("pat@ucsb.edu")).thenReturn(Optional.empty(), Optional.of(pat));
+
+    assertSame(pat, currentUserService.getUser());
+
+    ArgumentCaptor<User> upserted = ArgumentCaptor.forClass(User.class);
+    verify(userRepository).upsert(upserted.capture());
+    assertEquals("pat@ucsb.edu", upserted.getValue().getEmail());
+    assertEquals("sub-pat", upserted.getValue().getGoogleSub());
+    assertEquals("Pat", upserted.getValue().getFullName());
+    assertTrue(upserted.getValue().getEmailVerified());
+    assertFalse(upserted.getValue().getAdmin());
+    verify(userRepository, never()).save(any());
+    assertSame(pat, userCache.get("sub-pat"));
+  }
+
+  @Test
+  public void a_user_on_the_admin_list_is_made_an_admin() {
+    login("sub-admin", "admin@ucsb.edu");
+    User before = User.builder().id(4L).email("admin@ucsb.edu").build();
+    User after = User.builder().id(4L).email("admin@ucsb.edu").admin(true).build();
+    when(userRepository.findByEmail("admin@ucsb.edu"))
+        .thenReturn(Optional.of(before), Optional.of(after));
+
+    assertTrue(currentUserService.getUser().getAdmin());
+
+    ArgumentCaptor<User> upserted = ArgumentCaptor.forClass(User.class);
+    verify(userRepository).upsert(upserted.capture());
+    assertTrue(upserted.getValue().getAdmin());
+    assertSame(after, userCache.get("sub-admin"));
+  }
+
+  @Test
+  public void an_admin_email_matches_the_admin_list_in_any_case() {
+    login("sub-admin", "ADMIN@ucsb.edu");
+    User after = User.builder().id(4L).email("ADMIN@ucsb.edu").admin(true).build();
+    when(userRepository.findByEmail("ADMIN@ucsb.edu"))
+        .thenReturn(Optional.empty(), Optional.of(after));
+
+    assertTrue(currentUserService.getUser().getAdmin());
+
+    ArgumentCaptor<User> upserted = ArgumentCaptor.forClass(User.class);
+    verify(userRepository).upsert(upserted.capture());
+    assertTrue(upserted.getValue().getAdmin());
+  }
+
+  @Test
+  public void an_existing_user_is_not_written() {
+    when(userRepository.findByEmail("pat@ucsb.edu")).thenReturn(Optional.of(pat));
+
+    currentUserService.getUser();
+
+    verify(userRepository, never()).upsert(any());
+  }
+
+  @Test
+  public void there_is_no_user_without_an_oauth_login() {
+    SecurityContextHolder.clearContext();
+
+    assertNull(currentUserService.getUser());
+
+    verify(userRepository, never()).findByEmail(any());
+  }
+}
@@ -4,18 +4,25 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
-import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.errors.LogRangeNotSatisfiableException;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobLogStore;
+import edu.ucsb.cs156.example.services.jobs.JobLogStore.LogSize;
 import edu.ucsb.cs156.example.services.jobs.JobService;
-import java.util.Optional;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.http.HttpRange;
 
 public class JobLogsServiceTests {
 
   @Mock private JobsRepository jobRepository;
 
+  @Mock private JobLogStore jobLogStore;
+
   @InjectMocks private JobService jobService;
 
   @BeforeEach
@@ -24,42 +31,84 @@ public class JobLogsServiceTests {
   }
 
   @Test
-  void test_getJobLogs_with_log() {
+  void test_getJobLogs_with_log() throws Exception {
     // Arrange
     Long jobId = 1L;
-    Job job = Job.builder().build();
-    job.setLog("This is a job log");
-    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobRepository.existsById(jobId)).thenReturn(true);
+    when(jobLogStore.openStream(jobId))
+        .thenReturn(new ByteArrayInputStream("This is a job log".getBytes(StandardCharsets.UTF_8)));
 
     // Act
-    String result = jobService.getJobLogs(jobId);
+    InputStream result = jobService.getJobLogs(jobId);
 
     // Assert
-    assertEquals("This is a job log", result);
+    assertEquals("This is a job log", new String(result.readAllBytes(), StandardCharsets.UTF_8));
   }
 
   @Test
-  void test_getJobLogs_with_null_log() {
+  void test_getJobLogs_with_empty_log() throws Exception {
     // Arrange
     Long jobId = 2L;
-    Job job = Job.builder().build();
-    job.setLog(null);
-    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobRepository.existsById(jobId)).thenReturn(true);
+    when(jobLogStore.openStream(jobId)).thenReturn(new ByteArrayInputStream(new byte[0]));
 
     // Act
-    String result = jobService.getJobLogs(jobId);
+    InputStream result = jobService.getJobLogs(jobId);
 
     // Assert
-    assertEquals("", result);
+    assertEquals(0, result.readAllBytes().length);
   }
 
   @Test
   void test_getJobLogs_job_not_found() {
     // Arrange
     Long jobId = 3L;
-    when(jobRepository.findById(jobId)).thenReturn(Optional.empty());
+    when(jobRepository.existsById(jobId)).thenReturn(false);
 
     // Act & Assert
     assertThrows(IllegalArgumentException.class, () -> jobService.getJobLogs(jobId));
+    verify(jobLogStore, never()).openStream(anyLong());
+  }
+
+  @Test
+  void test_tailJobLogs_job_not_found() {
+    // Arrange
+    Long jobId = 3L;
+    when(jobRepository.existsById(jobId)).thenReturn(false);
+
+    // Act & Assert
+    assertThrows(IllegalArgumentException.class, () -> jobService.tailJobLogs(jobId, 0));
+    verify(jobLogStore, never()).cursor(anyLong(), anyLong());
+  }
+
+  @Test
+  void test_getJobLogRanges_job_not_found() {
+    // Arrange
+    Long jobId = 3L;
+    when(jobRepository.existsById(jobId)).thenReturn(false);
+
+    // Act & Assert
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> jobService.getJobLogBytes(jobId, HttpRange.createByteRange(0)));
+    assertThrows(IllegalArgumentException.class, () -> jobService.getJobLogLines(jobId, 1, null));
+    assertThrows(IllegalArgumentException.class, () -> jobService.getJobLogTail(jobId, 10));
+    verify(jobLogStore, never()).size(anyLong());
+  }
+
+  @Test
+  void test_getJobLogBytes_of_an_empty_log_is_not_satisfiable() {
+    // Arrange
+    Long jobId = 4L;
+    when(jobRepository.existsById(jobId)).thenReturn(true);
+    when(jobLogStore.size(jobId)).thenReturn(new LogSize(0, 0));
+
+    // Act & Assert
+    LogRangeNotSatisfiableException e =
+        assertThrows(
+            LogRangeNotSatisfiableException.class,
+            () -> jobService.getJobLogBytes(jobId, HttpRange.createSuffixRange(10)));
+    assertEquals("bytes", e.getUnit());
+    assertEquals(0, e.getTotal());
   }
 }
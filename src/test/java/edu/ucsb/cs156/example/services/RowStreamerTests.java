@@ -0,0 +1,99 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaQuery;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.jpa.HibernateHints;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+public class RowStreamerTests {
+
+  @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+  private EntityManager entityManager;
+
+  @Mock private PlatformTransactionManager transactionManager;
+
+  private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+
+  private final RowStreamer rowStreamer = new RowStreamer();
+
+  private final List<UCSBDate> dates = new ArrayList<>();
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(rowStreamer, "entityManager", entityManager);
+    ReflectionTestUtils.setField(rowStreamer, "transactionManager", transactionManager);
+    ReflectionTestUtils.setField(rowStreamer, "objectMapper", mapper);
+    ReflectionTestUtils.setField(rowStreamer, "fetchSize", 2);
+    for (long i = 1; i <= 5; i++) {
+      dates.add(
+          UCSBDate.builder()
+              .id(i)
+              .quarterYYYYQ("20221")
+              .name("day" + i)
+              .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00").plusDays(i))
+              .build());
+    }
+    when(entityManager
+            .createQuery(any(CriteriaQuery.class))
+            .setHint(HibernateHints.HINT_FETCH_SIZE, 2)
+            .setHint(HibernateHints.HINT_READ_ONLY, true)
+            .getResultStream())
+        .thenAnswer(invocation -> dates.stream());
+  }
+
+  private String write(ResponseEntity<StreamingResponseBody> response) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    response.getBody().writeTo(out);
+    return out.toString();
+  }
+
+  @Test
+  void test_stream_writes_a_json_array() throws Exception {
+    // Act
+    ResponseEntity<StreamingResponseBody> response =
+        rowStreamer.stream(UCSBDate.class, (root, query, cb) -> null, null, Sort.unsorted(), false);
+
+    // Assert
+    assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+    assertEquals(mapper.writeValueAsString(dates), write(response));
+    verify(transactionManager, times(1)).commit(any());
+  }
+
+  @Test
+  void test_stream_writes_ndjson_and_clears_the_persistence_context_every_fetch() throws Exception {
+    // Act
+    ResponseEntity<StreamingResponseBody> response =
+        rowStreamer.stream(UCSBDate.class, (root, query, cb) -> null, null, Sort.unsorted(), true);
+
+    // Assert
+    assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+    StringBuilder expected = new StringBuilder();
+    for (UCSBDate date : dates) {
+      expected.append(mapper.writeValueAsString(date)).append('\n');
+    }
+    assertEquals(expected.toString(), write(response));
+    verify(entityManager, times(2)).clear();
+  }
+}
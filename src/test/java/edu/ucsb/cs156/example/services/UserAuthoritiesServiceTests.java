@@ -0,0 +1,154 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class UserAuthoritiesServiceTests {
+
+  @Mock private UserRepository userRepository;
+
+  private UserCache userCache;
+
+  private UserAuthoritiesService userAuthoritiesService;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    userCache = new UserCache();
+    ReflectionTestUtils.setField(userCache, "maxSize", 10);
+    ReflectionTestUtils.setField(userCache, "ttlMs", 60_000L);
+    userAuthoritiesService =
+        new UserAuthoritiesService(
+            List.of(" Admin@UCSB.edu", "", "boss@example.org"), userRepository, userCache);
+  }
+
+  private static OAuth2UserAuthority login(String sub, String email) {
+    return new OAuth2UserAuthority(Map.of("sub", sub, "email", email));
+  }
+
+  private static Set<GrantedAuthority> roles(String... roles) {
+    Set<GrantedAuthority> authorities = new HashSet<>();
+    for (String role : roles) {
+      authorities.add(new SimpleGrantedAuthority(role));
+    }
+    return authorities;
+  }
+
+  @Test
+  public void admin_emails_match_in_any_case() {
+    assertTrue(userAuthoritiesService.isAdminEmail("admin@ucsb.edu"));
+    assertTrue(userAuthoritiesService.isAdminEmail("ADMIN@ucsb.edu "));
+    assertFalse(userAuthoritiesService.isAdminEmail(""));
+    assertFalse(userAuthoritiesService.isAdminEmail(null));
+  }
+
+  @Test
+  public void a_ucsb_admin_gets_every_role_without_reading_the_users_table() {
+    OAuth2UserAuthority authority = login("sub-admin", "admin@ucsb.edu");
+
+    Set<GrantedAuthority> mapped = userAuthoritiesService.mapAuthorities(List.of(authority));
+
+    Set<GrantedAuthority> expected = roles("ROLE_USER", "ROLE_ADMIN", "ROLE_MEMBER");
+    expected.add(authority);
+    assertEquals(expected, mapped);
+    verify(userRepository, never()).findByEmail(any());
+  }
+
+  @Test
+  public void an_admin_in_the_users_table_is_read_once() {
+    User pat = User.builder().email("pat@example.org").admin(true).build();
+    when(userRepository.findByEmail("pat@example.org")).thenReturn(Optional.of(pat));
+    OAuth2UserAuthority authority = login("sub-pat", "pat@example.org");
+
+    userAuthoritiesService.mapAuthorities(List.of(authority));
+    Set<GrantedAuthority> mapped = userAuthoritiesService.mapAuthorities(List.of(authority));
+
+    Set<GrantedAuthority> expected = roles("ROLE_USER", "ROLE_ADMIN");
+    expected.add(authority);
+    assertEquals(expected, mapped);
+    verify(userRepository, times(1)).findByEmail("pat@example.org");
+  }
+
+  @Test
+  public void a_change_to_the_admin_flag_is_seen_once_the_user_is_invalidated() {
+    User pat = User.builder().email("pat@example.org").admin(false).build();
+    User promoted = User.builder().email("pat@example.org").admin(true).build();
+    when(userRepository.findByEmail("pat@example.org"))
+        .thenReturn(Optional.of(pat), Optional.of(promoted));
+
+    assertFalse(userAuthoritiesService.isAdmin("sub-pat", "pat@example.org"));
+    userCache.invalidate("pat@example.org");
+
+    assertTrue(userAuthoritiesService.isAdmin("sub-pat", "pat@example.org"));
+  }
+
+  @Test
+  public void a_new_user_is_not_an_admin_and_is_not_cached() {
+    when(userRepository.findByEmail("new@ucsb.edu")).thenReturn(Optional.empty());
+
+    Set<GrantedAuthority> mapped =
+        userAuthoritiesService.mapAuthorities(List.of(login("sub-new", "new@ucsb.edu")));
+
+    assertTrue(mapped.containsAll(roles("ROLE_USER", "ROLE_MEMBER")));
+    assertFalse(mapped.contains(new SimpleGrantedAuthority("ROLE_ADMIN")));
+    assertEquals(0, userCache.size());
+  }
+
+  @Test
+  public void other_authorities_are_kept_as_they_are() {
+    Set<GrantedAuthority> scopes = roles("SCOPE_openid");
+
+    assertEquals(scopes, userAuthoritiesService.mapAuthorities(scopes));
+  }
+
+  @Test
+  public void a_user_logged_in_again_gets_their_roles_and_is_found_by_their_sub() {
+    User pat = User.builder().email("pat@ucsb.edu").googleSub("sub-pat").admin(true).build();
+    when(userRepository.findByEmail("pat@ucsb.edu")).thenReturn(Optional.of(pat));
+
+    OAuth2AuthenticationToken token = userAuthoritiesService.authenticationOf(pat);
+
+    OAuth2User principal = token.getPrincipal();
+    assertEquals("pat@ucsb.edu", principal.getName());
+    assertEquals("sub-pat", principal.getAttribute("sub"));
+    assertTrue(token.getAuthorities().containsAll(roles("ROLE_USER", "ROLE_ADMIN", "ROLE_MEMBER")));
+    assertEquals(new HashSet<>(token.getAuthorities()), new HashSet<>(principal.getAuthorities()));
+  }
+
+  @Test
+  public void a_user_with_no_sub_is_logged_in_again_by_their_email() {
+    User lee = User.builder().email("lee@example.org").admin(false).build();
+    when(userRepository.findByEmail("lee@example.org")).thenReturn(Optional.of(lee));
+
+    OAuth2AuthenticationToken token = userAuthoritiesService.authenticationOf(lee);
+
+    assertEquals(Map.of("email", "lee@example.org"), token.getPrincipal().getAttributes());
+    assertTrue(token.getAuthorities().containsAll(roles("ROLE_USER")));
+    assertFalse(token.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_ADMIN")));
+    assertFalse(token.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_MEMBER")));
+  }
+}
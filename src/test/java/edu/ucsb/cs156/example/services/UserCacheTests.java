@@ -0,0 +1,79 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import edu.ucsb.cs156.example.entities.User;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class UserCacheTests {
+
+  private final AtomicLong now = new AtomicLong(1_000);
+
+  private UserCache userCache;
+
+  @BeforeEach
+  public void setup() {
+    userCache = new UserCache();
+    ReflectionTestUtils.setField(userCache, "maxSize", 2);
+    ReflectionTestUtils.setField(userCache, "ttlMs", 100L);
+    ReflectionTestUtils.setField(userCache, "clock", (LongSupplier) now::get);
+  }
+
+  private static User user(String email) {
+    return User.builder().email(email).build();
+  }
+
+  @Test
+  public void a_user_is_kept_until_it_expires() {
+    User pat = user("pat@ucsb.edu");
+    userCache.put("sub-pat", pat);
+
+    now.addAndGet(99);
+    assertSame(pat, userCache.get("sub-pat"));
+    now.addAndGet(1);
+    assertNull(userCache.get("sub-pat"));
+    assertEquals(0, userCache.size());
+  }
+
+  @Test
+  public void the_user_used_least_recently_makes_way_for_the_next() {
+    userCache.put("sub-pat", user("pat@ucsb.edu"));
+    userCache.put("sub-chris", user("chris@ucsb.edu"));
+    userCache.get("sub-pat");
+
+    userCache.put("sub-sam", user("sam@ucsb.edu"));
+
+    assertEquals(2, userCache.size());
+    assertNull(userCache.get("sub-chris"));
+    assertEquals("pat@ucsb.edu", userCache.get("sub-pat").getEmail());
+    assertEquals("sam@ucsb.edu", userCache.get("sub-sam").getEmail());
+  }
+
+  @Test
+  public void a_changed_user_is_forgotten() {
+    userCache.put("sub-pat", user("pat@ucsb.edu"));
+    userCache.put("sub-chris", user("chris@ucsb.edu"));
+
+    userCache.invalidate("pat@ucsb.edu");
+    assertNull(userCache.get("sub-pat"));
+    assertEquals(1, userCache.size());
+
+    userCache.invalidateAll();
+    assertEquals(0, userCache.size());
+  }
+
+  @Test
+  public void nothing_is_kept_when_the_cache_is_turned_off() {
+    ReflectionTestUtils.setField(userCache, "ttlMs", 0L);
+
+    userCache.put("sub-pat", user("pat@ucsb.edu"));
+
+    assertNull(userCache.get("sub-pat"));
+  }
+}
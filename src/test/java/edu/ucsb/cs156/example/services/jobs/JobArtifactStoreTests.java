@@ -0,0 +1,165 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.errors.ArtifactTooLargeException;
+import edu.ucsb.cs156.example.models.JobArtifact;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobArtifactStoreTests {
+
+  @TempDir Path dir;
+
+  private JobArtifactStore store;
+
+  @BeforeEach
+  public void setup() {
+    store = new JobArtifactStore();
+    ReflectionTestUtils.setField(store, "dir", dir.toString());
+    ReflectionTestUtils.setField(store, "maxBytes", 100L);
+    ReflectionTestUtils.setField(store, "maxJobBytes", 150L);
+    store.init();
+  }
+
+  private void write(long jobId, String name, String content) throws Exception {
+    try (OutputStream out = store.open(jobId, name)) {
+      out.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private static String sha256(String content) throws Exception {
+    return HexFormat.of()
+        .formatHex(
+            MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private List<String> filesOf(long jobId) throws Exception {
+    try (Stream<Path> files = Files.list(dir.resolve(Long.toString(jobId)))) {
+      return files.map(file -> file.getFileName().toString()).sorted().toList();
+    }
+  }
+
+  @Test
+  public void an_artifact_is_found_with_its_size_and_checksum() throws Exception {
+    write(7L, "report.csv", "a,b\n1,2\n");
+
+    JobArtifact artifact = store.find(7L, "report.csv").get();
+
+    assertEquals("report.csv", artifact.getName());
+    assertEquals(8L, artifact.getBytes());
+    assertEquals(sha256("a,b\n1,2\n"), artifact.getSha256());
+    assertArrayEquals(
+        "a,b\n1,2\n".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(artifact.getFile()));
+    assertEquals(List.of(".report.csv.sha256", "report.csv"), filesOf(7L));
+  }
+
+  @Test
+  public void an_artifact_is_not_there_until_its_stream_is_closed() throws Exception {
+    OutputStream out = store.open(7L, "report.csv");
+    out.write('x');
+    out.flush();
+
+    assertTrue(store.find(7L, "report.csv").isEmpty());
+
+    out.close();
+    out.close();
+
+    assertEquals(1L, store.find(7L, "report.csv").get().getBytes());
+  }
+
+  @Test
+  public void writing_an_artifact_again_replaces_it() throws Exception {
+    write(7L, "report.csv", "old");
+    write(7L, "report.csv", "newer");
+
+    JobArtifact artifact = store.find(7L, "report.csv").get();
+
+    assertEquals(5L, artifact.getBytes());
+    assertEquals(sha256("newer"), artifact.getSha256());
+  }
+
+  @Test
+  public void an_artifact_larger_than_max_bytes_is_discarded() throws Exception {
+    OutputStream out = store.open(7L, "big.bin");
+    out.write(new byte[60]);
+
+    ArtifactTooLargeException e =
+        assertThrows(ArtifactTooLargeException.class, () -> out.write(new byte[41]));
+
+    assertEquals("big.bin", e.getName());
+    assertEquals(100L, e.getMaxBytes());
+    assertEquals("Artifact big.bin is larger than the 100 bytes allowed", e.getMessage());
+    assertThrows(Exception.class, () -> out.write(1));
+    out.close();
+    assertTrue(store.find(7L, "big.bin").isEmpty());
+    assertEquals(List.of(), filesOf(7L));
+  }
+
+  @Test
+  public void the_artifacts_of_a_job_share_max_job_bytes() throws Exception {
+    write(7L, "a.bin", "x".repeat(100));
+    write(8L, "b.bin", "x".repeat(100));
+
+    OutputStream out = store.open(7L, "b.bin");
+    out.write(new byte[50]);
+    assertThrows(ArtifactTooLargeException.class, () -> out.write(0));
+
+    // a replaced artifact does not count against the new one
+    write(7L, "a.bin", "x".repeat(100));
+  }
+
+  @Test
+  public void names_that_could_leave_the_job_directory_are_refused() {
+    for (String name : new String[] {"../x", ".hidden", "a/b", "", "x".repeat(129)}) {
+      assertThrows(IllegalArgumentException.class, () -> store.open(7L, name));
+      assertTrue(store.find(7L, name).isEmpty());
+    }
+    assertThrows(IllegalArgumentException.class, () -> store.open(7L, null));
+    assertTrue(store.find(7L, null).isEmpty());
+  }
+
+  @Test
+  public void list_returns_the_artifacts_by_name() throws Exception {
+    assertEquals(List.of(), store.list(7L));
+
+    write(7L, "b.txt", "bb");
+    write(7L, "a.txt", "a");
+    write(8L, "c.txt", "c");
+
+    assertEquals(
+        List.of("a.txt", "b.txt"), store.list(7L).stream().map(JobArtifact::getName).toList());
+  }
+
+  @Test
+  public void delete_removes_the_artifacts_of_a_job() throws Exception {
+    assertEquals(List.of(), store.jobIds());
+
+    write(7L, "a.txt", "a");
+    write(8L, "b.txt", "b");
+    Files.createDirectories(dir.resolve("not-a-job"));
+
+    assertEquals(List.of(7L, 8L), store.jobIds().stream().sorted().toList());
+
+    store.delete(7L);
+    store.delete(9L);
+
+    assertEquals(List.of(8L), store.jobIds());
+    assertFalse(Files.exists(dir.resolve("7")));
+    assertTrue(store.find(8L, "b.txt").isPresent());
+  }
+}
@@ -0,0 +1,112 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.JobState;
+import edu.ucsb.cs156.example.repositories.JobStatesRepository;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobCheckpointsTests {
+
+  private JobStatesRepository jobStatesRepository;
+  private JobCheckpoints jobCheckpoints;
+
+  @BeforeEach
+  public void setup() {
+    jobStatesRepository = mock(JobStatesRepository.class);
+    jobCheckpoints = new JobCheckpoints();
+    ReflectionTestUtils.setField(jobCheckpoints, "jobStatesRepository", jobStatesRepository);
+    ReflectionTestUtils.setField(jobCheckpoints, "objectMapper", new ObjectMapper());
+  }
+
+  @Test
+  public void save_stores_the_state_as_json_under_the_job_id() {
+    jobCheckpoints.save(7L, "batch-3", Map.of("lastId", 300));
+
+    ArgumentCaptor<JobState> saved = ArgumentCaptor.forClass(JobState.class);
+    verify(jobStatesRepository).save(saved.capture());
+    assertEquals(7L, saved.getValue().getJobId());
+    assertEquals("batch-3", saved.getValue().getCheckpointKey());
+    assertEquals("{\"lastId\":300}", saved.getValue().getState());
+    assertNotNull(saved.getValue().getSavedAt());
+  }
+
+  @Test
+  public void a_checkpoint_may_have_no_state() {
+    jobCheckpoints.save(7L, "started", null);
+
+    ArgumentCaptor<JobState> saved = ArgumentCaptor.forClass(JobState.class);
+    verify(jobStatesRepository).save(saved.capture());
+    assertNull(saved.getValue().getState());
+    assertNull(jobCheckpoints.read(saved.getValue(), Map.class));
+  }
+
+  @Test
+  public void a_checkpoint_needs_a_key() {
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> jobCheckpoints.save(7L, null, 1));
+    assertEquals("A checkpoint needs a key", e.getMessage());
+    verify(jobStatesRepository, never()).save(any());
+  }
+
+  @Test
+  public void state_that_cannot_be_written_as_json_is_refused() {
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class, () -> jobCheckpoints.save(7L, "batch-3", new Object()));
+    assertEquals("Cannot store the state of checkpoint batch-3", e.getMessage());
+    verify(jobStatesRepository, never()).save(any());
+  }
+
+  @Test
+  public void state_that_is_too_long_is_refused() {
+    String state = "x".repeat(JobCheckpoints.MAX_STATE_LENGTH);
+
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class, () -> jobCheckpoints.save(7L, "batch-3", state));
+    assertEquals(
+        "The state of checkpoint batch-3 is 65538 characters; at most 65536 can be stored",
+        e.getMessage());
+    verify(jobStatesRepository, never()).save(any());
+  }
+
+  @Test
+  public void last_and_read_give_back_the_saved_checkpoint() {
+    JobState saved =
+        JobState.builder().jobId(7L).checkpointKey("batch-3").state("{\"lastId\":300}").build();
+    when(jobStatesRepository.findById(7L)).thenReturn(Optional.of(saved));
+
+    assertEquals(Optional.of(saved), jobCheckpoints.last(7L));
+    assertEquals(Map.of("lastId", 300), jobCheckpoints.read(saved, Map.class));
+  }
+
+  @Test
+  public void state_that_cannot_be_read_as_the_type_asked_for_is_reported() {
+    JobState saved = JobState.builder().jobId(7L).checkpointKey("batch-3").state("[1]").build();
+
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> jobCheckpoints.read(saved, Map.class));
+    assertEquals("Cannot read the state of checkpoint batch-3", e.getMessage());
+  }
+
+  @Test
+  public void clear_deletes_the_checkpoint_of_the_job() {
+    jobCheckpoints.clear(7L);
+    verify(jobStatesRepository).deleteByJobId(7L);
+  }
+}
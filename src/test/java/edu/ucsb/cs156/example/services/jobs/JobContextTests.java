@@ -1,13 +1,30 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.matches;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobState;
+import edu.ucsb.cs156.example.errors.JobCancelledException;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import org.junit.jupiter.api.Test;
 
 public class JobContextTests {
   @Test
-  public void when_jobs_repository_is_null_does_not_save() throws Exception {
+  public void when_job_log_store_is_null_does_not_save() throws Exception {
 
     // arrange
 
@@ -17,7 +34,152 @@ public class JobContextTests {
     // act
     ctx.log("This is a log message");
 
+    // assert: no exception is thrown
+  }
+
+  @Test
+  public void log_appends_to_the_job_log_store() throws Exception {
+
+    // arrange
+
+    JobLogStore jobLogStore = mock(JobLogStore.class);
+    Job job1 = Job.builder().id(7L).build();
+    JobContext ctx = new JobContext(jobLogStore, job1);
+
+    // act
+    ctx.log("This is a log message");
+
     // assert
-    assertEquals("This is a log message", job1.getLog());
+    verify(jobLogStore).append(7L, "This is a log message");
+  }
+
+  @Test
+  public void log_counts_the_lines_and_bytes_written() throws Exception {
+    JobLogStore jobLogStore = mock(JobLogStore.class);
+    when(jobLogStore.append(7L, "one")).thenReturn(3);
+    when(jobLogStore.append(7L, "two")).thenReturn(4);
+    JobContext ctx = new JobContext(jobLogStore, Job.builder().id(7L).build());
+
+    ctx.log("one");
+    ctx.log("two");
+
+    assertEquals(2, ctx.getLogLines());
+    assertEquals(7, ctx.getLogBytes());
+  }
+
+  @Test
+  public void job_type_is_the_name_of_the_class() {
+    JobContextConsumer lambda = ctx -> {};
+    assertEquals("JobContextTests", lambda.getJobType());
+    assertEquals("TestJob", TestJob.builder().build().getJobType());
+  }
+
+  @Test
+  public void a_job_without_control_is_never_cancelled() throws Exception {
+    JobContext ctx = new JobContext(null, Job.builder().build());
+
+    assertFalse(ctx.isCancelled());
+    ctx.checkpoint();
+  }
+
+  @Test
+  public void checkpoint_throws_once_the_job_is_asked_to_stop() throws Exception {
+    Job job1 = Job.builder().id(7L).build();
+    JobControl control = new JobControl(job1);
+    JobContext ctx = new JobContext(null, job1, control, null, null, null);
+    ctx.checkpoint();
+
+    control.stop("timed_out");
+
+    assertTrue(ctx.isCancelled());
+    JobCancelledException e = assertThrows(JobCancelledException.class, ctx::checkpoint);
+    assertEquals("Job 7 stopped: timed_out", e.getMessage());
+  }
+
+  @Test
+  public void partition_splits_a_list_into_consecutive_batches() {
+    assertEquals(
+        List.of(List.of(1, 2), List.of(3, 4), List.of(5)),
+        JobContext.partition(List.of(1, 2, 3, 4, 5), 2));
+    assertEquals(List.of(), JobContext.partition(List.of(), 3));
+    assertThrows(IllegalArgumentException.class, () -> JobContext.partition(List.of(1), 0));
+  }
+
+  @Test
+  public void only_jobs_run_by_the_job_service_can_run_child_tasks() {
+    JobContext ctx = new JobContext(null, Job.builder().build());
+
+    assertThrows(IllegalStateException.class, () -> ctx.forEachInParallel(List.of(1), item -> {}));
+  }
+
+  @Test
+  public void checkpoint_with_a_key_saves_the_state_then_checks_for_cancellation()
+      throws Exception {
+    JobCheckpoints checkpoints = mock(JobCheckpoints.class);
+    Job job1 = Job.builder().id(7L).build();
+    JobControl control = new JobControl(job1);
+    JobContext ctx = new JobContext(null, job1, control, null, checkpoints, null);
+    ctx.checkpoint("batch-1", 100);
+    verify(checkpoints).save(7L, "batch-1", 100);
+
+    control.stop("cancelled");
+
+    assertThrows(JobCancelledException.class, () -> ctx.checkpoint("batch-2", 200));
+    verify(checkpoints).save(7L, "batch-2", 200);
+  }
+
+  @Test
+  public void last_checkpoint_reads_back_the_saved_state() {
+    JobCheckpoints checkpoints = mock(JobCheckpoints.class);
+    JobState saved = JobState.builder().jobId(7L).checkpointKey("batch-1").state("100").build();
+    when(checkpoints.last(7L)).thenReturn(Optional.of(saved));
+    when(checkpoints.read(saved, Integer.class)).thenReturn(100);
+    JobContext ctx =
+        new JobContext(null, Job.builder().id(7L).build(), null, null, checkpoints, null);
+
+    assertEquals(Optional.of(saved), ctx.lastCheckpoint());
+    assertEquals(Optional.of(100), ctx.lastCheckpoint(Integer.class));
+  }
+
+  @Test
+  public void only_jobs_run_by_the_job_service_have_checkpoints() {
+    JobContext ctx = new JobContext(null, Job.builder().build());
+
+    assertEquals(Optional.empty(), ctx.lastCheckpoint());
+    assertEquals(Optional.empty(), ctx.lastCheckpoint(Integer.class));
+    assertThrows(IllegalStateException.class, () -> ctx.checkpoint("batch-1", 100));
+  }
+
+  @Test
+  public void write_artifact_opens_an_artifact_of_the_job() throws Exception {
+    JobArtifactStore artifacts = mock(JobArtifactStore.class);
+    OutputStream out = OutputStream.nullOutputStream();
+    when(artifacts.open(7L, "report.csv")).thenReturn(out);
+    JobContext ctx =
+        new JobContext(null, Job.builder().id(7L).build(), null, null, null, artifacts);
+
+    assertSame(out, ctx.writeArtifact("report.csv"));
+  }
+
+  @Test
+  public void only_jobs_run_by_the_job_service_can_write_artifacts() {
+    JobContext ctx = new JobContext(null, Job.builder().build());
+
+    assertThrows(IllegalStateException.class, () -> ctx.writeArtifact("report.csv"));
+  }
+
+  @Test
+  public void records_are_written_with_their_level_and_fields() {
+    JobLogStore jobLogStore = mock(JobLogStore.class);
+    when(jobLogStore.append(eq(7L), anyString())).thenReturn(50);
+    JobContext ctx = new JobContext(jobLogStore, Job.builder().id(7L).build());
+
+    ctx.log(JobLogLevel.WARN, "Skipped a row", Map.of("row", 17));
+    ctx.log(JobLogLevel.ERROR, "Could not save");
+
+    verify(jobLogStore).append(eq(7L), matches(".*Z WARN Skipped a row \\{\"row\":17\\}"));
+    verify(jobLogStore).append(eq(7L), matches(".*Z ERROR Could not save"));
+    assertEquals(100, ctx.getLogBytes());
+    assertEquals(2, ctx.getLogLines());
   }
 }
@@ -0,0 +1,76 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import edu.ucsb.cs156.example.entities.Job;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+public class JobControlTests {
+
+  private final JobControl control = new JobControl(Job.builder().id(1L).build());
+
+  @Test
+  public void a_job_stopped_before_its_handle_is_known_is_cancelled_once_it_is() {
+    Future<?> future = mock(Future.class);
+
+    assertTrue(control.stop("cancelled"));
+    control.setFuture(future);
+
+    verify(future).cancel(true);
+    assertFalse(control.start());
+  }
+
+  @Test
+  public void a_queued_job_is_cancelled_through_its_handle() {
+    Future<?> future = mock(Future.class);
+    control.setFuture(future);
+
+    assertTrue(control.stop("cancelled"));
+
+    verify(future).cancel(true);
+  }
+
+  @Test
+  public void a_running_job_is_interrupted_rather_than_cancelled() {
+    Future<?> future = mock(Future.class);
+    control.setFuture(future);
+    assertFalse(control.isStarted());
+    assertTrue(control.start());
+    assertTrue(control.isStarted());
+
+    assertFalse(control.stop("timed_out"));
+
+    verify(future, never()).cancel(true);
+    assertTrue(Thread.interrupted());
+    assertEquals("timed_out", control.getStopReason());
+  }
+
+  @Test
+  public void a_finished_job_cannot_be_stopped() {
+    control.start();
+    assertNull(control.finish());
+
+    assertFalse(control.stop("cancelled"));
+    assertFalse(Thread.currentThread().isInterrupted());
+    assertNull(control.getStopReason());
+  }
+
+  @Test
+  public void a_job_started_before_its_handle_is_known_is_not_cancelled_through_it() {
+    Future<?> future = mock(Future.class);
+    control.start();
+    control.stop("cancelled");
+    Thread.interrupted();
+
+    control.setFuture(future);
+
+    verify(future, never()).cancel(true);
+  }
+}
@@ -0,0 +1,141 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.jobs.IdempotentTestJob;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class JobDispatcherTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobService jobService;
+
+  @Mock private JobExecutor jobExecutor;
+
+  @Mock private TransactionTemplate transactionTemplate;
+
+  @InjectMocks private JobDispatcher jobDispatcher;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    JobLeases jobLeases = new JobLeases();
+    ReflectionTestUtils.setField(jobLeases, "nodeId", "node-a");
+    ReflectionTestUtils.setField(jobLeases, "durationMs", 60_000L);
+    ReflectionTestUtils.setField(jobDispatcher, "jobLeases", jobLeases);
+    ReflectionTestUtils.setField(
+        jobDispatcher, "jobTypes", new JobTypes(List.of(TestJob.class, IdempotentTestJob.class)));
+
+    when(transactionTemplate.execute(any()))
+        .thenAnswer(
+            invocation ->
+                invocation
+                    .<TransactionCallback<?>>getArgument(0)
+                    .doInTransaction(new SimpleTransactionStatus()));
+  }
+
+  @Test
+  public void a_node_leases_as_many_jobs_as_it_can_start() {
+    Job job7 = Job.builder().id(7L).build();
+    Job job8 = Job.builder().id(8L).build();
+    when(jobExecutor.getIdleCapacity()).thenReturn(3);
+    when(jobsRepository.lockUnleased(3)).thenReturn(List.of(7L, 8L));
+    when(jobsRepository.findAllById(List.of(7L, 8L))).thenReturn(List.of(job7, job8));
+
+    assertEquals(2, jobDispatcher.leaseQueuedJobs());
+
+    ArgumentCaptor<ZonedDateTime> expiresAt = ArgumentCaptor.forClass(ZonedDateTime.class);
+    ArgumentCaptor<ZonedDateTime> now = ArgumentCaptor.forClass(ZonedDateTime.class);
+    verify(jobsRepository)
+        .lease(eq(List.of(7L, 8L)), eq("node-a"), expiresAt.capture(), now.capture());
+    assertEquals(Duration.ofMinutes(1), Duration.between(now.getValue(), expiresAt.getValue()));
+    InOrder inOrder = inOrder(jobService);
+    inOrder.verify(jobService).runLeased(job7);
+    inOrder.verify(jobService).runLeased(job8);
+  }
+
+  @Test
+  public void a_busy_node_does_not_look_for_jobs() {
+    when(jobExecutor.getIdleCapacity()).thenReturn(0);
+
+    assertEquals(0, jobDispatcher.leaseQueuedJobs());
+
+    verify(jobsRepository, never()).lockUnleased(anyInt());
+  }
+
+  @Test
+  public void nothing_is_leased_when_the_shared_queue_is_empty() {
+    when(jobExecutor.getIdleCapacity()).thenReturn(2);
+    when(jobsRepository.lockUnleased(2)).thenReturn(List.of());
+
+    assertEquals(0, jobDispatcher.leaseQueuedJobs());
+
+    verify(jobsRepository, never()).lease(anyList(), any(), any(), any());
+    verify(jobService, never()).runLeased(any());
+  }
+
+  @Test
+  public void nothing_is_run_when_the_transaction_template_returns_null() {
+    reset(transactionTemplate);
+    when(jobExecutor.getIdleCapacity()).thenReturn(2);
+
+    assertEquals(0, jobDispatcher.leaseQueuedJobs());
+
+    verify(jobService, never()).runLeased(any());
+  }
+
+  @Test
+  public void a_heartbeat_renews_this_nodes_leases_and_recovers_expired_ones() {
+    when(jobsRepository.recoverOrphans(any(), any(), any())).thenReturn(0, 2);
+
+    jobDispatcher.heartbeat();
+    jobDispatcher.heartbeat();
+
+    ArgumentCaptor<ZonedDateTime> now = ArgumentCaptor.forClass(ZonedDateTime.class);
+    verify(jobsRepository, times(2)).renewLeases(eq("node-a"), any(), now.capture());
+    // only leases that expired are taken back, never those of this node
+    verify(jobsRepository)
+        .recoverOrphans(null, now.getAllValues().get(0), Set.of("IdempotentTestJob"));
+    verify(jobsRepository)
+        .recoverOrphans(null, now.getAllValues().get(1), Set.of("IdempotentTestJob"));
+    verify(jobService, times(2)).advanceWorkflows();
+  }
+
+  @Test
+  public void a_heartbeat_cancels_this_nodes_jobs_that_were_cancelled_on_another_node() {
+    when(jobsRepository.findIdsToCancel("node-a")).thenReturn(List.of(7L, 8L));
+
+    jobDispatcher.heartbeat();
+
+    verify(jobService).cancelJob(7L);
+    verify(jobService).cancelJob(8L);
+  }
+}
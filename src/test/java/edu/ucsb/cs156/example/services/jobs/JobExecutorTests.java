@@ -0,0 +1,330 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.zaxxer.hikari.HikariDataSource;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobExecutorTests {
+
+  private JobExecutor jobExecutor;
+
+  private JobExecutor executorWith(DataSource dataSource, int maxConcurrent, int maxQueued) {
+    JobExecutor executor = new JobExecutor();
+    ReflectionTestUtils.setField(executor, "dataSource", dataSource);
+    ReflectionTestUtils.setField(executor, "maxConcurrent", maxConcurrent);
+    ReflectionTestUtils.setField(executor, "maxQueued", maxQueued);
+    executor.init();
+    return executor;
+  }
+
+  @AfterEach
+  public void teardown() {
+    if (jobExecutor != null) {
+      jobExecutor.shutdown();
+    }
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  public void at_most_max_concurrent_tasks_run_and_the_rest_queue() throws Exception {
+    jobExecutor = executorWith(null, 1, 2);
+    CountDownLatch release = new CountDownLatch(1);
+
+    jobExecutor.submit(() -> awaitQuietly(release));
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getRunningCount() == 1);
+    jobExecutor.submit(() -> {});
+    jobExecutor.submit(() -> {});
+
+    await()
+        .atMost(5, SECONDS)
+        .untilAsserted(
+            () -> {
+              assertEquals(1, jobExecutor.getRunningCount());
+              assertEquals(2, jobExecutor.getQueuedCount());
+            });
+    JobQueueFullException e =
+        assertThrows(JobQueueFullException.class, () -> jobExecutor.submit(() -> {}));
+    assertEquals("Job queue is full (2 jobs waiting); try again later", e.getMessage());
+
+    release.countDown();
+    await()
+        .atMost(5, SECONDS)
+        .untilAsserted(
+            () -> {
+              assertEquals(0, jobExecutor.getRunningCount());
+              assertEquals(0, jobExecutor.getQueuedCount());
+            });
+  }
+
+  @Test
+  public void idle_capacity_counts_the_run_slots_no_task_is_waiting_for() throws Exception {
+    jobExecutor = executorWith(null, 2, 5);
+    CountDownLatch release = new CountDownLatch(1);
+    assertEquals(2, jobExecutor.getIdleCapacity());
+
+    jobExecutor.submit(() -> awaitQuietly(release));
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getIdleCapacity() == 1);
+    jobExecutor.submit(() -> awaitQuietly(release));
+    jobExecutor.submit(() -> {});
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getQueuedCount() == 1);
+    assertEquals(0, jobExecutor.getIdleCapacity());
+
+    release.countDown();
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getIdleCapacity() == 2);
+  }
+
+  @Test
+  public void queued_tasks_run_in_submission_order() throws Exception {
+    jobExecutor = executorWith(null, 1, 10);
+    CountDownLatch release = new CountDownLatch(1);
+    List<Integer> order = new CopyOnWriteArrayList<>();
+
+    jobExecutor.submit(() -> awaitQuietly(release));
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getRunningCount() == 1);
+    for (int i = 0; i < 5; i++) {
+      int n = i;
+      jobExecutor.submit(() -> order.add(n));
+      await().atMost(5, SECONDS).until(() -> jobExecutor.getQueuedCount() == n + 1);
+    }
+    release.countDown();
+
+    await().atMost(5, SECONDS).until(() -> order.size() == 5);
+    assertEquals(List.of(0, 1, 2, 3, 4), order);
+  }
+
+  @Test
+  public void the_security_context_of_the_submitter_is_available_to_the_task() throws Exception {
+    jobExecutor = executorWith(null, 1, 1);
+    Authentication authentication = new TestingAuthenticationToken("admin", "password");
+    SecurityContextHolder.getContext().setAuthentication(authentication);
+    AtomicReference<Authentication> seen = new AtomicReference<>();
+
+    jobExecutor.submit(() -> seen.set(SecurityContextHolder.getContext().getAuthentication()));
+
+    await().atMost(5, SECONDS).until(() -> seen.get() != null);
+    assertSame(authentication, seen.get());
+  }
+
+  @Test
+  public void a_failing_task_releases_its_permit() throws Exception {
+    // room for both, since the first may not have left the queue when the second is submitted
+    jobExecutor = executorWith(null, 1, 2);
+    CountDownLatch ran = new CountDownLatch(1);
+
+    jobExecutor.submit(
+        () -> {
+          throw new IllegalStateException("boom");
+        });
+    jobExecutor.submit(ran::countDown);
+
+    assertEquals(true, ran.await(5, SECONDS));
+  }
+
+  @Test
+  public void a_task_interrupted_while_queued_gives_up_its_queue_slot() throws Exception {
+    jobExecutor = executorWith(null, 1, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    jobExecutor.submit(() -> awaitQuietly(release));
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getRunningCount() == 1);
+    jobExecutor.submit(() -> {});
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getQueuedCount() == 1);
+
+    ((ExecutorService) ReflectionTestUtils.getField(jobExecutor, "executor")).shutdownNow();
+
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getQueuedCount() == 0);
+  }
+
+  @Test
+  public void a_task_cancelled_while_queued_never_runs_and_gives_up_its_slot() throws Exception {
+    jobExecutor = executorWith(null, 1, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicReference<Boolean> ran = new AtomicReference<>(false);
+    jobExecutor.submit(() -> awaitQuietly(release));
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getRunningCount() == 1);
+    Future<?> queued = jobExecutor.submit(() -> ran.set(true));
+
+    queued.cancel(true);
+
+    assertEquals(0, jobExecutor.getQueuedCount());
+    release.countDown();
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getRunningCount() == 0);
+    assertEquals(false, ran.get());
+  }
+
+  @Test
+  public void a_running_task_is_interrupted_when_cancelled() throws Exception {
+    jobExecutor = executorWith(null, 1, 1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    Future<?> running =
+        jobExecutor.submit(
+            () -> {
+              try {
+                Thread.sleep(Long.MAX_VALUE);
+              } catch (InterruptedException e) {
+                interrupted.countDown();
+              }
+            });
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getRunningCount() == 1);
+
+    running.cancel(true);
+
+    assertEquals(true, interrupted.await(5, SECONDS));
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getRunningCount() == 0);
+  }
+
+  @Test
+  public void drain_waits_for_running_and_queued_tasks_then_refuses_more() throws Exception {
+    jobExecutor = executorWith(null, 1, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<Integer> ran = new CopyOnWriteArrayList<>();
+    jobExecutor.submit(() -> awaitQuietly(release));
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getRunningCount() == 1);
+    jobExecutor.submit(() -> ran.add(1));
+
+    assertEquals(false, jobExecutor.drain(50));
+    release.countDown();
+    assertEquals(true, jobExecutor.drain(5_000));
+
+    assertEquals(List.of(1), ran);
+    assertThrows(JobQueueFullException.class, () -> jobExecutor.submit(() -> {}));
+    assertEquals(0, jobExecutor.getQueuedCount());
+  }
+
+  @Test
+  public void max_concurrent_defaults_to_half_of_the_connection_pool() {
+    HikariDataSource dataSource = new HikariDataSource();
+    dataSource.setMaximumPoolSize(10);
+
+    jobExecutor = executorWith(dataSource, 0, 7);
+
+    assertEquals(5, jobExecutor.getMaxConcurrent());
+    assertEquals(7, jobExecutor.getMaxQueued());
+  }
+
+  @Test
+  public void max_concurrent_is_at_least_one() {
+    HikariDataSource dataSource = new HikariDataSource();
+    dataSource.setMaximumPoolSize(1);
+
+    jobExecutor = executorWith(dataSource, 0, 1);
+
+    assertEquals(1, jobExecutor.getMaxConcurrent());
+  }
+
+  @Test
+  public void max_concurrent_is_one_when_the_pool_size_is_unknown() {
+    jobExecutor = executorWith(mock(DataSource.class), 0, 1);
+
+    assertEquals(1, jobExecutor.getMaxConcurrent());
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Test
+  public void tasks_run_on_virtual_threads_by_default() throws Exception {
+    jobExecutor = executorWith(null, 1, 1);
+    AtomicReference<Thread> thread = new AtomicReference<>();
+
+    jobExecutor.submit(() -> thread.set(Thread.currentThread())).get();
+
+    assertEquals(true, thread.get().isVirtual());
+    assertTrue(thread.get().getName().startsWith("job-"));
+  }
+
+  @Test
+  public void tasks_run_on_platform_threads_when_usage_is_measured() throws Exception {
+    jobExecutor = executorWith(null, 1, 1);
+    ReflectionTestUtils.setField(jobExecutor, "measureUsage", true);
+    AtomicReference<Thread> thread = new AtomicReference<>();
+
+    jobExecutor.submit(() -> thread.set(Thread.currentThread())).get();
+
+    assertEquals(false, thread.get().isVirtual());
+    assertTrue(thread.get().getName().startsWith("job-run-"));
+  }
+
+  @Test
+  public void cancelling_a_running_task_interrupts_it() throws Exception {
+    jobExecutor = executorWith(null, 1, 1);
+    assertCancellingARunningTaskInterruptsIt();
+  }
+
+  @Test
+  public void cancelling_a_task_running_on_a_platform_thread_interrupts_it() throws Exception {
+    jobExecutor = executorWith(null, 1, 1);
+    ReflectionTestUtils.setField(jobExecutor, "measureUsage", true);
+    assertCancellingARunningTaskInterruptsIt();
+  }
+
+  private void assertCancellingARunningTaskInterruptsIt() throws Exception {
+    CountDownLatch interrupted = new CountDownLatch(1);
+
+    Future<?> future =
+        jobExecutor.submit(
+            () -> {
+              try {
+                Thread.sleep(60_000);
+              } catch (InterruptedException e) {
+                interrupted.countDown();
+              }
+            });
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getRunningCount() == 1);
+    future.cancel(true);
+
+    assertTrue(interrupted.await(5, SECONDS));
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getRunningCount() == 0);
+  }
+
+  @Test
+  public void a_failing_task_fails_its_future() throws Exception {
+    jobExecutor = executorWith(null, 1, 1);
+    assertAFailingTaskFailsItsFuture();
+  }
+
+  @Test
+  public void a_task_failing_on_a_platform_thread_fails_its_future() throws Exception {
+    jobExecutor = executorWith(null, 1, 1);
+    ReflectionTestUtils.setField(jobExecutor, "measureUsage", true);
+    assertAFailingTaskFailsItsFuture();
+  }
+
+  private void assertAFailingTaskFailsItsFuture() {
+    Future<?> future =
+        jobExecutor.submit(
+            () -> {
+              throw new IllegalStateException("boom");
+            });
+
+    ExecutionException e = assertThrows(ExecutionException.class, future::get);
+    assertInstanceOf(IllegalStateException.class, e.getCause());
+    assertEquals("boom", e.getCause().getMessage());
+  }
+}
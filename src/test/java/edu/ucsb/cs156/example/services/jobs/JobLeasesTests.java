@@ -0,0 +1,46 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.Job;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobLeasesTests {
+
+  private JobLeases leasesFor(String nodeId) {
+    JobLeases jobLeases = new JobLeases();
+    ReflectionTestUtils.setField(jobLeases, "nodeId", nodeId);
+    ReflectionTestUtils.setField(jobLeases, "durationMs", 30_000L);
+    jobLeases.init();
+    return jobLeases;
+  }
+
+  @Test
+  public void the_node_id_defaults_to_the_jvm_name() {
+    assertEquals(ManagementFactory.getRuntimeMXBean().getName(), leasesFor("").getNodeId());
+    assertEquals(ManagementFactory.getRuntimeMXBean().getName(), leasesFor(null).getNodeId());
+    assertEquals("node-a", leasesFor("node-a").getNodeId());
+  }
+
+  @Test
+  public void a_lease_runs_for_the_lease_duration_from_now() {
+    JobLeases jobLeases = leasesFor("node-a");
+    Job job = Job.builder().build();
+
+    jobLeases.lease(job);
+
+    assertEquals("node-a", job.getLeaseOwner());
+    assertEquals(
+        Duration.ofSeconds(30), Duration.between(job.getHeartbeatAt(), job.getLeaseExpiresAt()));
+
+    jobLeases.release(job);
+    assertNull(job.getLeaseOwner());
+    assertNull(job.getLeaseExpiresAt());
+    assertTrue(job.getHeartbeatAt() != null);
+  }
+}
@@ -0,0 +1,109 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class JobLogFilterTests {
+
+  private static final String LOG =
+      String.join(
+          "\n",
+          "Hello World! from test job!",
+          "2025-10-17T23:23:51.089Z DEBUG Reading rows",
+          "2025-10-17T23:23:51.090Z WARN Skipped a row {\"row\":17}",
+          "2025-10-17T23:23:51.091Z ERROR Could not save row 18",
+          "Goodbye from test job!");
+
+  private static Iterator<byte[]> chunksOf(String log, int size) {
+    byte[] bytes = log.getBytes(UTF_8);
+    return java.util.stream.IntStream.iterate(0, i -> i < bytes.length, i -> i + size)
+        .mapToObj(i -> Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + size)))
+        .iterator();
+  }
+
+  private static String filter(Iterator<byte[]> chunks, JobLogLevel level, String grep)
+      throws Exception {
+    try (InputStream in = new JobLogFilter(chunks, level, grep)) {
+      return new String(in.readAllBytes(), UTF_8);
+    }
+  }
+
+  @Test
+  public void lines_below_the_level_are_left_out() throws Exception {
+    assertEquals(
+        String.join(
+            "\n",
+            "2025-10-17T23:23:51.090Z WARN Skipped a row {\"row\":17}",
+            "2025-10-17T23:23:51.091Z ERROR Could not save row 18"),
+        filter(chunksOf(LOG, 8192), JobLogLevel.WARN, null));
+  }
+
+  @Test
+  public void lines_without_a_level_count_as_info() throws Exception {
+    assertEquals(
+        String.join(
+            "\n",
+            "Hello World! from test job!",
+            "2025-10-17T23:23:51.090Z WARN Skipped a row {\"row\":17}",
+            "2025-10-17T23:23:51.091Z ERROR Could not save row 18",
+            "Goodbye from test job!"),
+        filter(chunksOf(LOG, 8192), JobLogLevel.INFO, null));
+  }
+
+  @Test
+  public void only_lines_containing_grep_are_kept() throws Exception {
+    assertEquals(
+        "2025-10-17T23:23:51.089Z DEBUG Reading rows\n"
+            + "2025-10-17T23:23:51.090Z WARN Skipped a row {\"row\":17}\n"
+            + "2025-10-17T23:23:51.091Z ERROR Could not save row 18",
+        filter(chunksOf(LOG, 8192), null, "row"));
+    assertEquals(
+        "2025-10-17T23:23:51.091Z ERROR Could not save row 18",
+        filter(chunksOf(LOG, 8192), JobLogLevel.ERROR, "row"));
+    assertEquals("", filter(chunksOf(LOG, 8192), null, "nothing like this"));
+  }
+
+  @Test
+  public void lines_split_across_chunks_are_put_back_together() throws Exception {
+    for (int size = 1; size < 40; size++) {
+      assertEquals(
+          "2025-10-17T23:23:51.090Z WARN Skipped a row {\"row\":17}",
+          filter(chunksOf(LOG, size), JobLogLevel.WARN, "Skipped"),
+          "chunks of " + size);
+      assertEquals(LOG, filter(chunksOf(LOG, size), null, null), "chunks of " + size);
+    }
+  }
+
+  @Test
+  public void multibyte_characters_are_matched_across_chunks() throws Exception {
+    String log = "2025-10-17T23:23:51.089Z WARN Ünïcødé naïve café\nplain";
+
+    assertEquals(
+        "2025-10-17T23:23:51.089Z WARN Ünïcødé naïve café",
+        filter(chunksOf(log, 3), JobLogLevel.WARN, "café"));
+  }
+
+  @Test
+  public void an_empty_log_has_no_lines() throws Exception {
+    assertEquals("", filter(List.<byte[]>of().iterator(), JobLogLevel.DEBUG, null));
+    assertEquals("", filter(List.of(new byte[0]).iterator(), null, "x"));
+  }
+
+  @Test
+  public void the_stream_can_be_read_a_byte_at_a_time() throws Exception {
+    try (InputStream in = new JobLogFilter(chunksOf(LOG, 5), JobLogLevel.ERROR, null)) {
+      StringBuilder read = new StringBuilder();
+      for (int b = in.read(); b >= 0; b = in.read()) {
+        read.append((char) b);
+      }
+      assertEquals("2025-10-17T23:23:51.091Z ERROR Could not save row 18", read.toString());
+      assertEquals(0, in.available());
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import org.junit.jupiter.api.Test;
+
+public class JobLogHubTests {
+
+  private final JobLogHub jobLogHub = new JobLogHub();
+
+  @Test
+  public void appends_and_completion_reach_every_listener_of_the_job() {
+    JobLogHub.Listener first = mock(JobLogHub.Listener.class);
+    JobLogHub.Listener second = mock(JobLogHub.Listener.class);
+    JobLogHub.Listener other = mock(JobLogHub.Listener.class);
+    jobLogHub.subscribe(1L, first);
+    jobLogHub.subscribe(1L, second);
+    jobLogHub.subscribe(2L, other);
+    byte[] bytes = "line".getBytes();
+
+    jobLogHub.publish(1L, 7L, bytes);
+    jobLogHub.complete(1L);
+
+    verify(first).onAppend(7L, bytes);
+    verify(second).onAppend(7L, bytes);
+    verify(first).onComplete();
+    verify(second).onComplete();
+    verifyNoInteractions(other);
+  }
+
+  @Test
+  public void unsubscribing_the_last_listener_forgets_the_job() {
+    JobLogHub.Listener first = mock(JobLogHub.Listener.class);
+    JobLogHub.Listener second = mock(JobLogHub.Listener.class);
+    Runnable unsubscribeFirst = jobLogHub.subscribe(1L, first);
+    Runnable unsubscribeSecond = jobLogHub.subscribe(1L, second);
+
+    unsubscribeFirst.run();
+    assertTrue(jobLogHub.hasListeners(1L));
+    unsubscribeSecond.run();
+    assertFalse(jobLogHub.hasListeners(1L));
+    unsubscribeSecond.run();
+
+    jobLogHub.publish(1L, 0L, new byte[0]);
+    jobLogHub.complete(1L);
+    verifyNoInteractions(first, second);
+  }
+}
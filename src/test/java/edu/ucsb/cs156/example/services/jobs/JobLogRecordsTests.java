@@ -0,0 +1,57 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class JobLogRecordsTests {
+
+  private static final Instant TIME = Instant.parse("2025-10-17T23:23:51.089512Z");
+
+  @Test
+  public void a_record_is_the_time_the_level_and_the_message() {
+    assertEquals(
+        "2025-10-17T23:23:51.089Z INFO Started",
+        JobLogRecords.format(JobLogLevel.INFO, TIME, "Started", Map.of()));
+  }
+
+  @Test
+  public void fields_follow_the_message_as_json() {
+    Map<String, Object> fields = new LinkedHashMap<>();
+    fields.put("row", 17);
+    fields.put("reason", "no email");
+
+    assertEquals(
+        "2025-10-17T23:23:51.089Z WARN Skipped a row {\"row\":17,\"reason\":\"no email\"}",
+        JobLogRecords.format(JobLogLevel.WARN, TIME, "Skipped a row", fields));
+  }
+
+  @Test
+  public void a_record_never_spans_lines() {
+    assertEquals(
+        "2025-10-17T23:23:51.089Z ERROR first\\nsecond",
+        JobLogRecords.format(JobLogLevel.ERROR, TIME, "first\r\nsecond", null));
+  }
+
+  @Test
+  public void the_level_of_a_record_is_read_back() {
+    for (JobLogLevel level : JobLogLevel.values()) {
+      assertEquals(
+          level, JobLogRecords.levelOf(JobLogRecords.format(level, TIME, "message", Map.of())));
+    }
+    assertEquals(JobLogLevel.WARN, JobLogRecords.levelOf("2025-10-17T23:23:51Z WARN"));
+  }
+
+  @Test
+  public void lines_that_are_not_records_have_no_level() {
+    assertNull(JobLogRecords.levelOf("Hello World! from test job!"));
+    assertNull(JobLogRecords.levelOf(""));
+    assertNull(JobLogRecords.levelOf("WARN this looks like a level"));
+    assertNull(JobLogRecords.levelOf("2025-10-17T23:23:51.089Z NOTICE not a level"));
+    assertNull(JobLogRecords.levelOf("some words that are long enough Z WARN x"));
+  }
+}
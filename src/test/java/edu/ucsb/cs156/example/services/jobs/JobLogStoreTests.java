@@ -0,0 +1,425 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.JobLogChunk;
+import edu.ucsb.cs156.example.repositories.JobLogChunksRepository;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobLogStoreTests {
+
+  @Mock private JobLogChunksRepository jobLogChunksRepository;
+
+  @Mock private JobLogHub jobLogHub;
+
+  @InjectMocks private JobLogStore jobLogStore;
+
+  // stands in for the job_log_chunks table
+  private final List<JobLogChunk> table = new ArrayList<>();
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobLogStore, "flushBytes", 16);
+    ReflectionTestUtils.setField(jobLogStore, "flushIntervalMs", 60_000L);
+
+    when(jobLogChunksRepository.findFirstByJobIdOrderBySequenceNumberDesc(anyLong()))
+        .thenAnswer(
+            invocation -> {
+              long jobId = invocation.getArgument(0);
+              return table.stream()
+                  .filter(c -> c.getJobId() == jobId)
+                  .reduce((first, second) -> second);
+            });
+    when(jobLogChunksRepository.findSequenceNumberAtOffset(anyLong(), anyLong()))
+        .thenAnswer(
+            invocation -> {
+              long jobId = invocation.getArgument(0);
+              long offset = invocation.getArgument(1);
+              return table.stream()
+                  .filter(c -> c.getJobId() == jobId && c.getStartOffset() <= offset)
+                  .map(JobLogChunk::getSequenceNumber)
+                  .reduce((first, second) -> second)
+                  .orElse(null);
+            });
+    when(jobLogChunksRepository
+            .findFirstByJobIdAndStartLineLessThanOrderByStartLineDescSequenceNumberDesc(
+                anyLong(), anyLong()))
+        .thenAnswer(
+            invocation -> {
+              long jobId = invocation.getArgument(0);
+              long line = invocation.getArgument(1);
+              return table.stream()
+                  .filter(c -> c.getJobId() == jobId && c.getStartLine() < line)
+                  .reduce((first, second) -> second);
+            });
+    when(jobLogChunksRepository.save(any(JobLogChunk.class)))
+        .thenAnswer(
+            invocation -> {
+              table.add(invocation.getArgument(0));
+              return invocation.getArgument(0);
+            });
+    when(jobLogChunksRepository.findByJobIdAndSequenceNumberGreaterThanOrderBySequenceNumber(
+            anyLong(), anyInt(), any(Limit.class)))
+        .thenAnswer(
+            invocation -> {
+              long jobId = invocation.getArgument(0);
+              int after = invocation.getArgument(1);
+              Limit limit = invocation.getArgument(2);
+              return table.stream()
+                  .filter(c -> c.getJobId() == jobId && c.getSequenceNumber() > after)
+                  .limit(limit.max())
+                  .toList();
+            });
+  }
+
+  private String read(long jobId) throws Exception {
+    try (InputStream in = jobLogStore.openStream(jobId)) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private String read(long jobId, long fromOffset) throws Exception {
+    try (InputStream in = jobLogStore.openStream(jobId, fromOffset)) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  @Test
+  public void small_messages_stay_in_memory_but_are_readable() throws Exception {
+    assertEquals(3, jobLogStore.append(1L, "one"));
+    assertEquals(5, jobLogStore.append(1L, "twö"));
+
+    verify(jobLogChunksRepository, never()).save(any());
+    assertEquals("one\ntwö", read(1L));
+  }
+
+  @Test
+  public void appends_that_open_a_buffer_at_once_share_the_first_one_put_in_place()
+      throws Exception {
+    // another append opens and fills the buffer while this one reads the last chunk
+    when(jobLogChunksRepository.findFirstByJobIdOrderBySequenceNumberDesc(2L))
+        .thenAnswer(
+            invocation -> {
+              jobLogStore.append(2L, "first");
+              return Optional.empty();
+            })
+        .thenReturn(Optional.empty());
+
+    jobLogStore.append(2L, "second");
+
+    assertEquals("first\nsecond", read(2L));
+  }
+
+  @Test
+  public void buffer_is_flushed_once_it_reaches_flush_bytes() throws Exception {
+    jobLogStore.append(1L, "0123456789");
+    jobLogStore.append(1L, "abcdef");
+
+    assertEquals(1, table.size());
+    assertEquals(0, table.get(0).getSequenceNumber());
+    assertEquals("0123456789\nabcdef", new String(table.get(0).getChunk(), StandardCharsets.UTF_8));
+
+    jobLogStore.append(1L, "tail");
+    assertEquals("0123456789\nabcdef\ntail", read(1L));
+  }
+
+  @Test
+  public void close_flushes_the_remainder_and_releases_the_buffer() throws Exception {
+    jobLogStore.append(1L, "line");
+    jobLogStore.close(1L);
+    jobLogStore.close(1L);
+
+    assertEquals(1, table.size());
+    assertEquals("line", read(1L));
+
+    // a buffer opened after close continues the existing sequence, offsets and line structure
+    jobLogStore.append(1L, "more");
+    jobLogStore.close(1L);
+    assertEquals(1, table.get(1).getSequenceNumber());
+    assertEquals(4, table.get(1).getStartOffset());
+    assertEquals("line\nmore", read(1L));
+  }
+
+  @Test
+  public void close_of_unknown_job_does_nothing() {
+    jobLogStore.close(42L);
+    verify(jobLogChunksRepository, never()).save(any());
+  }
+
+  @Test
+  public void null_messages_are_logged_as_null() throws Exception {
+    jobLogStore.append(1L, null);
+    assertEquals("null", read(1L));
+  }
+
+  @Test
+  public void flushPending_only_flushes_buffers_older_than_the_interval() throws Exception {
+    jobLogStore.append(1L, "recent");
+    jobLogStore.flushPending();
+    assertEquals(0, table.size());
+
+    ReflectionTestUtils.setField(jobLogStore, "flushIntervalMs", 0L);
+    jobLogStore.flushPending();
+    assertEquals(1, table.size());
+
+    // an empty buffer is not written again
+    jobLogStore.flushPending();
+    assertEquals(1, table.size());
+    assertEquals("recent", read(1L));
+  }
+
+  @Test
+  public void logs_of_different_jobs_are_kept_apart() throws Exception {
+    jobLogStore.append(1L, "job one");
+    jobLogStore.append(2L, "job two");
+    jobLogStore.close(1L);
+
+    assertEquals("job one", read(1L));
+    assertEquals("job two", read(2L));
+    assertEquals(1L, table.get(0).getJobId());
+  }
+
+  @Test
+  public void reads_page_through_many_chunks() throws Exception {
+    ReflectionTestUtils.setField(jobLogStore, "flushBytes", 1);
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < JobLogStore.PAGE_SIZE * 2 + 5; i++) {
+      jobLogStore.append(1L, "line " + i);
+      expected.append(i == 0 ? "" : "\n").append("line ").append(i);
+    }
+
+    assertEquals(expected.toString(), read(1L));
+    verify(jobLogChunksRepository, times(4))
+        .findByJobIdAndSequenceNumberGreaterThanOrderBySequenceNumber(
+            eq(1L), anyInt(), any(Limit.class));
+  }
+
+  @Test
+  public void reads_of_a_job_without_a_log_are_empty() throws Exception {
+    assertEquals("", read(9L));
+  }
+
+  @Test
+  public void chunks_flushed_during_a_read_are_not_skipped() throws Exception {
+    jobLogStore.append(1L, "first");
+
+    // the first query sees no chunks; before the buffer is inspected the job flushes
+    doAnswer(
+            invocation -> {
+              List<JobLogChunk> before = List.copyOf(table);
+              ReflectionTestUtils.setField(jobLogStore, "flushIntervalMs", 0L);
+              jobLogStore.flushPending();
+              return before;
+            })
+        .doAnswer(invocation -> List.copyOf(table))
+        .when(jobLogChunksRepository)
+        .findByJobIdAndSequenceNumberGreaterThanOrderBySequenceNumber(
+            eq(1L), eq(-1), any(Limit.class));
+
+    jobLogStore.append(1L, "second");
+    assertEquals("first\nsecond", read(1L));
+  }
+
+  @Test
+  public void chunks_flushed_by_close_during_a_read_are_not_skipped() throws Exception {
+    jobLogStore.append(1L, "only");
+
+    doAnswer(
+            invocation -> {
+              List<JobLogChunk> before = List.copyOf(table);
+              jobLogStore.close(1L);
+              return before;
+            })
+        .doAnswer(invocation -> List.copyOf(table))
+        .when(jobLogChunksRepository)
+        .findByJobIdAndSequenceNumberGreaterThanOrderBySequenceNumber(
+            eq(1L), eq(-1), any(Limit.class));
+
+    assertEquals("only", read(1L));
+  }
+
+  @Test
+  public void append_after_close_on_a_stale_buffer_opens_a_new_one() throws Exception {
+    jobLogStore.append(1L, "a");
+    @SuppressWarnings("unchecked")
+    Map<Long, Object> buffers =
+        (Map<Long, Object>) ReflectionTestUtils.getField(jobLogStore, "buffers");
+    Object stale = buffers.get(1L);
+    jobLogStore.close(1L);
+
+    // simulate a racing append that still finds the closed buffer in the map
+    buffers.put(1L, stale);
+    jobLogStore.append(1L, "b");
+    jobLogStore.close(1L);
+
+    assertEquals("a\nb", read(1L));
+  }
+
+  @Test
+  public void chunks_that_disappear_during_a_read_do_not_stall_it() throws Exception {
+    // the buffer believes chunk 0 exists, but it was deleted along with its job
+    JobLogChunk deleted =
+        JobLogChunk.builder().jobId(1L).sequenceNumber(0).chunk("gone".getBytes()).build();
+    when(jobLogChunksRepository.findFirstByJobIdOrderBySequenceNumberDesc(1L))
+        .thenReturn(Optional.of(deleted));
+    jobLogStore.append(1L, "late");
+
+    assertEquals("\nlate", read(1L));
+  }
+
+  @Test
+  public void cursor_throws_when_exhausted() throws Exception {
+    Iterator<byte[]> cursor = jobLogStore.cursor(5L, 0);
+    assertFalse(cursor.hasNext());
+    assertThrows(NoSuchElementException.class, cursor::next);
+  }
+
+  @Test
+  public void reads_from_an_offset_start_at_the_chunk_holding_it() throws Exception {
+    jobLogStore.append(1L, "0123456789abcdef");
+    jobLogStore.append(1L, "ghijklmnopqrstuv");
+    jobLogStore.append(1L, "buffered");
+
+    assertEquals(0, table.get(0).getStartOffset());
+    assertEquals(16, table.get(1).getStartOffset());
+    assertEquals("jklmnopqrstuv\nbuffered", read(1L, 20));
+    verify(jobLogChunksRepository)
+        .findByJobIdAndSequenceNumberGreaterThanOrderBySequenceNumber(
+            eq(1L), eq(0), any(Limit.class));
+
+    assertEquals("ered", read(1L, 38));
+    assertEquals("", read(1L, 42));
+    assertEquals("", read(1L, 100));
+  }
+
+  @Test
+  public void reads_from_an_offset_before_the_first_stored_chunk_start_at_the_beginning()
+      throws Exception {
+    jobLogStore.append(1L, "abc");
+    assertEquals("bc", read(1L, 1));
+  }
+
+  @Test
+  public void appends_are_published_with_their_offsets() throws Exception {
+    jobLogStore.append(1L, "quiet");
+    verify(jobLogHub, never()).publish(anyLong(), anyLong(), any());
+
+    when(jobLogHub.hasListeners(1L)).thenReturn(true);
+    jobLogStore.append(1L, "0123456789");
+    jobLogStore.append(1L, "é");
+
+    verify(jobLogHub).publish(1L, 5L, "\n0123456789".getBytes(StandardCharsets.UTF_8));
+    verify(jobLogHub).publish(1L, 16L, "\né".getBytes(StandardCharsets.UTF_8));
+
+    jobLogStore.close(1L);
+    verify(jobLogHub).complete(1L);
+  }
+
+  @Test
+  public void the_first_line_is_published_without_a_newline() throws Exception {
+    when(jobLogHub.hasListeners(1L)).thenReturn(true);
+    jobLogStore.append(1L, "first");
+    verify(jobLogHub).publish(1L, 0L, "first".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void chunks_record_the_number_of_lines_before_them() throws Exception {
+    jobLogStore.append(1L, "0123456789");
+    jobLogStore.append(1L, "abcdef");
+    jobLogStore.append(1L, "x\ny");
+    jobLogStore.close(1L);
+
+    assertEquals(0, table.get(0).getStartLine());
+    assertEquals(1, table.get(1).getStartLine());
+
+    // a buffer opened after close continues the line count
+    jobLogStore.append(1L, "z");
+    jobLogStore.close(1L);
+    assertEquals(3, table.get(2).getStartLine());
+  }
+
+  @Test
+  public void size_counts_stored_and_buffered_bytes_and_lines() throws Exception {
+    assertEquals(0, jobLogStore.size(1L).getBytes());
+    assertEquals(0, jobLogStore.size(1L).getLines());
+
+    jobLogStore.append(1L, "0123456789abcdef");
+    jobLogStore.append(1L, "two\nthree");
+    assertEquals(1, table.size());
+    assertEquals(26, jobLogStore.size(1L).getBytes());
+    assertEquals(3, jobLogStore.size(1L).getLines());
+
+    jobLogStore.close(1L);
+    assertEquals(26, jobLogStore.size(1L).getBytes());
+    assertEquals(3, jobLogStore.size(1L).getLines());
+  }
+
+  @Test
+  public void offsetAfterNewline_finds_newlines_in_stored_chunks_and_the_buffer() {
+    jobLogStore.append(1L, "0123456789abcdef");
+    jobLogStore.append(1L, "ghijklmnopqrstuv");
+    jobLogStore.append(1L, "wx");
+    jobLogStore.append(1L, "yz");
+    assertEquals(2, table.size());
+
+    assertEquals(17, jobLogStore.offsetAfterNewline(1L, 1));
+    assertEquals(34, jobLogStore.offsetAfterNewline(1L, 2));
+    assertEquals(37, jobLogStore.offsetAfterNewline(1L, 3));
+    assertEquals(-1, jobLogStore.offsetAfterNewline(1L, 4));
+
+    jobLogStore.close(1L);
+    assertEquals(37, jobLogStore.offsetAfterNewline(1L, 3));
+    assertEquals(-1, jobLogStore.offsetAfterNewline(1L, 4));
+    assertEquals(-1, jobLogStore.offsetAfterNewline(2L, 1));
+  }
+
+  @Test
+  public void bounded_reads_stop_at_the_end_of_the_range() throws Exception {
+    ReflectionTestUtils.setField(jobLogStore, "flushBytes", 1);
+    for (int i = 0; i < JobLogStore.PAGE_SIZE * 3; i++) {
+      jobLogStore.append(1L, "line " + i);
+    }
+
+    try (InputStream in = jobLogStore.openStream(1L, 7, 13)) {
+      assertEquals("line 1", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+      assertEquals(-1, in.read());
+      assertEquals(0, in.read(new byte[4], 0, 0));
+    }
+    try (InputStream in = jobLogStore.openStream(1L, 0, 4)) {
+      assertEquals('l', in.read());
+      assertEquals(1, in.skip(1));
+      assertEquals(2, in.available());
+      assertEquals("ne", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+    // only the first page of chunks was fetched
+    verify(jobLogChunksRepository, times(2))
+        .findByJobIdAndSequenceNumberGreaterThanOrderBySequenceNumber(
+            eq(1L), anyInt(), any(Limit.class));
+  }
+}
@@ -0,0 +1,212 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public class JobLogTailTests {
+
+  /** Records the events it is asked to send instead of writing them to a response. */
+  private static class RecordingEmitter extends SseEmitter {
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private volatile boolean completed;
+    private volatile boolean failing;
+    private final CountDownLatch sending = new CountDownLatch(1);
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+      sending.countDown();
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      if (failing) {
+        throw new IOException("Broken pipe");
+      }
+      events.add(
+          builder.build().stream()
+              .map(part -> part.getData().toString())
+              .collect(Collectors.joining()));
+    }
+
+    @Override
+    public void complete() {
+      completed = true;
+    }
+  }
+
+  private final JobLogStore jobLogStore = mock(JobLogStore.class);
+  private final JobLogHub jobLogHub = new JobLogHub();
+  private RecordingEmitter emitter;
+
+  @BeforeEach
+  public void setup() {
+    emitter = new RecordingEmitter();
+    when(jobLogStore.cursor(anyLong(), anyLong())).thenReturn(slices());
+  }
+
+  private static Iterator<byte[]> slices(String... slices) {
+    return List.of(slices).stream().map(s -> s.getBytes(StandardCharsets.UTF_8)).iterator();
+  }
+
+  private static String logEvent(long id, String data) {
+    return "id:" + id + "\nevent:log\ndata:" + data + "\n\n";
+  }
+
+  private static final String END_EVENT = "event:end\ndata:\n\n";
+
+  private Thread start(JobLogTail tail) {
+    return Thread.ofVirtual().start(tail);
+  }
+
+  @Test
+  public void a_finished_job_gets_its_stored_log_and_an_end_event() throws Exception {
+    when(jobLogStore.cursor(1L, 3L)).thenReturn(slices("lo\nsecond", "\nthird"));
+    JobLogTail tail = new JobLogTail(jobLogStore, jobLogHub, emitter, 1L, 3L, () -> true);
+
+    tail.run();
+
+    assertEquals(
+        List.of(logEvent(12, "lo\ndata:second"), logEvent(18, "\ndata:third"), END_EVENT),
+        emitter.events);
+    assertTrue(emitter.completed);
+    assertFalse(jobLogHub.hasListeners(1L));
+  }
+
+  @Test
+  public void lines_appended_while_running_are_pushed_without_duplicates() throws Exception {
+    // the line at offset 0 is both stored and published while the tail catches up
+    when(jobLogStore.cursor(1L, 0L))
+        .thenAnswer(
+            invocation -> {
+              jobLogHub.publish(1L, 0L, "first".getBytes());
+              return slices("first");
+            });
+    Thread thread = start(new JobLogTail(jobLogStore, jobLogHub, emitter, 1L, 0L, () -> false));
+    await().atMost(5, SECONDS).until(() -> emitter.events.size() == 1);
+
+    jobLogHub.publish(1L, 3L, "st\nsecond".getBytes());
+    jobLogHub.publish(1L, 12L, "\nthird".getBytes());
+    jobLogHub.complete(1L);
+    thread.join(5000);
+
+    assertEquals(
+        List.of(
+            logEvent(5, "first"),
+            logEvent(12, "\ndata:second"),
+            logEvent(18, "\ndata:third"),
+            END_EVENT),
+        emitter.events);
+    assertTrue(emitter.completed);
+    assertFalse(jobLogHub.hasListeners(1L));
+  }
+
+  /** Blocks the tail in its first send, then publishes enough lines to overflow its queue. */
+  private Thread overflow() throws Exception {
+    emitter.gate = new CountDownLatch(1);
+    Thread thread = start(new JobLogTail(jobLogStore, jobLogHub, emitter, 1L, 0L, () -> false));
+    await().atMost(5, SECONDS).until(() -> jobLogHub.hasListeners(1L));
+    jobLogHub.publish(1L, 0L, "x".getBytes());
+    emitter.sending.await(5, SECONDS);
+    for (int i = 1; i <= JobLogTail.QUEUE_CAPACITY + 1; i++) {
+      jobLogHub.publish(1L, i, "x".getBytes());
+    }
+    when(jobLogStore.cursor(1L, 1L))
+        .thenReturn(slices("x".repeat(JobLogTail.QUEUE_CAPACITY + 1)))
+        .thenReturn(slices());
+    return thread;
+  }
+
+  @Test
+  public void a_tail_that_falls_behind_catches_up_from_the_store() throws Exception {
+    Thread thread = overflow();
+    jobLogHub.complete(1L);
+    emitter.gate.countDown();
+    thread.join(5000);
+
+    assertEquals(
+        List.of(
+            logEvent(1, "x"),
+            logEvent(JobLogTail.QUEUE_CAPACITY + 2, "x".repeat(JobLogTail.QUEUE_CAPACITY + 1)),
+            END_EVENT),
+        emitter.events);
+    assertFalse(jobLogHub.hasListeners(1L));
+  }
+
+  @Test
+  public void a_tail_that_falls_behind_keeps_following_a_running_job() throws Exception {
+    Thread thread = overflow();
+    emitter.gate.countDown();
+    await().atMost(5, SECONDS).until(() -> emitter.events.size() == 2);
+    jobLogHub.publish(1L, JobLogTail.QUEUE_CAPACITY + 2, "y".getBytes());
+    jobLogHub.complete(1L);
+    thread.join(5000);
+
+    assertEquals(
+        List.of(
+            logEvent(1, "x"),
+            logEvent(JobLogTail.QUEUE_CAPACITY + 2, "x".repeat(JobLogTail.QUEUE_CAPACITY + 1)),
+            logEvent(JobLogTail.QUEUE_CAPACITY + 3, "y"),
+            END_EVENT),
+        emitter.events);
+  }
+
+  @Test
+  public void a_client_that_goes_away_stops_the_tail() throws Exception {
+    Thread thread = start(new JobLogTail(jobLogStore, jobLogHub, emitter, 1L, 0L, () -> false));
+    await().atMost(5, SECONDS).until(() -> jobLogHub.hasListeners(1L));
+
+    emitter.failing = true;
+    jobLogHub.publish(1L, 0L, "lost".getBytes());
+    thread.join(5000);
+
+    assertFalse(thread.isAlive());
+    assertFalse(emitter.completed);
+    assertFalse(jobLogHub.hasListeners(1L));
+  }
+
+  @Test
+  public void a_stream_that_times_out_stops_the_tail() throws Exception {
+    JobLogTail tail = new JobLogTail(jobLogStore, jobLogHub, emitter, 1L, 0L, () -> false);
+    Thread thread = start(tail);
+    await().atMost(5, SECONDS).until(() -> jobLogHub.hasListeners(1L));
+
+    // what the emitter's timeout callback does
+    tail.stop();
+    thread.join(5000);
+
+    assertFalse(thread.isAlive());
+    assertEquals(List.of(), emitter.events);
+    assertFalse(jobLogHub.hasListeners(1L));
+  }
+
+  @Test
+  public void an_interrupted_tail_completes_the_stream() throws Exception {
+    Thread thread = start(new JobLogTail(jobLogStore, jobLogHub, emitter, 1L, 0L, () -> false));
+    await().atMost(5, SECONDS).until(() -> jobLogHub.hasListeners(1L));
+
+    thread.interrupt();
+    thread.join(5000);
+
+    assertTrue(emitter.completed);
+    assertFalse(jobLogHub.hasListeners(1L));
+  }
+}
@@ -0,0 +1,64 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class JobMetricsTests {
+
+  private final JobMetrics jobMetrics = new JobMetrics();
+
+  @Test
+  public void values_are_counted_in_the_first_bucket_that_holds_them() {
+    JobMetrics.Histogram histogram = new JobMetrics.Histogram(new long[] {10, 100});
+
+    histogram.record(0);
+    histogram.record(10);
+    histogram.record(11);
+    histogram.record(100);
+    histogram.record(101);
+    histogram.record(5_000);
+
+    assertEquals(
+        Map.of("count", 6L, "sum", 5_222L, "buckets", Map.of("10", 2L, "100", 2L, "+Inf", 2L)),
+        histogram.snapshot());
+  }
+
+  @Test
+  public void metrics_are_kept_per_job_type() {
+    jobMetrics.record("TestJob", "complete", 3, 1_200, 2_000, 2);
+    jobMetrics.record("TestJob", "error", 7, 40, 10, 1);
+    jobMetrics.record("TestJob", "cancelled", 20_000, -1, 27, 1);
+    jobMetrics.record("OtherJob", "complete", 0, 0, 0, 0);
+
+    Map<String, Object> snapshot = jobMetrics.snapshot();
+
+    assertEquals(2, snapshot.size());
+    @SuppressWarnings("unchecked")
+    Map<String, Object> testJob = (Map<String, Object>) snapshot.get("TestJob");
+    assertEquals(Map.of("cancelled", 1L, "complete", 1L, "error", 1L), testJob.get("outcomes"));
+    assertEquals(3L, count(testJob, "queueWaitMs"));
+    assertEquals(20_010L, sum(testJob, "queueWaitMs"));
+    // a job that never started has no run time
+    assertEquals(2L, count(testJob, "runTimeMs"));
+    assertEquals(1_240L, sum(testJob, "runTimeMs"));
+    assertEquals(2_037L, sum(testJob, "logBytes"));
+    assertEquals(4L, sum(testJob, "logLines"));
+  }
+
+  @Test
+  public void there_are_no_metrics_before_any_job_finishes() {
+    assertEquals(Map.of(), jobMetrics.snapshot());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static long count(Map<String, Object> metrics, String histogram) {
+    return (long) ((Map<String, Object>) metrics.get(histogram)).get("count");
+  }
+
+  @SuppressWarnings("unchecked")
+  private static long sum(Map<String, Object> metrics, String histogram) {
+    return (long) ((Map<String, Object>) metrics.get(histogram)).get("sum");
+  }
+}
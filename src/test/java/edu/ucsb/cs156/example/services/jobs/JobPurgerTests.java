@@ -0,0 +1,128 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobPurgerTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobArtifactStore jobArtifactStore;
+
+  @InjectMocks private JobPurger jobPurger;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobPurger, "maxAgeDays", 30);
+    ReflectionTestUtils.setField(jobPurger, "maxCount", 1000);
+    ReflectionTestUtils.setField(jobPurger, "maxLogBytes", 1_000_000L);
+    ReflectionTestUtils.setField(jobPurger, "batchSize", 10);
+
+    // Mockito would answer 0 rather than null
+    when(jobsRepository.findLastIdCreatedBefore(any())).thenReturn(null);
+    when(jobsRepository.findIdBeyondNewest(anyInt())).thenReturn(null);
+    when(jobsRepository.findIdBeyondLogBytes(anyLong())).thenReturn(null);
+  }
+
+  @Test
+  public void nothing_is_deleted_when_every_job_is_within_the_limits() {
+    assertEquals(0, jobPurger.purge());
+    verify(jobsRepository, never()).deleteFinishedUpTo(anyLong(), anyInt());
+  }
+
+  @Test
+  public void jobs_up_to_the_newest_one_condemned_by_any_limit_are_deleted_in_batches() {
+    when(jobsRepository.findLastIdCreatedBefore(any())).thenReturn(40L);
+    when(jobsRepository.findIdBeyondNewest(1000)).thenReturn(55L);
+    when(jobsRepository.findIdBeyondLogBytes(1_000_000L)).thenReturn(50L);
+    when(jobsRepository.deleteFinishedUpTo(55L, 10)).thenReturn(10, 10, 3);
+
+    assertEquals(23, jobPurger.purge());
+    verify(jobsRepository, times(3)).deleteFinishedUpTo(55L, 10);
+  }
+
+  @Test
+  public void the_age_limit_is_measured_back_from_now() {
+    ArgumentCaptor<ZonedDateTime> cutoff = ArgumentCaptor.forClass(ZonedDateTime.class);
+    when(jobsRepository.findLastIdCreatedBefore(cutoff.capture())).thenReturn(7L);
+
+    jobPurger.purge();
+
+    ZonedDateTime expected = ZonedDateTime.now().minusDays(30);
+    assertTrue(Math.abs(expected.toEpochSecond() - cutoff.getValue().toEpochSecond()) < 60);
+    verify(jobsRepository).deleteFinishedUpTo(7L, 10);
+  }
+
+  @Test
+  public void limits_set_to_zero_are_not_applied() {
+    ReflectionTestUtils.setField(jobPurger, "maxAgeDays", 0);
+    ReflectionTestUtils.setField(jobPurger, "maxCount", 0);
+    ReflectionTestUtils.setField(jobPurger, "maxLogBytes", 0L);
+
+    assertEquals(0, jobPurger.purge());
+    verify(jobsRepository, never()).findLastIdCreatedBefore(any());
+    verify(jobsRepository, never()).findIdBeyondNewest(anyInt());
+    verify(jobsRepository, never()).findIdBeyondLogBytes(anyLong());
+  }
+
+  @Test
+  public void deleteAll_deletes_batches_until_none_are_left() {
+    when(jobsRepository.deleteBatch(10)).thenReturn(10, 0);
+
+    assertEquals(10, jobPurger.deleteAll());
+    verify(jobsRepository, times(2)).deleteBatch(10);
+  }
+
+  @Test
+  public void the_artifacts_of_deleted_jobs_are_deleted_with_them() {
+    when(jobsRepository.findIdBeyondNewest(1000)).thenReturn(55L);
+    when(jobsRepository.deleteFinishedUpTo(55L, 10)).thenReturn(2);
+    when(jobArtifactStore.jobIds()).thenReturn(List.of(12L, 60L, 13L));
+    when(jobsRepository.findExistingIds(List.of(12L, 60L, 13L))).thenReturn(List.of(60L));
+
+    jobPurger.purge();
+
+    verify(jobArtifactStore).delete(12L);
+    verify(jobArtifactStore).delete(13L);
+    verify(jobArtifactStore, never()).delete(60L);
+  }
+
+  @Test
+  public void deleteAll_deletes_every_artifact() {
+    when(jobsRepository.deleteBatch(10)).thenReturn(1);
+    when(jobArtifactStore.jobIds()).thenReturn(List.of(12L));
+
+    jobPurger.deleteAll();
+
+    verify(jobArtifactStore).delete(12L);
+  }
+
+  @Test
+  public void no_ids_are_looked_up_when_no_job_has_artifacts() {
+    when(jobsRepository.deleteBatch(10)).thenReturn(1);
+    when(jobArtifactStore.jobIds()).thenReturn(List.of());
+
+    jobPurger.deleteAll();
+
+    verify(jobsRepository, never()).findExistingIds(any());
+  }
+}
@@ -0,0 +1,51 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.jobs.IdempotentTestJob;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobRecoveryTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @InjectMocks private JobRecovery jobRecovery;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    JobLeases jobLeases = new JobLeases();
+    ReflectionTestUtils.setField(jobLeases, "nodeId", "node-a");
+    ReflectionTestUtils.setField(jobRecovery, "jobLeases", jobLeases);
+    ReflectionTestUtils.setField(
+        jobRecovery, "jobTypes", new JobTypes(List.of(TestJob.class, IdempotentTestJob.class)));
+  }
+
+  @Test
+  public void jobs_this_node_left_behind_are_recovered_at_startup() throws Exception {
+    when(jobsRepository.recoverOrphans(any(), any(), any())).thenReturn(3);
+
+    jobRecovery.run(null);
+
+    verify(jobsRepository).recoverOrphans(eq("node-a"), any(), eq(Set.of("IdempotentTestJob")));
+  }
+
+  @Test
+  public void startup_with_nothing_to_recover_is_quiet() throws Exception {
+    jobRecovery.run(null);
+
+    verify(jobsRepository).recoverOrphans(eq("node-a"), any(), eq(Set.of("IdempotentTestJob")));
+  }
+}
@@ -0,0 +1,207 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.JobSchedulesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class JobSchedulerTests {
+
+  @Mock private JobSchedulesRepository jobSchedulesRepository;
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobService jobService;
+
+  @Mock private TransactionTemplate transactionTemplate;
+
+  @InjectMocks private JobScheduler jobScheduler;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    JobTypes jobTypes = new JobTypes();
+    ReflectionTestUtils.setField(jobTypes, "objectMapper", new ObjectMapper());
+    ReflectionTestUtils.setField(jobScheduler, "jobTypes", jobTypes);
+
+    when(transactionTemplate.execute(any()))
+        .thenAnswer(
+            invocation ->
+                invocation
+                    .<TransactionCallback<?>>getArgument(0)
+                    .doInTransaction(new SimpleTransactionStatus()));
+  }
+
+  private static JobSchedule schedule(long id, Long lastJobId) {
+    return JobSchedule.builder()
+        .id(id)
+        .name("every minute")
+        .cron("0 * * * * *")
+        .jobType("TestJob")
+        .params("{\"fail\":false,\"sleepMs\":5,\"tasks\":0}")
+        .timeoutMs(1000L)
+        .lastJobId(lastJobId)
+        .build();
+  }
+
+  private void due(JobSchedule... schedules) {
+    List<Long> ids = Arrays.stream(schedules).map(JobSchedule::getId).toList();
+    when(jobSchedulesRepository.lockDue(any())).thenReturn(ids);
+    when(jobSchedulesRepository.findAllById(ids)).thenReturn(List.of(schedules));
+  }
+
+  @Test
+  public void nothing_is_launched_when_no_schedule_is_due() {
+    when(jobSchedulesRepository.lockDue(any())).thenReturn(List.of());
+
+    assertEquals(0, jobScheduler.runDueSchedules());
+
+    verify(jobSchedulesRepository, never()).findAllById(any());
+    verify(jobService, never()).runAsJob(any(), anyLong(), any());
+  }
+
+  @Test
+  public void nothing_is_launched_when_the_transaction_template_returns_null() {
+    reset(transactionTemplate);
+
+    assertEquals(0, jobScheduler.runDueSchedules());
+
+    verify(jobService, never()).runAsJob(any(), anyLong(), any());
+  }
+
+  @Test
+  public void a_due_schedule_launches_its_job_as_its_creator_and_is_due_again_at_the_next_minute() {
+    User creator = User.builder().id(7L).email("admin@ucsb.edu").build();
+    due(schedule(3L, null).toBuilder().createdBy(creator).build());
+    when(jobService.runAsJob(any(), eq(1000L), eq(creator)))
+        .thenReturn(Job.builder().id(40L).build());
+
+    assertEquals(1, jobScheduler.runDueSchedules());
+
+    ArgumentCaptor<JobContextConsumer> job = ArgumentCaptor.forClass(JobContextConsumer.class);
+    verify(jobService).runAsJob(job.capture(), eq(1000L), eq(creator));
+    TestJob testJob = assertInstanceOf(TestJob.class, job.getValue());
+    assertEquals(5, testJob.getSleepMs());
+
+    ArgumentCaptor<ZonedDateTime> next = ArgumentCaptor.forClass(ZonedDateTime.class);
+    verify(jobSchedulesRepository).scheduleNext(eq(3L), next.capture());
+    assertEquals(0, next.getValue().getSecond());
+    assertEquals(0, next.getValue().getNano());
+    verify(jobSchedulesRepository).recordRun(eq(3L), eq(40L), any());
+  }
+
+  @Test
+  public void a_run_is_skipped_while_the_last_job_of_the_schedule_is_still_active() {
+    due(schedule(3L, 39L));
+    when(jobsRepository.existsByIdAndStatusIn(39L, List.of("queued", "running"))).thenReturn(true);
+
+    assertEquals(0, jobScheduler.runDueSchedules());
+
+    verify(jobSchedulesRepository).scheduleNext(eq(3L), any());
+    verify(jobService, never()).runAsJob(any(), anyLong(), any());
+    verify(jobSchedulesRepository, never()).recordRun(anyLong(), anyLong(), any());
+  }
+
+  @Test
+  public void a_run_goes_ahead_once_the_last_job_has_finished() {
+    due(schedule(3L, 39L));
+    when(jobsRepository.existsByIdAndStatusIn(39L, List.of("queued", "running"))).thenReturn(false);
+    when(jobService.runAsJob(any(), anyLong(), any())).thenReturn(Job.builder().id(40L).build());
+
+    assertEquals(1, jobScheduler.runDueSchedules());
+
+    verify(jobSchedulesRepository).recordRun(eq(3L), eq(40L), any());
+  }
+
+  @Test
+  public void a_run_is_skipped_when_the_queue_is_full_and_the_other_schedules_still_run() {
+    due(schedule(3L, null), schedule(4L, null));
+    when(jobService.runAsJob(any(), anyLong(), any()))
+        .thenThrow(new JobQueueFullException(10))
+        .thenReturn(Job.builder().id(41L).build());
+
+    assertEquals(1, jobScheduler.runDueSchedules());
+
+    verify(jobSchedulesRepository, never()).recordRun(eq(3L), anyLong(), any());
+    verify(jobSchedulesRepository).recordRun(eq(4L), eq(41L), any());
+  }
+
+  @Test
+  public void a_schedule_whose_job_cannot_be_built_is_skipped() {
+    due(schedule(3L, null).toBuilder().jobType("NoSuchJob").build());
+
+    assertEquals(0, jobScheduler.runDueSchedules());
+
+    verify(jobService, never()).runAsJob(any(), anyLong(), any());
+  }
+
+  @Test
+  public void a_schedule_with_an_invalid_cron_expression_is_never_due_again() {
+    due(schedule(3L, null).toBuilder().cron("not cron").build());
+    when(jobService.runAsJob(any(), anyLong(), any())).thenReturn(Job.builder().id(40L).build());
+
+    jobScheduler.runDueSchedules();
+
+    verify(jobSchedulesRepository).scheduleNext(3L, null);
+  }
+
+  @Test
+  public void prepare_sets_when_the_schedule_is_next_due_and_rewrites_its_params() {
+    ZonedDateTime now = ZonedDateTime.of(2025, 1, 1, 12, 0, 30, 0, ZoneId.of("UTC"));
+    JobSchedule schedule = schedule(3L, null).toBuilder().params("{\"sleepMs\":7}").build();
+
+    jobScheduler.prepare(schedule, now);
+
+    assertEquals(now.withSecond(0).plusMinutes(1), schedule.getNextRunAt());
+    assertEquals("{\"fail\":false,\"sleepMs\":7,\"tasks\":0}", schedule.getParams());
+
+    schedule.setEnabled(false);
+    jobScheduler.prepare(schedule, now);
+    assertNull(schedule.getNextRunAt());
+  }
+
+  @Test
+  public void prepare_rejects_a_schedule_that_cannot_be_run() {
+    ZonedDateTime now = ZonedDateTime.now();
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> jobScheduler.prepare(schedule(3L, null).toBuilder().cron(null).build(), now));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> jobScheduler.prepare(schedule(3L, null).toBuilder().cron("* *").build(), now));
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            jobScheduler.prepare(schedule(3L, null).toBuilder().params("{\"fail\":").build(), now));
+  }
+}
@@ -0,0 +1,757 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobState;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import edu.ucsb.cs156.example.jobs.IdempotentTestJob;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.JobWorkflow;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.UserAuthoritiesService;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogStore jobLogStore;
+
+  @Mock private CurrentUserService currentUserService;
+
+  @Mock private UserRepository userRepository;
+
+  @Mock private UserAuthoritiesService userAuthoritiesService;
+
+  @Mock private JobMetrics jobMetrics;
+
+  @Mock private JobCheckpoints jobCheckpoints;
+
+  @InjectMocks private JobService jobService;
+
+  private JobExecutor jobExecutor;
+
+  private final AtomicLong nextId = new AtomicLong(1);
+
+  // "id:status" of every save, with ":interrupted" if the saving thread was interrupted
+  private final List<String> saves = new CopyOnWriteArrayList<>();
+
+  // every job saved, by id
+  private final Map<Long, Job> stored = new ConcurrentHashMap<>();
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    jobExecutor = new JobExecutor();
+    ReflectionTestUtils.setField(jobExecutor, "maxConcurrent", 1);
+    ReflectionTestUtils.setField(jobExecutor, "maxQueued", 10);
+    jobExecutor.init();
+    ReflectionTestUtils.setField(jobService, "jobExecutor", jobExecutor);
+    JobTypes jobTypes = new JobTypes(List.of(TestJob.class, IdempotentTestJob.class));
+    ReflectionTestUtils.setField(jobTypes, "objectMapper", new ObjectMapper());
+    ReflectionTestUtils.setField(jobService, "jobTypes", jobTypes);
+    JobLeases jobLeases = new JobLeases();
+    ReflectionTestUtils.setField(jobLeases, "nodeId", "node-a");
+    ReflectionTestUtils.setField(jobLeases, "durationMs", 60_000L);
+    ReflectionTestUtils.setField(jobService, "jobLeases", jobLeases);
+    JobWorkflows jobWorkflows = new JobWorkflows();
+    ReflectionTestUtils.setField(jobWorkflows, "jobsRepository", jobsRepository);
+    ReflectionTestUtils.setField(jobWorkflows, "jobTypes", jobTypes);
+    ReflectionTestUtils.setField(jobWorkflows, "jobLogStore", jobLogStore);
+    ReflectionTestUtils.setField(jobWorkflows, "objectMapper", new ObjectMapper());
+    ReflectionTestUtils.setField(jobService, "jobWorkflows", jobWorkflows);
+
+    when(jobsRepository.save(any(Job.class)))
+        .thenAnswer(
+            invocation -> {
+              Job job = invocation.getArgument(0);
+              if (job.getId() == 0) {
+                // like JOBS_WORKFLOW_NODE_IDX
+                synchronized (stored) {
+                  if (job.getParentId() != null
+                      && stored.values().stream()
+                          .anyMatch(
+                              other ->
+                                  job.getParentId().equals(other.getParentId())
+                                      && job.getWorkflowNode().equals(other.getWorkflowNode()))) {
+                    throw new DataIntegrityViolationException("JOBS_WORKFLOW_NODE_IDX");
+                  }
+                  job.setId(nextId.getAndIncrement());
+                  stored.put(job.getId(), job);
+                }
+              }
+              saves.add(
+                  job.getId()
+                      + ":"
+                      + job.getStatus()
+                      + (Thread.currentThread().isInterrupted() ? ":interrupted" : ""));
+              return job;
+            });
+  }
+
+  private void storeWorkflows() {
+    when(jobsRepository.findById(anyLong()))
+        .thenAnswer(invocation -> Optional.ofNullable(stored.get(invocation.getArgument(0))));
+    when(jobsRepository.findByParentIdOrderById(anyLong()))
+        .thenAnswer(
+            invocation ->
+                stored.values().stream()
+                    .filter(job -> invocation.getArgument(0).equals(job.getParentId()))
+                    .toList());
+    when(jobsRepository.finishWorkflow(anyLong(), any(), any(), anyLong()))
+        .thenAnswer(
+            invocation -> {
+              Job workflow = stored.get(invocation.getArgument(0));
+              synchronized (stored) {
+                if (!"running".equals(workflow.getStatus())) {
+                  return 0;
+                }
+                workflow.setStatus(invocation.getArgument(1));
+                return 1;
+              }
+            });
+  }
+
+  private String statusOf(Job workflow, String node) {
+    return stored.values().stream()
+        .filter(job -> job.getParentId() != null && job.getParentId() == workflow.getId())
+        .filter(job -> node.equals(job.getWorkflowNode()))
+        .map(Job::getStatus)
+        .findFirst()
+        .orElse(null);
+  }
+
+  private static JobWorkflow.Node node(String name, boolean fail, String... dependsOn) {
+    return JobWorkflow.Node.builder()
+        .name(name)
+        .jobType("TestJob")
+        .params(new ObjectMapper().createObjectNode().put("fail", fail))
+        .dependsOn(List.of(dependsOn))
+        .build();
+  }
+
+  @AfterEach
+  public void teardown() {
+    jobExecutor.shutdown();
+    SecurityContextHolder.clearContext();
+  }
+
+  private static void sleepForever(JobContext ctx) throws InterruptedException {
+    ctx.log("sleeping");
+    Thread.sleep(Long.MAX_VALUE);
+  }
+
+  @Test
+  public void a_running_job_that_is_cancelled_is_interrupted() throws Exception {
+    Job job = jobService.runAsJob(JobServiceTests::sleepForever);
+    await().atMost(5, SECONDS).untilAsserted(() -> verify(jobLogStore).append(1L, "sleeping"));
+
+    assertTrue(jobService.cancelJob(1L));
+
+    await().atMost(5, SECONDS).until(() -> saves.contains("1:cancelled"));
+    assertEquals("queued", job.getStatus());
+    assertEquals(List.of("1:queued", "1:running", "1:cancelled"), saves);
+    verify(jobLogStore).append(eq(1L), endsWith(" WARN Cancelled"));
+    verify(jobLogStore).close(1L);
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getRunningCount() == 0);
+    assertFalse(jobService.cancelJob(1L));
+  }
+
+  @Test
+  public void a_job_that_ignores_interrupts_stops_at_a_checkpoint() throws Exception {
+    CountDownLatch cancelled = new CountDownLatch(1);
+    jobService.runAsJob(
+        ctx -> {
+          while (!ctx.isCancelled()) {
+            Thread.onSpinWait();
+          }
+          cancelled.countDown();
+          ctx.checkpoint();
+          ctx.log("not reached");
+        });
+    await().atMost(5, SECONDS).until(() -> saves.contains("1:running"));
+
+    jobService.cancelJob(1L);
+    jobService.cancelJob(1L);
+
+    assertTrue(cancelled.await(5, SECONDS));
+    await().atMost(5, SECONDS).until(() -> saves.contains("1:cancelled"));
+    verify(jobLogStore, never()).append(1L, "not reached");
+  }
+
+  @Test
+  public void a_job_that_runs_too_long_times_out() throws Exception {
+    jobService.runAsJob(JobServiceTests::sleepForever, 50);
+
+    await().atMost(5, SECONDS).until(() -> saves.contains("1:timed_out"));
+    verify(jobLogStore).append(eq(1L), endsWith(" WARN Timed out after 50 ms"));
+  }
+
+  @Test
+  public void a_job_that_finishes_in_time_completes() throws Exception {
+    jobService.runAsJob(ctx -> ctx.log("quick"), 60_000);
+
+    await().atMost(5, SECONDS).until(() -> saves.contains("1:complete"));
+    assertFalse(jobService.cancelJob(1L));
+  }
+
+  @Test
+  public void a_queued_job_that_is_cancelled_never_runs() throws Exception {
+    jobService.runAsJob(JobServiceTests::sleepForever);
+    jobService.runAsJob(ctx -> ctx.log("should not run"));
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getQueuedCount() == 1);
+
+    assertTrue(jobService.cancelJob(2L));
+
+    assertTrue(saves.contains("2:cancelled"));
+    assertEquals(0, jobExecutor.getQueuedCount());
+    verify(jobLogStore).append(eq(2L), endsWith(" WARN Cancelled before it started"));
+    verify(jobLogStore).close(2L);
+
+    jobService.cancelJob(1L);
+    await().atMost(5, SECONDS).until(() -> saves.contains("1:cancelled"));
+    verify(jobLogStore, never()).append(2L, "should not run");
+  }
+
+  @Test
+  public void the_outcome_of_a_cancelled_job_is_saved_without_an_interrupt() throws Exception {
+    jobService.runAsJob(
+        ctx -> {
+          // swallow the interrupt's exception but leave the thread interrupted
+          try {
+            Thread.sleep(Long.MAX_VALUE);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          ctx.checkpoint();
+        });
+    await().atMost(5, SECONDS).until(() -> saves.contains("1:running"));
+
+    jobService.cancelJob(1L);
+
+    await().atMost(5, SECONDS).until(() -> saves.size() == 3);
+    assertEquals("1:cancelled", saves.get(2));
+  }
+
+  @Test
+  public void a_finished_job_records_its_type_timings_and_log_volume() throws Exception {
+    when(jobLogStore.append(anyLong(), any())).thenReturn(5, 6);
+    Job job =
+        jobService.runAsJob(
+            ctx -> {
+              ctx.log("hello");
+              ctx.log("world");
+            });
+    assertEquals("JobServiceTests", job.getType());
+
+    await().atMost(5, SECONDS).until(() -> saves.contains("1:complete"));
+
+    ArgumentCaptor<Job> saved = ArgumentCaptor.forClass(Job.class);
+    verify(jobsRepository, times(3)).save(saved.capture());
+    Job finished = saved.getValue();
+    assertNotNull(finished.getStartedAt());
+    assertFalse(finished.getFinishedAt().isBefore(finished.getStartedAt()));
+    assertTrue(finished.getDurationMs() >= 0);
+    verify(jobMetrics)
+        .record(
+            eq("JobServiceTests"),
+            eq("complete"),
+            longThat(ms -> ms >= 0),
+            eq(finished.getDurationMs()),
+            eq(11L),
+            eq(2L));
+  }
+
+  @Test
+  public void a_job_cancelled_while_queued_records_no_run_time() throws Exception {
+    when(jobLogStore.append(eq(2L), endsWith(" WARN Cancelled before it started"))).thenReturn(27);
+    jobService.runAsJob(JobServiceTests::sleepForever);
+    jobService.runAsJob(ctx -> {});
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getQueuedCount() == 1);
+
+    jobService.cancelJob(2L);
+
+    ArgumentCaptor<Job> saved = ArgumentCaptor.forClass(Job.class);
+    verify(jobsRepository, times(4)).save(saved.capture());
+    Job cancelled = saved.getValue();
+    assertEquals("cancelled", cancelled.getStatus());
+    assertNull(cancelled.getStartedAt());
+    assertNotNull(cancelled.getFinishedAt());
+    assertNull(cancelled.getDurationMs());
+    verify(jobMetrics)
+        .record(
+            eq("JobServiceTests"),
+            eq("cancelled"),
+            longThat(ms -> ms >= 0),
+            eq(-1L),
+            eq(27L),
+            eq(1L));
+    jobService.cancelJob(1L);
+  }
+
+  @Test
+  public void cancelling_an_unknown_job_does_nothing() {
+    assertFalse(jobService.cancelJob(42L));
+  }
+
+  @Test
+  public void a_shared_job_is_leased_and_run_here_when_there_is_room() throws Exception {
+    Job job = jobService.runAsJob(TestJob.builder().sleepMs(0).build(), 5_000);
+
+    assertEquals("node-a", job.getLeaseOwner());
+    assertEquals("{\"fail\":false,\"sleepMs\":0,\"tasks\":0}", job.getParams());
+    assertEquals(5_000L, job.getTimeoutMs());
+    await().atMost(5, SECONDS).until(() -> saves.contains("1:complete"));
+    ArgumentCaptor<Job> saved = ArgumentCaptor.forClass(Job.class);
+    verify(jobsRepository, times(3)).save(saved.capture());
+    assertNull(saved.getValue().getLeaseOwner());
+    assertNull(saved.getValue().getLeaseExpiresAt());
+  }
+
+  @Test
+  public void a_shared_job_waits_in_the_shared_queue_when_this_node_is_busy() throws Exception {
+    jobService.runAsJob(JobServiceTests::sleepForever);
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getIdleCapacity() == 0);
+
+    Job job = jobService.runAsJob(TestJob.builder().build());
+
+    assertEquals("queued", job.getStatus());
+    assertNull(job.getLeaseOwner());
+    assertEquals(0, jobExecutor.getQueuedCount());
+    assertEquals(List.of("1:queued", "1:running", "2:queued"), saves);
+    jobService.cancelJob(1L);
+  }
+
+  @Test
+  public void a_shared_job_is_refused_when_the_shared_queue_is_full() throws Exception {
+    jobService.runAsJob(JobServiceTests::sleepForever);
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getIdleCapacity() == 0);
+    when(jobsRepository.countUnleased()).thenReturn(10L);
+
+    assertThrows(JobQueueFullException.class, () -> jobService.runAsJob(TestJob.builder().build()));
+
+    assertEquals(List.of("1:queued", "1:running"), saves);
+    jobService.cancelJob(1L);
+  }
+
+  @Test
+  public void a_shared_job_that_loses_the_race_for_a_slot_goes_to_the_shared_queue() {
+    JobExecutor full = mock(JobExecutor.class);
+    when(full.getIdleCapacity()).thenReturn(1);
+    when(full.submit(any())).thenThrow(new JobQueueFullException(10));
+    ReflectionTestUtils.setField(jobService, "jobExecutor", full);
+
+    Job job = jobService.runAsJob(TestJob.builder().build());
+
+    assertNull(job.getLeaseOwner());
+    verify(jobsRepository, times(2)).save(any(Job.class));
+    verify(jobsRepository, never()).delete(any());
+  }
+
+  @Test
+  public void a_local_job_is_refused_and_forgotten_when_the_queue_is_full() {
+    JobExecutor full = mock(JobExecutor.class);
+    when(full.submit(any())).thenThrow(new JobQueueFullException(10));
+    ReflectionTestUtils.setField(jobService, "jobExecutor", full);
+
+    assertThrows(JobQueueFullException.class, () -> jobService.runAsJob(ctx -> {}));
+
+    verify(jobsRepository).delete(any(Job.class));
+    assertFalse(jobService.cancelJob(1L));
+  }
+
+  // runs a job launched by launchedBy, and returns who it ran as
+  private Authentication runAs(User launchedBy) {
+    AtomicReference<Authentication> ranAs = new AtomicReference<>();
+    jobService.runAsJob(
+        ctx -> ranAs.set(SecurityContextHolder.getContext().getAuthentication()), 0, launchedBy);
+    await().atMost(5, SECONDS).until(() -> saves.contains("1:complete"));
+    return ranAs.get();
+  }
+
+  @Test
+  public void a_job_launched_where_nobody_is_logged_in_runs_as_its_creator() {
+    User pat = User.builder().id(7L).email("pat@ucsb.edu").build();
+    OAuth2AuthenticationToken login = mock(OAuth2AuthenticationToken.class);
+    when(userRepository.findById(7L)).thenReturn(Optional.of(pat));
+    when(userAuthoritiesService.authenticationOf(pat)).thenReturn(login);
+
+    assertEquals(login, runAs(User.builder().id(7L).build()));
+    assertNull(SecurityContextHolder.getContext().getAuthentication());
+  }
+
+  @Test
+  public void a_job_with_no_creator_runs_with_nobody_logged_in() {
+    assertNull(runAs(null));
+    verifyNoInteractions(userRepository, userAuthoritiesService);
+  }
+
+  @Test
+  public void a_job_whose_creator_is_no_longer_kept_runs_with_nobody_logged_in() {
+    when(userRepository.findById(7L)).thenReturn(Optional.empty());
+
+    assertNull(runAs(User.builder().id(7L).build()));
+    verifyNoInteractions(userAuthoritiesService);
+  }
+
+  @Test
+  public void a_job_launched_by_a_logged_in_user_runs_as_that_login() {
+    Authentication login = new TestingAuthenticationToken("pat", null, "ROLE_USER");
+    SecurityContextHolder.getContext().setAuthentication(login);
+
+    assertEquals(login, runAs(User.builder().id(7L).build()));
+    verifyNoInteractions(userRepository, userAuthoritiesService);
+  }
+
+  @Test
+  public void a_leased_job_is_rebuilt_from_its_params_and_run() throws Exception {
+    Job job =
+        Job.builder()
+            .id(7L)
+            .type("TestJob")
+            .params("{\"fail\":true,\"sleepMs\":0}")
+            .status("queued")
+            .build();
+
+    jobService.runLeased(job);
+
+    await().atMost(5, SECONDS).until(() -> saves.contains("7:error"));
+    verify(jobLogStore).append(eq(7L), endsWith(" ERROR Fail!"));
+  }
+
+  @Test
+  public void a_leased_job_that_cannot_be_rebuilt_fails() {
+    Job job = Job.builder().id(7L).type("Gone").params("{}").status("queued").build();
+
+    jobService.runLeased(job);
+
+    assertEquals(List.of("7:error"), saves);
+    assertNull(job.getLeaseOwner());
+    assertNotNull(job.getFinishedAt());
+    verify(jobLogStore).append(eq(7L), endsWith(" ERROR Unknown job type Gone"));
+    verify(jobLogStore).close(7L);
+  }
+
+  @Test
+  public void a_leased_job_goes_back_to_the_shared_queue_when_the_executor_is_full() {
+    JobExecutor full = mock(JobExecutor.class);
+    when(full.submit(any())).thenThrow(new JobQueueFullException(10));
+    ReflectionTestUtils.setField(jobService, "jobExecutor", full);
+    Job job =
+        Job.builder()
+            .id(7L)
+            .type("TestJob")
+            .params("{}")
+            .status("queued")
+            .leaseOwner("node-a")
+            .build();
+
+    jobService.runLeased(job);
+
+    assertEquals(List.of("7:queued"), saves);
+    assertNull(job.getLeaseOwner());
+    assertFalse(jobService.cancelJob(7L));
+  }
+
+  @Test
+  public void a_job_in_the_shared_queue_can_be_cancelled_from_any_node() {
+    when(jobsRepository.cancelUnleased(eq(5L), any())).thenReturn(1);
+
+    assertTrue(jobService.cancelJob(5L));
+
+    verify(jobLogStore).append(eq(5L), endsWith(" WARN Cancelled before it started"));
+    verify(jobLogStore).close(5L);
+  }
+
+  @Test
+  public void a_job_leased_by_another_node_is_marked_for_that_node_to_cancel() {
+    when(jobsRepository.requestCancel(eq(5L), eq("node-a"), any())).thenReturn(1);
+
+    assertTrue(jobService.cancelJob(5L));
+
+    verify(jobsRepository).cancelUnleased(eq(5L), any());
+    verify(jobsRepository).requestCancel(eq(5L), eq("node-a"), any());
+    verifyNoInteractions(jobLogStore);
+  }
+
+  @Test
+  public void a_leased_job_that_was_cancelled_on_its_earlier_node_never_runs() {
+    Job job =
+        Job.builder()
+            .id(7L)
+            .type("TestJob")
+            .params("{}")
+            .status("queued")
+            .leaseOwner("node-a")
+            .cancelRequestedAt(ZonedDateTime.now())
+            .build();
+
+    jobService.runLeased(job);
+
+    assertEquals(List.of("7:cancelled"), saves);
+    assertNull(job.getLeaseOwner());
+    verify(jobLogStore).append(eq(7L), endsWith(" WARN Cancelled before it started"));
+    verify(jobLogStore).close(7L);
+  }
+
+  @Test
+  public void shutdown_waits_for_jobs_that_finish_within_the_grace_period() throws Exception {
+    ReflectionTestUtils.setField(jobService, "shutdownGraceMs", 5_000L);
+    jobService.start();
+    assertTrue(jobService.isRunning());
+    jobService.runAsJob(
+        ctx -> {
+          Thread.sleep(100);
+          ctx.log("done");
+        });
+
+    jobService.stop();
+
+    assertFalse(jobService.isRunning());
+    assertEquals(List.of("1:queued", "1:running", "1:complete"), saves);
+  }
+
+  @Test
+  public void shutdown_interrupts_jobs_still_running_after_the_grace_period() throws Exception {
+    ReflectionTestUtils.setField(jobService, "shutdownGraceMs", 50L);
+    jobService.runAsJob(JobServiceTests::sleepForever);
+    jobService.runAsJob(ctx -> ctx.log("never started"));
+    await().atMost(5, SECONDS).until(() -> saves.contains("1:running"));
+
+    jobService.stop();
+
+    assertTrue(saves.contains("1:interrupted"));
+    assertTrue(saves.contains("2:interrupted"));
+    verify(jobLogStore).append(eq(1L), endsWith(" WARN Interrupted by shutdown"));
+    verify(jobLogStore).append(eq(2L), endsWith(" WARN Interrupted by shutdown before it started"));
+    verify(jobLogStore, never()).append(2L, "never started");
+  }
+
+  @Test
+  public void shutdown_sends_idempotent_and_unstarted_shared_jobs_back_to_the_queue()
+      throws Exception {
+    ReflectionTestUtils.setField(jobService, "shutdownGraceMs", 50L);
+    Job running = jobService.runAsJob(IdempotentTestJob.builder().sleepMs(60_000).build());
+    Job waiting =
+        Job.builder()
+            .id(9L)
+            .type("TestJob")
+            .params("{}")
+            .status("queued")
+            .leaseOwner("node-a")
+            .build();
+    await().atMost(5, SECONDS).until(() -> saves.contains("1:running"));
+    jobService.runLeased(waiting);
+
+    jobService.stop();
+
+    // the two jobs are stopped in no particular order
+    assertEquals(4, saves.size(), saves.toString());
+    assertTrue(saves.containsAll(List.of("1:queued", "1:running", "9:queued")));
+    assertEquals("1:queued", saves.stream().filter(save -> save.startsWith("1:")).toList().get(2));
+    assertNull(waiting.getLeaseOwner());
+    verify(jobLogStore)
+        .append(eq(1L), endsWith(" WARN Interrupted by shutdown; queued to run again"));
+    verify(jobLogStore)
+        .append(eq(9L), endsWith(" WARN Not started before shutdown; queued to run again"));
+    assertEquals("queued", running.getStatus());
+  }
+
+  @Test
+  public void shutdown_marks_a_running_job_of_a_type_not_idempotent_interrupted() throws Exception {
+    ReflectionTestUtils.setField(jobService, "shutdownGraceMs", 50L);
+    jobService.runAsJob(TestJob.builder().sleepMs(60_000).build());
+    await().atMost(5, SECONDS).until(() -> saves.contains("1:running"));
+
+    jobService.stop();
+
+    assertEquals(List.of("1:queued", "1:running", "1:interrupted"), saves);
+  }
+
+  @Test
+  public void a_complete_job_drops_its_checkpoint_and_a_failed_one_keeps_it() throws Exception {
+    jobService.runAsJob(ctx -> ctx.checkpoint("step-1", 10));
+    await().atMost(5, SECONDS).until(() -> saves.contains("1:complete"));
+    verify(jobCheckpoints).save(1L, "step-1", 10);
+    verify(jobCheckpoints).clear(1L);
+
+    jobService.runAsJob(
+        ctx -> {
+          ctx.checkpoint("step-1", 10);
+          throw new IllegalStateException("boom");
+        });
+    await().atMost(5, SECONDS).until(() -> saves.contains("2:error"));
+    verify(jobCheckpoints, never()).clear(2L);
+  }
+
+  @Test
+  public void a_job_reads_the_checkpoint_of_its_earlier_run() throws Exception {
+    JobState saved = JobState.builder().jobId(1L).checkpointKey("batch-3").state("3").build();
+    when(jobCheckpoints.last(1L)).thenReturn(Optional.of(saved));
+    when(jobCheckpoints.read(saved, Integer.class)).thenReturn(3);
+
+    jobService.runAsJob(
+        ctx -> {
+          ctx.log("from " + ctx.lastCheckpoint().get().getCheckpointKey());
+          ctx.log("batch " + ctx.lastCheckpoint(Integer.class).get());
+        });
+
+    await().atMost(5, SECONDS).until(() -> saves.contains("1:complete"));
+    verify(jobLogStore).append(1L, "from batch-3");
+    verify(jobLogStore).append(1L, "batch 3");
+  }
+
+  @Test
+  public void a_resumed_job_goes_back_to_the_shared_queue() {
+    when(jobsRepository.resume(4L)).thenReturn(1);
+    when(jobCheckpoints.last(4L))
+        .thenReturn(Optional.of(JobState.builder().jobId(4L).checkpointKey("batch-3").build()));
+
+    assertTrue(jobService.resumeJob(4L));
+
+    verify(jobLogStore).append(eq(4L), endsWith(" INFO Resumed from checkpoint batch-3"));
+    verify(jobLogStore).close(4L);
+  }
+
+  @Test
+  public void a_job_without_a_checkpoint_is_resumed_from_the_start() {
+    when(jobsRepository.resume(4L)).thenReturn(1);
+    when(jobCheckpoints.last(4L)).thenReturn(Optional.empty());
+
+    assertTrue(jobService.resumeJob(4L));
+
+    verify(jobLogStore)
+        .append(eq(4L), endsWith(" INFO Resumed from the start; no checkpoint was saved"));
+  }
+
+  @Test
+  public void a_job_that_cannot_be_resumed_is_left_alone() {
+    when(jobsRepository.resume(4L)).thenReturn(0);
+
+    assertFalse(jobService.resumeJob(4L));
+
+    verify(jobLogStore, never()).append(anyLong(), any());
+  }
+
+  @Test
+  public void a_job_is_not_resumed_when_the_shared_queue_is_full() {
+    when(jobsRepository.countUnleased()).thenReturn(10L);
+
+    assertThrows(JobQueueFullException.class, () -> jobService.resumeJob(4L));
+
+    verify(jobsRepository, never()).resume(anyLong());
+  }
+
+  @Test
+  public void a_workflow_runs_each_node_once_its_dependencies_complete() throws Exception {
+    jobExecutor.shutdown();
+    jobExecutor = new JobExecutor();
+    ReflectionTestUtils.setField(jobExecutor, "maxConcurrent", 4);
+    ReflectionTestUtils.setField(jobExecutor, "maxQueued", 10);
+    jobExecutor.init();
+    ReflectionTestUtils.setField(jobService, "jobExecutor", jobExecutor);
+    storeWorkflows();
+
+    // b fails, so d, which needs it, is skipped; e only needs c, so it still runs
+    Job workflow =
+        jobService.runWorkflow(
+            JobWorkflow.builder()
+                .name("diamond")
+                .nodes(
+                    List.of(
+                        node("a", false),
+                        node("b", true, "a"),
+                        node("c", false, "a"),
+                        node("d", false, "b", "c"),
+                        node("e", false, "c")))
+                .build());
+
+    assertEquals("Workflow", workflow.getType());
+    assertEquals("running", workflow.getStatus());
+    await().atMost(5, SECONDS).until(() -> "error".equals(stored.get(1L).getStatus()));
+    assertEquals("complete", statusOf(workflow, "a"));
+    assertEquals("error", statusOf(workflow, "b"));
+    assertEquals("complete", statusOf(workflow, "c"));
+    assertEquals("skipped", statusOf(workflow, "d"));
+    assertEquals("complete", statusOf(workflow, "e"));
+    assertEquals(6, stored.size());
+    verify(jobLogStore)
+        .append(anyLong(), endsWith(" WARN Skipped because node b did not complete"));
+  }
+
+  @Test
+  public void a_workflow_with_a_cycle_is_refused() {
+    JobWorkflow workflow =
+        JobWorkflow.builder()
+            .nodes(List.of(node("a", false, "c"), node("b", false, "a"), node("c", false, "b")))
+            .build();
+
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> jobService.runWorkflow(workflow));
+
+    assertEquals("The dependencies of nodes a, b, c form a cycle", e.getMessage());
+    verify(jobsRepository, never()).save(any());
+  }
+
+  @Test
+  public void cancelling_a_workflow_cancels_its_running_nodes() throws Exception {
+    storeWorkflows();
+    JobWorkflow.Node slow = node("slow", false);
+    slow.setParams(new ObjectMapper().createObjectNode().put("sleepMs", 60_000));
+    Job workflow =
+        jobService.runWorkflow(
+            JobWorkflow.builder().nodes(List.of(slow, node("next", false, "slow"))).build());
+    await().atMost(5, SECONDS).until(() -> "running".equals(statusOf(workflow, "slow")));
+
+    assertTrue(jobService.cancelJob(workflow.getId()));
+
+    await().atMost(5, SECONDS).until(() -> "cancelled".equals(statusOf(workflow, "slow")));
+    assertEquals("cancelled", stored.get(workflow.getId()).getStatus());
+    assertNull(statusOf(workflow, "next"));
+    assertFalse(jobService.cancelJob(workflow.getId()));
+  }
+}
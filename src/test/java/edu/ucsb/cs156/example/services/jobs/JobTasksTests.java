@@ -0,0 +1,267 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.errors.JobTasksFailedException;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobTasksTests {
+
+  private static volatile byte[] sink;
+
+  private JobsRepository jobsRepository;
+  private JobLogStore jobLogStore;
+  private JobTasks jobTasks;
+  private Job job;
+  private JobControl control;
+  private JobContext context;
+
+  @BeforeEach
+  public void setup() {
+    jobsRepository = mock(JobsRepository.class);
+    jobLogStore = mock(JobLogStore.class);
+    jobTasks = tasksWith(4, 60_000);
+    job = Job.builder().id(7L).build();
+    control = new JobControl(job);
+    context = new JobContext(jobLogStore, job, control, jobTasks, null, null);
+  }
+
+  @AfterEach
+  public void teardown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  private JobTasks tasksWith(int parallelism, long progressIntervalMs) {
+    JobTasks tasks = new JobTasks();
+    ReflectionTestUtils.setField(tasks, "jobsRepository", jobsRepository);
+    ReflectionTestUtils.setField(tasks, "parallelism", parallelism);
+    ReflectionTestUtils.setField(tasks, "progressIntervalMs", progressIntervalMs);
+    tasks.init();
+    return tasks;
+  }
+
+  private static List<Integer> items(int n) {
+    return IntStream.rangeClosed(1, n).boxed().toList();
+  }
+
+  @Test
+  public void parallelism_defaults_to_the_number_of_processors() {
+    assertEquals(Runtime.getRuntime().availableProcessors(), tasksWith(0, 1).getParallelism());
+    assertEquals(4, jobTasks.getParallelism());
+  }
+
+  @Test
+  public void every_item_is_run_with_at_most_parallelism_tasks_at_once() throws Exception {
+    Set<Integer> ran = ConcurrentHashMap.newKeySet();
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger mostRunning = new AtomicInteger();
+
+    context.forEachInParallel(
+        items(50),
+        item -> {
+          mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+          Thread.sleep(2);
+          ran.add(item);
+          running.decrementAndGet();
+        });
+
+    assertEquals(50, ran.size());
+    assertTrue(mostRunning.get() <= 4, "at most 4 ran at once, not " + mostRunning.get());
+    verify(jobsRepository).updateTaskProgress(7L, 50, 50, 0);
+    assertEquals(50, job.getTasksDone());
+    verify(jobLogStore).append(7L, "Ran 50 tasks: 50 succeeded, 0 failed");
+  }
+
+  @Test
+  public void a_smaller_max_parallelism_is_respected() throws Exception {
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+
+    context.forEachInParallel(items(6), 1, item -> threads.add(Thread.currentThread().getName()));
+
+    assertEquals(Set.of("job-7-task-0"), threads);
+  }
+
+  @Test
+  public void failures_are_logged_and_reported_once_every_task_has_run() throws Exception {
+    Set<Integer> ran = ConcurrentHashMap.newKeySet();
+
+    JobTasksFailedException e =
+        assertThrows(
+            JobTasksFailedException.class,
+            () ->
+                context.forEachInParallel(
+                    items(10),
+                    item -> {
+                      ran.add(item);
+                      if (item % 5 == 0) {
+                        throw new IllegalStateException("bad item " + item);
+                      }
+                    }));
+
+    assertEquals("2 of 10 tasks failed", e.getMessage());
+    assertEquals(2, e.getFailed());
+    assertEquals(10, e.getTotal());
+    assertEquals(10, ran.size());
+    verify(jobLogStore).append(eq(7L), endsWith(" ERROR Task 5 failed: bad item 5"));
+    verify(jobLogStore).append(eq(7L), endsWith(" ERROR Task 10 failed: bad item 10"));
+    verify(jobLogStore).append(7L, "Ran 10 tasks: 8 succeeded, 2 failed");
+    verify(jobsRepository).updateTaskProgress(7L, 10, 10, 2);
+  }
+
+  @Test
+  public void progress_accumulates_over_calls() throws Exception {
+    context.forEachInParallel(items(3), item -> {});
+    context.forEachInParallel(items(2), item -> {});
+
+    verify(jobsRepository).updateTaskProgress(7L, 3, 3, 0);
+    verify(jobsRepository).updateTaskProgress(7L, 5, 5, 0);
+    assertEquals(5, job.getTasksTotal());
+  }
+
+  @Test
+  public void progress_is_written_while_tasks_run() throws Exception {
+    context = new JobContext(jobLogStore, job, control, tasksWith(2, 10), null, null);
+    CountDownLatch release = new CountDownLatch(1);
+
+    Thread parent =
+        Thread.ofVirtual()
+            .start(
+                () -> {
+                  try {
+                    context.forEachInParallel(
+                        items(2),
+                        item -> {
+                          if (item == 2) {
+                            release.await();
+                          }
+                        });
+                  } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                  }
+                });
+
+    await()
+        .atMost(5, SECONDS)
+        .untilAsserted(() -> verify(jobsRepository).updateTaskProgress(7L, 2, 1, 0));
+    release.countDown();
+    parent.join();
+    verify(jobsRepository).updateTaskProgress(7L, 2, 2, 0);
+  }
+
+  @Test
+  public void no_items_run_nothing() throws Exception {
+    context.forEachInParallel(List.of(), item -> {});
+    verify(jobsRepository, never()).updateTaskProgress(anyLong(), anyInt(), anyInt(), anyInt());
+  }
+
+  @Test
+  public void stopping_the_job_interrupts_its_tasks_and_starts_no_more() throws Exception {
+    AtomicInteger started = new AtomicInteger();
+    AtomicInteger interrupted = new AtomicInteger();
+    AtomicReference<Exception> thrown = new AtomicReference<>();
+    CountDownLatch running = new CountDownLatch(2);
+    context = new JobContext(jobLogStore, job, control, tasksWith(2, 60_000), null, null);
+
+    Thread parent =
+        Thread.ofVirtual()
+            .start(
+                () -> {
+                  control.start();
+                  try {
+                    context.forEachInParallel(
+                        items(10),
+                        item -> {
+                          started.incrementAndGet();
+                          running.countDown();
+                          try {
+                            Thread.sleep(Long.MAX_VALUE);
+                          } catch (InterruptedException e) {
+                            interrupted.incrementAndGet();
+                            throw e;
+                          }
+                        });
+                  } catch (Exception e) {
+                    thrown.set(e);
+                  }
+                });
+    assertTrue(running.await(5, SECONDS));
+
+    control.stop("cancelled");
+    parent.join();
+
+    assertInstanceOf(InterruptedException.class, thrown.get());
+    assertEquals(2, started.get());
+    assertEquals(2, interrupted.get());
+    verify(jobLogStore, never()).append(anyLong(), startsWith("Task"));
+    verify(jobsRepository).updateTaskProgress(7L, 10, 0, 0);
+  }
+
+  @Test
+  public void tasks_run_with_the_security_context_of_the_job() throws Exception {
+    Authentication authentication = new TestingAuthenticationToken("admin", "password");
+    SecurityContextHolder.getContext().setAuthentication(authentication);
+    AtomicReference<Authentication> seen = new AtomicReference<>();
+
+    context.forEachInParallel(
+        items(1), item -> seen.set(SecurityContextHolder.getContext().getAuthentication()));
+
+    assertSame(authentication, seen.get());
+  }
+
+  @Test
+  public void tasks_run_on_virtual_threads_and_are_not_measured_by_default() throws Exception {
+    Set<Boolean> virtual = ConcurrentHashMap.newKeySet();
+
+    context.forEachInParallel(items(4), item -> virtual.add(Thread.currentThread().isVirtual()));
+
+    assertEquals(Set.of(true), virtual);
+    assertNull(context.getUsage().getAllocatedBytes());
+  }
+
+  @Test
+  public void tasks_run_on_platform_threads_and_count_towards_the_usage_of_the_job()
+      throws Exception {
+    ReflectionTestUtils.setField(jobTasks, "measureUsage", true);
+    Set<Boolean> virtual = ConcurrentHashMap.newKeySet();
+
+    context.forEachInParallel(
+        items(4),
+        item -> {
+          virtual.add(Thread.currentThread().isVirtual());
+          sink = new byte[1_000_000];
+        });
+
+    assertEquals(Set.of(false), virtual);
+    assertTrue(context.getUsage().getAllocatedBytes() >= 4_000_000);
+  }
+}
@@ -0,0 +1,91 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.jobs.IdempotentTestJob;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobTypesTests {
+
+  private final JobTypes jobTypes = new JobTypes();
+
+  @BeforeEach
+  public void setup() {
+    ReflectionTestUtils.setField(jobTypes, "objectMapper", new ObjectMapper());
+  }
+
+  @Test
+  public void a_listed_job_is_stored_as_json_and_rebuilt_from_it() {
+    TestJob job = TestJob.builder().fail(true).sleepMs(250).build();
+
+    assertTrue(jobTypes.isShared(job));
+    String params = jobTypes.toParams(job);
+    assertEquals("{\"fail\":true,\"sleepMs\":250,\"tasks\":0}", params);
+
+    TestJob rebuilt = (TestJob) jobTypes.fromParams("TestJob", params);
+    assertTrue(rebuilt.getFail());
+    assertEquals(250, rebuilt.getSleepMs());
+  }
+
+  @Test
+  public void only_stored_jobs_of_idempotent_types_are_run_again() {
+    JobTypes withIdempotent = new JobTypes(List.of(TestJob.class, IdempotentTestJob.class));
+    assertEquals(Set.of("IdempotentTestJob"), withIdempotent.getIdempotentTypes());
+
+    assertTrue(
+        withIdempotent.isRerunnable(Job.builder().type("IdempotentTestJob").params("{}").build()));
+    assertFalse(withIdempotent.isRerunnable(Job.builder().type("IdempotentTestJob").build()));
+    assertFalse(withIdempotent.isRerunnable(Job.builder().type("TestJob").params("{}").build()));
+  }
+
+  @Test
+  public void no_listed_type_is_idempotent() {
+    assertEquals(Set.of(), jobTypes.getIdempotentTypes());
+  }
+
+  @Test
+  public void a_lambda_is_not_shared() {
+    JobContextConsumer lambda = ctx -> {};
+    assertFalse(jobTypes.isShared(lambda));
+  }
+
+  @Test
+  public void a_job_of_an_unknown_type_cannot_be_rebuilt() {
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> jobTypes.fromParams("Gone", "{}"));
+    assertEquals("Unknown job type Gone", e.getMessage());
+    assertThrows(IllegalArgumentException.class, () -> jobTypes.fromParams("TestJob", null));
+  }
+
+  @Test
+  public void a_job_with_unreadable_params_cannot_be_rebuilt() {
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class, () -> jobTypes.fromParams("TestJob", "{\"fail\":"));
+    assertEquals("Cannot read params of job type TestJob", e.getMessage());
+  }
+
+  @Test
+  public void a_job_that_cannot_be_written_as_json_cannot_be_stored() {
+    JobContextConsumer unwritable =
+        new JobContextConsumer() {
+          public Object getSelf() {
+            return this;
+          }
+
+          @Override
+          public void accept(JobContext ctx) {}
+        };
+    assertThrows(IllegalArgumentException.class, () -> jobTypes.toParams(unwritable));
+  }
+}
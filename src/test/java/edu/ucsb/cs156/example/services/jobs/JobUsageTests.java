@@ -0,0 +1,66 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+public class JobUsageTests {
+
+  private static volatile byte[] sink;
+
+  @Test
+  public void the_counters_of_a_platform_thread_are_sampled() {
+    JobUsage.Sample sample = JobUsage.sample();
+
+    assertTrue(sample.cpuNanos() >= 0);
+    assertTrue(sample.allocatedBytes() >= 0);
+  }
+
+  @Test
+  public void a_virtual_thread_has_no_counters() throws Exception {
+    AtomicReference<JobUsage.Sample> sample = new AtomicReference<>();
+
+    Thread.ofVirtual().start(() -> sample.set(JobUsage.sample())).join();
+
+    assertEquals(new JobUsage.Sample(-1, -1), sample.get());
+  }
+
+  @Test
+  public void what_each_thread_used_is_added_up() throws Exception {
+    JobUsage usage = new JobUsage();
+    Runnable allocate =
+        () -> {
+          JobUsage.Sample before = JobUsage.sample();
+          sink = new byte[4_000_000];
+          usage.addSince(before);
+        };
+
+    allocate.run();
+    Thread other = Thread.ofPlatform().start(allocate);
+    other.join();
+
+    assertNotNull(usage.getCpuMs());
+    assertTrue(usage.getAllocatedBytes() >= 8_000_000, "allocated " + usage.getAllocatedBytes());
+  }
+
+  @Test
+  public void nothing_is_measured_on_virtual_threads() throws Exception {
+    JobUsage usage = new JobUsage();
+
+    Thread.ofVirtual()
+        .start(
+            () -> {
+              JobUsage.Sample before = JobUsage.sample();
+              sink = new byte[1_000];
+              usage.addSince(before);
+            })
+        .join();
+
+    assertNull(usage.getCpuMs());
+    assertNull(usage.getAllocatedBytes());
+  }
+}
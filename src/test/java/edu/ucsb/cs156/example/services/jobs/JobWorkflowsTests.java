@@ -0,0 +1,207 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.models.JobWorkflow;
+import edu.ucsb.cs156.example.models.JobWorkflow.Node;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobWorkflowsTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogStore jobLogStore;
+
+  @InjectMocks private JobWorkflows jobWorkflows;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final List<Job> children = new ArrayList<>();
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    JobTypes jobTypes = new JobTypes();
+    ReflectionTestUtils.setField(jobTypes, "objectMapper", objectMapper);
+    ReflectionTestUtils.setField(jobWorkflows, "jobTypes", jobTypes);
+    ReflectionTestUtils.setField(jobWorkflows, "objectMapper", objectMapper);
+    when(jobsRepository.findByParentIdOrderById(1L)).thenReturn(children);
+    when(jobsRepository.save(any(Job.class)))
+        .thenAnswer(
+            invocation -> {
+              Job job = invocation.getArgument(0);
+              job.setId(100 + children.size());
+              children.add(job);
+              return job;
+            });
+  }
+
+  private static Node node(String name, String... dependsOn) {
+    return Node.builder().name(name).jobType("TestJob").dependsOn(List.of(dependsOn)).build();
+  }
+
+  private Job workflow(Node... nodes) {
+    String params = jobWorkflows.toParams(JobWorkflow.builder().nodes(List.of(nodes)).build());
+    return Job.builder()
+        .id(1L)
+        .type("Workflow")
+        .status("running")
+        .params(params)
+        .startedAt(ZonedDateTime.now())
+        .build();
+  }
+
+  private void finished(String node, String status) {
+    children.add(
+        Job.builder()
+            .id(100 + children.size())
+            .parentId(1L)
+            .workflowNode(node)
+            .status(status)
+            .build());
+  }
+
+  private static List<String> names(List<Node> nodes) {
+    return nodes.stream().map(Node::getName).toList();
+  }
+
+  @Test
+  public void the_params_of_each_node_are_stored_in_full() throws Exception {
+    JobWorkflow workflow = JobWorkflow.builder().name("w").nodes(List.of(node("a"))).build();
+
+    String params = jobWorkflows.toParams(workflow);
+
+    assertEquals(
+        "{\"fail\":false,\"sleepMs\":0,\"tasks\":0}",
+        objectMapper.readTree(params).get("nodes").get(0).get("params").toString());
+    assertEquals("w", jobWorkflows.fromParams(Job.builder().params(params).build()).getName());
+  }
+
+  @Test
+  public void invalid_workflows_are_refused() {
+    assertEquals(
+        "A workflow needs at least one node",
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> jobWorkflows.toParams(JobWorkflow.builder().build()))
+            .getMessage());
+    assertEquals(
+        "Every node of a workflow needs a name",
+        assertThrows(IllegalArgumentException.class, () -> workflow(node(" "))).getMessage());
+    assertEquals(
+        "Node names must be unique; a is used twice",
+        assertThrows(IllegalArgumentException.class, () -> workflow(node("a"), node("a")))
+            .getMessage());
+    assertEquals(
+        "Node b depends on unknown node c",
+        assertThrows(IllegalArgumentException.class, () -> workflow(node("a"), node("b", "c")))
+            .getMessage());
+    assertEquals(
+        "The dependencies of nodes a form a cycle",
+        assertThrows(IllegalArgumentException.class, () -> workflow(node("a", "a"))).getMessage());
+    Node unknown = Node.builder().name("a").jobType("Gone").build();
+    assertEquals(
+        "Unknown job type Gone",
+        assertThrows(IllegalArgumentException.class, () -> workflow(unknown)).getMessage());
+  }
+
+  @Test
+  public void only_the_nodes_downstream_of_a_cycle_are_in_it() {
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> workflow(node("a"), node("b", "a", "d"), node("c", "b"), node("d", "c")));
+
+    assertEquals("The dependencies of nodes b, c, d form a cycle", e.getMessage());
+  }
+
+  @Test
+  public void the_roots_are_ready_first_and_their_dependants_once_they_complete() {
+    Job workflow = workflow(node("a"), node("b"), node("c", "a", "b"));
+
+    assertEquals(List.of("a", "b"), names(jobWorkflows.advance(workflow)));
+
+    finished("a", "complete");
+    children.add(Job.builder().parentId(1L).workflowNode("b").status("running").build());
+    assertEquals(List.of(), names(jobWorkflows.advance(workflow)));
+
+    children.get(1).setStatus("complete");
+    assertEquals(List.of("c"), names(jobWorkflows.advance(workflow)));
+    verify(jobsRepository, never()).finishWorkflow(anyLong(), any(), any(), anyLong());
+  }
+
+  @Test
+  public void a_failed_node_skips_everything_downstream_of_it() {
+    Job workflow = workflow(node("a"), node("b", "a"), node("c", "b"), node("d"));
+    finished("a", "error");
+    finished("d", "complete");
+
+    assertEquals(List.of(), names(jobWorkflows.advance(workflow)));
+
+    assertEquals("skipped", children.get(2).getStatus());
+    assertEquals("b", children.get(2).getWorkflowNode());
+    assertEquals("skipped", children.get(3).getStatus());
+    assertEquals("c", children.get(3).getWorkflowNode());
+    verify(jobLogStore).append(eq(102L), endsWith(" WARN Skipped because node a did not complete"));
+    verify(jobLogStore).append(eq(103L), endsWith(" WARN Skipped because node b did not complete"));
+    verify(jobsRepository).finishWorkflow(eq(1L), eq("error"), any(), anyLong());
+  }
+
+  @Test
+  public void a_workflow_whose_nodes_all_complete_is_complete() {
+    Job workflow = workflow(node("a"), node("b", "a"));
+    finished("a", "complete");
+    finished("b", "complete");
+
+    assertEquals(List.of(), names(jobWorkflows.advance(workflow)));
+
+    ArgumentCaptor<Long> durationMs = ArgumentCaptor.forClass(Long.class);
+    verify(jobsRepository).finishWorkflow(eq(1L), eq("complete"), any(), durationMs.capture());
+    assertTrue(durationMs.getValue() >= 0);
+  }
+
+  @Test
+  public void a_workflow_that_is_not_running_is_left_alone() {
+    Job workflow = workflow(node("a"));
+    workflow.setStatus("cancelled");
+
+    assertEquals(List.of(), jobWorkflows.advance(workflow));
+
+    verify(jobsRepository, never()).findByParentIdOrderById(anyLong());
+  }
+
+  @Test
+  public void a_node_skipped_by_another_thread_first_stops_this_advance() {
+    Job workflow = workflow(node("a"), node("b", "a"), node("c"));
+    finished("a", "error");
+    when(jobsRepository.save(any(Job.class)))
+        .thenThrow(new DataIntegrityViolationException("JOBS_WORKFLOW_NODE_IDX"));
+
+    assertEquals(List.of(), jobWorkflows.advance(workflow));
+
+    verify(jobLogStore, never()).append(anyLong(), any());
+    verify(jobsRepository, never()).finishWorkflow(anyLong(), any(), any(), anyLong());
+  }
+}
@@ -3,6 +3,7 @@ package edu.ucsb.cs156.example.testconfig;
 import edu.ucsb.cs156.example.config.SecurityConfig;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.services.UserCache;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
@@ -20,4 +21,9 @@ public class TestConfig {
   public GrantedAuthoritiesService grantedAuthoritiesService() {
     return new GrantedAuthoritiesService();
   }
+
+  @Bean
+  public UserCache userCache() {
+    return new UserCache();
+  }
 }